@@ -0,0 +1,36 @@
+package com.example.notificationservice.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Точка входа benchmarks.jar: org.openjdk.jmh.Main с результатами в JSON.
+ * 
+ * Если формат и файл результатов не заданы явно (-rf, -rff), результаты
+ * пишутся в jmh-result.json в текущем каталоге. Этот файл сравнивается
+ * с эталоном через RegressionCheck.
+ * 
+ *   java -jar benchmarks/target/benchmarks.jar                  # все бенчмарки
+ *   java -jar benchmarks/target/benchmarks.jar EmailService     # по регулярному выражению
+ *   java -jar benchmarks/target/benchmarks.jar -rff current.json -prof gc
+ */
+public final class BenchmarkMain {
+    
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+    
+    private BenchmarkMain() {}
+    
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.add("-rf");
+            jmhArgs.add("json");
+        }
+        if (!jmhArgs.contains("-rff")) {
+            jmhArgs.add("-rff");
+            jmhArgs.add(DEFAULT_RESULT_FILE);
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.notificationservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.support.BoundedExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Формирование и отправка письма в EmailService при no-op JavaMailSender.
+ * 
+ * Измеряет все, что EmailService делает до сети: сборку сообщения,
+ * рендеринг шаблона, метрики и логирование.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailServiceBenchmark {
+    
+    private BoundedExecutor mailSendExecutor;
+    private EmailService emailService;
+    private UserEvent userEvent;
+    
+    @Setup
+    public void setUp() {
+        mailSendExecutor = Fixtures.mailSendExecutor();
+        emailService = Fixtures.emailService(mailSendExecutor);
+        userEvent = new UserEvent("CREATE", "user@example.com");
+        userEvent.setLocale("en");
+    }
+    
+    @TearDown
+    public void tearDown() {
+        mailSendExecutor.shutdown();
+    }
+    
+    @Benchmark
+    public boolean sendEmail() {
+        return emailService.sendEmail("user@example.com", "Уведомление", "Текст уведомления");
+    }
+    
+    @Benchmark
+    public boolean sendAccountCreatedEmail() {
+        return emailService.sendAccountCreatedEmail("user@example.com");
+    }
+    
+    @Benchmark
+    public SimpleMailMessage createUserEventMessage() {
+        return emailService.createUserEventMessage(userEvent);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.notificationservice.benchmarks;
+
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+import com.example.notificationservice.metrics.NotificationMetrics;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.template.EmailTemplateEngine;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Общие объекты бенчмарков: сервис отправки без SMTP-сервера.
+ */
+final class Fixtures {
+    
+    private Fixtures() {}
+    
+    /**
+     * EmailService с настройками по умолчанию из application.yml и no-op отправкой.
+     */
+    static EmailService emailService(BoundedExecutor mailSendExecutor) {
+        EmailTemplateEngine templateEngine = new EmailTemplateEngine(null, new Locale("ru"), 256, 5000);
+        return new EmailService(new NoopMailSender(), mailSendExecutor, templateEngine, NotificationMetrics.noop(),
+            null, null, null);
+    }
+    
+    /**
+     * Исполнитель асинхронной отправки с настройками по умолчанию.
+     */
+    static BoundedExecutor mailSendExecutor() {
+        return new BoundedExecutor("bench-mail-send", BoundedExecutor.ThreadType.PLATFORM, 4, 1000);
+    }
+    
+    /**
+     * JavaMailSender, который принимает письма и никуда их не отправляет:
+     * измеряется формирование сообщения, а не сеть.
+     */
+    static final class NoopMailSender implements JavaMailSender {
+        
+        private final Session session = Session.getInstance(new Properties());
+        
+        @Override
+        public MimeMessage createMimeMessage() {
+            return new MimeMessage(session);
+        }
+        
+        @Override
+        public MimeMessage createMimeMessage(InputStream contentStream) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public void send(MimeMessage mimeMessage) {
+        }
+        
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+        }
+        
+        @Override
+        public void send(MimeMessagePreparator mimeMessagePreparator) {
+        }
+        
+        @Override
+        public void send(MimeMessagePreparator... mimeMessagePreparators) {
+        }
+        
+        @Override
+        public void send(SimpleMailMessage simpleMessage) {
+        }
+        
+        @Override
+        public void send(SimpleMailMessage... simpleMessages) {
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.notificationservice.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.support.LogSampler;
+import com.example.notificationservice.support.Validation;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячий путь обработки события и запроса: разбор операции, валидация и
+ * лог успешной отправки.
+ * 
+ * Каждая пара методов legacy* / current* сравнивает прежнюю реализацию
+ * (toUpperCase на каждое событие, trim() при проверке, INFO-строка с
+ * toString() события на каждое письмо) с текущей. Разницу в аллокациях
+ * показывает профилировщик GC:
+ * 
+ *   java -jar benchmarks/target/benchmarks.jar HotPath -prof gc
+ * 
+ * Смотреть на gc.alloc.rate.norm (байт на операцию).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+    
+    private UserEvent userEvent;
+    private EmailRequest emailRequest;
+    private Logger logger;
+    private LogSampler sampler;
+    
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        // Операция в нижнем регистре: прежний код вызывал toUpperCase на каждое событие
+        userEvent = new UserEvent("create", "user@example.com");
+        emailRequest = new EmailRequest("user@example.com", "Тема", "Текст сообщения");
+        logger = nullLogger();
+        sampler = new LogSampler(10, TimeUnit.SECONDS);
+    }
+    
+    @Benchmark
+    public int legacyOperationSwitch() {
+        switch (userEvent.getOperation().toUpperCase()) {
+            case "CREATE":
+                return 1;
+            case "DELETE":
+                return 2;
+            default:
+                return 0;
+        }
+    }
+    
+    @Benchmark
+    public int currentOperationSwitch() {
+        switch (userEvent.getOperationType()) {
+            case CREATE:
+                return 1;
+            case DELETE:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+    
+    @Benchmark
+    public boolean legacyRequestValidation() {
+        return !(emailRequest.getEmail() == null || emailRequest.getEmail().trim().isEmpty())
+            && !(emailRequest.getMessage() == null || emailRequest.getMessage().trim().isEmpty());
+    }
+    
+    @Benchmark
+    public boolean currentRequestValidation() {
+        // Дополнительно проверяет синтаксис адреса
+        return !Validation.isBlank(emailRequest.getEmail())
+            && Validation.isValidEmail(emailRequest.getEmail())
+            && !Validation.isBlank(emailRequest.getMessage());
+    }
+    
+    @Benchmark
+    public void legacySuccessLog() {
+        logger.info("Получено событие из Kafka: {}", userEvent);
+        logger.info("Уведомление для операции '{}' успешно отправлено на {}",
+                    userEvent.getOperation(), userEvent.getEmail());
+    }
+    
+    @Benchmark
+    public void currentSuccessLog() {
+        logger.debug("Получено событие из Kafka: {}", userEvent);
+        logger.debug("Уведомление для операции '{}' успешно отправлено на {}",
+                     userEvent.getOperationType(), userEvent.getEmail());
+        long delivered = sampler.sample();
+        if (delivered > 0) {
+            logger.info("Отправлено уведомлений по событиям за последние {} с: {}",
+                        sampler.getIntervalSeconds(), delivered);
+        }
+    }
+    
+    /**
+     * Логгер уровня INFO с форматированием по шаблону Spring Boot и записью в никуда:
+     * измеряется стоимость формирования строки, а не ввода-вывода.
+     */
+    private static Logger nullLogger() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p --- [%t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        
+        Logger logger = context.getLogger(HotPathBenchmark.class);
+        logger.detachAndStopAllAppenders();
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+        return logger;
+    }
+}
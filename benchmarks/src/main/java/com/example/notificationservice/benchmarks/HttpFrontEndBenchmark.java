@@ -0,0 +1,174 @@
+package com.example.notificationservice.benchmarks;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.util.ClassUtils;
+import com.example.notificationservice.NotificationServiceApplication;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочное сравнение REST API на Spring MVC/Tomcat и WebFlux/Reactor Netty.
+ * 
+ * Поднимает приложение (с embedded Kafka и GreenMail, как PipelineBenchmark)
+ * в режиме servlet или в профиле reactive. Одна операция - волна из
+ * concurrency одновременных запросов POST /api/notifications/send-email
+ * по HTTP/1.1 (каждый в своем соединении), ответы которых приходят после
+ * SMTP-сервера; счетчик requests дает запросы в секунду. Ответ не 200
+ * (например, 503 при переполненной очереди отправки) завершает бенчмарк ошибкой.
+ * 
+ * По умолчанию измеряется только servlet: вариант reactive требует сборки
+ * обоих модулей с профилем Maven reactive (см. benchmarks/pom.xml).
+ * 
+ *   java -jar benchmarks/target/benchmarks.jar HttpFrontEnd -p concurrency=4096
+ *   mvn -B -Preactive package
+ *   java -jar benchmarks/target/benchmarks.jar HttpFrontEnd -p frontEnd=servlet,reactive
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class HttpFrontEndBenchmark {
+    
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    
+    // Входит в jar сервиса только при сборке с профилем reactive
+    private static final String REACTIVE_CONTROLLER =
+        "com.example.notificationservice.controller.ReactiveNotificationController";
+    
+    @Param({"servlet"})
+    public String frontEnd;
+    
+    @Param({"256", "2048"})
+    public int concurrency;
+    
+    private EmbeddedKafkaBroker broker;
+    private GreenMail smtpServer;
+    private ConfigurableApplicationContext application;
+    private HttpClient client;
+    private URI sendEmailUri;
+    private long sequence;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("reactive".equals(frontEnd) && !ClassUtils.isPresent(REACTIVE_CONTROLLER, null)) {
+            throw new IllegalStateException("Вариант reactive требует сборки с профилем Maven reactive: "
+                + "mvn -B -Preactive package");
+        }
+        
+        broker = new EmbeddedKafkaBroker(1, false, 1, "user-events");
+        broker.afterPropertiesSet();
+        
+        int smtpPort = freePort();
+        smtpServer = new GreenMail(new ServerSetup(smtpPort, "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+        smtpServer.start();
+        
+        application = new SpringApplicationBuilder(NotificationServiceApplication.class).run(
+            "--spring.profiles.active=" + ("reactive".equals(frontEnd) ? "reactive" : "default"),
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--logging.level.com.example.notificationservice=WARN",
+            "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+            "--spring.mail.host=127.0.0.1",
+            "--spring.mail.port=" + smtpPort,
+            "--spring.mail.username=",
+            "--spring.mail.password=",
+            "--spring.mail.properties.mail.smtp.auth=false",
+            "--spring.mail.properties.mail.smtp.starttls.enable=false",
+            // Очередь отправки вмещает все одновременные запросы
+            "--notification.mail.async.queue-capacity=" + concurrency * 2,
+            "--server.tomcat.max-connections=" + concurrency * 2);
+        
+        int port = Integer.parseInt(application.getEnvironment().getRequiredProperty("local.server.port"));
+        sendEmailUri = URI.create("http://127.0.0.1:" + port + "/api/notifications/send-email");
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (application != null) {
+            application.close();
+        }
+        if (smtpServer != null) {
+            smtpServer.stop();
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+    
+    @Setup(Level.Invocation)
+    public void purgeMailboxes() throws Exception {
+        smtpServer.purgeEmailFromAllMailboxes();
+    }
+    
+    /**
+     * Счетчик отправленных запросов: JMH выводит его как запросы в секунду.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Requests {
+        public long requests;
+    }
+    
+    @Benchmark
+    public void sendEmail(Requests counter) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            String body = "{\"email\":\"user-" + (sequence++) + "@example.com\","
+                + "\"subject\":\"Уведомление\",\"message\":\"Текст уведомления\"}";
+            HttpRequest request = HttpRequest.newBuilder(sendEmailUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("Ответ " + status + " от " + frontEnd);
+            }
+        }
+        counter.requests += concurrency;
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,679 @@
+package com.example.notificationservice.benchmarks;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import com.example.notificationservice.NotificationServiceApplication;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * Нагрузочный и длительный (soak) прогон notification-service.
+ * 
+ * В процессе поднимаются встроенный брокер Kafka, SMTP-заглушка
+ * (StubSmtpServer) с заданной задержкой, долей ошибок и ограничением
+ * частоты и само приложение. Два генератора с открытым циклом подают
+ * события CREATE в user-events и запросы POST /api/notifications/send-email
+ * с заданной частотой, не дожидаясь ответов: очередная операция
+ * запланирована на start + n / rate, и задержка считается от этого
+ * запланированного момента, а не от фактической отправки. Поэтому
+ * торможение сервиса не прячет задержку (coordinated omission): если
+ * генератор отстал, накопившиеся операции уходят пачкой, и их ожидание
+ * входит в результат. Для Kafka задержка - до приема письма SMTP-заглушкой,
+ * для HTTP - до ответа 2xx.
+ * 
+ * Каждые report-interval-seconds печатается строка: пропускная способность
+ * и перцентили задержки за интервал (HdrHistogram), лаг группы потребителей
+ * user-events, минимальный heap после GC, число и время сборок, счетчики
+ * SMTP-заглушки. После прогрева (warmup-seconds) интервалы копятся в итоговые
+ * гистограммы; после нагрузки генераторы останавливаются, и прогон ждет
+ * доставки до drain-seconds. Итог: пропускная способность, перцентили,
+ * рост лага и тренд heap после GC за время измерения, доля времени GC,
+ * недоставленные и повторные письма. В каталог output пишутся
+ * intervals.csv и распределения задержек *.hgrm (формат HdrHistogram,
+ * открываются HistogramLogAnalyzer/hdrhistogram plotter).
+ * 
+ * Генераторы работают в одном JVM с приложением: heap и GC в отчете
+ * включают и их, поэтому сравнивать стоит прогоны с одинаковой частотой.
+ * Адреса уникальны, чтобы события не отсеивались дедупликацией.
+ * 
+ *   java -Xmx1g -cp benchmarks/target/benchmarks.jar \
+ *       com.example.notificationservice.benchmarks.LoadHarness \
+ *       --duration-seconds=3600 --kafka-rate=500 --http-rate=50 \
+ *       --smtp-latency-ms=30 --smtp-error-rate=0.01 [--свойство.приложения=значение ...]
+ * 
+ * Параметры, не перечисленные в DEFAULTS, передаются приложению
+ * (например --spring.profiles.active=reactive).
+ */
+public final class LoadHarness {
+    
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    
+    static {
+        DEFAULTS.put("duration-seconds", "300");         // нагрузка вместе с прогревом
+        DEFAULTS.put("warmup-seconds", "30");            // не входит в итог
+        DEFAULTS.put("drain-seconds", "60");             // ожидание доставки после нагрузки
+        DEFAULTS.put("report-interval-seconds", "10");
+        DEFAULTS.put("kafka-rate", "200");               // событий user-events в секунду, 0 - без Kafka
+        DEFAULTS.put("http-rate", "20");                 // запросов send-email в секунду, 0 - без HTTP
+        DEFAULTS.put("http-max-outstanding", "10000");   // запросов без ответа, сверх - пропуск
+        DEFAULTS.put("partitions", "4");                 // партиций user-events
+        DEFAULTS.put("smtp-latency-ms", "20");
+        DEFAULTS.put("smtp-jitter-ms", "10");
+        DEFAULTS.put("smtp-error-rate", "0");
+        DEFAULTS.put("smtp-error-code", "451");
+        DEFAULTS.put("smtp-max-rate", "0");              // писем в секунду, 0 - без ограничения
+        DEFAULTS.put("output", "");                      // пусто - временный каталог
+    }
+    
+    private static final String TOPIC = "user-events";
+    private static final int SIGNIFICANT_DIGITS = 3;
+    
+    private final Map<String, String> options;
+    private final long reportIntervalNanos;
+    private final int partitions;
+    
+    private EmbeddedKafkaBroker broker;
+    private StubSmtpServer smtpServer;
+    private ConfigurableApplicationContext application;
+    private KafkaProducer<String, String> producer;
+    private AdminClient admin;
+    private HttpClient httpClient;
+    private String groupId;
+    private URI sendEmailUri;
+    
+    // Kafka: запланированный момент каждого события до приема письма
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Recorder kafkaRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram kafkaTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final AtomicLong kafkaSent = new AtomicLong();
+    private final LongAdder kafkaDelivered = new LongAdder();
+    private final LongAdder kafkaDuplicates = new LongAdder();
+    private final LongAdder kafkaSendErrors = new LongAdder();
+    
+    // HTTP
+    private final Recorder httpRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram httpTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final AtomicLong httpSent = new AtomicLong();
+    private final LongAdder httpCompleted = new LongAdder();
+    private final LongAdder httpErrors = new LongAdder();
+    private final LongAdder httpDropped = new LongAdder();
+    private final AtomicInteger httpOutstanding = new AtomicInteger();
+    
+    // Heap после GC: минимум за интервал приближает живой набор объектов
+    private final Set<String> heapPools = new HashSet<>();
+    private final AtomicLong minHeapAfterGc = new AtomicLong(Long.MAX_VALUE);
+    
+    private final List<Interval> intervals = new ArrayList<>();
+    private volatile long startNanos;
+    private volatile long measureFromNanos;
+    private volatile long loadEndNanos;
+    
+    private LoadHarness(Map<String, String> options) {
+        this.options = options;
+        this.reportIntervalNanos = TimeUnit.SECONDS.toNanos(longOption("report-interval-seconds"));
+        this.partitions = (int) longOption("partitions");
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (key != null && DEFAULTS.containsKey(key)) {
+                options.put(key, arg.substring(eq + 1));
+            } else {
+                appArgs.add(arg);
+            }
+        }
+        
+        LoadHarness harness = new LoadHarness(options);
+        int exitCode;
+        try {
+            harness.start(appArgs);
+            exitCode = harness.run();
+        } finally {
+            harness.close();
+        }
+        System.exit(exitCode);
+    }
+    
+    private void start(List<String> appArgs) throws IOException {
+        broker = new EmbeddedKafkaBroker(1, false, partitions, TOPIC);
+        broker.afterPropertiesSet();
+        
+        smtpServer = new StubSmtpServer(longOption("smtp-latency-ms"), longOption("smtp-jitter-ms"),
+            Double.parseDouble(options.get("smtp-error-rate")), (int) longOption("smtp-error-code"),
+            (int) longOption("smtp-max-rate"), this::onDelivered);
+        
+        List<String> args = new ArrayList<>(List.of(
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--logging.level.com.example.notificationservice=WARN",
+            "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+            "--spring.mail.host=127.0.0.1",
+            "--spring.mail.port=" + smtpServer.getPort(),
+            "--spring.mail.username=",
+            "--spring.mail.password=",
+            "--spring.mail.properties.mail.smtp.auth=false",
+            "--spring.mail.properties.mail.smtp.starttls.enable=false"));
+        // Аргументы прогона перекрывают умолчания: Spring берет последнее значение
+        args.addAll(appArgs);
+        application = new SpringApplicationBuilder(NotificationServiceApplication.class)
+            .run(args.toArray(new String[0]));
+        groupId = application.getEnvironment().getProperty("spring.kafka.consumer.group-id", "notification-group");
+        sendEmailUri = URI.create("http://127.0.0.1:"
+            + application.getEnvironment().getRequiredProperty("local.server.port")
+            + "/api/notifications/send-email");
+        
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        producer = new KafkaProducer<>(props, new StringSerializer(), new StringSerializer());
+        admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        
+        watchGc();
+    }
+    
+    /**
+     * Прогрев, нагрузка и ожидание доставки.
+     * 
+     * @return 0, если все события доставлены, иначе 1
+     */
+    private int run() throws Exception {
+        long durationNanos = TimeUnit.SECONDS.toNanos(longOption("duration-seconds"));
+        long warmupNanos = Math.min(TimeUnit.SECONDS.toNanos(longOption("warmup-seconds")), durationNanos);
+        startNanos = System.nanoTime();
+        measureFromNanos = startNanos + warmupNanos;
+        loadEndNanos = startNanos + durationNanos;
+        
+        System.out.printf("Нагрузка %d с (прогрев %d с): Kafka %s/с, HTTP %s/с; SMTP %s±%s мс, ошибки %s (%s), "
+                + "предел %s/с%n",
+            longOption("duration-seconds"), longOption("warmup-seconds"), options.get("kafka-rate"),
+            options.get("http-rate"), options.get("smtp-latency-ms"), options.get("smtp-jitter-ms"),
+            options.get("smtp-error-rate"), options.get("smtp-error-code"), options.get("smtp-max-rate"));
+        System.out.printf("%6s %9s %8s %8s %8s %9s %8s %8s %8s %8s %8s %8s %6s %8s %7s %7s%n",
+            "t, с", "kafka/с", "p50", "p99", "max", "http/с", "p50", "p99", "max", "ошибки",
+            "лаг", "heap, МБ", "gc", "gc, мс", "smtp-", "smtp-thr");
+        
+        List<Thread> generators = new ArrayList<>();
+        double kafkaRate = Double.parseDouble(options.get("kafka-rate"));
+        double httpRate = Double.parseDouble(options.get("http-rate"));
+        if (kafkaRate > 0) {
+            generators.add(generator("load-kafka", kafkaRate, this::sendEvent));
+        }
+        if (httpRate > 0) {
+            generators.add(generator("load-http", httpRate, this::sendRequest));
+        }
+        
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, reportIntervalNanos, reportIntervalNanos, TimeUnit.NANOSECONDS);
+        
+        sleepUntil(measureFromNanos);
+        Snapshot measureStart = snapshot();
+        for (Thread generator : generators) {
+            generator.join();
+        }
+        Snapshot loadEnd = snapshot();
+        
+        // Ожидание доставки: лаг и ожидающие письма должны уйти в ноль
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(longOption("drain-seconds"));
+        while (System.nanoTime() < drainDeadline
+                && (!pending.isEmpty() || httpOutstanding.get() > 0 || consumerLag() != 0)) {
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+        reporter.shutdown();
+        reporter.awaitTermination(10, TimeUnit.SECONDS);
+        // Хвост ожидания доставки, если интервал отчета не закончился только что
+        if (intervals.isEmpty()
+                || System.nanoTime() - intervals.get(intervals.size() - 1).nanoTime > TimeUnit.SECONDS.toNanos(1)) {
+            report();
+        }
+        Snapshot drained = snapshot();
+        
+        summarize(measureStart, loadEnd, drained);
+        return pending.isEmpty() && kafkaSendErrors.sum() == 0 ? 0 : 1;
+    }
+    
+    /**
+     * Генератор с открытым циклом: операция n запланирована на start + n / rate
+     * и выполняется, как только наступил ее момент, независимо от ответов сервиса.
+     * 
+     * @param operation - операция; аргумент - запланированный момент (System.nanoTime)
+     */
+    private Thread generator(String name, double rate, LongConsumer operation) {
+        Thread thread = new Thread(() -> {
+            double periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            for (long n = 0; ; n++) {
+                long intended = startNanos + (long) (n * periodNanos);
+                if (intended >= loadEndNanos) {
+                    return;
+                }
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                operation.accept(intended);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+    
+    private void sendEvent(long intended) {
+        String email = "k" + kafkaSent.getAndIncrement() + "@load.test";
+        pending.put(email, intended);
+        producer.send(new ProducerRecord<>(TOPIC, email, "{\"operation\":\"CREATE\",\"email\":\"" + email + "\"}"),
+            (metadata, e) -> {
+                if (e != null && pending.remove(email) != null) {
+                    kafkaSendErrors.increment();
+                }
+            });
+    }
+    
+    private void sendRequest(long intended) {
+        if (httpOutstanding.get() >= longOption("http-max-outstanding")) {
+            // Предохранитель от неограниченного роста очереди клиента
+            httpDropped.increment();
+            return;
+        }
+        String email = "h" + httpSent.getAndIncrement() + "@load.test";
+        HttpRequest request = HttpRequest.newBuilder(sendEmailUri)
+            .timeout(Duration.ofSeconds(60))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"" + email
+                + "\",\"subject\":\"Load test\",\"message\":\"Load test message\"}"))
+            .build();
+        httpOutstanding.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+            long now = System.nanoTime();
+            httpOutstanding.decrementAndGet();
+            if (e == null && response.statusCode() / 100 == 2) {
+                httpCompleted.increment();
+                httpRecorder.recordValue(micros(now - intended));
+            } else {
+                httpErrors.increment();
+            }
+        });
+    }
+    
+    /**
+     * Прием письма SMTP-заглушкой; письма HTTP-запросов учитываются по ответу.
+     */
+    private void onDelivered(String recipient, long nanoTime) {
+        if (!recipient.startsWith("k")) {
+            return;
+        }
+        Long intended = pending.remove(recipient);
+        if (intended == null) {
+            kafkaDuplicates.increment();
+            return;
+        }
+        kafkaDelivered.increment();
+        kafkaRecorder.recordValue(micros(nanoTime - intended));
+    }
+    
+    /**
+     * Строка отчета за интервал; после прогрева интервал добавляется в итог.
+     */
+    private synchronized void report() {
+        long now = System.nanoTime();
+        Histogram kafka = kafkaRecorder.getIntervalHistogram();
+        Histogram http = httpRecorder.getIntervalHistogram();
+        double seconds = intervals.isEmpty()
+            ? (now - startNanos) / 1e9 : (now - intervals.get(intervals.size() - 1).nanoTime) / 1e9;
+        boolean measured = now > measureFromNanos;
+        if (measured) {
+            kafkaTotal.add(kafka);
+            httpTotal.add(http);
+        }
+        long heap = minHeapAfterGc.getAndSet(Long.MAX_VALUE);
+        Interval interval = new Interval(now, measured && now <= loadEndNanos + reportIntervalNanos,
+            consumerLag(), heap == Long.MAX_VALUE ? -1 : heap, gcCount(), gcMillis());
+        long gcCount = interval.gcCount - (intervals.isEmpty() ? 0 : intervals.get(intervals.size() - 1).gcCount);
+        long gcMillis = interval.gcMillis - (intervals.isEmpty() ? 0 : intervals.get(intervals.size() - 1).gcMillis);
+        intervals.add(interval);
+        
+        String line = String.format("%6d %9.1f %8.2f %8.2f %8.2f %9.1f %8.2f %8.2f %8.2f %8d %8d %8s %6d %8d %7d %7d",
+            TimeUnit.NANOSECONDS.toSeconds(now - startNanos),
+            kafka.getTotalCount() / seconds, millis(kafka, 50), millis(kafka, 99), maxMillis(kafka),
+            http.getTotalCount() / seconds, millis(http, 50), millis(http, 99), maxMillis(http),
+            httpErrors.sum() + httpDropped.sum(), interval.lag,
+            interval.heapAfterGc < 0 ? "-" : String.format("%.1f", interval.heapAfterGc / 1048576.0),
+            gcCount, gcMillis, smtpServer.getFailed(), smtpServer.getThrottled());
+        System.out.println(line);
+        interval.line = line;
+    }
+    
+    private void summarize(Snapshot measureStart, Snapshot loadEnd, Snapshot drained) throws IOException {
+        double measuredSeconds = (loadEnd.nanoTime - measureStart.nanoTime) / 1e9;
+        List<Interval> measured = new ArrayList<>();
+        for (Interval interval : intervals) {
+            if (interval.measured) {
+                measured.add(interval);
+            }
+        }
+        
+        System.out.printf("%nИтог за %.0f с измерения (без прогрева и ожидания доставки):%n", measuredSeconds);
+        System.out.printf("  Kafka: отправлено %d, доставлено %d, не доставлено %d, повторных писем %d, "
+                + "ошибок producer'а %d%n",
+            kafkaSent.get(), kafkaDelivered.sum(), pending.size(), kafkaDuplicates.sum(), kafkaSendErrors.sum());
+        System.out.printf("         %.1f событий/с, задержка %s%n",
+            (loadEnd.kafkaDelivered - measureStart.kafkaDelivered) / measuredSeconds, percentiles(kafkaTotal));
+        System.out.printf("  HTTP:  отправлено %d, успешно %d, ошибок %d, пропущено %d%n",
+            httpSent.get(), httpCompleted.sum(), httpErrors.sum(), httpDropped.sum());
+        System.out.printf("         %.1f запросов/с, задержка %s%n",
+            (loadEnd.httpCompleted - measureStart.httpCompleted) / measuredSeconds, percentiles(httpTotal));
+        System.out.printf("  Лаг user-events: в начале %d, в конце нагрузки %d, максимум %d, тренд %.1f событий/мин, "
+                + "после ожидания %d%n",
+            measureStart.lag, loadEnd.lag, maxLag(measured), slopePerSecond(measured, false) * 60, drained.lag);
+        List<Interval> withGc = new ArrayList<>();
+        for (Interval interval : measured) {
+            if (interval.heapAfterGc >= 0) {
+                withGc.add(interval);
+            }
+        }
+        if (withGc.size() >= 2) {
+            System.out.printf("  Heap после GC: в начале %.1f МБ, в конце %.1f МБ, тренд %.1f МБ/ч%n",
+                withGc.get(0).heapAfterGc / 1048576.0, withGc.get(withGc.size() - 1).heapAfterGc / 1048576.0,
+                slopePerSecond(withGc, true) * 3600 / 1048576.0);
+        } else {
+            System.out.println("  Heap после GC: мало сборок для тренда");
+        }
+        long gcMillis = loadEnd.gcMillis - measureStart.gcMillis;
+        System.out.printf("  GC: сборок %d, %d мс (%.2f%% времени)%n",
+            loadEnd.gcCount - measureStart.gcCount, gcMillis, gcMillis / (measuredSeconds * 10));
+        System.out.printf("  SMTP: принято %d, отказов %d, ограничено по частоте %d%n",
+            smtpServer.getAccepted(), smtpServer.getFailed(), smtpServer.getThrottled());
+        
+        Path output = options.get("output").isEmpty()
+            ? Files.createTempDirectory("load-harness") : Files.createDirectories(Paths.get(options.get("output")));
+        writeHistogram(output.resolve("kafka-latency.hgrm"), kafkaTotal);
+        writeHistogram(output.resolve("http-latency.hgrm"), httpTotal);
+        List<String> csv = new ArrayList<>();
+        csv.add("t_s,measured,lag,heap_after_gc_bytes,gc_count,gc_millis,line");
+        for (Interval interval : intervals) {
+            csv.add(String.join(",", Long.toString(TimeUnit.NANOSECONDS.toSeconds(interval.nanoTime - startNanos)),
+                Boolean.toString(interval.measured), Long.toString(interval.lag),
+                Long.toString(interval.heapAfterGc), Long.toString(interval.gcCount),
+                Long.toString(interval.gcMillis), "\"" + interval.line.trim().replaceAll("\\s+", " ") + "\""));
+        }
+        Files.write(output.resolve("intervals.csv"), csv, StandardCharsets.UTF_8);
+        System.out.println("Распределения задержек и интервалы: " + output);
+    }
+    
+    /**
+     * Лаг группы приложения по user-events: сумма (конец партиции - зафиксированное смещение).
+     * 
+     * @return лаг в записях или -1, если брокер не ответил
+     */
+    private long consumerLag() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(groupId)
+                .partitionsToOffsetAndMetadata().get(5, TimeUnit.SECONDS);
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                latest.put(new TopicPartition(TOPIC, partition), OffsetSpec.latest());
+            }
+            long lag = 0;
+            for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end
+                    : admin.listOffsets(latest).all().get(5, TimeUnit.SECONDS).entrySet()) {
+                OffsetAndMetadata offset = committed.get(end.getKey());
+                lag += end.getValue().offset() - (offset == null ? 0 : offset.offset());
+            }
+            return lag;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return -1;
+        }
+    }
+    
+    /**
+     * Подписка на уведомления о сборках: heap после каждой сборки.
+     */
+    private void watchGc() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                ((NotificationEmitter) gc).addNotificationListener(this::onGc, null, null);
+            }
+        }
+    }
+    
+    private void onGc(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPools.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+            }
+        }
+        minHeapAfterGc.accumulateAndGet(used, Math::min);
+    }
+    
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+    
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+    
+    private Snapshot snapshot() {
+        return new Snapshot(System.nanoTime(), kafkaDelivered.sum(), httpCompleted.sum(), consumerLag(),
+            gcCount(), gcMillis());
+    }
+    
+    /**
+     * Наклон прямой наименьших квадратов по интервалам: лаг или heap после GC в секунду.
+     */
+    private static double slopePerSecond(List<Interval> points, boolean heap) {
+        int n = 0;
+        double sumX = 0;
+        double sumY = 0;
+        double sumXY = 0;
+        double sumXX = 0;
+        for (Interval point : points) {
+            long y = heap ? point.heapAfterGc : point.lag;
+            if (y < 0) {
+                continue;
+            }
+            double x = point.nanoTime / 1e9;
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        return n < 2 || denominator == 0 ? 0 : (n * sumXY - sumX * sumY) / denominator;
+    }
+    
+    private static long maxLag(List<Interval> points) {
+        long max = 0;
+        for (Interval point : points) {
+            max = Math.max(max, point.lag);
+        }
+        return max;
+    }
+    
+    private static String percentiles(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return "нет данных";
+        }
+        return String.format("p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f мс",
+            millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+            maxMillis(histogram));
+    }
+    
+    private static void writeHistogram(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8.name())) {
+            // Значения записаны в микросекундах, файл - в миллисекундах
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+    
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+    
+    private static double maxMillis(Histogram histogram) {
+        return histogram.getMaxValue() / 1000.0;
+    }
+    
+    private static long micros(long nanos) {
+        return Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0);
+    }
+    
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            TimeUnit.NANOSECONDS.sleep(deadline - now);
+        }
+    }
+    
+    private long longOption(String name) {
+        return Long.parseLong(options.get(name));
+    }
+    
+    private void close() {
+        if (producer != null) {
+            producer.close();
+        }
+        if (admin != null) {
+            admin.close();
+        }
+        if (application != null) {
+            application.close();
+        }
+        if (smtpServer != null) {
+            try {
+                smtpServer.close();
+            } catch (IOException e) {
+                // Заглушка уже закрыта
+            }
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+    
+    /**
+     * Показатели на конец интервала отчета.
+     */
+    private static final class Interval {
+        final long nanoTime;
+        final boolean measured;
+        final long lag;
+        final long heapAfterGc;
+        final long gcCount;
+        final long gcMillis;
+        String line = "";
+        
+        Interval(long nanoTime, boolean measured, long lag, long heapAfterGc, long gcCount, long gcMillis) {
+            this.nanoTime = nanoTime;
+            this.measured = measured;
+            this.lag = lag;
+            this.heapAfterGc = heapAfterGc;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+    
+    /**
+     * Счетчики на границе фазы прогона.
+     */
+    private static final class Snapshot {
+        final long nanoTime;
+        final long kafkaDelivered;
+        final long httpCompleted;
+        final long lag;
+        final long gcCount;
+        final long gcMillis;
+        
+        Snapshot(long nanoTime, long kafkaDelivered, long httpCompleted, long lag, long gcCount, long gcMillis) {
+            this.nanoTime = nanoTime;
+            this.kafkaDelivered = kafkaDelivered;
+            this.httpCompleted = httpCompleted;
+            this.lag = lag;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.notificationservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import com.example.notificationservice.controller.NotificationController;
+import com.example.notificationservice.service.BulkSendService;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.service.NotificationJobService;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Обработка POST /api/notifications/send-email и POST /api/notifications
+ * (постановка в очередь с ответом 202) в DispatcherServlet.
+ * 
+ * MockMvc без сервлет-контейнера: разбор JSON, валидация, асинхронная
+ * отправка через BoundedExecutor (no-op JavaMailSender) и сериализация
+ * ответа. Сеть и Tomcat не измеряются.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+// Стек MockMvc прогревается JIT дольше остальных бенчмарков
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationControllerBenchmark {
+    
+    private BoundedExecutor mailSendExecutor;
+    private MockMvc mockMvc;
+    private byte[] plainRequest;
+    private byte[] templateRequest;
+    
+    @Setup
+    public void setUp() {
+        mailSendExecutor = Fixtures.mailSendExecutor();
+        EmailService emailService = Fixtures.emailService(mailSendExecutor);
+        BulkSendService bulkSendService = new BulkSendService(emailService, new ObjectMapper(), 100);
+        NotificationJobService jobService = new NotificationJobService(emailService, null, 1024, 60000, 0);
+        mockMvc = MockMvcBuilders.standaloneSetup(
+            new NotificationController(emailService, bulkSendService, jobService, null)).build();
+        
+        plainRequest = "{\"email\":\"user@example.com\",\"subject\":\"Уведомление\",\"message\":\"Текст уведомления\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        templateRequest = "{\"email\":\"user@example.com\",\"template\":\"create\",\"locale\":\"en\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        mailSendExecutor.shutdown();
+    }
+    
+    @Benchmark
+    public int sendEmail() throws Exception {
+        return perform(plainRequest);
+    }
+    
+    @Benchmark
+    public int sendTemplateEmail() throws Exception {
+        return perform(templateRequest);
+    }
+    
+    @Benchmark
+    public int acceptEmail() throws Exception {
+        return mockMvc.perform(post("/api/notifications")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(plainRequest))
+                .andReturn().getResponse().getStatus();
+    }
+    
+    private int perform(byte[] body) throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/notifications/send-email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.notificationservice.benchmarks;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import com.example.notificationservice.NotificationServiceApplication;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сквозная пропускная способность: embedded Kafka -> notification-service -> SMTP-заглушка.
+ * 
+ * Поднимает встроенный брокер Kafka, GreenMail как SMTP-сервер и приложение
+ * с настройками по умолчанию. Одна операция - событие CREATE, записанное в
+ * user-events и доставленное письмом на SMTP-сервер; результат - событий в
+ * секунду. Адреса уникальны, чтобы события не отсеивались дедупликацией.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PipelineBenchmark {
+    
+    private static final int EVENTS_PER_INVOCATION = 500;
+    private static final long DELIVERY_TIMEOUT_MILLIS = 60_000;
+    
+    private EmbeddedKafkaBroker broker;
+    private GreenMail smtpServer;
+    private ConfigurableApplicationContext application;
+    private KafkaProducer<String, String> producer;
+    private long sequence;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        broker = new EmbeddedKafkaBroker(1, false, 1, "user-events");
+        broker.afterPropertiesSet();
+        
+        int smtpPort = freePort();
+        smtpServer = new GreenMail(new ServerSetup(smtpPort, "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+        smtpServer.start();
+        
+        // Аргументы командной строки, чтобы перекрыть application.yml
+        application = new SpringApplicationBuilder(NotificationServiceApplication.class).run(
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--logging.level.com.example.notificationservice=WARN",
+            "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+            "--spring.mail.host=127.0.0.1",
+            "--spring.mail.port=" + smtpPort,
+            "--spring.mail.username=",
+            "--spring.mail.password=",
+            "--spring.mail.properties.mail.smtp.auth=false",
+            "--spring.mail.properties.mail.smtp.starttls.enable=false");
+        
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        producer = new KafkaProducer<>(props, new StringSerializer(), new StringSerializer());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (producer != null) {
+            producer.close();
+        }
+        if (application != null) {
+            application.close();
+        }
+        if (smtpServer != null) {
+            smtpServer.stop();
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+    
+    @Setup(Level.Invocation)
+    public void purgeMailboxes() throws Exception {
+        smtpServer.purgeEmailFromAllMailboxes();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public void kafkaToSmtp() {
+        for (int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+            String email = "user-" + (sequence++) + "@example.com";
+            producer.send(new ProducerRecord<>("user-events", email,
+                "{\"operation\":\"CREATE\",\"email\":\"" + email + "\"}"));
+        }
+        producer.flush();
+        if (!smtpServer.waitForIncomingEmail(DELIVERY_TIMEOUT_MILLIS, EVENTS_PER_INVOCATION)) {
+            throw new IllegalStateException("Письма не доставлены за " + DELIVERY_TIMEOUT_MILLIS + " мс");
+        }
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notificationservice.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Сравнение результатов JMH (JSON) с эталоном.
+ * 
+ * Для каждого бенчмарка из эталона ищется результат с тем же именем,
+ * режимом и параметрами. Регрессия - ухудшение основной метрики больше
+ * порога: рост времени для avgt/sample/ss или падение пропускной способности
+ * для thrpt. При регрессиях процесс завершается с кодом 1, что валит CI.
+ * 
+ *   java -cp benchmarks/target/benchmarks.jar \
+ *       com.example.notificationservice.benchmarks.RegressionCheck baseline.json jmh-result.json [порог %]
+ */
+public final class RegressionCheck {
+    
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+    
+    private RegressionCheck() {}
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: RegressionCheck <эталон.json> <текущий.json> [порог %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+        
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+            JsonNode result = current.get(entry.getKey());
+            if (result == null) {
+                System.out.printf("%-80s нет в текущих результатах%n", entry.getKey());
+                continue;
+            }
+            double change = worseningPercent(entry.getValue(), result);
+            boolean regression = change > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-80s %12.3f -> %12.3f %s  %+7.1f%%%s%n",
+                entry.getKey(),
+                score(entry.getValue()), score(result), unit(result),
+                change, regression ? "  РЕГРЕССИЯ" : "");
+        }
+        
+        if (regressions > 0) {
+            System.out.printf("Регрессий больше %.1f%%: %d%n", threshold, regressions);
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * @return ухудшение в процентах (отрицательное - улучшение)
+     */
+    static double worseningPercent(JsonNode baseline, JsonNode current) {
+        double before = score(baseline);
+        double after = score(current);
+        if (before == 0) {
+            return 0;
+        }
+        double change = (after - before) / before * 100;
+        // Для пропускной способности больше - лучше
+        return "thrpt".equals(current.path("mode").asText()) ? -change : change;
+    }
+    
+    static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(keyOf(result), result);
+        }
+        return results;
+    }
+    
+    private static String keyOf(JsonNode result) {
+        StringBuilder key = new StringBuilder(result.path("benchmark").asText())
+            .append(" [").append(result.path("mode").asText()).append(']');
+        Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+        while (params.hasNext()) {
+            Map.Entry<String, JsonNode> param = params.next();
+            key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+        return key.toString();
+    }
+    
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+    
+    private static String unit(JsonNode result) {
+        return result.path("primaryMetric").path("scoreUnit").asText();
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.notificationservice.benchmarks;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import com.example.notificationservice.NotificationServiceApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время старта и объем памяти notification-service в отдельном процессе.
+ * 
+ * Холодный старт нельзя измерить внутри JMH-форка, где классы уже загружены,
+ * поэтому каждый запуск - новый JVM с приложением из того же classpath
+ * (benchmarks.jar). Брокер Kafka (embedded) и SMTP-сервер (GreenMail)
+ * работают в процессе бенчмарка. Перед запуском в user-events пишется
+ * событие CREATE; время до первого события - от старта процесса до
+ * получения письма SMTP-сервером, RSS (VmRSS из /proc, только Linux) -
+ * в этот же момент.
+ * 
+ * Режимы:
+ *   default         - настройки по умолчанию;
+ *   fast-start      - профиль fast-start (ленивые бины, прогрев перед listener'ами);
+ *   fast-start-cds  - fast-start с архивом AppCDS, записанным обучающим запуском
+ *                     (exit-after-warmup) перед замерами.
+ * 
+ * У всех запусков одинаковые флаги JVM (JVM_ARGS), результат - медиана и минимум.
+ * 
+ *   java -cp benchmarks/target/benchmarks.jar \
+ *       com.example.notificationservice.benchmarks.StartupBenchmark [запусков] [режим ...]
+ */
+public final class StartupBenchmark {
+    
+    private static final List<String> MODES = Arrays.asList("default", "fast-start", "fast-start-cds");
+    private static final int DEFAULT_RUNS = 5;
+    
+    // Одинаковый предел heap, чтобы RSS не зависел от памяти машины
+    private static final List<String> JVM_ARGS = Collections.singletonList("-Xmx512m");
+    
+    private static final long FIRST_EVENT_TIMEOUT_MILLIS = 120_000;
+    private static final long EXIT_TIMEOUT_MILLIS = 60_000;
+    
+    private final EmbeddedKafkaBroker broker;
+    private final GreenMail smtpServer;
+    private final int smtpPort;
+    private final KafkaProducer<String, String> producer;
+    private final Path workDir;
+    private long sequence;
+    
+    private StartupBenchmark(Path workDir) throws IOException {
+        this.workDir = workDir;
+        broker = new EmbeddedKafkaBroker(1, false, 1, "user-events");
+        broker.afterPropertiesSet();
+        
+        smtpPort = freePort();
+        smtpServer = new GreenMail(new ServerSetup(smtpPort, "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+        smtpServer.start();
+        
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        producer = new KafkaProducer<>(props, new StringSerializer(), new StringSerializer());
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        List<String> modes = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : MODES;
+        for (String mode : modes) {
+            if (!MODES.contains(mode)) {
+                System.err.println("Неизвестный режим " + mode + ", допустимые: " + MODES);
+                System.exit(2);
+            }
+        }
+        
+        Path workDir = Files.createTempDirectory("startup-benchmark");
+        StartupBenchmark benchmark = new StartupBenchmark(workDir);
+        try {
+            List<String> report = new ArrayList<>();
+            for (String mode : modes) {
+                report.add(benchmark.measure(mode, runs));
+            }
+            System.out.printf("%n%-16s %22s %22s%n", "Режим", "до 1-го события, мс", "RSS, МБ");
+            report.forEach(System.out::println);
+            System.out.println("Логи запусков: " + workDir);
+        } finally {
+            benchmark.close();
+        }
+        System.exit(0);
+    }
+    
+    /**
+     * Выполняет запуски одного режима.
+     * 
+     * @return строка отчета: медиана и минимум времени до первого события и RSS
+     */
+    private String measure(String mode, int runs) throws Exception {
+        List<String> jvmArgs = new ArrayList<>(JVM_ARGS);
+        List<String> appArgs = new ArrayList<>(commonArgs());
+        if (mode.startsWith("fast-start")) {
+            appArgs.add("--spring.profiles.active=fast-start");
+        }
+        if (mode.equals("fast-start-cds")) {
+            Path archive = workDir.resolve("notification-service.jsa");
+            train(archive, appArgs);
+            jvmArgs.add("-XX:SharedArchiveFile=" + archive);
+        }
+        
+        long[] millis = new long[runs];
+        long[] rssKb = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            long[] result = runOnce(mode + "-" + run, jvmArgs, appArgs);
+            millis[run] = result[0];
+            rssKb[run] = result[1];
+            System.out.printf("%s #%d: %d мс, RSS %.1f МБ%n", mode, run + 1, millis[run], rssKb[run] / 1024.0);
+        }
+        Arrays.sort(millis);
+        Arrays.sort(rssKb);
+        return String.format("%-16s %10d (мин %6d) %10.1f (мин %6.1f)",
+            mode, millis[runs / 2], millis[0], rssKb[runs / 2] / 1024.0, rssKb[0] / 1024.0);
+    }
+    
+    /**
+     * Запускает приложение и ждет письма по событию, записанному перед стартом.
+     * 
+     * @return время до первого события в мс и RSS в КБ (-1, если /proc недоступен)
+     */
+    private long[] runOnce(String name, List<String> jvmArgs, List<String> appArgs) throws Exception {
+        smtpServer.purgeEmailFromAllMailboxes();
+        String email = "startup-" + (sequence++) + "@example.com";
+        producer.send(new ProducerRecord<>("user-events", email,
+            "{\"operation\":\"CREATE\",\"email\":\"" + email + "\"}")).get();
+        
+        long start = System.nanoTime();
+        Process process = start(name, jvmArgs, appArgs);
+        try {
+            if (!smtpServer.waitForIncomingEmail(FIRST_EVENT_TIMEOUT_MILLIS, 1)) {
+                throw new IllegalStateException("Нет письма за " + FIRST_EVENT_TIMEOUT_MILLIS
+                    + " мс, см. " + workDir.resolve(name + ".log"));
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new long[] {millis, rssKb(process.pid())};
+        } finally {
+            stop(process);
+        }
+    }
+    
+    /**
+     * Обучающий запуск: старт и прогрев fast-start, при выходе JVM пишет архив AppCDS.
+     */
+    private void train(Path archive, List<String> appArgs) throws Exception {
+        List<String> jvmArgs = new ArrayList<>(JVM_ARGS);
+        jvmArgs.add("-Xlog:cds=off");
+        jvmArgs.add("-XX:ArchiveClassesAtExit=" + archive);
+        List<String> trainingArgs = new ArrayList<>(appArgs);
+        trainingArgs.add("--notification.startup.exit-after-warmup=true");
+        
+        Process process = start("cds-training", jvmArgs, trainingArgs);
+        if (!process.waitFor(FIRST_EVENT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) || process.exitValue() != 0
+                || !Files.exists(archive)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Архив AppCDS не создан, см. " + workDir.resolve("cds-training.log"));
+        }
+    }
+    
+    private List<String> commonArgs() {
+        return Arrays.asList(
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--logging.level.com.example.notificationservice=INFO",
+            "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+            "--spring.mail.host=127.0.0.1",
+            "--spring.mail.port=" + smtpPort,
+            "--spring.mail.username=",
+            "--spring.mail.password=",
+            "--spring.mail.properties.mail.smtp.auth=false",
+            "--spring.mail.properties.mail.smtp.starttls.enable=false");
+    }
+    
+    private Process start(String name, List<String> jvmArgs, List<String> appArgs) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        // AppCDS архивирует классы только из jar: запускать из benchmarks.jar
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(NotificationServiceApplication.class.getName());
+        command.addAll(appArgs);
+        
+        File log = workDir.resolve(name + ".log").toFile();
+        return new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(log)
+            .start();
+    }
+    
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+    
+    /**
+     * Читает VmRSS процесса из /proc/{pid}/status.
+     */
+    private static long rssKb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"),
+                                                  StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Не Linux или процесс уже завершился
+        }
+        return -1;
+    }
+    
+    private void close() {
+        producer.close();
+        smtpServer.stop();
+        broker.destroy();
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.notificationservice.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * SMTP-заглушка для нагрузочных прогонов с управляемым поведением релея.
+ * 
+ * В отличие от GreenMail письма не хранятся: сервер отвечает по протоколу
+ * и сообщает получателя принятого письма слушателю. Ответ на конец DATA
+ * задерживается на latencyMillis плюс случайный разброс до jitterMillis
+ * (время приема письма релеем), доля errorRate писем отклоняется кодом
+ * errorCode, а письма сверх maxPerSecond в секунду - временным отказом
+ * 451 4.7.1, как у релея с ограничением частоты. Каждое соединение
+ * обслуживается своим потоком, поэтому параллельность ограничивает пул
+ * SMTP-соединений приложения, а не заглушка.
+ */
+final class StubSmtpServer implements Closeable {
+    
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final int errorCode;
+    private final int maxPerSecond;
+    private final ObjLongConsumer<String> listener;
+    
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    
+    // Окно ограничения частоты: номер секунды и число писем в ней
+    private long throttleSecond;
+    private int throttleCount;
+    
+    /**
+     * @param latencyMillis - задержка ответа на конец DATA
+     * @param jitterMillis - случайная добавка к задержке, от 0 до jitterMillis
+     * @param errorRate - доля отклоняемых писем, от 0 до 1
+     * @param errorCode - код отказа: 4xx - временный, 5xx - постоянный
+     * @param maxPerSecond - писем в секунду до временного отказа; 0 - без ограничения
+     * @param listener - получатель и System.nanoTime() каждого принятого письма
+     */
+    StubSmtpServer(long latencyMillis, long jitterMillis, double errorRate, int errorCode, int maxPerSecond,
+                   ObjLongConsumer<String> listener) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.errorCode = errorCode;
+        this.maxPerSecond = maxPerSecond;
+        this.listener = listener;
+        this.serverSocket = new ServerSocket(0, 256, InetAddress.getLoopbackAddress());
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-smtp");
+            thread.setDaemon(true);
+            return thread;
+        });
+        connections.execute(this::acceptLoop);
+    }
+    
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    long getAccepted() {
+        return accepted.sum();
+    }
+    
+    long getFailed() {
+        return failed.sum();
+    }
+    
+    long getThrottled() {
+        return throttled.sum();
+    }
+    
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+    
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // Сервер закрыт
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        openConnections.incrementAndGet();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+             Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.ISO_8859_1)) {
+            reply(out, "220 stub-smtp ESMTP");
+            String recipient = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line;
+                switch (command) {
+                    case "EHLO":
+                        reply(out, "250-stub-smtp\r\n250-8BITMIME\r\n250 SIZE 10485760");
+                        break;
+                    case "HELO":
+                    case "NOOP":
+                        reply(out, "250 OK");
+                        break;
+                    case "MAIL":
+                    case "RSET":
+                        recipient = null;
+                        reply(out, "250 OK");
+                        break;
+                    case "RCPT":
+                        recipient = addressOf(line);
+                        reply(out, "250 OK");
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Тело письма не нужно
+                        }
+                        reply(out, endOfData(recipient));
+                        recipient = null;
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (SocketException e) {
+            // Клиент закрыл соединение
+        } catch (IOException e) {
+            // Соединение оборвано
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            openConnections.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Решает судьбу письма после DATA: задержка, ограничение частоты, ошибка или прием.
+     */
+    private String endOfData(String recipient) throws InterruptedException {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        }
+        if (!tryAcquire()) {
+            throttled.increment();
+            return "451 4.7.1 Rate limit exceeded, try again later";
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            failed.increment();
+            return errorCode >= 500 ? errorCode + " 5.1.1 Injected permanent failure"
+                : errorCode + " 4.3.0 Injected temporary failure";
+        }
+        accepted.increment();
+        if (recipient != null) {
+            listener.accept(recipient, System.nanoTime());
+        }
+        return "250 OK queued";
+    }
+    
+    private synchronized boolean tryAcquire() {
+        if (maxPerSecond <= 0) {
+            return true;
+        }
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        if (second != throttleSecond) {
+            throttleSecond = second;
+            throttleCount = 0;
+        }
+        return ++throttleCount <= maxPerSecond;
+    }
+    
+    private static String addressOf(String rcptLine) {
+        int start = rcptLine.indexOf('<');
+        int end = rcptLine.indexOf('>', start + 1);
+        return start >= 0 && end > start ? rcptLine.substring(start + 1, end)
+            : rcptLine.substring(rcptLine.indexOf(':') + 1).trim();
+    }
+    
+    private static void reply(Writer out, String reply) throws IOException {
+        out.write(reply);
+        out.write("\r\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notificationservice.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.example.notificationservice.suppression.SuppressionIndexBuilder;
+import com.example.notificationservice.suppression.SuppressionList;
+import com.example.notificationservice.suppression.SuppressionReason;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Проверка адреса по списку подавления перед отправкой.
+ * 
+ * Список из entries адресов строится в @Setup (время построения индекса
+ * печатается перед замерами); miss - адрес не из списка (обычный случай, отсекается
+ * фильтром Блума), hit - адрес из списка (фильтр и бинарный поиск).
+ * Адреса перебираются по кругу из 4096, чтобы проверки не попадали
+ * в одну и ту же строку кэша.
+ * 
+ *   java -jar benchmarks/target/benchmarks.jar SuppressionList -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx256m")
+public class SuppressionListBenchmark {
+    
+    private static final int PROBES = 4096;
+    
+    @Param({"10000000"})
+    public int entries;
+    
+    private Path dir;
+    private SuppressionList suppressionList;
+    private final String[] present = new String[PROBES];
+    private final String[] absent = new String[PROBES];
+    private int next;
+    
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("suppression-benchmark");
+        Path source = dir.resolve("suppressed.txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < entries; i++) {
+                writer.write("user");
+                writer.write(Integer.toString(i));
+                writer.write("@example.com,bounce\n");
+            }
+        }
+        for (int i = 0; i < PROBES; i++) {
+            present[i] = "user" + (long) i * entries / PROBES + "@example.com";
+            absent[i] = "other" + i + "@example.com";
+        }
+        suppressionList = new SuppressionList(source, dir.resolve("suppressed.idx"),
+            new SuppressionIndexBuilder(4_000_000, 10), 100_000, new SimpleMeterRegistry());
+        long start = System.nanoTime();
+        suppressionList.load();
+        System.out.printf("%nИндекс из %d адресов построен за %d мс, файл %d МБ%n", entries,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            suppressionList.getIndex().getSizeBytes() >> 20);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        suppressionList.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+    
+    @Benchmark
+    public SuppressionReason miss() {
+        return suppressionList.check(absent[next++ & (PROBES - 1)]);
+    }
+    
+    @Benchmark
+    public SuppressionReason hit() {
+        return suppressionList.check(present[next++ & (PROBES - 1)]);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.notificationservice.benchmarks;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.serde.UserEventBinarySerializer;
+import com.example.notificationservice.serde.UserEventDeserializer;
+import com.example.notificationservice.serde.ValueFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Десериализация UserEvent из записи Kafka.
+ * 
+ * Десериализатор собирается и настраивается так же, как в
+ * KafkaConfig.consumerFactory: ErrorHandlingDeserializer поверх
+ * UserEventDeserializer с trusted packages и type mapping для формата json.
+ * Вариант withTypeHeader - запись от JsonSerializer Spring с заголовком
+ * __TypeId__, withoutHeaders - запись от producer'а на другом стеке;
+ * fastJson и binary - форматы fast-json и binary (через auto).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventDeserializationBenchmark {
+    
+    private static final String TOPIC = "user-events";
+    
+    private ErrorHandlingDeserializer<UserEvent> deserializer;
+    private ErrorHandlingDeserializer<UserEvent> autoDeserializer;
+    private byte[] payload;
+    private byte[] binaryPayload;
+    private RecordHeaders typeHeaders;
+    
+    @Setup
+    public void setUp() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.notificationservice.dto");
+        props.put(JsonDeserializer.TYPE_MAPPINGS, "userEvent:com.example.notificationservice.dto.UserEvent");
+        
+        deserializer = new ErrorHandlingDeserializer<>(new UserEventDeserializer(ValueFormat.JSON));
+        deserializer.configure(props, false);
+        autoDeserializer = new ErrorHandlingDeserializer<>(new UserEventDeserializer(ValueFormat.AUTO));
+        autoDeserializer.configure(props, false);
+        
+        payload = "{\"operation\":\"CREATE\",\"email\":\"user@example.com\",\"eventId\":\"7f3c1a52-2b7e-4c59-9d1e-0d6a9b3e5f10\",\"locale\":\"ru\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        binaryPayload = new UserEventBinarySerializer().serialize(TOPIC, autoDeserializer.deserialize(TOPIC, payload));
+        typeHeaders = new RecordHeaders();
+        typeHeaders.add("__TypeId__", "userEvent".getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @TearDown
+    public void tearDown() {
+        deserializer.close();
+        autoDeserializer.close();
+    }
+    
+    @Benchmark
+    public UserEvent withTypeHeader() {
+        return deserializer.deserialize(TOPIC, typeHeaders, payload);
+    }
+    
+    @Benchmark
+    public UserEvent withoutHeaders() {
+        return deserializer.deserialize(TOPIC, new RecordHeaders(), payload);
+    }
+    
+    @Benchmark
+    public UserEvent fastJson() {
+        return autoDeserializer.deserialize(TOPIC, typeHeaders, payload);
+    }
+    
+    @Benchmark
+    public UserEvent binary() {
+        return autoDeserializer.deserialize(TOPIC, typeHeaders, binaryPayload);
+    }
+}
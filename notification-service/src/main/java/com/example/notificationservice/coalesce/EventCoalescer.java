@@ -0,0 +1,224 @@
+package com.example.notificationservice.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.example.notificationservice.dto.Operation;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.support.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Окно схлопывания событий одного пользователя.
+ * 
+ * Первое событие email открывает окно длиной windowMillis. События, пришедшие
+ * внутри окна, схлопываются: повтор заменяет ожидающее событие последним,
+ * а DELETE после CREATE отменяет оба - письмо не отправляется. По закрытии
+ * окна оставшееся событие передается обработчику вместе с подтверждением,
+ * которое подтверждает все записи Kafka окна. Отмененные записи
+ * подтверждаются сразу при закрытии окна.
+ * 
+ * Окно фиксировано от первого события, поэтому задержка письма не превышает
+ * windowMillis + один тик даже при непрерывном потоке событий. Таймеры окон
+ * хранятся в TimingWheel, а не в отдельной задаче планировщика на каждый ключ.
+ * Обработчик закрытого окна выполняется в собственном пуле потоков, а не
+ * в потоке колеса: отправка письма не задерживает таймеры других окон.
+ * Очередь пула не ограничена - в ней только окна, уже закрытые по таймеру,
+ * то есть не больше, чем их было открыто.
+ * 
+ * Записи окна должны подтверждаться без паузы чтения (OrderedAcknowledger):
+ * окно собирает события из разных poll(), а смещения коммитятся только ниже
+ * самого старого открытого окна. При остановке ожидающие записи остаются
+ * неподтвержденными и будут прочитаны снова после перезапуска.
+ */
+public class EventCoalescer implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EventCoalescer.class);
+    
+    /**
+     * Обработчик закрытого окна: последняя запись и подтверждение всех записей окна.
+     */
+    public interface Dispatcher extends BiConsumer<ConsumerRecord<String, UserEvent>, Runnable> {
+    }
+    
+    private final long windowMillis;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final TimingWheel<Window> wheel;
+    private final ExecutorService dispatchExecutor;
+    
+    private final Counter dispatched;
+    private final Counter cancelled;
+    private final Counter collapsed;
+    
+    /**
+     * @param windowMillis - длина окна схлопывания
+     * @param tickMillis - точность таймеров окон
+     * @param wheelSize - количество ячеек колеса таймеров
+     * @param dispatchThreads - потоков обработки закрытых окон
+     * @param meterRegistry - реестр метрик
+     */
+    public EventCoalescer(long windowMillis, long tickMillis, int wheelSize, int dispatchThreads,
+                          MeterRegistry meterRegistry) {
+        if (dispatchThreads <= 0) {
+            throw new IllegalArgumentException("dispatchThreads должно быть положительным");
+        }
+        this.windowMillis = windowMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatchExecutor = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-coalescer-dispatch-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new TimingWheel<>("event-coalescer", tickMillis, wheelSize, this::close);
+        
+        this.dispatched = Counter.builder("notification.coalesce.events").tag("result", "dispatched")
+            .description("Окна, завершившиеся отправкой уведомления").register(meterRegistry);
+        this.cancelled = Counter.builder("notification.coalesce.events").tag("result", "cancelled")
+            .description("События, отмененные парой CREATE/DELETE").register(meterRegistry);
+        this.collapsed = Counter.builder("notification.coalesce.events").tag("result", "collapsed")
+            .description("События, замененные более поздним событием того же email").register(meterRegistry);
+        Gauge.builder("notification.coalesce.pending", windows, ConcurrentHashMap::size)
+            .description("Открытые окна схлопывания").register(meterRegistry);
+    }
+    
+    /**
+     * Добавляет запись в окно ее email.
+     * 
+     * @param record - запись Kafka с событием
+     * @param acknowledgment - подтверждение записи
+     * @param dispatcher - обработчик закрытого окна
+     */
+    public void submit(ConsumerRecord<String, UserEvent> record, Runnable acknowledgment, Dispatcher dispatcher) {
+        String key = keyOf(record.value());
+        windows.compute(key, (k, window) -> {
+            if (window == null) {
+                Window opened = new Window(k, record, acknowledgment, dispatcher);
+                // Постановка таймера - только добавление в очередь колеса
+                wheel.schedule(opened, windowMillis);
+                return opened;
+            }
+            window.add(record, acknowledgment);
+            return window;
+        });
+    }
+    
+    /**
+     * @return количество открытых окон
+     */
+    public int getPendingCount() {
+        return windows.size();
+    }
+    
+    /**
+     * Останавливает таймеры и дожидается обработки уже закрытых окон.
+     */
+    @Override
+    public void close() {
+        wheel.close();
+        dispatchExecutor.shutdown();
+        try {
+            if (!dispatchExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Обработка закрытых окон схлопывания не завершилась за 5 с");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Закрывает окно по таймеру (поток колеса) и передает его в пул обработки.
+     */
+    private void close(Window window) {
+        // После удаления новые события email откроют новое окно
+        windows.remove(window.key, window);
+        
+        if (window.latest == null) {
+            window.acknowledgeAll();
+            return;
+        }
+        dispatched.increment();
+        try {
+            dispatchExecutor.execute(() -> dispatch(window));
+        } catch (RejectedExecutionException e) {
+            // Остановка: записи окна не подтверждаются и будут прочитаны снова
+            logger.warn("Окно схлопывания для {} не обработано: пул остановлен", window.key);
+        }
+    }
+    
+    /**
+     * Обрабатывает закрытое окно (поток пула).
+     */
+    private void dispatch(Window window) {
+        try {
+            window.dispatcher.accept(window.latest, window::acknowledgeAll);
+        } catch (RuntimeException e) {
+            // Обработчик сам передает неудачные события в топик повторов; сюда
+            // доходит только его внутренняя ошибка. Неподтвержденные записи окна
+            // держали бы коммит смещений партиции до ребаланса, поэтому они
+            // подтверждаются, а событие остается только в логе
+            logger.error("Ошибка при обработке события {}, записи окна подтверждены без отправки",
+                        window.latest.value(), e);
+            window.acknowledgeAll();
+        }
+    }
+    
+    private static String keyOf(UserEvent userEvent) {
+        return userEvent.getEmail() == null ? "" : userEvent.getEmail().toLowerCase(Locale.ROOT);
+    }
+    
+    private static boolean is(ConsumerRecord<String, UserEvent> record, Operation operation) {
+        return record != null && record.value().getOperationType() == operation;
+    }
+    
+    /**
+     * Состояние окна; изменяется только внутри ConcurrentHashMap.compute.
+     */
+    private final class Window {
+        final String key;
+        final Dispatcher dispatcher;
+        final List<Runnable> acknowledgments = new ArrayList<>(2);
+        ConsumerRecord<String, UserEvent> latest;
+        
+        Window(String key, ConsumerRecord<String, UserEvent> record, Runnable acknowledgment, Dispatcher dispatcher) {
+            this.key = key;
+            this.dispatcher = dispatcher;
+            this.latest = record;
+            acknowledgments.add(acknowledgment);
+        }
+        
+        void add(ConsumerRecord<String, UserEvent> record, Runnable acknowledgment) {
+            acknowledgments.add(acknowledgment);
+            if (is(latest, Operation.CREATE) && is(record, Operation.DELETE)) {
+                // Аккаунт создан и удален внутри окна - оба письма не нужны
+                cancelled.increment(2);
+                latest = null;
+                return;
+            }
+            if (latest != null) {
+                collapsed.increment();
+            }
+            latest = record;
+        }
+        
+        void acknowledgeAll() {
+            // Окно уже удалено из карты под той же блокировкой, что и add(),
+            // поэтому список подтверждений больше не изменяется
+            for (Runnable acknowledgment : acknowledgments) {
+                acknowledgment.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.dedup.EventDeduplicator;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Конфигурационный класс для подавления дублей уведомлений.
+ * 
+ * При notification.dedup.enabled=true потребители Kafka пропускают события,
+ * уведомление для которых уже было отправлено (см. EventDeduplicator).
+ */
+@Configuration
+@ConditionalOnProperty(name = "notification.dedup.enabled", havingValue = "true", matchIfMissing = true)
+public class DedupConfig {
+    
+    /**
+     * Создает кэш отправленных событий, загружая сохраненное состояние.
+     * 
+     * @param ttlMillis - сколько помнить отправленное событие
+     * @param bucketMillis - интервал времени для ключа событий без eventId
+     * @param maxEntries - максимальный размер точного кэша
+     * @param file - файл состояния; пусто - без сохранения
+     * @param persistIntervalMillis - интервал сохранения в файл
+     * @param meterRegistry - реестр метрик
+     * @return EventDeduplicator для потребителей Kafka
+     * @throws IOException если файл состояния не читается
+     */
+    @Bean(destroyMethod = "close")
+    public EventDeduplicator eventDeduplicator(
+            @Value("${notification.dedup.ttl-ms:86400000}") long ttlMillis,
+            @Value("${notification.dedup.bucket-ms:60000}") long bucketMillis,
+            @Value("${notification.dedup.max-entries:100000}") int maxEntries,
+            @Value("${notification.dedup.file:}") String file,
+            @Value("${notification.dedup.persist-interval-ms:30000}") long persistIntervalMillis,
+            ObjectProvider<MeterRegistry> meterRegistry) throws IOException {
+        EventDeduplicator deduplicator = new EventDeduplicator(ttlMillis, bucketMillis, maxEntries,
+            file.trim().isEmpty() ? null : Paths.get(file),
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        deduplicator.startPersisting(persistIntervalMillis);
+        return deduplicator;
+    }
+}
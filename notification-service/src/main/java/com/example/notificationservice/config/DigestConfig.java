@@ -0,0 +1,72 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.digest.DigestAggregator;
+import com.example.notificationservice.digest.DigestSpillFile;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.service.EmailService;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Конфигурационный класс для сводок уведомлений.
+ * 
+ * При notification.digest.enabled=true уведомления одного получателя из
+ * KafkaConsumerService и NotificationController, пришедшие внутри окна,
+ * отправляются одним письмом по шаблону digest.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notification.digest.enabled", havingValue = "true")
+public class DigestConfig {
+    
+    /**
+     * Создает накопитель сводок.
+     * 
+     * @param emailService - сборка и отправка писем сводок
+     * @param spillDir - каталог файла вытеснения; пустая строка - без вытеснения
+     * @param spillSegmentBytes - размер сегмента файла вытеснения
+     * @param meterRegistry - реестр метрик
+     * @return DigestAggregator для KafkaConsumerService и NotificationController
+     * @throws IOException если каталог вытеснения недоступен
+     */
+    @Bean(destroyMethod = "close")
+    public DigestAggregator digestAggregator(
+            EmailService emailService,
+            @Value("${notification.digest.window-ms:60000}") long windowMillis,
+            @Value("${notification.digest.tick-ms:500}") long tickMillis,
+            @Value("${notification.digest.wheel-size:512}") int wheelSize,
+            @Value("${notification.digest.max-items:20}") int maxItems,
+            @Value("${notification.digest.heap-budget-bytes:67108864}") long heapBudgetBytes,
+            @Value("${notification.digest.spill-dir:}") String spillDir,
+            @Value("${notification.digest.spill-segment-bytes:16777216}") long spillSegmentBytes,
+            @Value("${notification.digest.priorities:transactional,standard}") String priorities,
+            ObjectProvider<MeterRegistry> meterRegistry) throws IOException {
+        DigestSpillFile spillFile = spillDir.trim().isEmpty()
+            ? null : new DigestSpillFile(Paths.get(spillDir.trim()), spillSegmentBytes);
+        return new DigestAggregator(windowMillis, tickMillis, wheelSize, maxItems, heapBudgetBytes, spillFile,
+            parsePriorities(priorities), emailService::createDigestMessage, emailService::sendAsync,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+    
+    /**
+     * Разбирает список приоритетов через запятую.
+     */
+    static Set<Priority> parsePriorities(String value) {
+        Set<Priority> result = EnumSet.noneOf(Priority.class);
+        for (String name : value.split(",")) {
+            if (!name.trim().isEmpty()) {
+                result.add(Priority.of(name, null));
+            }
+        }
+        return result;
+    }
+}
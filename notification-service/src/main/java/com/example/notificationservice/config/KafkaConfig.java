@@ -1,17 +1,39 @@
 package com.example.notificationservice.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.apache.kafka.clients.consumer.RoundRobinAssignor;
+import org.apache.kafka.clients.consumer.StickyAssignor;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import com.example.notificationservice.coalesce.EventCoalescer;
 import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.serde.UserEventDeserializer;
+import com.example.notificationservice.serde.ValueFormat;
+import com.example.notificationservice.support.KeyOrderedExecutor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -28,45 +50,293 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id:notification-group}")
     private String groupId;
     
+    // Настройки пакетного режима listener'а
+    @Value("${notification.kafka.batch.enabled:false}")
+    private boolean batchEnabled;
+    
+    @Value("${notification.kafka.batch.max-records:500}")
+    private int batchMaxRecords;
+    
+    @Value("${notification.kafka.batch.max-wait-ms:500}")
+    private int batchMaxWaitMs;
+    
+    @Value("${notification.kafka.batch.min-bytes:1}")
+    private int batchMinBytes;
+    
+    // Профиль выборки (default, throughput, latency) и переопределения его значений
+    @Value("${notification.kafka.fetch.profile:default}")
+    private String fetchProfile;
+    
+    @Value("${notification.kafka.fetch.min-bytes:0}")
+    private int fetchMinBytes;
+    
+    @Value("${notification.kafka.fetch.max-wait-ms:0}")
+    private int fetchMaxWaitMs;
+    
+    @Value("${notification.kafka.fetch.max-poll-records:0}")
+    private int maxPollRecords;
+    
+    @Value("${notification.kafka.fetch.max-partition-fetch-bytes:0}")
+    private int maxPartitionFetchBytes;
+    
+    // Стратегии распределения партиций через запятую в порядке предпочтения
+    @Value("${notification.kafka.assignment-strategy:cooperative-sticky,range}")
+    private String assignmentStrategy;
+    
+    // Синхронный коммит смещений; false - commitAsync без ожидания ответа брокера
+    @Value("${notification.kafka.commit.sync:true}")
+    private boolean commitSync;
+    
+    // Количество потоков-потребителей (имеет смысл не больше числа партиций топика)
+    @Value("${notification.kafka.concurrency:1}")
+    private int concurrency;
+    
+    // Пул обработчиков за каждым потребителем с упорядочиванием по email
+    @Value("${notification.kafka.workers.enabled:false}")
+    private boolean workersEnabled;
+    
+    // Асинхронная отправка: записи подтверждаются из потоков отправки
+    @Value("${notification.kafka.async-send.enabled:false}")
+    private boolean asyncSendEnabled;
+    
+    // Окно схлопывания: записи подтверждаются при закрытии окна через OrderedAcknowledger
+    @Value("${notification.kafka.coalesce.enabled:false}")
+    private boolean coalesceEnabled;
+    
+    // Сводки уведомлений: записи подтверждаются после отправки сводки
+    @Value("${notification.digest.enabled:false}")
+    private boolean digestEnabled;
+    
+    // Формат значений записей: json, fast-json, binary или auto
+    @Value("${notification.kafka.value-format.default:auto}")
+    private String valueFormat;
+    
+    // Форматы отдельных топиков: топик=формат через запятую
+    @Value("${notification.kafka.value-format.topics:}")
+    private String topicValueFormats;
+    
+    // Контейнеры запускает StartupWarmup после прогрева, а не контекст при старте
+    @Value("${notification.startup.warmup.enabled:false}")
+    private boolean startAfterWarmup;
+    
     /**
      * Создает фабрику потребителей Kafka для десериализации сообщений.
      * 
+     * Формат значения выбирается по топику (UserEventDeserializer): по умолчанию
+     * auto - бинарные записи и JSON от существующих producer'ов.
+     * 
+     * Параметры выборки задает профиль notification.kafka.fetch.profile
+     * (см. KafkaFetchProfile), в пакетном режиме размер пакета и время его
+     * накопления берутся из notification.kafka.batch.*. Автокоммит выключен:
+     * смещения коммитит контейнер после подтверждения записей listener'ом.
+     * Распределение партиций по умолчанию - cooperative-sticky: при ребалансе
+     * потребители отдают только переезжающие партиции, а не останавливают все.
+     * Вторым элементом идет range, стратегия прежних версий сервиса: пока
+     * в группе остаются экземпляры только с range, группа работает по ней,
+     * поэтому обновление проходит по одному экземпляру без остановки группы.
+     * 
+     * Метрики клиента Kafka (kafka.consumer.*, в том числе records-lag по
+     * партициям и records-consumed-rate) публикуются в реестр Micrometer.
+     * 
+     * @param meterRegistry - реестр метрик
      * @return ConsumerFactory настроенный на работу с UserEvent объектами
      */
     @Bean
-    public ConsumerFactory<String, UserEvent> consumerFactory() {
+    public ConsumerFactory<String, UserEvent> consumerFactory(ObjectProvider<MeterRegistry> meterRegistry) {
         Map<String, Object> props = new HashMap<>();
         
         // Основные настройки подключения к Kafka
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, parseAssignmentStrategy(assignmentStrategy));
+        KafkaFetchProfile.of(fetchProfile).apply(props, fetchMinBytes, fetchMaxWaitMs,
+            maxPollRecords, maxPartitionFetchBytes);
         
-        // Настройки десериализации ключа (String) и значения (UserEvent)
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        
-        // Дополнительные настройки для JsonDeserializer
+        // Настройки JsonDeserializer (формат json): фабрика передает их в configure
+        // десериализаторов, экземпляры которых заданы ниже
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.notificationservice.dto");
         props.put(JsonDeserializer.TYPE_MAPPINGS, "userEvent:com.example.notificationservice.dto.UserEvent");
         
-        return new DefaultKafkaConsumerFactory<>(
+        // В пакетном режиме размер пакета ограничивается max.poll.records,
+        // а время накопления - связкой fetch.min.bytes/fetch.max.wait.ms
+        if (batchEnabled) {
+            props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxRecords);
+            props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchMaxWaitMs);
+            props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+        }
+        
+        // Ошибка десериализации передается обработчику ошибок контейнера
+        // (и дальше в dead-letter топик), а не повторяется бесконечно в poll()
+        DefaultKafkaConsumerFactory<String, UserEvent> consumerFactory = new DefaultKafkaConsumerFactory<>(
             props,
             new StringDeserializer(),
-            new JsonDeserializer<>(UserEvent.class)
+            new ErrorHandlingDeserializer<>(new UserEventDeserializer(
+                ValueFormat.parse(valueFormat), UserEventDeserializer.parseTopicFormats(topicValueFormats)))
         );
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            consumerFactory.addListener(new MicrometerConsumerListener<>(registry));
+        }
+        return consumerFactory;
     }
     
     /**
      * Создает фабрику для Kafka Listener контейнеров.
      * 
+     * При notification.kafka.batch.enabled=true контейнер передает в listener
+     * весь результат poll() списком (см. BatchKafkaConsumerService).
+     * 
+     * В поштучном режиме используется ручное подтверждение (MANUAL). Если включен
+     * пул обработчиков или асинхронная отправка, подтверждения
+     * приходят из других потоков в произвольном порядке;
+     * режим asyncAcks заставляет контейнер коммитить смещение только до последней
+     * записи, перед которой все записи партиции уже обработаны, поэтому при
+     * ребалансе необработанные записи будут прочитаны повторно, а не потеряны.
+     * Цена asyncAcks - пауза consumer'а до подтверждения всех записей
+     * предыдущего poll(), что приемлемо, пока запись обрабатывается за время
+     * отправки письма.
+     * 
+     * Окно схлопывания держит записи секунды, а сводка - минуту, и с asyncAcks
+     * consumer стоял бы все окно: события из следующих poll() не попадали бы
+     * в открытые окна и сводки. Поэтому с окном схлопывания или сводками
+     * asyncAcks выключен, а порядок подтверждений обеспечивает
+     * KafkaConsumerService через OrderedAcknowledger: чтение не останавливается,
+     * а коммит не уходит дальше самой старой открытой записи.
+     * 
+     * Подтвержденные смещения коммитятся одним запросом после обработки
+     * результата poll(), то есть частота коммитов определяется размером
+     * выборки (KafkaFetchProfile). При notification.kafka.commit.sync=false
+     * коммит не ждет ответа брокера: потерянный коммит перекрывается следующим,
+     * а при ребалансе записи после последнего успешного коммита читаются повторно.
+     * 
+     * При notification.startup.warmup.enabled=true контейнеры не запускаются
+     * вместе с контекстом: их запускает StartupWarmup после прогрева.
+     * 
+     * При notification.kafka.results.transactional=true каждая запись (или
+     * пакет) обрабатывается в транзакции producer'а результатов, и смещения
+     * отправляются брокеру в ней же, а не коммитом потребителя: результат
+     * в notification-results виден читателям с isolation.level=read_committed
+     * ровно для тех записей, смещения которых зафиксированы. Подтверждения
+     * из других потоков в транзакцию не попадают, поэтому такой режим
+     * совместим только с обработкой в потоке consumer'а.
+     * 
+     * @param consumerFactory - фабрика потребителей UserEvent
+     * @param userEventErrorHandler - обработчик ошибок (см. RetryTopicConfig)
+     * @param resultTransactionManager - менеджер транзакций результатов (см. ResultTopicConfig)
      * @return ConcurrentKafkaListenerContainerFactory для обработки сообщений
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> kafkaListenerContainerFactory(
+            ConsumerFactory<String, UserEvent> consumerFactory, CommonErrorHandler userEventErrorHandler,
+            @Qualifier("resultTransactionManager")
+            ObjectProvider<KafkaTransactionManager<?, ?>> resultTransactionManager) {
         ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory =
             new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
+        factory.setCommonErrorHandler(userEventErrorHandler);
+        factory.setBatchListener(batchEnabled);
+        factory.setConcurrency(concurrency);
+        factory.setAutoStartup(!startAfterWarmup);
+        factory.getContainerProperties().setSyncCommits(commitSync);
+        boolean orderedAcks = !batchEnabled && (coalesceEnabled || digestEnabled);
+        boolean asyncAcks = !batchEnabled && !orderedAcks && (workersEnabled || asyncSendEnabled);
+        if (!batchEnabled) {
+            ContainerProperties containerProperties = factory.getContainerProperties();
+            containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+            containerProperties.setAsyncAcks(asyncAcks);
+        }
+        KafkaTransactionManager<?, ?> transactionManager = resultTransactionManager.getIfAvailable();
+        if (transactionManager != null) {
+            if (asyncAcks || orderedAcks) {
+                throw new IllegalStateException("notification.kafka.results.transactional несовместим "
+                    + "с workers, async-send, coalesce и digest: записи подтверждаются вне транзакции");
+            }
+            factory.getContainerProperties().setTransactionManager(transactionManager);
+        }
         return factory;
     }
+    
+    /**
+     * Разбирает стратегии распределения партиций: cooperative-sticky, sticky,
+     * range, round-robin через запятую.
+     * 
+     * Список из нескольких стратегий нужен для перехода группы со старой
+     * стратегии без остановки: сначала все потребители получают новую
+     * стратегию вторым элементом, затем первым.
+     */
+    static List<String> parseAssignmentStrategy(String value) {
+        List<String> result = new ArrayList<>();
+        for (String name : value.split(",")) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "":
+                    break;
+                case "cooperative-sticky":
+                    result.add(CooperativeStickyAssignor.class.getName());
+                    break;
+                case "sticky":
+                    result.add(StickyAssignor.class.getName());
+                    break;
+                case "range":
+                    result.add(RangeAssignor.class.getName());
+                    break;
+                case "round-robin":
+                    result.add(RoundRobinAssignor.class.getName());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестная стратегия распределения партиций: " + name);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("Не задана стратегия распределения партиций");
+        }
+        return result;
+    }
+    
+    /**
+     * Создает пул обработчиков событий, упорядоченный по email пользователя.
+     * 
+     * События одного пользователя (CREATE/DELETE) выполняются последовательно,
+     * события разных пользователей - параллельно.
+     * 
+     * @param threads - количество потоков пула
+     * @param queueCapacity - размер очереди каждого потока
+     * @param meterRegistry - реестр метрик для глубины очередей
+     * @return KeyOrderedExecutor для KafkaConsumerService
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("${notification.kafka.workers.enabled:false} && !${notification.kafka.batch.enabled:false}")
+    public KeyOrderedExecutor userEventExecutor(
+            @Value("${notification.kafka.workers.threads:8}") int threads,
+            @Value("${notification.kafka.workers.queue-capacity:256}") int queueCapacity,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        KeyOrderedExecutor executor = new KeyOrderedExecutor("user-event-worker", threads, queueCapacity);
+        Gauge.builder("notification.kafka.workers.queued", executor, KeyOrderedExecutor::getQueuedTaskCount)
+            .description("События в очередях пула обработчиков")
+            .register(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        return executor;
+    }
+    
+    /**
+     * Создает окно схлопывания событий одного email.
+     * 
+     * @param windowMillis - длина окна
+     * @param tickMillis - точность таймеров окон
+     * @param wheelSize - количество ячеек колеса таймеров
+     * @param dispatchThreads - потоков обработки закрытых окон (отправка писем)
+     * @param meterRegistry - реестр метрик
+     * @return EventCoalescer для KafkaConsumerService
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("${notification.kafka.coalesce.enabled:false} && !${notification.kafka.batch.enabled:false}")
+    public EventCoalescer eventCoalescer(
+            @Value("${notification.kafka.coalesce.window-ms:5000}") long windowMillis,
+            @Value("${notification.kafka.coalesce.tick-ms:100}") long tickMillis,
+            @Value("${notification.kafka.coalesce.wheel-size:512}") int wheelSize,
+            @Value("${notification.kafka.coalesce.dispatch-threads:4}") int dispatchThreads,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new EventCoalescer(windowMillis, tickMillis, wheelSize, dispatchThreads,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
 }
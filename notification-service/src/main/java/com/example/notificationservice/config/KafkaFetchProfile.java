@@ -0,0 +1,79 @@
+package com.example.notificationservice.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Профиль выборки записей потребителем Kafka.
+ * 
+ * Задает fetch.min.bytes, fetch.max.wait.ms, max.poll.records и
+ * max.partition.fetch.bytes. Смещения в режиме MANUAL коммитятся один раз
+ * за poll, поэтому размер poll определяет и частоту коммитов: throughput
+ * реже коммитит и реже обращается к брокеру ценой задержки до fetch.max.wait.ms,
+ * latency отдает записи сразу небольшими порциями.
+ */
+public enum KafkaFetchProfile {
+    // Значения клиента Kafka по умолчанию
+    DEFAULT(1, 500, 500, 1048576),
+    // Крупные выборки: брокер копит 64 КБ, но не дольше 500 мс
+    THROUGHPUT(65536, 500, 1000, 4194304),
+    // Записи отдаются сразу, небольшие poll - коротко ждут своей очереди в listener'е
+    LATENCY(1, 10, 50, 262144);
+    
+    private final int fetchMinBytes;
+    private final int fetchMaxWaitMs;
+    private final int maxPollRecords;
+    private final int maxPartitionFetchBytes;
+    
+    KafkaFetchProfile(int fetchMinBytes, int fetchMaxWaitMs, int maxPollRecords, int maxPartitionFetchBytes) {
+        this.fetchMinBytes = fetchMinBytes;
+        this.fetchMaxWaitMs = fetchMaxWaitMs;
+        this.maxPollRecords = maxPollRecords;
+        this.maxPartitionFetchBytes = maxPartitionFetchBytes;
+    }
+    
+    /**
+     * Разбирает профиль без учета регистра.
+     * 
+     * @param value - значение notification.kafka.fetch.profile
+     * @return профиль; DEFAULT для пустого значения
+     * @throws IllegalArgumentException если значение не является профилем
+     */
+    public static KafkaFetchProfile of(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный профиль выборки Kafka: " + value
+                + " (допустимы default, throughput, latency)");
+        }
+    }
+    
+    /**
+     * Записывает параметры профиля в настройки потребителя.
+     * 
+     * Положительные значения аргументов переопределяют значения профиля.
+     * 
+     * @param props - настройки потребителя
+     * @param fetchMinBytes - fetch.min.bytes или 0
+     * @param fetchMaxWaitMs - fetch.max.wait.ms или 0
+     * @param maxPollRecords - max.poll.records или 0
+     * @param maxPartitionFetchBytes - max.partition.fetch.bytes или 0
+     */
+    public void apply(Map<String, Object> props, int fetchMinBytes, int fetchMaxWaitMs,
+                      int maxPollRecords, int maxPartitionFetchBytes) {
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, orDefault(fetchMinBytes, this.fetchMinBytes));
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, orDefault(fetchMaxWaitMs, this.fetchMaxWaitMs));
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, orDefault(maxPollRecords, this.maxPollRecords));
+        props.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+            orDefault(maxPartitionFetchBytes, this.maxPartitionFetchBytes));
+    }
+    
+    private static int orDefault(int value, int defaultValue) {
+        return value > 0 ? value : defaultValue;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.throttle.SendLanes;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Конфигурационный класс для полос отправки по приоритетам.
+ * 
+ * При notification.mail.lanes.enabled=true EmailService отправляет письма
+ * в слотах SendLanes: транзакционные письма ждут слота в своей очереди
+ * и получают большую долю слотов, чем массовые рассылки.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notification.mail.lanes.enabled", havingValue = "true")
+public class LanesConfig {
+    
+    /**
+     * Создает полосы отправки.
+     * 
+     * Число слотов по умолчанию равно числу потоков notification.mail.async.threads:
+     * так асинхронное письмо, получив слот, сразу попадает в свободный поток.
+     * Слотов не может быть больше емкости исполнителя (threads + queue-capacity),
+     * иначе письмо, получившее слот, получило бы отказ исполнителя.
+     * 
+     * @param mailSendExecutor - исполнитель асинхронной отправки
+     * @param meterRegistry - реестр метрик
+     * @return SendLanes для EmailService
+     */
+    @Bean
+    public SendLanes sendLanes(
+            BoundedExecutor mailSendExecutor,
+            @Value("${notification.mail.async.threads:4}") int threads,
+            @Value("${notification.mail.lanes.slots:0}") int slots,
+            @Value("${notification.mail.lanes.max-wait-ms:30000}") long maxWaitMillis,
+            @Value("${notification.mail.lanes.transactional.weight:8}") int transactionalWeight,
+            @Value("${notification.mail.lanes.transactional.queue-capacity:1000}") int transactionalCapacity,
+            @Value("${notification.mail.lanes.transactional.max-in-flight:0}") int transactionalMaxInFlight,
+            @Value("${notification.mail.lanes.standard.weight:3}") int standardWeight,
+            @Value("${notification.mail.lanes.standard.queue-capacity:1000}") int standardCapacity,
+            @Value("${notification.mail.lanes.standard.max-in-flight:0}") int standardMaxInFlight,
+            @Value("${notification.mail.lanes.bulk.weight:1}") int bulkWeight,
+            @Value("${notification.mail.lanes.bulk.queue-capacity:200}") int bulkCapacity,
+            @Value("${notification.mail.lanes.bulk.max-in-flight:0}") int bulkMaxInFlight,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        int total = slots > 0 ? slots : threads;
+        if (total > mailSendExecutor.getCapacity()) {
+            throw new IllegalArgumentException("notification.mail.lanes.slots (" + total
+                + ") больше емкости исполнителя notification.mail.async (threads + queue-capacity = "
+                + mailSendExecutor.getCapacity() + ")");
+        }
+        Map<Priority, SendLanes.LaneLimit> limits = new EnumMap<>(Priority.class);
+        limits.put(Priority.TRANSACTIONAL,
+            new SendLanes.LaneLimit(transactionalWeight, transactionalCapacity, transactionalMaxInFlight));
+        limits.put(Priority.STANDARD, new SendLanes.LaneLimit(standardWeight, standardCapacity, standardMaxInFlight));
+        // По умолчанию массовым пакетам оставлена половина слотов
+        limits.put(Priority.BULK, new SendLanes.LaneLimit(bulkWeight, bulkCapacity,
+            bulkMaxInFlight > 0 ? bulkMaxInFlight : Math.max(1, total / 2)));
+        return new SendLanes(mailSendExecutor, total, limits, maxWaitMillis,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.mail.PooledJavaMailSender;
+import com.example.notificationservice.mail.RoutingJavaMailSender;
+import com.example.notificationservice.mail.SmtpRelay;
+import com.example.notificationservice.mail.SmtpTransportPool;
+import com.example.notificationservice.support.BoundedExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Конфигурационный класс для настройки отправки почты.
+ * 
+ * Заменяет автоконфигурированный JavaMailSender на PooledJavaMailSender,
+ * который держит пул авторизованных SMTP-соединений вместо подключения
+ * на каждое сообщение, и создает ограниченный исполнитель для асинхронной
+ * отправки. Параметры сервера берутся из spring.mail.*, параметры пула -
+ * из notification.mail.pool.*, параметры исполнителя - из notification.mail.async.*.
+ * При notification.mail.routing.enabled=true вместо одного сервера письма
+ * распределяются между релеями notification.mail.routing.relays.
+ */
+@Configuration
+@EnableConfigurationProperties({MailProperties.class, MailRoutingProperties.class})
+public class MailConfig {
+    
+    /**
+     * Создает JavaMailSender с пулом SMTP-соединений.
+     * 
+     * @param mailProperties - настройки spring.mail.*
+     * @param meterRegistry - реестр метрик пула
+     * @return PooledJavaMailSender
+     */
+    @Bean
+    @ConditionalOnExpression("${notification.mail.pool.enabled:true} and !${notification.mail.routing.enabled:false}")
+    public PooledJavaMailSender mailSender(
+            MailProperties mailProperties,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${notification.mail.pool.max-size:4}") int maxSize,
+            @Value("${notification.mail.pool.max-idle-ms:60000}") long maxIdleMillis,
+            @Value("${notification.mail.pool.max-messages-per-connection:100}") int maxMessagesPerConnection,
+            @Value("${notification.mail.pool.validate-after-idle-ms:5000}") long validateAfterIdleMillis,
+            @Value("${notification.mail.pool.borrow-timeout-ms:30000}") long borrowTimeoutMillis) {
+        PooledJavaMailSender sender = new PooledJavaMailSender();
+        applyProperties(mailProperties, sender);
+        sender.setPool(new SmtpTransportPool(
+            sender::openTransport,
+            maxSize,
+            maxIdleMillis,
+            maxMessagesPerConnection,
+            validateAfterIdleMillis,
+            borrowTimeoutMillis,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new)));
+        return sender;
+    }
+    
+    /**
+     * Создает JavaMailSender, распределяющий письма между несколькими SMTP-релеями.
+     * 
+     * У каждого релея свой пул соединений с параметрами notification.mail.pool.*
+     * и метриками с тегом relay.
+     * 
+     * @param mailProperties - общие настройки spring.mail.* для всех релеев
+     * @param routing - список релеев и параметры выключателей
+     * @param meterRegistry - реестр метрик пулов и релеев
+     * @return RoutingJavaMailSender
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.mail.routing.enabled", havingValue = "true")
+    public RoutingJavaMailSender routingMailSender(
+            MailProperties mailProperties,
+            MailRoutingProperties routing,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${notification.mail.pool.max-size:4}") int maxSize,
+            @Value("${notification.mail.pool.max-idle-ms:60000}") long maxIdleMillis,
+            @Value("${notification.mail.pool.max-messages-per-connection:100}") int maxMessagesPerConnection,
+            @Value("${notification.mail.pool.validate-after-idle-ms:5000}") long validateAfterIdleMillis,
+            @Value("${notification.mail.pool.borrow-timeout-ms:30000}") long borrowTimeoutMillis) {
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        List<SmtpRelay> relays = new ArrayList<>();
+        for (MailRoutingProperties.Relay relay : routing.getRelays()) {
+            String name = relay.getName() != null ? relay.getName() : relay.getHost();
+            PooledJavaMailSender sender = new PooledJavaMailSender();
+            applyProperties(mailProperties, sender);
+            applyRelayProperties(relay, sender);
+            sender.setPool(new SmtpTransportPool(
+                sender::openTransport,
+                maxSize,
+                maxIdleMillis,
+                maxMessagesPerConnection,
+                validateAfterIdleMillis,
+                borrowTimeoutMillis,
+                registry,
+                Tags.of("relay", name)));
+            relays.add(new SmtpRelay(name, sender, relay.getWeight(), routing.getFailureThreshold(),
+                routing.getOpenDurationMs(), routing.getLatencyDecay(), registry));
+        }
+        RoutingJavaMailSender router = new RoutingJavaMailSender(relays, routing.getHealthCheckIntervalMs());
+        router.setDefaultEncoding(mailProperties.getDefaultEncoding() != null
+            ? mailProperties.getDefaultEncoding().name() : StandardCharsets.UTF_8.name());
+        return router;
+    }
+    
+    /**
+     * Создает ограниченный исполнитель для асинхронной отправки писем.
+     * 
+     * Число потоков стоит согласовать с notification.mail.pool.max-size:
+     * потоков больше, чем SMTP-соединений, будут ждать свободного соединения.
+     * С виртуальными потоками threads так же ограничивает одновременные
+     * отправки, а queue-capacity - число писем, ожидающих начала отправки.
+     * 
+     * @param meterRegistry - реестр метрик для заполнения очереди
+     * @return BoundedExecutor для EmailService
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BoundedExecutor mailSendExecutor(
+            @Value("${notification.mail.async.thread-type:platform}") String threadType,
+            @Value("${notification.mail.async.threads:4}") int threads,
+            @Value("${notification.mail.async.queue-capacity:1000}") int queueCapacity,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        BoundedExecutor executor = new BoundedExecutor("mail-sender",
+            BoundedExecutor.ThreadType.valueOf(threadType.trim().toUpperCase()), threads, queueCapacity);
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("notification.mail.executor.in.flight", executor, BoundedExecutor::getInFlight)
+            .description("Письма в очереди и в отправке асинхронного исполнителя").register(registry);
+        Gauge.builder("notification.mail.executor.capacity", executor, BoundedExecutor::getCapacity)
+            .description("Емкость асинхронного исполнителя (потоки + очередь)").register(registry);
+        return executor;
+    }
+    
+    /**
+     * Переносит настройки spring.mail.* в отправитель
+     * (аналогично автоконфигурации Spring Boot).
+     */
+    static void applyProperties(MailProperties properties, PooledJavaMailSender sender) {
+        sender.setHost(properties.getHost());
+        if (properties.getPort() != null) {
+            sender.setPort(properties.getPort());
+        }
+        sender.setUsername(properties.getUsername());
+        sender.setPassword(properties.getPassword());
+        sender.setProtocol(properties.getProtocol());
+        if (properties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(properties.getDefaultEncoding().name());
+        } else {
+            sender.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        }
+        if (!properties.getProperties().isEmpty()) {
+            Properties javaMailProperties = new Properties();
+            for (Map.Entry<String, String> entry : properties.getProperties().entrySet()) {
+                javaMailProperties.setProperty(entry.getKey(), entry.getValue());
+            }
+            sender.setJavaMailProperties(javaMailProperties);
+        }
+    }
+    
+    /**
+     * Переопределяет общие настройки spring.mail.* заданными для релея.
+     */
+    static void applyRelayProperties(MailRoutingProperties.Relay relay, PooledJavaMailSender sender) {
+        sender.setHost(relay.getHost());
+        if (relay.getPort() != null) {
+            sender.setPort(relay.getPort());
+        }
+        if (relay.getUsername() != null) {
+            sender.setUsername(relay.getUsername());
+            sender.setPassword(relay.getPassword());
+        }
+        if (relay.getProtocol() != null) {
+            sender.setProtocol(relay.getProtocol());
+        }
+        for (Map.Entry<String, String> entry : relay.getProperties().entrySet()) {
+            sender.getJavaMailProperties().setProperty(entry.getKey(), entry.getValue());
+        }
+    }
+}
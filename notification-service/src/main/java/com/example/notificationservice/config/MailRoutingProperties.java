@@ -0,0 +1,156 @@
+package com.example.notificationservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Настройки отправки через несколько SMTP-релеев (notification.mail.routing.*).
+ * 
+ * Список релеев не выражается через @Value, поэтому, в отличие от остальных
+ * настроек сервиса, они связываются через @ConfigurationProperties.
+ * Не заданные для релея параметры (учетные данные, протокол, свойства
+ * JavaMail) берутся из spring.mail.*.
+ */
+@ConfigurationProperties(prefix = "notification.mail.routing")
+public class MailRoutingProperties {
+    
+    private boolean enabled;
+    private List<Relay> relays = new ArrayList<>();
+    private int failureThreshold = 3;
+    private long openDurationMs = 30000;
+    private long healthCheckIntervalMs = 15000;
+    private double latencyDecay = 0.2;
+    
+    /**
+     * Параметры одного релея.
+     */
+    public static class Relay {
+        
+        private String name;
+        private String host;
+        private Integer port;
+        private String username;
+        private String password;
+        private String protocol;
+        private double weight = 1.0;
+        private Map<String, String> properties = new LinkedHashMap<>();
+        
+        // Геттеры и сеттеры
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+        
+        public String getHost() {
+            return host;
+        }
+        
+        public void setHost(String host) {
+            this.host = host;
+        }
+        
+        public Integer getPort() {
+            return port;
+        }
+        
+        public void setPort(Integer port) {
+            this.port = port;
+        }
+        
+        public String getUsername() {
+            return username;
+        }
+        
+        public void setUsername(String username) {
+            this.username = username;
+        }
+        
+        public String getPassword() {
+            return password;
+        }
+        
+        public void setPassword(String password) {
+            this.password = password;
+        }
+        
+        public String getProtocol() {
+            return protocol;
+        }
+        
+        public void setProtocol(String protocol) {
+            this.protocol = protocol;
+        }
+        
+        public double getWeight() {
+            return weight;
+        }
+        
+        public void setWeight(double weight) {
+            this.weight = weight;
+        }
+        
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+        
+        public void setProperties(Map<String, String> properties) {
+            this.properties = properties;
+        }
+    }
+    
+    // Геттеры и сеттеры
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public List<Relay> getRelays() {
+        return relays;
+    }
+    
+    public void setRelays(List<Relay> relays) {
+        this.relays = relays;
+    }
+    
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+    
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+    
+    public long getOpenDurationMs() {
+        return openDurationMs;
+    }
+    
+    public void setOpenDurationMs(long openDurationMs) {
+        this.openDurationMs = openDurationMs;
+    }
+    
+    public long getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+    
+    public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+    }
+    
+    public double getLatencyDecay() {
+        return latencyDecay;
+    }
+    
+    public void setLatencyDecay(double latencyDecay) {
+        this.latencyDecay = latencyDecay;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.metrics.NotificationMetrics;
+
+/**
+ * Конфигурационный класс для метрик конвейера уведомлений.
+ * 
+ * Метрики публикуются через Actuator (/actuator/prometheus). Метрики
+ * отдельных компонентов (пул SMTP-соединений, spool, дедупликация, окно
+ * схлопывания, очереди исполнителей) регистрируются там, где компоненты создаются.
+ */
+@Configuration
+public class MetricsConfig {
+    
+    /**
+     * @param meterRegistry - реестр метрик Actuator
+     * @return NotificationMetrics для потребителей Kafka и EmailService
+     */
+    @Bean
+    public NotificationMetrics notificationMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new NotificationMetrics(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.notificationservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Конфигурационный класс реактивного REST API.
+ * 
+ * Действует, когда приложение запущено как WebFlux-приложение
+ * (профиль reactive, spring.main.web-application-type=reactive).
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+    
+    /**
+     * Создает планировщик блокирующей отправки пакетов /send-bulk.
+     * 
+     * Потоков и ожидающих задач не больше заданного: при переполнении
+     * запрос массовой отправки завершается строкой ошибки, а event loop
+     * никогда не ждет SMTP.
+     * 
+     * @param threads - одновременно отправляемые пакеты
+     * @param queueCapacity - пакеты, ожидающие потока
+     * @return Scheduler для ReactiveNotificationController
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler bulkSendScheduler(
+            @Value("${notification.reactive.bulk.threads:4}") int threads,
+            @Value("${notification.reactive.bulk.queue-capacity:256}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "bulk-send");
+    }
+}
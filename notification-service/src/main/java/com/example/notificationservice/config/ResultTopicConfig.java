@@ -0,0 +1,128 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import com.example.notificationservice.dto.NotificationResult;
+import com.example.notificationservice.service.NotificationResultPublisher;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Конфигурация топика результатов обработки событий.
+ * 
+ * При notification.kafka.results.enabled=true на каждое обработанное
+ * событие user-events публикуется NotificationResult (см.
+ * NotificationResultPublisher). Producer результатов отдельный от
+ * producer'а Spring Boot, которым пользуются топики повторов: он
+ * идемпотентный, сжимает пакеты lz4 и копит их linger-ms, поэтому
+ * публикация добавляет к обработке события только постановку записи
+ * в буфер producer'а.
+ * 
+ * При notification.kafka.results.transactional=true контейнеры user-events
+ * читают записи в транзакциях producer'а результатов: смещение записи
+ * и ее результат фиксируются вместе (см. KafkaConfig).
+ */
+@Configuration
+@ConditionalOnProperty(name = "notification.kafka.results.enabled", havingValue = "true")
+public class ResultTopicConfig {
+    
+    @Value("${notification.kafka.results.topic:notification-results}")
+    private String topic;
+    
+    @Value("${notification.kafka.results.partitions:1}")
+    private int partitions;
+    
+    @Value("${notification.kafka.results.replicas:1}")
+    private int replicas;
+    
+    /**
+     * Создает топик результатов, если его еще нет.
+     * 
+     * @return топик для KafkaAdmin
+     */
+    @Bean
+    public KafkaAdmin.NewTopics resultTopic() {
+        return new KafkaAdmin.NewTopics(
+            TopicBuilder.name(topic).partitions(partitions).replicas(replicas).build());
+    }
+    
+    /**
+     * Создает публикатор результатов с собственным producer'ом.
+     * 
+     * @param kafkaProperties - настройки Kafka (адреса брокеров, безопасность)
+     * @param lingerMillis - сколько producer копит пакет перед отправкой
+     * @param batchBytes - размер пакета партиции
+     * @param compression - сжатие пакетов
+     * @param transactional - публиковать в транзакциях контейнеров
+     * @param transactionIdPrefix - префикс transactional.id; пусто - уникальный для экземпляра
+     * @param meterRegistry - реестр метрик producer'а и ошибок публикации
+     * @return NotificationResultPublisher для сервисов обработки событий
+     */
+    @Bean
+    public NotificationResultPublisher notificationResultPublisher(
+            KafkaProperties kafkaProperties,
+            @Value("${notification.kafka.results.linger-ms:20}") int lingerMillis,
+            @Value("${notification.kafka.results.batch-bytes:131072}") int batchBytes,
+            @Value("${notification.kafka.results.compression:lz4}") String compression,
+            @Value("${notification.kafka.results.transactional:false}") boolean transactional,
+            @Value("${notification.kafka.results.transaction-id-prefix:}") String transactionIdPrefix,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties();
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        // Потребители результатов не обязаны знать классы этого сервиса
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        
+        // Идемпотентность: повтор отправки пакета после таймаута не дублирует результаты
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        
+        // Крупные сжатые пакеты вместо запроса к брокеру на каждый результат
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMillis);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchBytes);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        DefaultKafkaProducerFactory<String, NotificationResult> producerFactory =
+            new DefaultKafkaProducerFactory<>(props);
+        producerFactory.addListener(new MicrometerProducerListener<>(registry));
+        if (transactional) {
+            // Префикс уникален для экземпляра: одинаковые transactional.id разных
+            // экземпляров закрывали бы транзакции друг друга
+            producerFactory.setTransactionIdPrefix(transactionIdPrefix.trim().isEmpty()
+                ? "notification-results-" + UUID.randomUUID() + "-" : transactionIdPrefix.trim());
+        }
+        return new NotificationResultPublisher(new KafkaTemplate<>(producerFactory), topic, registry);
+    }
+    
+    /**
+     * Создает менеджер транзакций для контейнеров user-events.
+     * 
+     * @param notificationResultPublisher - публикатор с транзакционным producer'ом
+     * @return KafkaTransactionManager над фабрикой producer'ов результатов
+     */
+    @Bean
+    @ConditionalOnExpression("${notification.kafka.results.transactional:false}")
+    public KafkaTransactionManager<String, NotificationResult> resultTransactionManager(
+            NotificationResultPublisher notificationResultPublisher) {
+        return new KafkaTransactionManager<>(notificationResultPublisher.getProducerFactory());
+    }
+}
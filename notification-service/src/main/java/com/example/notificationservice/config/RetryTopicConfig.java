@@ -0,0 +1,178 @@
+package com.example.notificationservice.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.service.RetryTopicRouter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Конфигурация неблокирующих повторов через топики повторов.
+ * 
+ * Неудачно обработанная запись не повторяется в потоке consumer'а (это
+ * остановило бы всю партицию), а публикуется в топик следующего уровня
+ * повторов или в dead-letter топик (см. RetryTopicRouter). При
+ * notification.kafka.retry.enabled=false ошибки только логируются.
+ */
+@Configuration
+public class RetryTopicConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RetryTopicConfig.class);
+    
+    @Value("${notification.kafka.retry.partitions:1}")
+    private int partitions;
+    
+    @Value("${notification.kafka.retry.replicas:1}")
+    private int replicas;
+    
+    @Value("${notification.startup.warmup.enabled:false}")
+    private boolean startAfterWarmup;
+    
+    /**
+     * @param jitter - доля случайного разброса задержки повторов
+     * @return маршрутизатор по уровням повторов
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.kafka.retry.enabled", havingValue = "true", matchIfMissing = true)
+    public RetryTopicRouter retryTopicRouter(@Value("${notification.kafka.retry.jitter:0.2}") double jitter) {
+        return new RetryTopicRouter(jitter);
+    }
+    
+    /**
+     * Создает топики повторов и dead-letter топик, если их еще нет.
+     * 
+     * @return топики для KafkaAdmin
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.kafka.retry.enabled", havingValue = "true", matchIfMissing = true)
+    public KafkaAdmin.NewTopics retryTopics() {
+        return new KafkaAdmin.NewTopics(
+            TopicBuilder.name(RetryTopicRouter.RETRY_1S_TOPIC).partitions(partitions).replicas(replicas).build(),
+            TopicBuilder.name(RetryTopicRouter.RETRY_10S_TOPIC).partitions(partitions).replicas(replicas).build(),
+            TopicBuilder.name(RetryTopicRouter.RETRY_1M_TOPIC).partitions(partitions).replicas(replicas).build(),
+            TopicBuilder.name(RetryTopicRouter.DLT_TOPIC).partitions(partitions).replicas(replicas).build()
+        );
+    }
+    
+    /**
+     * Создает публикатор неудачных записей в топики повторов.
+     * 
+     * Десериализованные события публикуются шаблоном приложения (JsonSerializer),
+     * а записи, которые не удалось десериализовать, - как есть, в исходных байтах.
+     * В dead-letter топик помимо заголовков повторов попадают стандартные
+     * заголовки kafka_dlt-* с исходным топиком, смещением и текстом ошибки.
+     * 
+     * @param producerFactory - фабрика producer'ов Spring Boot
+     * @param kafkaProperties - настройки Kafka для producer'а исходных байтов
+     * @param router - маршрутизатор по уровням повторов
+     * @return DeadLetterPublishingRecoverer для обработчика ошибок и KafkaConsumerService
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.kafka.retry.enabled", havingValue = "true", matchIfMissing = true)
+    public DeadLetterPublishingRecoverer userEventRecoverer(ProducerFactory<Object, Object> producerFactory,
+                                                            KafkaProperties kafkaProperties,
+                                                            RetryTopicRouter router) {
+        Map<String, Object> bytesProps = kafkaProperties.buildProducerProperties();
+        bytesProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        bytesProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        DefaultKafkaProducerFactory<Object, Object> bytesProducerFactory = new DefaultKafkaProducerFactory<>(bytesProps);
+        
+        // Порядок важен: шаблон выбирается по первому подходящему типу значения
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, new KafkaTemplate<>(bytesProducerFactory));
+        templates.put(Object.class, new KafkaTemplate<>(producerFactory));
+        
+        UserEventRecoverer recoverer = new UserEventRecoverer(templates, router, bytesProducerFactory);
+        recoverer.setHeadersFunction(router::retryHeaders);
+        return recoverer;
+    }
+    
+    /**
+     * Создает обработчик ошибок listener-контейнеров.
+     * 
+     * Повторы в потоке consumer'а отключены: запись сразу передается
+     * публикатору, а при выключенных повторах - только логируется.
+     * 
+     * @param userEventRecoverer - публикатор в топики повторов, если повторы включены
+     * @return CommonErrorHandler для контейнеров user-events и топиков повторов
+     */
+    @Bean
+    public CommonErrorHandler userEventErrorHandler(ObjectProvider<DeadLetterPublishingRecoverer> userEventRecoverer) {
+        DeadLetterPublishingRecoverer recoverer = userEventRecoverer.getIfAvailable();
+        if (recoverer == null) {
+            return new DefaultErrorHandler((record, e) ->
+                logger.error("Ошибка при обработке записи {}-{}@{}", record.topic(), record.partition(),
+                            record.offset(), e),
+                new FixedBackOff(0L, 0L));
+        }
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(0L, 0L));
+    }
+    
+    /**
+     * Создает фабрику контейнеров для топиков повторов.
+     * 
+     * Каждый уровень читается отдельным контейнером с подтверждением по записи,
+     * чтобы ожидание срока повтора не откатывало уже выполненные повторы.
+     * Как и основные контейнеры, при прогреве запускаются StartupWarmup.
+     * 
+     * @param consumerFactory - фабрика потребителей UserEvent
+     * @param userEventErrorHandler - обработчик ошибок с передачей на следующий уровень
+     * @return фабрика для RetryTopicConsumerService
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.kafka.retry.enabled", havingValue = "true", matchIfMissing = true)
+    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> retryKafkaListenerContainerFactory(
+            ConsumerFactory<String, UserEvent> consumerFactory, CommonErrorHandler userEventErrorHandler) {
+        ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setCommonErrorHandler(userEventErrorHandler);
+        factory.setAutoStartup(!startAfterWarmup);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        return factory;
+    }
+    
+    /**
+     * Публикатор, закрывающий собственную фабрику producer'ов исходных байтов.
+     */
+    static class UserEventRecoverer extends DeadLetterPublishingRecoverer implements DisposableBean {
+        
+        private final DefaultKafkaProducerFactory<?, ?> bytesProducerFactory;
+        
+        UserEventRecoverer(Map<Class<?>, KafkaOperations<?, ?>> templates, RetryTopicRouter router,
+                           DefaultKafkaProducerFactory<?, ?> bytesProducerFactory) {
+            super(templates, router::resolveDestination);
+            this.bytesProducerFactory = bytesProducerFactory;
+        }
+        
+        @Override
+        public void destroy() {
+            bytesProducerFactory.destroy();
+        }
+    }
+}
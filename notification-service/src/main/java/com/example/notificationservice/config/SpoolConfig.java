@@ -0,0 +1,34 @@
+package com.example.notificationservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.spool.MailSpool;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Конфигурационный класс для надежной очереди писем (spool).
+ * 
+ * При notification.spool.enabled=true записи Kafka подтверждаются сразу после
+ * записи письма в spool на диск, а отправку выполняет SpoolSenderService.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notification.spool.enabled", havingValue = "true")
+public class SpoolConfig {
+    
+    /**
+     * Открывает spool, восстанавливая неотправленные письма после перезапуска.
+     * 
+     * @return MailSpool в каталоге notification.spool.dir
+     * @throws IOException если каталог недоступен
+     */
+    @Bean(destroyMethod = "close")
+    public MailSpool mailSpool(
+            @Value("${notification.spool.dir:data/spool}") String dir,
+            @Value("${notification.spool.segment-size-bytes:67108864}") int segmentSize) throws IOException {
+        return new MailSpool(Paths.get(dir), segmentSize);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.notificationservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.mail.javamail.JavaMailSender;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.startup.StartupWarmup;
+
+/**
+ * Конфигурационный класс быстрого старта (профиль fast-start).
+ * 
+ * При spring.main.lazy-initialization=true бины создаются при первом
+ * обращении, кроме бинов с @KafkaListener: без них не были бы созданы
+ * контейнеры listener'ов. Зависимости listener'ов (EmailService, пул SMTP,
+ * дедупликация) создаются вместе с ними, а REST API и его состояние -
+ * при первом запросе.
+ * 
+ * При notification.startup.warmup.enabled=true топики не создаются и
+ * listener'ы не запускаются при обновлении контекста: это делает
+ * StartupWarmup после прогрева.
+ */
+@Configuration
+public class StartupConfig {
+    
+    /**
+     * Исключает бины с @KafkaListener из ленивой инициализации.
+     * 
+     * Статический метод: фильтр нужен до создания остальных бинов.
+     * 
+     * @return LazyInitializationExcludeFilter для spring.main.lazy-initialization
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter kafkaListenerLazyInitExcludeFilter() {
+        return (beanName, definition, type) -> type != null && hasKafkaListener(type);
+    }
+    
+    /**
+     * Создает администратора Kafka, который не создает топики при старте.
+     * 
+     * Заменяет KafkaAdmin Spring Boot: при недоступном брокере тот держит
+     * обновление контекста до истечения таймаута операции (30 с) и закрытия
+     * клиента (10 с). Топики повторов создает StartupWarmup, ожидая брокер
+     * не дольше operationTimeout.
+     * 
+     * @param kafkaProperties - настройки Kafka Spring Boot
+     * @param operationTimeout - ожидание создания топиков при прогреве, секунды
+     * @return KafkaAdmin для StartupWarmup и KafkaAdmin.NewTopics
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.startup.warmup.enabled", havingValue = "true")
+    public KafkaAdmin kafkaAdmin(
+            KafkaProperties kafkaProperties,
+            @Value("${notification.startup.warmup.kafka-admin-timeout-s:10}") int operationTimeout) {
+        KafkaAdmin kafkaAdmin = new KafkaAdmin(kafkaProperties.buildAdminProperties());
+        kafkaAdmin.setFatalIfBrokerNotAvailable(kafkaProperties.getAdmin().isFailFast());
+        kafkaAdmin.setOperationTimeout(operationTimeout);
+        kafkaAdmin.setCloseTimeout(operationTimeout);
+        kafkaAdmin.setAutoCreate(false);
+        return kafkaAdmin;
+    }
+    
+    /**
+     * Создает прогрев, запускающий listener'ы после готовности приложения.
+     * 
+     * @param emailService - сборка писем по шаблонам
+     * @param mailSender - отправитель писем
+     * @param listenerRegistry - контейнеры @KafkaListener
+     * @param kafkaAdmin - администратор Kafka без создания топиков при старте
+     * @param smtpConnections - SMTP-соединения, открываемые заранее
+     * @param exitAfterWarmup - завершить приложение после прогрева (обучающий запуск AppCDS)
+     * @return StartupWarmup
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.startup.warmup.enabled", havingValue = "true")
+    public StartupWarmup startupWarmup(
+            EmailService emailService,
+            JavaMailSender mailSender,
+            KafkaListenerEndpointRegistry listenerRegistry,
+            KafkaAdmin kafkaAdmin,
+            @Value("${notification.startup.warmup.smtp-connections:0}") int smtpConnections,
+            @Value("${notification.startup.exit-after-warmup:false}") boolean exitAfterWarmup) {
+        return new StartupWarmup(emailService, mailSender, listenerRegistry, kafkaAdmin,
+            smtpConnections, exitAfterWarmup);
+    }
+    
+    /**
+     * Проверяет, объявлен ли @KafkaListener на классе или его методах.
+     */
+    static boolean hasKafkaListener(Class<?> type) {
+        if (AnnotatedElementUtils.hasAnnotation(type, KafkaListener.class)) {
+            return true;
+        }
+        return !MethodIntrospector.selectMethods(type, (MethodIntrospector.MetadataLookup<KafkaListener>) method ->
+            AnnotatedElementUtils.findMergedAnnotation(method, KafkaListener.class)).isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import com.example.notificationservice.suppression.SuppressionIndexBuilder;
+import com.example.notificationservice.suppression.SuppressionList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Конфигурационный класс для списка подавления адресов.
+ * 
+ * При notification.suppression.enabled=true EmailService не отправляет
+ * письма на адреса из списка (см. SuppressionList), а при
+ * notification.suppression.kafka.enabled=true список получает изменения
+ * из Kafka (см. SuppressionConsumerService).
+ */
+@Configuration
+@ConditionalOnProperty(name = "notification.suppression.enabled", havingValue = "true")
+public class SuppressionConfig {
+    
+    /**
+     * Создает список подавления, открывая или строя индекс файла.
+     * 
+     * @param file - текстовый список адресов; пусто - только изменения из Kafka
+     * @param indexFile - файл индекса; пусто - {file}.idx
+     * @param reloadIntervalMillis - интервал проверки изменения файла
+     * @param maxAppendedEntries - дописанных строк, после которых файл перестраивается
+     * @param runEntries - адресов в одной порции сортировки при построении
+     * @param bloomBitsPerEntry - бит фильтра Блума на адрес
+     * @param meterRegistry - реестр метрик
+     * @return SuppressionList для EmailService
+     * @throws IOException если индекс не построить
+     */
+    @Bean(destroyMethod = "close")
+    public SuppressionList suppressionList(
+            @Value("${notification.suppression.file:}") String file,
+            @Value("${notification.suppression.index-file:}") String indexFile,
+            @Value("${notification.suppression.reload-interval-ms:10000}") long reloadIntervalMillis,
+            @Value("${notification.suppression.max-appended-entries:100000}") int maxAppendedEntries,
+            @Value("${notification.suppression.build.run-entries:4000000}") int runEntries,
+            @Value("${notification.suppression.build.bloom-bits-per-entry:10}") int bloomBitsPerEntry,
+            ObjectProvider<MeterRegistry> meterRegistry) throws IOException {
+        Path source = file.trim().isEmpty() ? null : Paths.get(file.trim());
+        Path index = source == null ? null
+            : indexFile.trim().isEmpty() ? Paths.get(file.trim() + ".idx") : Paths.get(indexFile.trim());
+        SuppressionList suppressionList = new SuppressionList(source, index,
+            new SuppressionIndexBuilder(runEntries, bloomBitsPerEntry), maxAppendedEntries,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        suppressionList.load();
+        suppressionList.startWatching(reloadIntervalMillis);
+        return suppressionList;
+    }
+    
+    /**
+     * Создает фабрику контейнеров для топика изменений списка подавления.
+     * 
+     * Группа потребителя уникальна для экземпляра, а чтение начинается
+     * с начала топика: каждый экземпляр получает все изменения, и после
+     * перезапуска они применяются заново.
+     * 
+     * @param bootstrapServers - адреса брокеров Kafka
+     * @return фабрика контейнеров со строковыми ключом и значением
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.suppression.kafka.enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<String, String> suppressionKafkaListenerContainerFactory(
+            @Value("${spring.kafka.bootstrap-servers:localhost:9092}") String bootstrapServers) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "notification-suppression-" + UUID.randomUUID());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(
+            props, new StringDeserializer(), new StringDeserializer()));
+        factory.setBatchListener(true);
+        return factory;
+    }
+}
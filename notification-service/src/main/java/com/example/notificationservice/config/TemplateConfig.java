@@ -0,0 +1,40 @@
+package com.example.notificationservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.template.EmailTemplateEngine;
+
+import java.nio.file.Paths;
+
+/**
+ * Конфигурационный класс для шаблонов писем.
+ * 
+ * Встроенные шаблоны лежат в classpath:templates/; файлы из каталога
+ * notification.templates.dir переопределяют их и перечитываются при изменении.
+ */
+@Configuration
+public class TemplateConfig {
+    
+    /**
+     * Создает движок шаблонов писем.
+     * 
+     * @param dir - каталог шаблонов; пусто - только встроенные шаблоны
+     * @param defaultLocale - локаль писем по умолчанию
+     * @param cacheSize - максимальное количество скомпилированных шаблонов в кэше
+     * @param reloadCheckMillis - интервал проверки изменения файлов шаблонов
+     * @return EmailTemplateEngine для EmailService
+     */
+    @Bean
+    public EmailTemplateEngine emailTemplateEngine(
+            @Value("${notification.templates.dir:}") String dir,
+            @Value("${notification.templates.default-locale:ru}") String defaultLocale,
+            @Value("${notification.templates.cache-size:256}") int cacheSize,
+            @Value("${notification.templates.reload-check-ms:5000}") long reloadCheckMillis) {
+        return new EmailTemplateEngine(
+            dir.trim().isEmpty() ? null : Paths.get(dir),
+            EmailTemplateEngine.parseLocale(defaultLocale),
+            cacheSize,
+            reloadCheckMillis);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.throttle.AimdLimiter;
+import com.example.notificationservice.throttle.SendLanes;
+import com.example.notificationservice.throttle.SendThrottle;
+
+import java.util.stream.Collectors;
+
+/**
+ * Конфигурационный класс для ограничения темпа отправки писем.
+ * 
+ * При notification.mail.throttle.enabled=true EmailService отправляет письма
+ * с учетом лимитов скорости по доменам получателей и SMTP-релею
+ * (spring.mail.host или все релеи notification.mail.routing.relays вместе)
+ * и адаптивного лимита параллельности (см. SendThrottle).
+ */
+@Configuration
+@ConditionalOnProperty(name = "notification.mail.throttle.enabled", havingValue = "true")
+public class ThrottleConfig {
+    
+    /**
+     * Создает ограничитель отправки.
+     * 
+     * Максимальная параллельность по умолчанию равна числу потоков
+     * notification.mail.async.threads: больше писем одновременно исполнитель
+     * все равно не отправит.
+     * 
+     * @param mailSendExecutor - исполнитель асинхронной отправки
+     * @param mailProperties - настройки spring.mail.* (имя релея)
+     * @param routing - релеи маршрутизатора (имена релеев)
+     * @param lanes - полосы отправки, если notification.mail.lanes.enabled=true
+     * @param meterRegistry - реестр метрик
+     * @return SendThrottle для EmailService
+     */
+    @Bean(destroyMethod = "close")
+    public SendThrottle sendThrottle(
+            BoundedExecutor mailSendExecutor,
+            MailProperties mailProperties,
+            MailRoutingProperties routing,
+            ObjectProvider<SendLanes> lanes,
+            @Value("${notification.mail.async.threads:4}") int threads,
+            @Value("${notification.mail.throttle.relay-rate:0}") double relayRate,
+            @Value("${notification.mail.throttle.relay-burst:1}") int relayBurst,
+            @Value("${notification.mail.throttle.domain-rate:10}") double domainRate,
+            @Value("${notification.mail.throttle.domain-burst:10}") int domainBurst,
+            @Value("${notification.mail.throttle.domains:}") String domainOverrides,
+            @Value("${notification.mail.throttle.concurrency.initial:0}") int initialConcurrency,
+            @Value("${notification.mail.throttle.concurrency.min:1}") int minConcurrency,
+            @Value("${notification.mail.throttle.concurrency.max:0}") int maxConcurrency,
+            @Value("${notification.mail.throttle.concurrency.latency-threshold-ms:2000}") long latencyThresholdMillis,
+            @Value("${notification.mail.throttle.concurrency.backoff-ratio:0.5}") double backoffRatio,
+            @Value("${notification.mail.throttle.initial-backoff-ms:1000}") long initialBackoffMillis,
+            @Value("${notification.mail.throttle.max-backoff-ms:60000}") long maxBackoffMillis,
+            @Value("${notification.mail.throttle.queue-capacity:10000}") int queueCapacity,
+            @Value("${notification.mail.throttle.max-wait-ms:30000}") long maxWaitMillis,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        int max = maxConcurrency > 0 ? maxConcurrency : threads;
+        AimdLimiter limiter = new AimdLimiter(initialConcurrency > 0 ? initialConcurrency : max,
+            Math.min(minConcurrency, max), max, latencyThresholdMillis, backoffRatio);
+        String relayName = routing.isEnabled()
+            ? routing.getRelays().stream().map(MailRoutingProperties.Relay::getHost).collect(Collectors.joining(", "))
+            : String.valueOf(mailProperties.getHost());
+        return new SendThrottle(mailSendExecutor, limiter, lanes.getIfAvailable(), relayName,
+            new SendThrottle.RateLimit(relayRate, relayBurst),
+            new SendThrottle.RateLimit(domainRate, domainBurst),
+            SendThrottle.RateLimit.parseOverrides(domainOverrides),
+            initialBackoffMillis, maxBackoffMillis, queueCapacity, maxWaitMillis,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+}
@@ -2,71 +2,207 @@ package com.example.notificationservice.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import com.example.notificationservice.digest.DigestAggregator;
 import com.example.notificationservice.dto.ApiResponse;
 import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.service.BulkSendService;
+import com.example.notificationservice.service.EmailRequests;
 import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.service.NotificationJobService;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST контроллер для управления уведомлениями.
  * 
- * Предоставляет API для ручной отправки email-уведомлений.
+ * Предоставляет API для ручной отправки email-уведомлений
+ * и чтения статуса принятых уведомлений.
  * Доступен по базовому пути /api/notifications.
+ * В профиле reactive вместо него работает ReactiveNotificationController.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/notifications")
 public class NotificationController {
     
     private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
     
+    /** Тип содержимого NDJSON: по JSON-объекту в строке */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    
     private final EmailService emailService;
+    private final BulkSendService bulkSendService;
+    private final NotificationJobService jobService;
+    
+    // Сводки уведомлений одного получателя; null - каждое письмо отправляется сразу
+    private final DigestAggregator digest;
     
     /**
-     * Конструктор с внедрением зависимости EmailService.
+     * Конструктор с внедрением зависимостей.
      * 
      * @param emailService - сервис для отправки email
+     * @param bulkSendService - сервис массовой отправки
+     * @param jobService - сервис уведомлений, принимаемых в очередь
+     * @param digest - сводки уведомлений, если включен notification.digest.enabled
      */
-    public NotificationController(EmailService emailService) {
+    public NotificationController(EmailService emailService, BulkSendService bulkSendService,
+                                  NotificationJobService jobService, @Nullable DigestAggregator digest) {
         this.emailService = emailService;
+        this.bulkSendService = bulkSendService;
+        this.jobService = jobService;
+        this.digest = digest;
     }
     
     /**
      * REST endpoint для отправки произвольного email-сообщения.
      * 
      * Метод принимает POST запрос с телом в формате JSON, содержащим
-     * адрес получателя, тему и текст сообщения.
+     * адрес получателя, тему и текст сообщения. Отправка выполняется
+     * асинхронно: поток Tomcat освобождается до ответа SMTP-сервера,
+     * а при переполненной очереди отправки возвращается 503.
+     * Если указан template, тема и текст берутся из шаблона с подстановкой
+     * variables, а subject и message игнорируются.
+     * priority (transactional, standard, bulk; по умолчанию standard) выбирает
+     * полосу отправки. Если письма этого приоритета собираются в сводки,
+     * ответ возвращается сразу после добавления письма в сводку получателя.
      * 
      * @param emailRequest - DTO с данными для отправки email
      * @return ApiResponse с результатом операции
      */
     @PostMapping("/send-email")
-    public ApiResponse sendEmail(@RequestBody EmailRequest emailRequest) {
-        logger.info("Получен запрос на отправку email: {}", emailRequest);
+    public CompletableFuture<ResponseEntity<ApiResponse>> sendEmail(@RequestBody EmailRequest emailRequest) {
+        logger.debug("Получен запрос на отправку email: {}", emailRequest);
         
-        // Валидация входных данных
-        if (emailRequest.getEmail() == null || emailRequest.getEmail().trim().isEmpty()) {
-            return ApiResponse.error("Email адрес не может быть пустым");
+        // Валидация входных данных и сборка письма
+        Priority priority;
+        SimpleMailMessage message;
+        try {
+            priority = Priority.of(emailRequest.getPriority(), Priority.STANDARD);
+            message = EmailRequests.createMessage(emailService, emailRequest);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(ApiResponse.error(e.getMessage())));
         }
         
-        if (emailRequest.getMessage() == null || emailRequest.getMessage().trim().isEmpty()) {
-            return ApiResponse.error("Текст сообщения не может быть пустым");
+        if (digest != null && digest.accepts(priority)) {
+            return addToDigest(message, priority);
         }
         
         // Отправка email
-        boolean sendResult = emailService.sendEmail(
-            emailRequest.getEmail(),
-            emailRequest.getSubject() != null ? emailRequest.getSubject() : "Уведомление",
-            emailRequest.getMessage()
-        );
+        return emailService.sendAsync(message, priority).thenApply(NotificationRequests::toResponse);
+    }
+    
+    /**
+     * REST endpoint для отправки email-сообщения без ожидания SMTP-сервера.
+     * 
+     * Принимает тот же EmailRequest, что и /send-email: после проверки письмо
+     * ставится в очередь отправки и сразу возвращается 202 со статусом QUEUED,
+     * идентификатором уведомления и заголовком Location на
+     * GET /api/notifications/{id}. Некорректный запрос - 400, переполненная
+     * очередь отправки - 503 со статусом FAILED, адрес в списке подавления -
+     * 200 со статусом SUPPRESSED и причиной подавления.
+     * 
+     * @param emailRequest - DTO с данными для отправки email
+     * @return NotificationStatus или ApiResponse с ошибкой проверки
+     */
+    @PostMapping
+    public ResponseEntity<?> acceptEmail(@RequestBody EmailRequest emailRequest) {
+        logger.debug("Получен запрос на постановку email в очередь: {}", emailRequest);
+        
+        SimpleMailMessage message;
+        Priority priority;
+        try {
+            priority = Priority.of(emailRequest.getPriority(), Priority.STANDARD);
+            message = EmailRequests.createMessage(emailService, emailRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+        
+        return NotificationRequests.toAcceptedResponse(jobService.submit(message, priority));
+    }
+    
+    /**
+     * REST endpoint для чтения статуса уведомления, принятого POST /api/notifications.
+     * 
+     * С параметром wait-ms ответ откладывается до окончательного состояния
+     * (SENT, FAILED или SUPPRESSED), но не дольше wait-ms и notification.status.max-wait-ms;
+     * по истечении ожидания возвращается текущий статус. Поток Tomcat на время
+     * ожидания освобождается.
+     * 
+     * @param id - идентификатор уведомления
+     * @param waitMillis - максимальное ожидание окончательного состояния, 0 - без ожидания
+     * @return NotificationStatus или 404, если уведомление неизвестно или его статус вытеснен
+     */
+    @GetMapping("/{id}")
+    public DeferredResult<ResponseEntity<NotificationStatus>> getStatus(
+            @PathVariable("id") String id,
+            @RequestParam(name = "wait-ms", defaultValue = "0") long waitMillis) {
+        long timeout = Math.min(waitMillis, jobService.getMaxWaitMillis());
+        if (timeout <= 0) {
+            DeferredResult<ResponseEntity<NotificationStatus>> result = new DeferredResult<>();
+            result.setResult(NotificationRequests.toStatusResponse(jobService.getStatus(id)));
+            return result;
+        }
         
-        // Формирование ответа
-        if (sendResult) {
-            return ApiResponse.success("Email успешно отправлен на адрес: " + emailRequest.getEmail());
-        } else {
-            return ApiResponse.error("Не удалось отправить email на адрес: " + emailRequest.getEmail());
+        DeferredResult<ResponseEntity<NotificationStatus>> result = new DeferredResult<>(timeout);
+        CompletableFuture<NotificationStatus> terminal = jobService.awaitTerminal(id);
+        if (terminal == null) {
+            result.setResult(NotificationRequests.toStatusResponse(null));
+            return result;
         }
+        result.onTimeout(() -> result.setResult(NotificationRequests.toStatusResponse(jobService.getStatus(id))));
+        terminal.thenAccept(status -> result.setResult(NotificationRequests.toStatusResponse(status)));
+        return result;
+    }
+    
+    /**
+     * REST endpoint для массовой отправки email-сообщений.
+     * 
+     * Принимает NDJSON (по EmailRequest в строке) или JSON-массив EmailRequest
+     * и отвечает потоком NDJSON: строка со статусом на каждое письмо и итоговая
+     * строка. Тело читается и письма отправляются пакетами по мере поступления,
+     * поэтому память не зависит от размера запроса. Результаты пакета уходят
+     * клиенту до окончания чтения тела - клиент, который пишет тело целиком
+     * до чтения ответа, должен передать report=failures, чтобы не переполнить
+     * буферы при большом числе писем. Письма без priority отправляются
+     * в полосе bulk.
+     * 
+     * @param report - all (по умолчанию) или failures: писать только неотправленные письма
+     */
+    @PostMapping(path = "/send-bulk",
+                 consumes = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+                 produces = APPLICATION_NDJSON_VALUE)
+    public void sendBulk(@RequestParam(name = "report", defaultValue = "all") String report,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        bulkSendService.send(request.getInputStream(), response.getOutputStream(), "failures".equalsIgnoreCase(report));
+    }
+    
+    /**
+     * Добавляет письмо в сводку получателя, не дожидаясь ее отправки.
+     */
+    private CompletableFuture<ResponseEntity<ApiResponse>> addToDigest(SimpleMailMessage message, Priority priority) {
+        digest.submit(message, priority);
+        return CompletableFuture.completedFuture(NotificationRequests.digestAccepted(message));
     }
 }
@@ -0,0 +1,74 @@
+package com.example.notificationservice.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.ApiResponse;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.SendResult;
+
+import java.net.URI;
+
+/**
+ * Ответы, общие для NotificationController (Spring MVC)
+ * и ReactiveNotificationController (WebFlux).
+ * 
+ * Запросы проверяются в EmailRequests, общем с массовой отправкой.
+ */
+final class NotificationRequests {
+    
+    private NotificationRequests() {}
+    
+    /**
+     * Формирует ответ по результату отправки.
+     */
+    static ResponseEntity<ApiResponse> toResponse(SendResult sendResult) {
+        switch (sendResult.getStatus()) {
+            case SENT:
+                return ResponseEntity.ok(ApiResponse.success("Email успешно отправлен на адрес: " + sendResult.getEmail()));
+            case REJECTED:
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ApiResponse.error("Сервис перегружен, повторите отправку на адрес " + sendResult.getEmail() + " позже"));
+            case SUPPRESSED:
+                return ResponseEntity.ok(ApiResponse.error("Email на адрес " + sendResult.getEmail()
+                    + " не отправлен: адрес в списке подавления"));
+            default:
+                return ResponseEntity.ok(ApiResponse.error("Не удалось отправить email на адрес: " + sendResult.getEmail()));
+        }
+    }
+    
+    /**
+     * Формирует ответ на письмо, добавленное в сводку получателя.
+     */
+    static ResponseEntity<ApiResponse> digestAccepted(SimpleMailMessage message) {
+        return ResponseEntity.ok(ApiResponse.success("Email добавлен в сводку для адреса: " + message.getTo()[0]));
+    }
+    
+    /**
+     * Формирует ответ на уведомление, принятое POST /api/notifications.
+     * 
+     * FAILED сразу после постановки - отказ переполненной очереди: 503,
+     * клиент может повторить запрос позже. SUPPRESSED - адрес в списке
+     * подавления: 200 с причиной, повтор запроса ничего не изменит.
+     */
+    static ResponseEntity<NotificationStatus> toAcceptedResponse(NotificationStatus status) {
+        switch (status.getStatus()) {
+            case FAILED:
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(status);
+            case SUPPRESSED:
+                return ResponseEntity.ok(status);
+            default:
+                return ResponseEntity.accepted()
+                    .location(URI.create("/api/notifications/" + status.getId()))
+                    .body(status);
+        }
+    }
+    
+    /**
+     * Формирует ответ со статусом уведомления.
+     */
+    static ResponseEntity<NotificationStatus> toStatusResponse(@Nullable NotificationStatus status) {
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.notificationservice.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import com.example.notificationservice.digest.DigestAggregator;
+import com.example.notificationservice.dto.ApiResponse;
+import com.example.notificationservice.dto.BulkSendStatus;
+import com.example.notificationservice.dto.BulkSendSummary;
+import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.service.BulkSendService;
+import com.example.notificationservice.service.EmailRequests;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.service.NotificationJobService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Реактивный REST контроллер уведомлений (профиль reactive, WebFlux на Reactor Netty).
+ * 
+ * Повторяет API NotificationController по тем же путям. Потоки event loop
+ * не блокируются: одиночные письма ставятся в очередь BoundedExecutor
+ * через EmailService.sendAsync, а пакеты массовой отправки отправляются
+ * на ограниченном планировщике bulkSendScheduler. Число одновременных
+ * соединений поэтому ограничено не пулом потоков, а памятью и очередью
+ * отправки: при ее переполнении клиент получает 503.
+ */
+@RestController
+@RequestMapping("/api/notifications")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveNotificationController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveNotificationController.class);
+    
+    private final EmailService emailService;
+    private final BulkSendService bulkSendService;
+    private final NotificationJobService jobService;
+    private final Scheduler bulkSendScheduler;
+    
+    // Сводки уведомлений одного получателя; null - каждое письмо отправляется сразу
+    private final DigestAggregator digest;
+    
+    /**
+     * Конструктор с внедрением зависимостей.
+     * 
+     * @param emailService - сервис для отправки email
+     * @param bulkSendService - сервис массовой отправки
+     * @param jobService - сервис уведомлений, принимаемых в очередь
+     * @param bulkSendScheduler - планировщик блокирующей отправки пакетов (см. ReactiveConfig)
+     * @param digest - сводки уведомлений, если включен notification.digest.enabled
+     */
+    public ReactiveNotificationController(EmailService emailService, BulkSendService bulkSendService,
+                                          NotificationJobService jobService, Scheduler bulkSendScheduler,
+                                          @Nullable DigestAggregator digest) {
+        this.emailService = emailService;
+        this.bulkSendService = bulkSendService;
+        this.jobService = jobService;
+        this.bulkSendScheduler = bulkSendScheduler;
+        this.digest = digest;
+    }
+    
+    /**
+     * REST endpoint для отправки произвольного email-сообщения.
+     * 
+     * Ответ приходит после ответа SMTP-сервера, но соединение в это время
+     * не занимает поток. См. NotificationController.sendEmail.
+     * 
+     * @param emailRequest - DTO с данными для отправки email
+     * @return ApiResponse с результатом операции
+     */
+    @PostMapping("/send-email")
+    public Mono<ResponseEntity<ApiResponse>> sendEmail(@RequestBody EmailRequest emailRequest) {
+        logger.debug("Получен запрос на отправку email: {}", emailRequest);
+        
+        Priority priority;
+        SimpleMailMessage message;
+        try {
+            priority = Priority.of(emailRequest.getPriority(), Priority.STANDARD);
+            message = EmailRequests.createMessage(emailService, emailRequest);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.ok(ApiResponse.error(e.getMessage())));
+        }
+        
+        if (digest != null && digest.accepts(priority)) {
+            digest.submit(message, priority);
+            return Mono.just(NotificationRequests.digestAccepted(message));
+        }
+        return Mono.fromFuture(emailService.sendAsync(message, priority).thenApply(NotificationRequests::toResponse));
+    }
+    
+    /**
+     * REST endpoint для отправки email-сообщения без ожидания SMTP-сервера.
+     * 
+     * См. NotificationController.acceptEmail.
+     * 
+     * @param emailRequest - DTO с данными для отправки email
+     * @return NotificationStatus или ApiResponse с ошибкой проверки
+     */
+    @PostMapping
+    public ResponseEntity<?> acceptEmail(@RequestBody EmailRequest emailRequest) {
+        SimpleMailMessage message;
+        Priority priority;
+        try {
+            priority = Priority.of(emailRequest.getPriority(), Priority.STANDARD);
+            message = EmailRequests.createMessage(emailService, emailRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+        
+        return NotificationRequests.toAcceptedResponse(jobService.submit(message, priority));
+    }
+    
+    /**
+     * REST endpoint для чтения статуса уведомления.
+     * 
+     * См. NotificationController.getStatus.
+     * 
+     * @param id - идентификатор уведомления
+     * @param waitMillis - максимальное ожидание окончательного состояния, 0 - без ожидания
+     * @return NotificationStatus или 404
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<NotificationStatus>> getStatus(
+            @PathVariable("id") String id,
+            @RequestParam(name = "wait-ms", defaultValue = "0") long waitMillis) {
+        long timeout = Math.min(waitMillis, jobService.getMaxWaitMillis());
+        if (timeout <= 0) {
+            return Mono.fromSupplier(() -> NotificationRequests.toStatusResponse(jobService.getStatus(id)));
+        }
+        CompletableFuture<NotificationStatus> terminal = jobService.awaitTerminal(id);
+        if (terminal == null) {
+            return Mono.just(NotificationRequests.toStatusResponse(null));
+        }
+        // Future ожидания общий для всех клиентов: отмена по таймауту не должна его затрагивать
+        return Mono.fromFuture(terminal.thenApply(NotificationRequests::toStatusResponse))
+            .timeout(Duration.ofMillis(timeout),
+                     Mono.fromSupplier(() -> NotificationRequests.toStatusResponse(jobService.getStatus(id))));
+    }
+    
+    /**
+     * REST endpoint для массовой отправки email-сообщений.
+     * 
+     * Формат запроса и строк ответа - как у NotificationController.sendBulk.
+     * Запросы декодируются из тела по мере чтения и передаются BulkSendService
+     * порциями по notification.bulk.batch-size; следующая порция запрашивается
+     * у декодера только после отправки предыдущей, поэтому медленный SMTP
+     * замедляет чтение тела, и клиент упирается в окно TCP, а не в память сервера.
+     * 
+     * @param report - all (по умолчанию) или failures: писать только неотправленные письма
+     * @param requests - поток EmailRequest из тела запроса
+     * @return строки NDJSON: статусы писем и итог
+     */
+    @PostMapping(path = "/send-bulk",
+                 consumes = {NotificationController.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+                 produces = NotificationController.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> sendBulk(@RequestParam(name = "report", defaultValue = "all") String report,
+                                 @RequestBody(required = false) Flux<EmailRequest> requests) {
+        boolean failuresOnly = "failures".equalsIgnoreCase(report);
+        Flux<EmailRequest> body = requests != null ? requests : Flux.empty();
+        return Flux.defer(() -> {
+            // Сеанс и строки используются последовательно из concatMap
+            List<Object> lines = new ArrayList<>();
+            BulkSendService.Session session = bulkSendService.openSession(failuresOnly,
+                (index, email, status, error) -> lines.add(new BulkSendStatus(index, email, status, error)));
+            AtomicReference<String> error = new AtomicReference<>();
+            
+            Flux<Object> results = body
+                // Ошибка разбора завершает поток запросов: разобранные до нее письма отправляются
+                .onErrorResume(e -> {
+                    error.set(describe(e));
+                    logger.warn("Ошибка разбора тела массовой отправки: {}", error.get());
+                    return Mono.empty();
+                })
+                .buffer(bulkSendService.getBatchSize())
+                .concatMap(chunk -> Mono.fromCallable(() -> {
+                    for (EmailRequest request : chunk) {
+                        session.add(request);
+                    }
+                    return drain(lines);
+                }).subscribeOn(bulkSendScheduler), 1)
+                .onErrorResume(e -> {
+                    error.set(describe(e));
+                    logger.error("Ошибка массовой отправки после {} запросов", session.getTotal(), e);
+                    return Mono.empty();
+                })
+                .flatMapIterable(chunkLines -> chunkLines);
+            
+            Flux<Object> summary = Mono.fromCallable(() -> {
+                BulkSendSummary result = session.finish();
+                if (error.get() != null) {
+                    lines.add(Collections.singletonMap("error", error.get()));
+                }
+                lines.add(result);
+                return drain(lines);
+            }).subscribeOn(bulkSendScheduler).flatMapIterable(chunkLines -> chunkLines);
+            
+            return results.concatWith(summary);
+        });
+    }
+    
+    private static List<Object> drain(List<Object> lines) {
+        List<Object> result = new ArrayList<>(lines);
+        lines.clear();
+        return result;
+    }
+    
+    private static String describe(Throwable e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        return cause instanceof JsonProcessingException
+            ? ((JsonProcessingException) cause).getOriginalMessage() : cause.getMessage();
+    }
+}
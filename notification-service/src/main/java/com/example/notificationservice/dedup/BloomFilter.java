@@ -0,0 +1,78 @@
+package com.example.notificationservice.dedup;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный фильтр Блума для 64-битных ключей.
+ * 
+ * Позиции битов получаются двойным хешированием ключа, поэтому проверка и
+ * добавление не создают объектов. Ответ "нет" точный, ответ "возможно"
+ * ошибочен с вероятностью, заданной при создании.
+ */
+public class BloomFilter {
+    
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    
+    /**
+     * @param expectedInsertions - ожидаемое количество ключей
+     * @param falsePositiveRate - допустимая доля ложных срабатываний
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+    
+    public void put(long key) {
+        long h1 = key;
+        long h2 = mix(key) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+    
+    public boolean mightContain(long key) {
+        long h1 = key;
+        long h2 = mix(key) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+    }
+    
+    /**
+     * @return объем битового массива в байтах
+     */
+    public long getSizeBytes() {
+        return bitCount >>> 3;
+    }
+    
+    /**
+     * Финализатор SplitMix64: второй независимый хеш из первого.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
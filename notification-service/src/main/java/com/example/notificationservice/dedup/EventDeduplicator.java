@@ -0,0 +1,381 @@
+package com.example.notificationservice.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import com.example.notificationservice.dto.Operation;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэш уже отправленных уведомлений для подавления дублей.
+ * 
+ * Kafka повторно доставляет записи после ребаланса и перезапуска, поэтому
+ * перед отправкой событие проверяется по ключу: eventId, если producer его
+ * передал, иначе хеш (операция, email, интервал времени записи). Ключ
+ * запоминается только после успешной отправки, так что неудачное письмо
+ * будет отправлено при повторе.
+ * 
+ * Обработчики в разных потоках захватывают ключ через tryAcquire: проверка
+ * и пометка атомарны, поэтому одно событие, прочитанное дважды (например,
+ * после ребаланса, пока первая отправка еще идет), отправляется один раз.
+ * Захваченный ключ освобождается через release, если письмо не отправлено.
+ * 
+ * Проверка идет в два этапа: фильтр Блума отсекает новые события без
+ * блокировки, а "возможно было" проверяется точным LRU-кэшем ключей с
+ * временем жизни. Ложное срабатывание фильтра или вытеснение ключа из LRU
+ * приводят к отправке (дубль возможен), но не к потере письма.
+ * 
+ * Фильтр состоит из двух поколений, сменяемых раз в ttl, поэтому ключ
+ * остается в нем не меньше ttl. Точный кэш может сохраняться в файл
+ * и переживает перезапуск.
+ */
+public class EventDeduplicator implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EventDeduplicator.class);
+    
+    // Сигнатура файла состояния ("DDUP")
+    private static final int FILE_MAGIC = 0x44445550;
+    
+    // Оценка памяти на запись LinkedHashMap<Long, Long> (узел, два Long, слот таблицы)
+    private static final int ENTRY_FOOTPRINT_BYTES = 88;
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private final long ttlMillis;
+    private final long bucketMillis;
+    private final int maxEntries;
+    private final Path file;
+    
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long rotatedAt;
+    
+    // Ключ -> момент истечения; порядок вставки совпадает с порядком истечения
+    private final LinkedHashMap<Long, Long> entries;
+    
+    // Ключи событий, отправка которых идет сейчас (захвачены tryAcquire)
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    
+    private final Counter hits;
+    private final Counter misses;
+    
+    // Периодическое сохранение в файл; null - только при остановке
+    private ScheduledExecutorService persister;
+    
+    /**
+     * @param ttlMillis - сколько помнить отправленное событие
+     * @param bucketMillis - интервал времени для ключа событий без eventId
+     * @param maxEntries - максимальный размер точного кэша
+     * @param file - файл для сохранения между перезапусками или null
+     * @param meterRegistry - реестр метрик
+     * @throws IOException если файл состояния существует, но не читается
+     */
+    public EventDeduplicator(long ttlMillis, long bucketMillis, int maxEntries, @Nullable Path file,
+                             MeterRegistry meterRegistry) throws IOException {
+        this.ttlMillis = ttlMillis;
+        this.bucketMillis = bucketMillis;
+        this.maxEntries = maxEntries;
+        this.file = file;
+        this.current = new BloomFilter(maxEntries, 0.01);
+        this.previous = new BloomFilter(maxEntries, 0.01);
+        this.rotatedAt = System.currentTimeMillis();
+        this.entries = new LinkedHashMap<Long, Long>(Math.min(maxEntries, 1 << 16), 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > EventDeduplicator.this.maxEntries;
+            }
+        };
+        
+        this.hits = Counter.builder("notification.dedup.checks").tag("result", "hit")
+            .description("События, признанные дублями и не отправленные").register(meterRegistry);
+        this.misses = Counter.builder("notification.dedup.checks").tag("result", "miss")
+            .description("Новые события").register(meterRegistry);
+        Gauge.builder("notification.dedup.entries", this, EventDeduplicator::size)
+            .description("Ключи в точном кэше дедупликации").register(meterRegistry);
+        Gauge.builder("notification.dedup.memory", this, EventDeduplicator::getFootprintBytes)
+            .description("Оценка памяти кэша дедупликации").baseUnit("bytes").register(meterRegistry);
+        
+        if (file != null) {
+            load();
+        }
+    }
+    
+    /**
+     * Вычисляет ключ события.
+     * 
+     * @param userEvent - событие из Kafka
+     * @param timestampMillis - время записи Kafka (одинаково при повторной доставке)
+     * @return 64-битный ключ
+     */
+    public long keyOf(UserEvent userEvent, long timestampMillis) {
+        long h = FNV_OFFSET;
+        if (userEvent.getEventId() != null && !userEvent.getEventId().isEmpty()) {
+            h = hash(h, "id");
+            h = hash(h, userEvent.getEventId());
+        } else {
+            h = hash(h, userEvent.getOperationType() == Operation.UNKNOWN ? "" : userEvent.getOperationType().name());
+            h = hashLowerCase(h, userEvent.getEmail() == null ? "" : userEvent.getEmail());
+            long bucket = bucketMillis > 0 ? Math.floorDiv(timestampMillis, bucketMillis) : timestampMillis;
+            h = (h ^ bucket) * FNV_PRIME;
+        }
+        return BloomFilter.mix(h);
+    }
+    
+    /**
+     * Проверяет, отправлялось ли уже уведомление для ключа.
+     * 
+     * @param key - ключ события
+     * @return true если событие - дубль и письмо отправлять не нужно
+     */
+    public boolean isDuplicate(long key) {
+        long now = System.currentTimeMillis();
+        rotateIfNeeded(now);
+        if (!current.mightContain(key) && !previous.mightContain(key)) {
+            misses.increment();
+            return false;
+        }
+        Long expiresAt;
+        synchronized (entries) {
+            expiresAt = entries.get(key);
+        }
+        boolean duplicate = expiresAt != null && expiresAt > now;
+        (duplicate ? hits : misses).increment();
+        return duplicate;
+    }
+    
+    /**
+     * Атомарно проверяет ключ и захватывает его на время отправки.
+     * 
+     * Ключ сначала помечается как отправляемый, а затем проверяется по кэшу
+     * отправленных: markDelivered записывает ключ в кэш до снятия пометки,
+     * поэтому событие, отправка которого завершилась между этими шагами,
+     * тоже будет признано дублем.
+     * 
+     * @param key - ключ события
+     * @return true если ключ захвачен и письмо нужно отправить; false если
+     *         событие уже отправлено или отправляется в другом потоке
+     */
+    public boolean tryAcquire(long key) {
+        if (!inFlight.add(key)) {
+            hits.increment();
+            return false;
+        }
+        if (isDuplicate(key)) {
+            inFlight.remove(key);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Освобождает ключ, захваченный tryAcquire, если письмо не отправлено:
+     * повторная доставка события снова попробует его отправить.
+     * 
+     * @param key - ключ события
+     */
+    public void release(long key) {
+        inFlight.remove(key);
+    }
+    
+    /**
+     * Запоминает ключ после успешной отправки (или записи в spool)
+     * и освобождает его захват.
+     * 
+     * @param key - ключ события
+     */
+    public void markDelivered(long key) {
+        long now = System.currentTimeMillis();
+        rotateIfNeeded(now);
+        current.put(key);
+        synchronized (entries) {
+            // Повторная вставка переносит ключ в конец порядка истечения
+            entries.remove(key);
+            entries.put(key, now + ttlMillis);
+            evictExpired(now);
+        }
+        inFlight.remove(key);
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    /**
+     * @return оценка занимаемой памяти: оба поколения фильтра и точный кэш
+     */
+    public long getFootprintBytes() {
+        return current.getSizeBytes() + previous.getSizeBytes() + (long) size() * ENTRY_FOOTPRINT_BYTES;
+    }
+    
+    /**
+     * Сохраняет точный кэш в файл (через временный файл и переименование).
+     * 
+     * @throws IOException при ошибке записи
+     */
+    public void persist() throws IOException {
+        if (file == null) {
+            return;
+        }
+        List<long[]> snapshot;
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            evictExpired(now);
+            snapshot = new ArrayList<>(entries.size());
+            for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+                snapshot.add(new long[] {entry.getKey(), entry.getValue()});
+            }
+        }
+        
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(snapshot.size());
+            for (long[] entry : snapshot) {
+                out.writeLong(entry[0]);
+                out.writeLong(entry[1]);
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Запускает периодическое сохранение, чтобы аварийная остановка теряла
+     * не больше интервала отправленных ключей.
+     * 
+     * @param intervalMillis - интервал сохранения
+     */
+    public synchronized void startPersisting(long intervalMillis) {
+        if (file == null || intervalMillis <= 0 || persister != null) {
+            return;
+        }
+        persister = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dedup-persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+        persister.scheduleWithFixedDelay(() -> {
+            try {
+                persist();
+            } catch (IOException e) {
+                logger.error("Не удалось сохранить состояние дедупликации в {}", file, e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Сохраняет состояние перед остановкой приложения.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (persister != null) {
+                persister.shutdownNow();
+            }
+        }
+        persist();
+    }
+    
+    private void load() throws IOException {
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                logger.warn("Файл {} не является состоянием дедупликации и будет перезаписан", file);
+                return;
+            }
+            int count = in.readInt();
+            synchronized (entries) {
+                for (int i = 0; i < count; i++) {
+                    long key = in.readLong();
+                    long expiresAt = in.readLong();
+                    if (expiresAt > now) {
+                        entries.put(key, expiresAt);
+                        current.put(key);
+                        loaded++;
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        logger.info("Загружено {} ключей дедупликации из {}", loaded, file);
+    }
+    
+    private void rotateIfNeeded(long now) {
+        if (now - rotatedAt < ttlMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (now - rotatedAt < ttlMillis) {
+                return;
+            }
+            // Старое поколение очищается и становится текущим: его ключи старше ttl
+            BloomFilter oldest = previous;
+            oldest.clear();
+            previous = current;
+            current = oldest;
+            rotatedAt = now;
+        }
+    }
+    
+    private void evictExpired(long now) {
+        Iterator<Long> expirations = entries.values().iterator();
+        while (expirations.hasNext() && expirations.next() <= now) {
+            expirations.remove();
+        }
+    }
+    
+    private static long hash(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // Разделитель полей, чтобы ("ab", "c") и ("a", "bc") давали разные ключи
+        return (h ^ 0xff) * FNV_PRIME;
+    }
+    
+    /**
+     * Хеш строки без учета регистра; в отличие от toLowerCase не создает строку.
+     */
+    private static long hashLowerCase(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ Character.toLowerCase(value.charAt(i))) * FNV_PRIME;
+        }
+        return (h ^ 0xff) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.notificationservice.digest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.support.TimingWheel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сводка уведомлений одного получателя.
+ * 
+ * Первое уведомление получателя открывает сводку длиной windowMillis.
+ * Уведомления, пришедшие внутри окна, накапливаются и по его закрытии
+ * отправляются одним письмом, собранным Renderer; сводка из одного
+ * уведомления отправляется исходным письмом. Окно фиксировано от первого
+ * уведомления, а сводка из maxItems уведомлений отправляется сразу, поэтому
+ * задержка письма не превышает windowMillis + один тик. Таймеры сводок
+ * хранятся в TimingWheel: постановка и срабатывание - O(1).
+ * 
+ * Память ограничена бюджетом: уведомления сверх heapBudgetBytes дописываются
+ * в DigestSpillFile, в heap остается только ссылка. Без файла вытеснения
+ * уведомление сверх бюджета отправляется сразу, минуя сводку.
+ * 
+ * Future, возвращаемый submit, завершается результатом отправки сводки.
+ * При остановке ожидающие сводки отправляются немедленно.
+ */
+public class DigestAggregator implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DigestAggregator.class);
+    
+    /**
+     * Собирает письмо сводки из нескольких уведомлений.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        SimpleMailMessage render(String email, List<DigestItem> items);
+    }
+    
+    /**
+     * Отправляет письмо сводки.
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<SendResult> send(SimpleMailMessage message, Priority priority);
+    }
+    
+    private final long windowMillis;
+    private final int maxItems;
+    private final long heapBudgetBytes;
+    @Nullable
+    private final DigestSpillFile spillFile;
+    private final Set<Priority> priorities;
+    private final Renderer renderer;
+    private final Sender sender;
+    
+    private final ConcurrentHashMap<String, Digest> digests = new ConcurrentHashMap<>();
+    private final TimingWheel<Digest> wheel;
+    private final AtomicLong heapBytes = new AtomicLong();
+    
+    private final DistributionSummary digestSize;
+    private final Counter spilled;
+    private final Counter bypassed;
+    
+    /**
+     * @param windowMillis - длина окна сводки
+     * @param tickMillis - точность таймеров сводок
+     * @param wheelSize - количество ячеек колеса таймеров
+     * @param maxItems - уведомлений в сводке, после которого она отправляется сразу
+     * @param heapBudgetBytes - объем уведомлений в heap, сверх которого они вытесняются
+     * @param spillFile - файл вытеснения или null
+     * @param priorities - приоритеты писем, собираемых в сводки
+     * @param renderer - сборка письма сводки
+     * @param sender - отправка письма
+     * @param meterRegistry - реестр метрик
+     */
+    public DigestAggregator(long windowMillis, long tickMillis, int wheelSize, int maxItems, long heapBudgetBytes,
+                            @Nullable DigestSpillFile spillFile, Set<Priority> priorities,
+                            Renderer renderer, Sender sender, MeterRegistry meterRegistry) {
+        if (maxItems <= 0) {
+            throw new IllegalArgumentException("maxItems должно быть положительным");
+        }
+        this.windowMillis = windowMillis;
+        this.maxItems = maxItems;
+        this.heapBudgetBytes = heapBudgetBytes;
+        this.spillFile = spillFile;
+        this.priorities = priorities.isEmpty()
+            ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(priorities));
+        this.renderer = renderer;
+        this.sender = sender;
+        this.wheel = new TimingWheel<>("digest-aggregator", tickMillis, wheelSize, this::expire);
+        
+        this.digestSize = DistributionSummary.builder("notification.digest.size")
+            .description("Уведомлений в отправленной сводке").register(meterRegistry);
+        this.spilled = Counter.builder("notification.digest.items").tag("result", "spilled")
+            .description("Уведомления, вытесненные на диск").register(meterRegistry);
+        this.bypassed = Counter.builder("notification.digest.items").tag("result", "bypassed")
+            .description("Уведомления сверх бюджета, отправленные без сводки").register(meterRegistry);
+        Gauge.builder("notification.digest.pending", digests, ConcurrentHashMap::size)
+            .description("Открытые сводки").register(meterRegistry);
+        Gauge.builder("notification.digest.heap.bytes", heapBytes, AtomicLong::get)
+            .description("Оценка объема уведомлений сводок в heap").register(meterRegistry);
+        if (spillFile != null) {
+            Gauge.builder("notification.digest.spill.bytes", spillFile, DigestSpillFile::getSizeBytes)
+                .description("Размер файла вытеснения сводок").register(meterRegistry);
+        }
+    }
+    
+    /**
+     * @return true, если письма этого приоритета собираются в сводки
+     */
+    public boolean accepts(Priority priority) {
+        return priorities.contains(priority);
+    }
+    
+    /**
+     * Добавляет письмо в сводку его получателя.
+     * 
+     * @param message - письмо одному получателю
+     * @param priority - приоритет письма; сводка отправляется с наивысшим приоритетом своих писем
+     * @return future с результатом отправки сводки
+     */
+    public CompletableFuture<SendResult> submit(SimpleMailMessage message, Priority priority) {
+        String[] to = message.getTo();
+        String email = to != null && to.length > 0 ? to[0] : "";
+        DigestItem item = new DigestItem(message.getSubject(), message.getText());
+        
+        Object entry = item;
+        long bytes = item.estimateHeapBytes();
+        if (heapBytes.addAndGet(bytes) > heapBudgetBytes) {
+            heapBytes.addAndGet(-bytes);
+            entry = spill(item);
+            if (entry == null) {
+                bypassed.increment();
+                return sender.send(message, priority);
+            }
+            bytes = 0;
+        }
+        
+        Object added = entry;
+        long addedBytes = bytes;
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        Digest[] full = new Digest[1];
+        digests.compute(email.toLowerCase(Locale.ROOT), (key, digest) -> {
+            if (digest == null) {
+                digest = new Digest(key, email);
+                wheel.schedule(digest, windowMillis);
+            }
+            digest.add(added, addedBytes, priority, future);
+            if (digest.entries.size() >= maxItems) {
+                // Таймер сводки сработает позже и не найдет ее в карте
+                full[0] = digest;
+                return null;
+            }
+            return digest;
+        });
+        if (full[0] != null) {
+            send(full[0]);
+        }
+        return future;
+    }
+    
+    /**
+     * @return количество открытых сводок
+     */
+    public int getPendingCount() {
+        return digests.size();
+    }
+    
+    /**
+     * Останавливает таймеры, отправляет ожидающие сводки и закрывает файл вытеснения.
+     */
+    @Override
+    public void close() {
+        wheel.close();
+        for (Digest digest : digests.values()) {
+            expire(digest);
+        }
+        if (spillFile != null) {
+            try {
+                spillFile.close();
+            } catch (IOException e) {
+                logger.warn("Не удалось закрыть файл вытеснения сводок", e);
+            }
+        }
+    }
+    
+    @Nullable
+    private DigestSpillFile.Ref spill(DigestItem item) {
+        if (spillFile == null) {
+            return null;
+        }
+        try {
+            DigestSpillFile.Ref ref = spillFile.append(item);
+            spilled.increment();
+            return ref;
+        } catch (IOException e) {
+            logger.warn("Не удалось вытеснить уведомление сводки на диск, оно будет отправлено сразу", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Закрывает сводку по таймеру (поток колеса).
+     */
+    private void expire(Digest digest) {
+        if (digests.remove(digest.key, digest)) {
+            send(digest);
+        }
+    }
+    
+    private void send(Digest digest) {
+        CompletableFuture<SendResult> result;
+        try {
+            List<DigestItem> items = load(digest);
+            digestSize.record(items.size());
+            SimpleMailMessage message = items.size() == 1
+                ? toMessage(digest.email, items.get(0)) : renderer.render(digest.email, items);
+            result = sender.send(message, digest.priority);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Не удалось отправить сводку из {} уведомлений на адрес {}",
+                        digest.futures.size(), digest.email, e);
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((sendResult, error) -> {
+            for (CompletableFuture<SendResult> future : digest.futures) {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(sendResult);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Собирает уведомления сводки, читая вытесненные с диска.
+     */
+    private List<DigestItem> load(Digest digest) throws IOException {
+        heapBytes.addAndGet(-digest.heapBytes);
+        int count = digest.entries.size();
+        List<DigestItem> items = new ArrayList<>(count);
+        int next = 0;
+        try {
+            for (; next < count; next++) {
+                Object entry = digest.entries.get(next);
+                if (entry instanceof DigestSpillFile.Ref) {
+                    items.add(spillFile.read((DigestSpillFile.Ref) entry));
+                } else {
+                    items.add((DigestItem) entry);
+                }
+            }
+        } finally {
+            // После ошибки чтения остальные вытесненные уведомления не будут прочитаны
+            for (int i = next + 1; i < count; i++) {
+                Object entry = digest.entries.get(i);
+                if (entry instanceof DigestSpillFile.Ref) {
+                    spillFile.release((DigestSpillFile.Ref) entry);
+                }
+            }
+        }
+        return items;
+    }
+    
+    private static SimpleMailMessage toMessage(String email, DigestItem item) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(email);
+        message.setSubject(item.getSubject());
+        message.setText(item.getText());
+        return message;
+    }
+    
+    /**
+     * Состояние сводки; изменяется только внутри ConcurrentHashMap.compute.
+     */
+    private static final class Digest {
+        final String key;
+        final String email;
+        // DigestItem в heap или DigestSpillFile.Ref на диске
+        final List<Object> entries = new ArrayList<>(4);
+        final List<CompletableFuture<SendResult>> futures = new ArrayList<>(4);
+        Priority priority = Priority.BULK;
+        long heapBytes;
+        
+        Digest(String key, String email) {
+            this.key = key;
+            this.email = email;
+        }
+        
+        void add(Object entry, long bytes, Priority itemPriority, CompletableFuture<SendResult> future) {
+            entries.add(entry);
+            futures.add(future);
+            heapBytes += bytes;
+            if (itemPriority.ordinal() < priority.ordinal()) {
+                priority = itemPriority;
+            }
+        }
+    }
+}
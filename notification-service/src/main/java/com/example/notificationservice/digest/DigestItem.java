@@ -0,0 +1,30 @@
+package com.example.notificationservice.digest;
+
+/**
+ * Уведомление, ожидающее отправки в сводке: тема и текст исходного письма.
+ */
+public final class DigestItem {
+    
+    private final String subject;
+    private final String text;
+    
+    public DigestItem(String subject, String text) {
+        this.subject = subject != null ? subject : "";
+        this.text = text != null ? text : "";
+    }
+    
+    public String getSubject() {
+        return subject;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    /**
+     * @return приблизительный объем в heap: символы строк и заголовки объектов
+     */
+    long estimateHeapBytes() {
+        return 2L * (subject.length() + text.length()) + 96;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.notificationservice.digest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Файл вытеснения для уведомлений сводок, не поместившихся в бюджет heap.
+ * 
+ * Файл разбит на сегменты не больше segmentBytes: уведомления дописываются
+ * в конец текущего сегмента, заполненный сегмент сменяется новым, в памяти
+ * остается только ссылка (сегмент, смещение и длина). У каждого сегмента
+ * свой счетчик непрочитанных уведомлений: когда все уведомления сегмента
+ * отправлены, его файл удаляется (текущий сегмент обрезается до нуля).
+ * Поэтому даже при постоянно открытых сводках на диске остаются только
+ * сегменты, записанные за последнее окно сводки, а не вся история
+ * вытеснения. Формат записи: [длина темы (int)][тема UTF-8]
+ * [длина текста (int)][текст UTF-8].
+ * 
+ * Файл не является надежным хранилищем: при открытии сегменты прежнего
+ * запуска удаляются. Записи Kafka, уведомления которых ждут в сводке,
+ * не подтверждены и после перезапуска будут прочитаны снова.
+ */
+public class DigestSpillFile implements Closeable {
+    
+    private static final String FILE_PREFIX = "digest-spill-";
+    private static final String FILE_SUFFIX = ".bin";
+    
+    /** Размер сегмента по умолчанию */
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    
+    /**
+     * Положение вытесненного уведомления в файле.
+     */
+    static final class Ref {
+        final Segment segment;
+        final long offset;
+        final int length;
+        
+        Ref(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+    
+    /**
+     * Сегмент файла; изменяется под блокировкой DigestSpillFile.
+     */
+    static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        // Позиция записи и число еще не прочитанных уведомлений
+        long size;
+        int live;
+        
+        Segment(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+    
+    private final Path directory;
+    private final long segmentBytes;
+    
+    // Сегменты с непрочитанными уведомлениями и текущий сегмент записи (под блокировкой this)
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private long nextSegment;
+    
+    /**
+     * Создает пустой файл вытеснения в каталоге с сегментами по умолчанию.
+     * 
+     * @param directory - каталог файла
+     * @throws IOException при ошибке доступа к файлу
+     */
+    public DigestSpillFile(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+    
+    /**
+     * Создает пустой файл вытеснения в каталоге.
+     * 
+     * @param directory - каталог файла
+     * @param segmentBytes - размер, после которого запись переходит в новый сегмент
+     * @throws IOException при ошибке доступа к файлу
+     */
+    public DigestSpillFile(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("segmentBytes должно быть положительным");
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stale) {
+                Files.deleteIfExists(path);
+            }
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.active = openSegment();
+    }
+    
+    /**
+     * Дописывает уведомление в файл.
+     * 
+     * @param item - уведомление
+     * @return ссылка для чтения
+     * @throws IOException при ошибке записи
+     */
+    synchronized Ref append(DigestItem item) throws IOException {
+        byte[] subject = item.getSubject().getBytes(StandardCharsets.UTF_8);
+        byte[] text = item.getText().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + subject.length + text.length);
+        buffer.putInt(subject.length).put(subject).putInt(text.length).put(text).flip();
+        if (active.size >= segmentBytes) {
+            active = openSegment();
+        }
+        Segment segment = active;
+        Ref ref = new Ref(segment, segment.size, buffer.remaining());
+        while (buffer.hasRemaining()) {
+            segment.size += segment.channel.write(buffer, segment.size);
+        }
+        segment.live++;
+        return ref;
+    }
+    
+    /**
+     * Читает уведомление и освобождает его место в файле.
+     * 
+     * @param ref - ссылка, полученная от append
+     * @return уведомление
+     * @throws IOException при ошибке чтения
+     */
+    synchronized DigestItem read(Ref ref) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ref.length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (ref.segment.channel.read(buffer, ref.offset + buffer.position()) < 0) {
+                    throw new IOException("Файл вытеснения сводок обрезан");
+                }
+            }
+        } finally {
+            release(ref);
+        }
+        buffer.flip();
+        byte[] subject = new byte[buffer.getInt()];
+        buffer.get(subject);
+        byte[] text = new byte[buffer.getInt()];
+        buffer.get(text);
+        return new DigestItem(new String(subject, StandardCharsets.UTF_8), new String(text, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Освобождает место уведомления, которое больше не будет прочитано.
+     * 
+     * Сегмент без непрочитанных уведомлений удаляется, текущий - обрезается.
+     * 
+     * @param ref - ссылка, полученная от append
+     */
+    synchronized void release(Ref ref) throws IOException {
+        Segment segment = ref.segment;
+        if (--segment.live > 0) {
+            return;
+        }
+        if (segment == active) {
+            segment.channel.truncate(0);
+            segment.size = 0;
+        } else {
+            segments.remove(segment);
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+    
+    /**
+     * @return размер файла в байтах (всех сегментов)
+     */
+    public synchronized long getSizeBytes() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+    
+    /**
+     * @return количество вытесненных уведомлений, ожидающих отправки
+     */
+    public synchronized int getLiveCount() {
+        int live = 0;
+        for (Segment segment : segments) {
+            live += segment.live;
+        }
+        return live;
+    }
+    
+    /**
+     * @return количество сегментов на диске, включая текущий
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+    
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve(FILE_PREFIX + nextSegment++ + FILE_SUFFIX);
+        Segment segment = new Segment(path);
+        segments.add(segment);
+        return segment;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.notificationservice.dto;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Результат пакетной отправки email-сообщений.
+ * 
+ * Хранит общее количество сообщений в пакете, ошибки по индексам
+ * сообщений, которые не удалось отправить, и индексы сообщений, не
+ * отправленных из-за списка подавления (они не считаются ошибками).
+ */
+public class BulkSendResult {
+    
+    private final int total;
+    private final Map<Integer, Exception> failures;
+    private final Set<Integer> suppressed;
+    
+    public BulkSendResult(int total, Map<Integer, Exception> failures) {
+        this(total, failures, Collections.emptySet());
+    }
+    
+    public BulkSendResult(int total, Map<Integer, Exception> failures, Set<Integer> suppressed) {
+        this.total = total;
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.suppressed = suppressed.isEmpty() ? Collections.emptySet()
+            : Collections.unmodifiableSet(new TreeSet<>(suppressed));
+    }
+    
+    // Геттеры
+    public int getTotal() {
+        return total;
+    }
+    
+    public int getSentCount() {
+        return total - failures.size() - suppressed.size();
+    }
+    
+    public int getFailedCount() {
+        return failures.size();
+    }
+    
+    /**
+     * @return ошибки отправки в порядке индексов сообщений в пакете
+     */
+    public Map<Integer, Exception> getFailures() {
+        return failures;
+    }
+    
+    public int getSuppressedCount() {
+        return suppressed.size();
+    }
+    
+    /**
+     * @return индексы сообщений на адреса из списка подавления по возрастанию
+     */
+    public Set<Integer> getSuppressed() {
+        return suppressed;
+    }
+    
+    public boolean isFailed(int index) {
+        return failures.containsKey(index);
+    }
+    
+    public boolean isSuppressed(int index) {
+        return suppressed.contains(index);
+    }
+    
+    /**
+     * @return true, если сообщение принято SMTP-сервером
+     */
+    public boolean isSent(int index) {
+        return !failures.containsKey(index) && !suppressed.contains(index);
+    }
+    
+    /**
+     * @return true, если ошибок отправки нет (подавленные адреса ошибкой не считаются)
+     */
+    public boolean isAllSent() {
+        return failures.isEmpty();
+    }
+    
+    /**
+     * @return индекс первого неотправленного сообщения или -1, если ошибок нет
+     */
+    public int getFirstFailedIndex() {
+        return failures.isEmpty() ? -1 : failures.keySet().iterator().next();
+    }
+    
+    // Статический метод для пакета без ошибок
+    public static BulkSendResult allSent(int total) {
+        return new BulkSendResult(total, Collections.emptyMap());
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkSendResult{total=" + total + ", failed=" + failures.size()
+            + ", suppressed=" + suppressed.size() + "}";
+    }
+}
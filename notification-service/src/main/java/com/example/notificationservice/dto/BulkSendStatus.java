@@ -0,0 +1,45 @@
+package com.example.notificationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Строка ответа массовой отправки со статусом одного письма.
+ * 
+ * Совпадает со строками, которые BulkSendService пишет в поток ответа:
+ * {"index":N,"email":"...","status":"SENT|FAILED|INVALID|SUPPRESSED"},
+ * для FAILED, INVALID и SUPPRESSED с полем error.
+ */
+@JsonPropertyOrder({"index", "email", "status", "error"})
+public class BulkSendStatus {
+    
+    private final long index;
+    private final String email;
+    private final String status;
+    private final String error;
+    
+    public BulkSendStatus(long index, String email, String status, String error) {
+        this.index = index;
+        this.email = email;
+        this.status = status;
+        this.error = error;
+    }
+    
+    // Геттеры
+    public long getIndex() {
+        return index;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.notificationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Итог массовой отправки через /api/notifications/send-bulk.
+ */
+public class BulkSendSummary {
+    
+    private long total;
+    private long sent;
+    private long failed;
+    private long invalid;
+    private long suppressed;
+    
+    // Конструктор по умолчанию
+    public BulkSendSummary() {}
+    
+    public BulkSendSummary(long total, long sent, long failed, long invalid) {
+        this(total, sent, failed, invalid, 0);
+    }
+    
+    public BulkSendSummary(long total, long sent, long failed, long invalid, long suppressed) {
+        this.total = total;
+        this.sent = sent;
+        this.failed = failed;
+        this.invalid = invalid;
+        this.suppressed = suppressed;
+    }
+    
+    // Геттеры
+    public long getTotal() {
+        return total;
+    }
+    
+    public long getSent() {
+        return sent;
+    }
+    
+    public long getFailed() {
+        return failed;
+    }
+    
+    public long getInvalid() {
+        return invalid;
+    }
+    
+    /**
+     * @return письма на адреса из списка подавления; в JSON только если их больше нуля
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public long getSuppressed() {
+        return suppressed;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkSendSummary{total=" + total + ", sent=" + sent + ", failed=" + failed + ", invalid=" + invalid
+            + ", suppressed=" + suppressed + "}";
+    }
+}
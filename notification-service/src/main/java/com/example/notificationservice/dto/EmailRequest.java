@@ -1,5 +1,7 @@
 package com.example.notificationservice.dto;
 
+import java.util.Map;
+
 /**
  * DTO класс для запроса на отправку email через REST API.
  * 
@@ -11,6 +13,14 @@ public class EmailRequest {
     private String subject;
     private String message;
     
+    // Отправка по шаблону вместо subject/message
+    private String template;
+    private String locale;
+    private Map<String, String> variables;
+    
+    // Приоритет: transactional, standard или bulk (по умолчанию зависит от endpoint'а)
+    private String priority;
+    
     // Конструктор по умолчанию
     public EmailRequest() {}
     
@@ -44,4 +54,36 @@ public class EmailRequest {
     public void setMessage(String message) {
         this.message = message;
     }
+    
+    public String getTemplate() {
+        return template;
+    }
+    
+    public void setTemplate(String template) {
+        this.template = template;
+    }
+    
+    public String getLocale() {
+        return locale;
+    }
+    
+    public void setLocale(String locale) {
+        this.locale = locale;
+    }
+    
+    public Map<String, String> getVariables() {
+        return variables;
+    }
+    
+    public void setVariables(Map<String, String> variables) {
+        this.variables = variables;
+    }
+    
+    public String getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
 }
@@ -0,0 +1,182 @@
+package com.example.notificationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * DTO класс с результатом обработки события пользователя для топика результатов.
+ * 
+ * Публикуется NotificationResultPublisher на каждое обработанное событие
+ * user-events (и на каждый его повтор): идентификатор и адрес события,
+ * итог, задержку от записи события до результата, длительность SMTP-отправки
+ * и SMTP-релей. Пустые поля в JSON не пишутся.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NotificationResult {
+    
+    /**
+     * Итоги обработки события.
+     */
+    public enum Status {
+        // SMTP-сервер принял письмо
+        SENT,
+        // Ошибка отправки; событие может быть повторено из топика повторов
+        FAILED,
+        // Письмо не принято в очередь отправки или не дождалось лимита
+        REJECTED,
+        // Адрес в списке подавления, письмо не отправлялось
+        SUPPRESSED,
+        // Уведомление по событию уже отправлено (повторная доставка записи)
+        DUPLICATE,
+        // Письмо записано в spool; его отправит SpoolSenderService
+        SPOOLED,
+        // Событие не требует письма (неизвестная операция или пустое событие)
+        SKIPPED;
+        
+        static Status of(SendResult.Status status) {
+            switch (status) {
+                case SENT:
+                    return SENT;
+                case REJECTED:
+                    return REJECTED;
+                case SUPPRESSED:
+                    return SUPPRESSED;
+                default:
+                    return FAILED;
+            }
+        }
+    }
+    
+    private final String eventId;
+    private final String email;
+    private final String operation;
+    private final Status status;
+    private final int attempt;
+    private final long eventTimestamp;
+    private final long timestamp;
+    private final long sendMillis;
+    private final String relay;
+    private final int replyCode;
+    private final String error;
+    
+    public NotificationResult(String eventId, String email, String operation, Status status, int attempt,
+                              long eventTimestamp, long timestamp, long sendMillis, String relay,
+                              int replyCode, String error) {
+        this.eventId = eventId;
+        this.email = email;
+        this.operation = operation;
+        this.status = status;
+        this.attempt = attempt;
+        this.eventTimestamp = eventTimestamp;
+        this.timestamp = timestamp;
+        this.sendMillis = sendMillis;
+        this.relay = relay;
+        this.replyCode = replyCode;
+        this.error = error;
+    }
+    
+    /**
+     * Результат по итогу отправки письма.
+     * 
+     * @param userEvent - обработанное событие
+     * @param eventTimestamp - время записи события, мс с начала эпохи
+     * @param attempt - номер попытки, с 1
+     * @param result - результат отправки
+     * @return результат для топика результатов
+     */
+    public static NotificationResult of(UserEvent userEvent, long eventTimestamp, int attempt, SendResult result) {
+        return new NotificationResult(userEvent.getEventId(), userEvent.getEmail(), userEvent.getOperation(),
+            Status.of(result.getStatus()), attempt, eventTimestamp, System.currentTimeMillis(),
+            result.getDurationMillis(), result.getRelay(), result.getReplyCode(), result.getError());
+    }
+    
+    /**
+     * Результат без отправки письма (дубль, spool, пропуск) или с ошибкой без SendResult.
+     * 
+     * @param userEvent - обработанное событие
+     * @param eventTimestamp - время записи события, мс с начала эпохи
+     * @param attempt - номер попытки, с 1
+     * @param status - итог обработки
+     * @param error - описание ошибки или null
+     * @return результат для топика результатов
+     */
+    public static NotificationResult of(UserEvent userEvent, long eventTimestamp, int attempt, Status status,
+                                        String error) {
+        return new NotificationResult(userEvent.getEventId(), userEvent.getEmail(), userEvent.getOperation(),
+            status, attempt, eventTimestamp, System.currentTimeMillis(), 0, null, 0, error);
+    }
+    
+    // Геттеры
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * @return номер попытки: 1 - из user-events, далее - из топиков повторов
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+    
+    /**
+     * @return время записи события в user-events, мс с начала эпохи
+     */
+    public long getEventTimestamp() {
+        return eventTimestamp;
+    }
+    
+    /**
+     * @return время получения результата, мс с начала эпохи
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    /**
+     * @return задержка от записи события до результата, мс; 0 - время записи неизвестно
+     */
+    public long getLatencyMillis() {
+        return eventTimestamp > 0 ? Math.max(0, timestamp - eventTimestamp) : 0;
+    }
+    
+    /**
+     * @return длительность SMTP-отправки, мс
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public long getSendMillis() {
+        return sendMillis;
+    }
+    
+    public String getRelay() {
+        return relay;
+    }
+    
+    /**
+     * @return код ответа SMTP для неудачной отправки или 0
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public int getReplyCode() {
+        return replyCode;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    @Override
+    public String toString() {
+        return "NotificationResult{eventId='" + eventId + "', email='" + email + "', status=" + status
+            + ", attempt=" + attempt + ", latencyMillis=" + getLatencyMillis() + ", relay='" + relay + "'}";
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.notificationservice.dto;
+
+/**
+ * DTO класс со статусом уведомления, принятого POST /api/notifications.
+ * 
+ * Содержит идентификатор уведомления, его состояние, время последнего
+ * изменения состояния и описание ошибки для неудачной отправки
+ * (или причину подавления адреса).
+ */
+public class NotificationStatus {
+    
+    /**
+     * Состояния уведомления.
+     */
+    public enum State {
+        // Принято и ждет в очереди отправки (или в сводке получателя)
+        QUEUED,
+        // Передается SMTP-серверу
+        SENDING,
+        // SMTP-сервер принял сообщение
+        SENT,
+        // Не отправлено: ошибка SMTP или отказ очереди отправки
+        FAILED,
+        // Не отправлено: адрес в списке подавления, повторять отправку не нужно
+        SUPPRESSED;
+        
+        /**
+         * @return true для окончательных состояний
+         */
+        public boolean isTerminal() {
+            return this == SENT || this == FAILED || this == SUPPRESSED;
+        }
+    }
+    
+    private final String id;
+    private final State status;
+    private final long updatedAt;
+    private final String error;
+    
+    public NotificationStatus(String id, State status, long updatedAt, String error) {
+        this.id = id;
+        this.status = status;
+        this.updatedAt = updatedAt;
+        this.error = error;
+    }
+    
+    // Геттеры
+    public String getId() {
+        return id;
+    }
+    
+    public State getStatus() {
+        return status;
+    }
+    
+    /**
+     * @return время последнего изменения состояния, мс с начала эпохи
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    @Override
+    public String toString() {
+        return "NotificationStatus{" +
+                "id='" + id + '\'' +
+                ", status=" + status +
+                ", updatedAt=" + updatedAt +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.notificationservice.dto;
+
+/**
+ * Операция события пользователя.
+ * 
+ * Разбирается один раз при десериализации UserEvent, чтобы обработчики
+ * сравнивали константы, а не строки.
+ */
+public enum Operation {
+    CREATE,
+    DELETE,
+    // Операция отсутствует или не поддерживается
+    UNKNOWN;
+    
+    /**
+     * Разбирает операцию без учета регистра и без создания строк.
+     * 
+     * @param value - значение поля operation
+     * @return операция или UNKNOWN
+     */
+    public static Operation of(String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        if (CREATE.name().equalsIgnoreCase(value)) {
+            return CREATE;
+        }
+        if (DELETE.name().equalsIgnoreCase(value)) {
+            return DELETE;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.notificationservice.dto;
+
+/**
+ * Класс приоритета письма.
+ * 
+ * Определяет очередь (полосу) отправки: транзакционные письма не ждут
+ * за массовыми рассылками (см. SendLanes).
+ */
+public enum Priority {
+    // Письма в ответ на действие пользователя: создание и удаление аккаунта
+    TRANSACTIONAL,
+    // Разовые письма через API
+    STANDARD,
+    // Массовые рассылки
+    BULK;
+    
+    /**
+     * Разбирает приоритет без учета регистра.
+     * 
+     * @param value - значение поля priority
+     * @param defaultPriority - приоритет, если значение не задано
+     * @return приоритет
+     * @throws IllegalArgumentException если значение не является приоритетом
+     */
+    public static Priority of(String value, Priority defaultPriority) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultPriority;
+        }
+        for (Priority priority : values()) {
+            if (priority.name().equalsIgnoreCase(value.trim())) {
+                return priority;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный приоритет: " + value);
+    }
+    
+    /**
+     * Приоритет письма по операции события пользователя.
+     * 
+     * @param operation - операция события
+     * @return TRANSACTIONAL для писем об аккаунте, иначе STANDARD
+     */
+    public static Priority of(Operation operation) {
+        switch (operation) {
+            case CREATE:
+            case DELETE:
+                return TRANSACTIONAL;
+            default:
+                return STANDARD;
+        }
+    }
+}
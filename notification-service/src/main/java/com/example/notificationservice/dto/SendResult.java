@@ -0,0 +1,127 @@
+package com.example.notificationservice.dto;
+
+/**
+ * DTO класс с результатом асинхронной отправки email-сообщения.
+ * 
+ * Содержит статус отправки, адрес получателя, время отправки, описание ошибки,
+ * код ответа SMTP-сервера для неудачной отправки и SMTP-релей, через который
+ * шло письмо.
+ */
+public class SendResult {
+    
+    /**
+     * Статусы отправки.
+     */
+    public enum Status {
+        // SMTP-сервер принял сообщение
+        SENT,
+        // Ошибка при отправке
+        FAILED,
+        // Сообщение не принято в очередь отправки из-за перегрузки
+        REJECTED,
+        // Адрес в списке подавления, сообщение не отправлялось
+        SUPPRESSED
+    }
+    
+    private final Status status;
+    private final String email;
+    private final long durationMillis;
+    private final String error;
+    private final int replyCode;
+    private final String relay;
+    
+    public SendResult(Status status, String email, long durationMillis, String error) {
+        this(status, email, durationMillis, error, 0);
+    }
+    
+    public SendResult(Status status, String email, long durationMillis, String error, int replyCode) {
+        this(status, email, durationMillis, error, replyCode, null);
+    }
+    
+    public SendResult(Status status, String email, long durationMillis, String error, int replyCode,
+                      String relay) {
+        this.status = status;
+        this.email = email;
+        this.durationMillis = durationMillis;
+        this.error = error;
+        this.replyCode = replyCode;
+        this.relay = relay;
+    }
+    
+    // Геттеры
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    /**
+     * @return код ответа SMTP (например 421 или 550) или 0, если он неизвестен
+     */
+    public int getReplyCode() {
+        return replyCode;
+    }
+    
+    /**
+     * @return имя SMTP-релея (или хост SMTP-сервера), через который шло письмо, или null
+     */
+    public String getRelay() {
+        return relay;
+    }
+    
+    public boolean isSent() {
+        return status == Status.SENT;
+    }
+    
+    /**
+     * @return true, если адрес в списке подавления: повторять отправку не нужно
+     */
+    public boolean isSuppressed() {
+        return status == Status.SUPPRESSED;
+    }
+    
+    // Статические методы для удобного создания результатов
+    public static SendResult sent(String email, long durationMillis) {
+        return new SendResult(Status.SENT, email, durationMillis, null);
+    }
+    
+    public static SendResult sent(String email, long durationMillis, String relay) {
+        return new SendResult(Status.SENT, email, durationMillis, null, 0, relay);
+    }
+    
+    public static SendResult failed(String email, long durationMillis, String error) {
+        return new SendResult(Status.FAILED, email, durationMillis, error);
+    }
+    
+    public static SendResult failed(String email, long durationMillis, String error, int replyCode) {
+        return new SendResult(Status.FAILED, email, durationMillis, error, replyCode);
+    }
+    
+    public static SendResult failed(String email, long durationMillis, String error, int replyCode,
+                                    String relay) {
+        return new SendResult(Status.FAILED, email, durationMillis, error, replyCode, relay);
+    }
+    
+    public static SendResult rejected(String email, String error) {
+        return new SendResult(Status.REJECTED, email, 0, error);
+    }
+    
+    public static SendResult suppressed(String email, String error) {
+        return new SendResult(Status.SUPPRESSED, email, 0, error);
+    }
+    
+    @Override
+    public String toString() {
+        return "SendResult{status=" + status + ", email='" + email + "', durationMillis=" + durationMillis + "}";
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.notificationservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -13,14 +14,24 @@ public class UserEvent {
     @JsonProperty("operation")
     private String operation; // CREATE или DELETE
     
+    // Разобранная операция; вычисляется один раз при установке operation
+    @JsonIgnore
+    private Operation operationType = Operation.UNKNOWN;
+    
     @JsonProperty("email")
     private String email;
     
+    @JsonProperty("eventId")
+    private String eventId; // необязательно, идентификатор для дедупликации
+    
+    @JsonProperty("locale")
+    private String locale; // необязательно, например ru или en_US
+    
     // Конструктор по умолчанию (необходим для Jackson)
     public UserEvent() {}
     
     public UserEvent(String operation, String email) {
-        this.operation = operation;
+        setOperation(operation);
         this.email = email;
     }
     
@@ -31,6 +42,12 @@ public class UserEvent {
     
     public void setOperation(String operation) {
         this.operation = operation;
+        this.operationType = Operation.of(operation);
+    }
+    
+    @JsonIgnore
+    public Operation getOperationType() {
+        return operationType;
     }
     
     public String getEmail() {
@@ -41,6 +58,22 @@ public class UserEvent {
         this.email = email;
     }
     
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+    
+    public String getLocale() {
+        return locale;
+    }
+    
+    public void setLocale(String locale) {
+        this.locale = locale;
+    }
+    
     @Override
     public String toString() {
         return "UserEvent{operation='" + operation + "', email='" + email + "'}";
@@ -0,0 +1,152 @@
+package com.example.notificationservice.mail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JavaMailSender, отправляющий сообщения через пул постоянных SMTP-соединений.
+ * 
+ * Стандартный JavaMailSenderImpl открывает новое соединение на каждый вызов send,
+ * из-за чего при высокой нагрузке TCP + STARTTLS + AUTH стоит дороже самого
+ * сообщения. Этот класс берет авторизованное соединение из SmtpTransportPool,
+ * а при обрыве соединения переподключается и повторяет сообщение один раз.
+ */
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PooledJavaMailSender.class);
+    
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+    
+    private SmtpTransportPool pool;
+    
+    /**
+     * Подключает пул соединений; вызывается после настройки хоста и учетных данных.
+     * 
+     * @param pool - пул, создающий соединения через connectTransport()
+     */
+    public void setPool(SmtpTransportPool pool) {
+        this.pool = pool;
+    }
+    
+    public SmtpTransportPool getPool() {
+        return pool;
+    }
+    
+    /**
+     * Устанавливает новое авторизованное соединение для пула.
+     */
+    public Transport openTransport() throws MessagingException {
+        return connectTransport();
+    }
+    
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        SmtpTransportPool.PooledTransport pooled = null;
+        int sent = 0;
+        
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                Object original = (originalMessages != null ? originalMessages[i] : mimeMessages[i]);
+                
+                if (pooled == null) {
+                    try {
+                        pooled = borrow();
+                    } catch (MessagingException e) {
+                        // Без соединения не будет отправлено ни одно из оставшихся сообщений
+                        for (int j = i; j < mimeMessages.length; j++) {
+                            failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], e);
+                        }
+                        throw new MailSendException("Mail server connection failed", e, failedMessages);
+                    }
+                }
+                
+                try {
+                    sendMessage(pooled.getTransport(), mimeMessages[i]);
+                    sent++;
+                } catch (MessagingException e) {
+                    if (pooled.getTransport().isConnected()) {
+                        // Сервер отклонил сообщение, но соединение исправно
+                        failedMessages.put(original, e);
+                        continue;
+                    }
+                    
+                    // Соединение разорвано: переподключаемся и повторяем сообщение один раз
+                    logger.debug("SMTP-соединение разорвано, переподключение", e);
+                    pool.invalidate(pooled);
+                    pooled = null;
+                    sent = 0;
+                    try {
+                        pooled = borrow();
+                        sendMessage(pooled.getTransport(), mimeMessages[i]);
+                        sent++;
+                    } catch (MessagingException retryException) {
+                        failedMessages.put(original, retryException);
+                        if (pooled != null) {
+                            pool.invalidate(pooled);
+                            pooled = null;
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (pooled != null) {
+                pool.release(pooled, sent);
+            }
+        }
+        
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+    
+    private SmtpTransportPool.PooledTransport borrow() throws MessagingException {
+        try {
+            return pool.borrow();
+        } catch (AuthenticationFailedException e) {
+            throw new MailAuthenticationException(e);
+        } catch (MessagingException e) {
+            throw new SmtpConnectionException(e);
+        }
+    }
+    
+    /**
+     * Отправляет одно сообщение через уже подключенное соединение
+     * (аналогично JavaMailSenderImpl.doSend, но без проверки соединения на каждое письмо).
+     */
+    private void sendMessage(Transport transport, MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            // Сохранение заданного Message-ID после saveChanges()
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+        Address[] addresses = mimeMessage.getAllRecipients();
+        transport.sendMessage(mimeMessage, (addresses != null ? addresses : new Address[0]));
+    }
+}
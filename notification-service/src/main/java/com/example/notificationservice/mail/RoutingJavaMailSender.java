@@ -0,0 +1,256 @@
+package com.example.notificationservice.mail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JavaMailSender, распределяющий письма между несколькими SMTP-релеями.
+ * 
+ * Для каждой отправки выбирается доступный релей с наименьшей оценкой
+ * задержки с учетом отправок в работе и веса релея (weighted least-latency).
+ * Письма, не отправленные из-за ошибки релея - соединение, авторизация,
+ * временный отказ 4xx, - повторяются через следующий релей; остальные
+ * ошибки, в том числе постоянные отказы 5xx (например, несуществующий
+ * адрес), возвращаются вызывающему без повтора. Релеи с ошибками подряд выключаются (см. SmtpRelay),
+ * а фоновая проверка соединения возвращает восстановившиеся релеи в работу.
+ * 
+ * Отправка синхронная, поэтому последний опробованный релей запоминается
+ * для вызывающего потока (см. takeLastRelay).
+ */
+public class RoutingJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RoutingJavaMailSender.class);
+    
+    private final List<SmtpRelay> relays;
+    private final ScheduledExecutorService healthChecker;
+    
+    // Релей последней попытки отправки в текущем потоке
+    private final ThreadLocal<SmtpRelay> lastRelay = new ThreadLocal<>();
+    
+    /**
+     * @param relays - релеи в порядке предпочтения при равной оценке
+     * @param healthCheckIntervalMillis - интервал проверки соединения с релеями; 0 - без проверки
+     */
+    public RoutingJavaMailSender(List<SmtpRelay> relays, long healthCheckIntervalMillis) {
+        if (relays.isEmpty()) {
+            throw new IllegalArgumentException("Не задан ни один SMTP-релей");
+        }
+        this.relays = Collections.unmodifiableList(new ArrayList<>(relays));
+        if (healthCheckIntervalMillis > 0) {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "smtp-relay-health");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.healthChecker = null;
+        }
+    }
+    
+    public List<SmtpRelay> getRelays() {
+        return relays;
+    }
+    
+    /**
+     * Возвращает и сбрасывает релей последней попытки отправки в текущем потоке.
+     * 
+     * Для одного письма это релей, принявший письмо или вернувший постоянный
+     * отказ; для пакета - релей последней попытки.
+     * 
+     * @return имя релея или null, если поток ничего не отправлял через релеи
+     */
+    @Nullable
+    public String takeLastRelay() {
+        SmtpRelay relay = lastRelay.get();
+        if (relay == null) {
+            return null;
+        }
+        lastRelay.remove();
+        return relay.getName();
+    }
+    
+    /**
+     * Проверяет соединение с каждым релеем и обновляет состояние выключателей.
+     */
+    public void checkHealth() {
+        for (SmtpRelay relay : relays) {
+            boolean healthy;
+            try {
+                relay.getSender().testConnection();
+                healthy = true;
+            } catch (MessagingException | RuntimeException e) {
+                logger.debug("Проверка SMTP-релея {} не прошла", relay, e);
+                healthy = false;
+            }
+            if (relay.onHealthCheck(healthy)) {
+                logger.info("SMTP-релей {} {} по результату проверки соединения",
+                           relay, healthy ? "возвращен в работу" : "выключен");
+            }
+        }
+    }
+    
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Object[] originals = originalMessages != null ? originalMessages : mimeMessages;
+        lastRelay.remove();
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        Set<SmtpRelay> tried = new HashSet<>();
+        MimeMessage[] pending = mimeMessages;
+        Object[] pendingOriginals = originals;
+        
+        while (pending.length > 0) {
+            SmtpRelay.Permit permit = select(tried);
+            if (permit == null) {
+                MessagingException unavailable = new MessagingException(tried.isEmpty()
+                    ? "Все SMTP-релеи выключены" : "Нет SMTP-релея для повтора после ошибок");
+                for (Object original : pendingOriginals) {
+                    failedMessages.putIfAbsent(original, unavailable);
+                }
+                break;
+            }
+            SmtpRelay relay = permit.relay;
+            tried.add(relay);
+            lastRelay.set(relay);
+            
+            long start = System.nanoTime();
+            Map<Object, Exception> relayFailures;
+            try {
+                relay.getSender().doSend(pending, pendingOriginals);
+                relayFailures = Collections.emptyMap();
+            } catch (MailSendException e) {
+                relayFailures = e.getFailedMessages();
+                if (relayFailures.isEmpty()) {
+                    relayFailures = failAll(pendingOriginals, e);
+                }
+            } catch (RuntimeException e) {
+                // Ошибка авторизации при установке соединения или сбой отправителя релея
+                relayFailures = failAll(pendingOriginals, e);
+            }
+            long perMessage = (System.nanoTime() - start) / pending.length;
+            
+            // Постоянные отказы возвращаются вызывающему, ошибки релея повторяются на другом
+            List<MimeMessage> retry = new ArrayList<>();
+            List<Object> retryOriginals = new ArrayList<>();
+            int sent = 0;
+            for (int i = 0; i < pending.length; i++) {
+                Exception failure = relayFailures.get(pendingOriginals[i]);
+                if (failure == null) {
+                    failedMessages.remove(pendingOriginals[i]);
+                    sent++;
+                } else if (isRelayFault(failure)) {
+                    failedMessages.put(pendingOriginals[i], failure);
+                    retry.add(pending[i]);
+                    retryOriginals.add(pendingOriginals[i]);
+                } else {
+                    failedMessages.put(pendingOriginals[i], failure);
+                }
+            }
+            
+            if (retry.isEmpty()) {
+                relay.onSuccess(permit, perMessage, sent);
+            } else {
+                if (relay.onFailure(permit, perMessage, retry.size())) {
+                    logger.warn("SMTP-релей {} выключен после ошибок подряд", relay,
+                               relayFailures.get(retryOriginals.get(0)));
+                } else {
+                    logger.debug("Ошибка SMTP-релея {}, {} писем передаются другому релею",
+                                relay, retry.size(), relayFailures.get(retryOriginals.get(0)));
+                }
+            }
+            pending = retry.toArray(new MimeMessage[0]);
+            pendingOriginals = retryOriginals.toArray();
+        }
+        
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (SmtpRelay relay : relays) {
+            relay.getSender().destroy();
+        }
+    }
+    
+    /**
+     * Ошибка относится к релею, а не к письму, и письмо стоит повторить
+     * через другой релей: нет соединения (или оно оборвалось), не прошла
+     * авторизация или релей ответил временным отказом 4xx.
+     */
+    static boolean isRelayFault(Exception failure) {
+        for (Throwable cause = failure; cause != null; cause = SmtpReplies.nextCause(cause)) {
+            if (cause instanceof MailAuthenticationException || cause instanceof AuthenticationFailedException
+                    || cause instanceof SmtpConnectionException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return SmtpReplies.isTransient(SmtpReplies.replyCode(failure));
+    }
+    
+    /**
+     * Выбирает доступный релей с наименьшей оценкой среди еще не опробованных.
+     * 
+     * @return разрешение на отправку через выбранный релей или null
+     */
+    @Nullable
+    private SmtpRelay.Permit select(Set<SmtpRelay> tried) {
+        // Оценки фиксируются до выбора: параллельные отправки их меняют
+        double[] scores = new double[relays.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = tried.contains(relays.get(i)) ? Double.POSITIVE_INFINITY : relays.get(i).score();
+        }
+        long now = System.nanoTime();
+        while (true) {
+            // При равной оценке выбирается релей, раньше указанный в конфигурации
+            int best = -1;
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] != Double.POSITIVE_INFINITY && (best < 0 || scores[i] < scores[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            SmtpRelay.Permit permit = relays.get(best).tryAcquire(now);
+            if (permit != null) {
+                return permit;
+            }
+            scores[best] = Double.POSITIVE_INFINITY;
+        }
+    }
+    
+    private static Map<Object, Exception> failAll(Object[] originals, Exception e) {
+        Map<Object, Exception> failures = new LinkedHashMap<>();
+        for (Object original : originals) {
+            failures.put(original, e);
+        }
+        return failures;
+    }
+}
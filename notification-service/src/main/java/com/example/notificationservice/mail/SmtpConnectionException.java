@@ -0,0 +1,17 @@
+package com.example.notificationservice.mail;
+
+import javax.mail.MessagingException;
+
+/**
+ * Не удалось получить SMTP-соединение: сервер недоступен, пул соединений
+ * исчерпан или закрыт.
+ * 
+ * Письмо при этом серверу не передавалось, поэтому его можно повторить
+ * через другой релей (см. RoutingJavaMailSender).
+ */
+public class SmtpConnectionException extends MessagingException {
+    
+    public SmtpConnectionException(MessagingException cause) {
+        super(cause.getMessage(), cause);
+    }
+}
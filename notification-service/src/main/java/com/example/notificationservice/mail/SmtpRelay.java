@@ -0,0 +1,298 @@
+package com.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SMTP-релей маршрутизатора: отправитель со своим пулом соединений,
+ * оценка задержки и автоматический выключатель (circuit breaker).
+ * 
+ * Задержка оценивается экспоненциальным скользящим средним (EWMA) по
+ * успешным отправкам. После failureThreshold ошибок подряд релей
+ * выключается (OPEN) на openDurationMillis, затем пропускает одну пробную
+ * отправку (HALF_OPEN): успех возвращает его в работу, ошибка снова
+ * выключает. Каждое выключение начинает новое поколение выключателя:
+ * результаты отправок, начатых до него, на состояние не влияют, а закрыть
+ * выключатель может только пробная отправка. Неудачная проверка соединения
+ * считается ошибкой подряд наравне с отправками, удачная переводит
+ * выключенный релей в HALF_OPEN досрочно.
+ */
+public class SmtpRelay {
+    
+    /**
+     * Состояние выключателя.
+     */
+    public enum State {
+        // Релей принимает письма
+        CLOSED,
+        // Разрешена одна пробная отправка
+        HALF_OPEN,
+        // Релей выключен после ошибок
+        OPEN
+    }
+    
+    private static final double[] PERCENTILES = {0.5, 0.99};
+    
+    /**
+     * Разрешение на отправку, выданное tryAcquire.
+     */
+    static final class Permit {
+        
+        final SmtpRelay relay;
+        // Поколение выключателя на момент выдачи
+        final long generation;
+        final boolean probe;
+        
+        private Permit(SmtpRelay relay, long generation, boolean probe) {
+            this.relay = relay;
+            this.generation = generation;
+            this.probe = probe;
+        }
+    }
+    
+    private final String name;
+    private final PooledJavaMailSender sender;
+    private final double weight;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final double latencyDecay;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Timer sentTimer;
+    private final Timer failedTimer;
+    private final Counter failovers;
+    
+    // Биты double оценки задержки отправки; 0 - еще не измерена
+    private final AtomicLong latencyEwmaBits = new AtomicLong();
+    
+    private State state = State.CLOSED;
+    private long generation;
+    private int consecutiveFailures;
+    private long openUntilNanos;
+    private boolean probeInFlight;
+    
+    /**
+     * @param name - имя релея для логов и тега relay метрик
+     * @param sender - отправитель с пулом соединений к релею
+     * @param weight - относительная доля трафика при равной задержке
+     * @param failureThreshold - ошибок подряд до выключения
+     * @param openDurationMillis - время выключения до пробной отправки
+     * @param latencyDecay - вес нового замера в EWMA, от 0 до 1
+     * @param registry - реестр метрик
+     */
+    public SmtpRelay(String name, PooledJavaMailSender sender, double weight, int failureThreshold,
+                     long openDurationMillis, double latencyDecay, MeterRegistry registry) {
+        if (weight <= 0 || failureThreshold <= 0 || latencyDecay <= 0 || latencyDecay > 1) {
+            throw new IllegalArgumentException("Требуется weight > 0, failureThreshold > 0 и 0 < latencyDecay <= 1");
+        }
+        this.name = name;
+        this.sender = sender;
+        this.weight = weight;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.latencyDecay = latencyDecay;
+        this.sentTimer = sendTimer(registry, name, "sent");
+        this.failedTimer = sendTimer(registry, name, "failed");
+        this.failovers = Counter.builder("notification.smtp.relay.failovers")
+            .tag("relay", name)
+            .description("Письма, переданные другому релею после ошибки этого")
+            .register(registry);
+        Gauge.builder("notification.smtp.relay.state", this, relay -> relay.getState().ordinal())
+            .tag("relay", name)
+            .description("Состояние релея: 0 - работает, 1 - пробная отправка, 2 - выключен")
+            .register(registry);
+        Gauge.builder("notification.smtp.relay.latency", this, relay -> relay.latencyEwmaNanos() / 1_000_000d)
+            .tag("relay", name)
+            .description("Оценка задержки отправки через релей (EWMA), мс")
+            .register(registry);
+        Gauge.builder("notification.smtp.relay.in.flight", inFlight, AtomicInteger::get)
+            .tag("relay", name)
+            .description("Отправки через релей в работе")
+            .register(registry);
+    }
+    
+    /**
+     * Стоимость отправки через релей для выбора наименее загруженного:
+     * оценка задержки с учетом отправок в работе и веса.
+     */
+    double score() {
+        return (latencyEwmaNanos() + 1) * (inFlight.get() + 1) / weight;
+    }
+    
+    /**
+     * Занимает релей для отправки, если выключатель ее разрешает.
+     * 
+     * @return разрешение или null; после отправки нужно вызвать onSuccess или onFailure
+     */
+    synchronized Permit tryAcquire(long nowNanos) {
+        if (state == State.OPEN) {
+            if (nowNanos - openUntilNanos < 0) {
+                return null;
+            }
+            // Первая отправка после выключения - пробная
+            state = State.HALF_OPEN;
+        }
+        boolean probe = state == State.HALF_OPEN;
+        if (probe) {
+            if (probeInFlight) {
+                return null;
+            }
+            probeInFlight = true;
+        }
+        inFlight.incrementAndGet();
+        return new Permit(this, generation, probe);
+    }
+    
+    /**
+     * Учитывает отправку, на которую релей ответил (в том числе отказом 5xx по адресу).
+     * 
+     * @param permit - разрешение этой отправки
+     * @param latencyNanos - длительность отправки одного письма
+     * @param sentMessages - отправлено писем
+     */
+    void onSuccess(Permit permit, long latencyNanos, int sentMessages) {
+        inFlight.decrementAndGet();
+        updateLatency(latencyNanos);
+        for (int i = 0; i < sentMessages; i++) {
+            sentTimer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+        synchronized (this) {
+            // Отправка, начатая до выключения, не говорит о нынешнем состоянии релея
+            if (permit.generation != generation) {
+                return;
+            }
+            consecutiveFailures = 0;
+            if (permit.probe) {
+                probeInFlight = false;
+                state = State.CLOSED;
+            }
+        }
+    }
+    
+    /**
+     * Учитывает ошибку релея (соединение, авторизация, временный отказ).
+     * 
+     * @param permit - разрешение этой отправки
+     * @param latencyNanos - длительность неудачной попытки
+     * @param failedOver - писем передано другому релею
+     * @return true если релей выключен этой ошибкой
+     */
+    boolean onFailure(Permit permit, long latencyNanos, int failedOver) {
+        inFlight.decrementAndGet();
+        failedTimer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        failovers.increment(failedOver);
+        synchronized (this) {
+            if (permit.generation != generation) {
+                return false;
+            }
+            if (permit.probe) {
+                probeInFlight = false;
+                open(System.nanoTime());
+                return true;
+            }
+            return recordFailure();
+        }
+    }
+    
+    /**
+     * Учитывает результат активной проверки соединения.
+     * 
+     * Неудачная проверка работающего релея - одна ошибка подряд из
+     * failureThreshold; релей в HALF_OPEN без пробной отправки выключается
+     * снова. Удачная проверка выключенного релея разрешает пробную отправку.
+     * 
+     * @param healthy - соединение с релеем установлено
+     * @return true если состояние выключателя изменилось
+     */
+    synchronized boolean onHealthCheck(boolean healthy) {
+        if (healthy) {
+            if (state == State.OPEN) {
+                state = State.HALF_OPEN;
+                return true;
+            }
+            return false;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            open(System.nanoTime());
+            return true;
+        }
+        return state == State.CLOSED && recordFailure();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public PooledJavaMailSender getSender() {
+        return sender;
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    /**
+     * @return оценка задержки отправки через релей
+     */
+    public Duration getLatency() {
+        return Duration.ofNanos((long) latencyEwmaNanos());
+    }
+    
+    @Override
+    public String toString() {
+        return name + " (" + sender.getHost() + ":" + sender.getPort() + ")";
+    }
+    
+    /**
+     * Считает ошибку подряд работающего релея; вызывается под блокировкой.
+     * 
+     * @return true если релей выключен этой ошибкой
+     */
+    private boolean recordFailure() {
+        if (state != State.CLOSED || ++consecutiveFailures < failureThreshold) {
+            return false;
+        }
+        open(System.nanoTime());
+        return true;
+    }
+    
+    private void open(long nowNanos) {
+        state = State.OPEN;
+        generation++;
+        consecutiveFailures = 0;
+        openUntilNanos = nowNanos + openDurationNanos;
+    }
+    
+    private double latencyEwmaNanos() {
+        return Double.longBitsToDouble(latencyEwmaBits.get());
+    }
+    
+    /**
+     * Обновляет EWMA задержки; параллельные замеры не теряются (CAS).
+     */
+    private void updateLatency(long latencyNanos) {
+        while (true) {
+            long bits = latencyEwmaBits.get();
+            double previous = Double.longBitsToDouble(bits);
+            double next = previous == 0 ? latencyNanos : previous + latencyDecay * (latencyNanos - previous);
+            if (latencyEwmaBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+    
+    private static Timer sendTimer(MeterRegistry registry, String relay, String result) {
+        return Timer.builder("notification.smtp.relay.send")
+            .tag("relay", relay)
+            .tag("result", result)
+            .description("Отправка писем через SMTP-релей")
+            .publishPercentiles(PERCENTILES)
+            .register(registry);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.notificationservice.mail;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import org.springframework.mail.MailSendException;
+
+import javax.mail.MessagingException;
+
+/**
+ * Разбор кодов ответа SMTP из ошибок JavaMailSender.
+ * 
+ * Код 4xx означает временный отказ: сервер просит повторить позже
+ * (421 - сервис недоступен, 450/451 - greylisting или превышение лимита,
+ * 452 - нехватка ресурсов). Такие ответы - сигнал снизить темп отправки,
+ * в отличие от 5xx, где повтор не поможет.
+ */
+public final class SmtpReplies {
+    
+    // Сервер закрывает канал: перегружен или ограничивает клиента целиком
+    public static final int SERVICE_NOT_AVAILABLE = 421;
+    
+    private SmtpReplies() {
+    }
+    
+    /**
+     * Находит код ответа SMTP в цепочке исключений.
+     * 
+     * @param error - ошибка отправки
+     * @return код ответа или 0, если он неизвестен
+     */
+    public static int replyCode(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = nextCause(cause)) {
+            if (cause instanceof SMTPSendFailedException) {
+                return ((SMTPSendFailedException) cause).getReturnCode();
+            }
+            if (cause instanceof SMTPAddressFailedException) {
+                return ((SMTPAddressFailedException) cause).getReturnCode();
+            }
+            if (cause instanceof SMTPSenderFailedException) {
+                return ((SMTPSenderFailedException) cause).getReturnCode();
+            }
+            int parsed = parseLeadingCode(cause.getMessage());
+            if (parsed > 0) {
+                return parsed;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * @return true для временных отказов 4xx
+     */
+    public static boolean isTransient(int replyCode) {
+        return replyCode >= 400 && replyCode < 500;
+    }
+    
+    /**
+     * Следующее исключение цепочки с учетом вложенных исключений JavaMail.
+     * 
+     * @param error - текущее исключение
+     * @return причина или null
+     */
+    public static Throwable nextCause(Throwable error) {
+        // MailSendException хранит исключения по сообщениям отдельно от getCause()
+        if (error instanceof MailSendException && error.getCause() == null) {
+            Exception[] nested = ((MailSendException) error).getMessageExceptions();
+            return nested.length > 0 ? nested[0] : null;
+        }
+        Throwable cause = error instanceof MessagingException
+            ? ((MessagingException) error).getNextException() : error.getCause();
+        return cause == error ? null : cause;
+    }
+    
+    /**
+     * Код в начале текста ответа сервера, например "451 4.7.1 Try again later".
+     */
+    private static int parseLeadingCode(String message) {
+        if (message == null || message.length() < 3) {
+            return 0;
+        }
+        char first = message.charAt(0);
+        if (first < '2' || first > '5' || !isDigit(message.charAt(1)) || !isDigit(message.charAt(2))) {
+            return 0;
+        }
+        if (message.length() > 3 && message.charAt(3) != ' ' && message.charAt(3) != '-') {
+            return 0;
+        }
+        return (first - '0') * 100 + (message.charAt(1) - '0') * 10 + (message.charAt(2) - '0');
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограниченный пул авторизованных SMTP-соединений.
+ * 
+ * Соединение (TCP + STARTTLS + AUTH) устанавливается один раз и затем
+ * переиспользуется для многих сообщений. Пул:
+ * - ограничивает общее число соединений (maxSize);
+ * - закрывает соединения, простаивающие дольше maxIdleMillis;
+ * - закрывает соединение после maxMessagesPerConnection сообщений;
+ * - проверяет командой NOOP соединения, простоявшие дольше validateAfterIdleMillis.
+ */
+public class SmtpTransportPool implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+    
+    /**
+     * Источник новых подключенных соединений.
+     */
+    @FunctionalInterface
+    public interface TransportFactory {
+        Transport connect() throws MessagingException;
+    }
+    
+    private final TransportFactory transportFactory;
+    private final int maxSize;
+    private final long maxIdleMillis;
+    private final int maxMessagesPerConnection;
+    private final long validateAfterIdleMillis;
+    private final long borrowTimeoutMillis;
+    
+    // Свободные соединения: последнее возвращенное берется первым (LIFO),
+    // поэтому "горячие" соединения используются, а лишние вытесняются по простою
+    private final ConcurrentLinkedDeque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final Timer handshakeTimer;
+    
+    private volatile boolean closed;
+    
+    public SmtpTransportPool(TransportFactory transportFactory, int maxSize, long maxIdleMillis,
+                             int maxMessagesPerConnection, long validateAfterIdleMillis,
+                             long borrowTimeoutMillis, MeterRegistry meterRegistry) {
+        this(transportFactory, maxSize, maxIdleMillis, maxMessagesPerConnection, validateAfterIdleMillis,
+            borrowTimeoutMillis, meterRegistry, Tags.empty());
+    }
+    
+    /**
+     * @param tags - теги метрик пула, например relay для пулов нескольких SMTP-релеев
+     */
+    public SmtpTransportPool(TransportFactory transportFactory, int maxSize, long maxIdleMillis,
+                             int maxMessagesPerConnection, long validateAfterIdleMillis,
+                             long borrowTimeoutMillis, MeterRegistry meterRegistry, Tags tags) {
+        this.transportFactory = transportFactory;
+        this.maxSize = maxSize;
+        this.maxIdleMillis = maxIdleMillis;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+        
+        // Метрики пула
+        this.hits = Counter.builder("notification.smtp.pool.requests").tags(tags).tag("result", "hit")
+            .description("Выдача уже установленного SMTP-соединения").register(meterRegistry);
+        this.misses = Counter.builder("notification.smtp.pool.requests").tags(tags).tag("result", "miss")
+            .description("Выдача с установкой нового SMTP-соединения").register(meterRegistry);
+        this.invalidations = Counter.builder("notification.smtp.pool.invalidations").tags(tags)
+            .description("SMTP-соединения, закрытые из-за ошибки или неудачной проверки").register(meterRegistry);
+        this.handshakeTimer = Timer.builder("notification.smtp.handshake").tags(tags)
+            .description("Время установки SMTP-соединения (TCP + STARTTLS + AUTH)").register(meterRegistry);
+        Gauge.builder("notification.smtp.pool.idle", idle, ConcurrentLinkedDeque::size).tags(tags).register(meterRegistry);
+        Gauge.builder("notification.smtp.pool.active", active, AtomicInteger::get).tags(tags).register(meterRegistry);
+        
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictionInterval = Math.max(1000, maxIdleMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Выдает соединение из пула или устанавливает новое.
+     * 
+     * @return подключенное соединение; его нужно вернуть через release или invalidate
+     * @throws MessagingException если подключиться не удалось или пул исчерпан
+     */
+    public PooledTransport borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("Пул SMTP-соединений закрыт");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Нет свободных SMTP-соединений за " + borrowTimeoutMillis + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Прервано ожидание SMTP-соединения", e);
+        }
+        
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    hits.increment();
+                    active.incrementAndGet();
+                    return pooled;
+                }
+                closeQuietly(pooled);
+                invalidations.increment();
+            }
+            
+            misses.increment();
+            long start = System.nanoTime();
+            Transport transport = transportFactory.connect();
+            handshakeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            active.incrementAndGet();
+            return new PooledTransport(transport);
+            
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Возвращает исправное соединение в пул после отправки сообщений.
+     * 
+     * @param pooled - соединение, полученное через borrow
+     * @param sentMessages - количество сообщений, отправленных через соединение
+     */
+    public void release(PooledTransport pooled, int sentMessages) {
+        active.decrementAndGet();
+        pooled.messageCount += sentMessages;
+        pooled.lastUsedMillis = System.currentTimeMillis();
+        
+        if (closed || pooled.messageCount >= maxMessagesPerConnection || idle.size() >= maxSize) {
+            closeQuietly(pooled);
+        } else {
+            idle.offerFirst(pooled);
+        }
+        permits.release();
+    }
+    
+    /**
+     * Закрывает соединение после ошибки вместо возврата в пул.
+     * 
+     * @param pooled - соединение, полученное через borrow
+     */
+    public void invalidate(PooledTransport pooled) {
+        active.decrementAndGet();
+        invalidations.increment();
+        closeQuietly(pooled);
+        permits.release();
+    }
+    
+    /**
+     * Заранее устанавливает соединения, чтобы первые письма после старта
+     * не ждали TCP + STARTTLS + AUTH.
+     * 
+     * @param count - сколько соединений держать открытыми (не больше maxSize)
+     * @return количество простаивающих соединений после прогрева
+     * @throws MessagingException если подключиться не удалось
+     */
+    public int prestart(int count) throws MessagingException {
+        List<PooledTransport> borrowed = new ArrayList<>();
+        try {
+            for (int i = Math.min(count, maxSize); i > 0; i--) {
+                borrowed.add(borrow());
+            }
+        } finally {
+            for (PooledTransport pooled : borrowed) {
+                release(pooled, 0);
+            }
+        }
+        return idle.size();
+    }
+    
+    public int getIdleCount() {
+        return idle.size();
+    }
+    
+    public int getActiveCount() {
+        return active.get();
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+    
+    /**
+     * Проверяет, можно ли выдать простаивавшее соединение.
+     */
+    private boolean isUsable(PooledTransport pooled) {
+        long idleMillis = System.currentTimeMillis() - pooled.lastUsedMillis;
+        if (idleMillis > maxIdleMillis || pooled.messageCount >= maxMessagesPerConnection) {
+            return false;
+        }
+        // Для SMTPTransport isConnected() отправляет NOOP и проверяет ответ сервера
+        return idleMillis < validateAfterIdleMillis || pooled.transport.isConnected();
+    }
+    
+    /**
+     * Закрывает соединения, простаивающие дольше maxIdleMillis.
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledTransport> iterator = idle.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledTransport pooled = iterator.next();
+            if (now - pooled.lastUsedMillis > maxIdleMillis && idle.removeLastOccurrence(pooled)) {
+                logger.debug("Закрыто простаивающее SMTP-соединение");
+                closeQuietly(pooled);
+            }
+        }
+    }
+    
+    private static void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Ошибка при закрытии SMTP-соединения", e);
+        }
+    }
+    
+    /**
+     * SMTP-соединение вместе со статистикой использования.
+     */
+    public static final class PooledTransport {
+        
+        private final Transport transport;
+        private int messageCount;
+        private long lastUsedMillis = System.currentTimeMillis();
+        
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+        
+        public Transport getTransport() {
+            return transport;
+        }
+    }
+}
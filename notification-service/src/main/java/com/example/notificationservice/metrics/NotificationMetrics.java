@@ -0,0 +1,201 @@
+package com.example.notificationservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.mail.MailAuthenticationException;
+import com.example.notificationservice.dto.Operation;
+import com.example.notificationservice.mail.SmtpReplies;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.SendFailedException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики конвейера уведомлений: получение события - рендеринг - отправка.
+ * 
+ * Все счетчики и таймеры регистрируются один раз при создании, поэтому
+ * запись метрики на каждое событие - это обновление уже существующего
+ * meter'а без поиска по тегам, форматирования строк и создания объектов.
+ * 
+ * Метрики:
+ * - notification.events.received{operation} - полученные события (скорость - rate());
+ * - notification.smtp.send{result} - время отправки письма SMTP-серверу, p50/p99/p999;
+ * - notification.delivery.latency - от времени записи Kafka до приема письма SMTP-сервером;
+ * - notification.template.render - время рендеринга шаблона;
+ * - notification.send.failures{reason} - ошибки отправки по причинам.
+ */
+public class NotificationMetrics {
+    
+    /**
+     * Причины неудачной отправки.
+     */
+    public enum FailureReason {
+        // Неверные учетные данные SMTP
+        AUTHENTICATION,
+        // SMTP-сервер недоступен
+        CONNECTION,
+        // Таймаут соединения или ответа
+        TIMEOUT,
+        // Сервер отклонил адрес получателя
+        RECIPIENT,
+        // Очередь отправки заполнена
+        QUEUE_FULL,
+        // Временный отказ сервера (4xx) или ожидание лимита отправки
+        THROTTLED,
+        OTHER;
+        
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+    
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+    
+    private final Counter receivedCreate;
+    private final Counter receivedDelete;
+    private final Counter receivedOther;
+    private final Timer sendSuccess;
+    private final Timer sendFailure;
+    private final Timer deliveryLatency;
+    private final Timer renderTimer;
+    private final Counter[] failures = new Counter[FailureReason.values().length];
+    
+    public NotificationMetrics(MeterRegistry registry) {
+        this.receivedCreate = receivedCounter(registry, "create");
+        this.receivedDelete = receivedCounter(registry, "delete");
+        this.receivedOther = receivedCounter(registry, "other");
+        
+        this.sendSuccess = sendTimer(registry, "sent");
+        this.sendFailure = sendTimer(registry, "failed");
+        this.deliveryLatency = Timer.builder("notification.delivery.latency")
+            .description("Время от записи события в Kafka до приема письма SMTP-сервером")
+            .publishPercentiles(PERCENTILES)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(10))
+            .register(registry);
+        this.renderTimer = Timer.builder("notification.template.render")
+            .description("Время рендеринга шаблона письма")
+            .publishPercentiles(PERCENTILES)
+            .register(registry);
+        
+        for (FailureReason reason : FailureReason.values()) {
+            failures[reason.ordinal()] = Counter.builder("notification.send.failures")
+                .tag("reason", reason.tag)
+                .description("Неудачные отправки писем по причинам")
+                .register(registry);
+        }
+    }
+    
+    /**
+     * @return метрики, не публикуемые никуда (для тестов и запуска без Actuator)
+     */
+    public static NotificationMetrics noop() {
+        return new NotificationMetrics(new SimpleMeterRegistry());
+    }
+    
+    /**
+     * Учитывает полученное событие.
+     * 
+     * @param operation - операция события
+     */
+    public void recordReceived(Operation operation) {
+        switch (operation) {
+            case CREATE:
+                receivedCreate.increment();
+                break;
+            case DELETE:
+                receivedDelete.increment();
+                break;
+            default:
+                receivedOther.increment();
+        }
+    }
+    
+    /**
+     * Учитывает попытку отправки письма SMTP-серверу.
+     * 
+     * @param nanos - длительность отправки
+     * @param sent - true если сервер принял письмо
+     */
+    public void recordSend(long nanos, boolean sent) {
+        (sent ? sendSuccess : sendFailure).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Учитывает прием письма сервером для события с известным временем записи.
+     * 
+     * @param recordTimestampMillis - время записи Kafka
+     */
+    public void recordDelivered(long recordTimestampMillis) {
+        long latency = System.currentTimeMillis() - recordTimestampMillis;
+        if (recordTimestampMillis > 0 && latency >= 0) {
+            deliveryLatency.record(latency, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    public void recordRender(long nanos) {
+        renderTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordFailure(Throwable error) {
+        recordFailure(classify(error));
+    }
+    
+    public void recordFailure(FailureReason reason) {
+        failures[reason.ordinal()].increment();
+    }
+    
+    public void recordFailures(FailureReason reason, int count) {
+        failures[reason.ordinal()].increment(count);
+    }
+    
+    /**
+     * Определяет причину ошибки отправки по цепочке исключений.
+     * 
+     * @param error - ошибка JavaMailSender
+     * @return причина для тега reason
+     */
+    public static FailureReason classify(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = SmtpReplies.nextCause(cause)) {
+            if (cause instanceof MailAuthenticationException || cause instanceof AuthenticationFailedException) {
+                return FailureReason.AUTHENTICATION;
+            }
+            if (cause instanceof SocketTimeoutException) {
+                return FailureReason.TIMEOUT;
+            }
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+                return FailureReason.CONNECTION;
+            }
+            if (cause instanceof SendFailedException
+                    && ((SendFailedException) cause).getInvalidAddresses() != null
+                    && ((SendFailedException) cause).getInvalidAddresses().length > 0) {
+                return FailureReason.RECIPIENT;
+            }
+        }
+        return SmtpReplies.isTransient(SmtpReplies.replyCode(error)) ? FailureReason.THROTTLED : FailureReason.OTHER;
+    }
+    
+    private static Counter receivedCounter(MeterRegistry registry, String operation) {
+        return Counter.builder("notification.events.received")
+            .tag("operation", operation)
+            .description("Полученные события пользователей")
+            .register(registry);
+    }
+    
+    private static Timer sendTimer(MeterRegistry registry, String result) {
+        return Timer.builder("notification.smtp.send")
+            .tag("result", result)
+            .description("Время отправки письма SMTP-серверу")
+            .publishPercentiles(PERCENTILES)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(60))
+            .register(registry);
+    }
+}
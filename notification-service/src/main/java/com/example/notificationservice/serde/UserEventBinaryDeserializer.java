@@ -0,0 +1,94 @@
+package com.example.notificationservice.serde;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Десериализатор UserEvent из бинарного формата UserEventBinaryFormat.
+ * 
+ * Разбор идет по массиву байт записи без промежуточных буферов; создаются
+ * только строки полей и сам UserEvent.
+ */
+public class UserEventBinaryDeserializer implements Deserializer<UserEvent> {
+    
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!UserEventBinaryFormat.isBinary(data) || data.length < 3) {
+            throw new SerializationException("Значение не в бинарном формате UserEvent");
+        }
+        if (data[1] != UserEventBinaryFormat.VERSION_1) {
+            throw new SerializationException("Неизвестная версия схемы UserEvent: " + data[1]);
+        }
+        Reader reader = new Reader(data, 2);
+        UserEvent userEvent = new UserEvent();
+        byte operationCode = data[reader.position++];
+        switch (operationCode) {
+            case UserEventBinaryFormat.OPERATION_CREATE:
+                userEvent.setOperation("CREATE");
+                break;
+            case UserEventBinaryFormat.OPERATION_DELETE:
+                userEvent.setOperation("DELETE");
+                break;
+            case UserEventBinaryFormat.OPERATION_OTHER:
+                userEvent.setOperation(reader.readString());
+                break;
+            default:
+                throw new SerializationException("Неизвестный код операции UserEvent: " + operationCode);
+        }
+        userEvent.setEmail(reader.readString());
+        userEvent.setEventId(reader.readString());
+        userEvent.setLocale(reader.readString());
+        if (reader.position != data.length) {
+            throw new SerializationException("Лишние байты после UserEvent: " + (data.length - reader.position));
+        }
+        return userEvent;
+    }
+    
+    /**
+     * Позиция чтения по массиву байт записи.
+     */
+    private static final class Reader {
+        final byte[] data;
+        int position;
+        
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+        
+        String readString() {
+            int length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length < 0 || length > data.length - position) {
+                throw new SerializationException("Строка UserEvent выходит за границы записи");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (position >= data.length) {
+                    throw new SerializationException("Запись UserEvent обрезана");
+                }
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Некорректный varint в записи UserEvent");
+        }
+    }
+}
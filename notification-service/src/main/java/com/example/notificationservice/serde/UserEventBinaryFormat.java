@@ -0,0 +1,52 @@
+package com.example.notificationservice.serde;
+
+import com.example.notificationservice.dto.Operation;
+
+/**
+ * Компактный бинарный формат UserEvent.
+ * 
+ * Раскладка записи (версия схемы 1):
+ * 
+ *   0xB7 | версия | операция | [operation] | email | eventId | locale
+ * 
+ * Операция - один байт: 1 CREATE, 2 DELETE, 0 - другая, тогда за ним следует
+ * исходная строка operation. Строки - varint (длина + 1, 0 означает null)
+ * и байты UTF-8. Событие CREATE с адресом из 20 символов занимает 26 байт
+ * вместо 53 в JSON.
+ * 
+ * Маркер 0xB7 - байт продолжения UTF-8, с которого не может начинаться
+ * JSON-документ, поэтому формат AUTO различает записи по первому байту.
+ * Версия схемы - замена реестра схем: читатель знает все опубликованные
+ * версии, а новые поля добавляются только с новой версией.
+ */
+public final class UserEventBinaryFormat {
+    
+    public static final byte MAGIC = (byte) 0xB7;
+    
+    // Текущая версия схемы, которой пишет UserEventBinarySerializer
+    public static final byte VERSION_1 = 1;
+    
+    static final byte OPERATION_OTHER = 0;
+    static final byte OPERATION_CREATE = 1;
+    static final byte OPERATION_DELETE = 2;
+    
+    private UserEventBinaryFormat() {}
+    
+    /**
+     * @return true если значение записано в бинарном формате
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+    
+    static byte operationCode(Operation operation) {
+        switch (operation) {
+            case CREATE:
+                return OPERATION_CREATE;
+            case DELETE:
+                return OPERATION_DELETE;
+            default:
+                return OPERATION_OTHER;
+        }
+    }
+}
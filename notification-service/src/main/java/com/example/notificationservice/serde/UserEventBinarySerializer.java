@@ -0,0 +1,70 @@
+package com.example.notificationservice.serde;
+
+import org.apache.kafka.common.serialization.Serializer;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Сериализатор UserEvent в бинарный формат UserEventBinaryFormat.
+ * 
+ * Предназначен для producer'ов (user-service) и тестов; notification-service
+ * читает такие записи форматом binary или auto.
+ */
+public class UserEventBinarySerializer implements Serializer<UserEvent> {
+    
+    @Override
+    public byte[] serialize(String topic, UserEvent userEvent) {
+        if (userEvent == null) {
+            return null;
+        }
+        byte[] operation = bytes(userEvent.getOperation());
+        byte[] email = bytes(userEvent.getEmail());
+        byte[] eventId = bytes(userEvent.getEventId());
+        byte[] locale = bytes(userEvent.getLocale());
+        byte operationCode = UserEventBinaryFormat.operationCode(userEvent.getOperationType());
+        
+        byte[] buffer = new byte[3
+            + (operationCode == UserEventBinaryFormat.OPERATION_OTHER ? sizeOf(operation) : 0)
+            + sizeOf(email) + sizeOf(eventId) + sizeOf(locale)];
+        int position = 0;
+        buffer[position++] = UserEventBinaryFormat.MAGIC;
+        buffer[position++] = UserEventBinaryFormat.VERSION_1;
+        buffer[position++] = operationCode;
+        if (operationCode == UserEventBinaryFormat.OPERATION_OTHER) {
+            position = write(buffer, position, operation);
+        }
+        position = write(buffer, position, email);
+        position = write(buffer, position, eventId);
+        position = write(buffer, position, locale);
+        return position == buffer.length ? buffer : Arrays.copyOf(buffer, position);
+    }
+    
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static int sizeOf(byte[] value) {
+        int length = value == null ? 0 : value.length + 1;
+        int size = 1;
+        while ((length >>>= 7) != 0) {
+            size++;
+        }
+        return size + (value == null ? 0 : value.length);
+    }
+    
+    private static int write(byte[] buffer, int position, byte[] value) {
+        int length = value == null ? 0 : value.length + 1;
+        while ((length & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        buffer[position++] = (byte) length;
+        if (value != null) {
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+        return position;
+    }
+}
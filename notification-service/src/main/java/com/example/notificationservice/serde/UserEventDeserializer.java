@@ -0,0 +1,105 @@
+package com.example.notificationservice.serde;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Десериализатор UserEvent с форматом значения, выбираемым по топику.
+ * 
+ * Для топиков без явной настройки используется формат по умолчанию.
+ * Формат AUTO читает и бинарные записи, и JSON от существующих producer'ов,
+ * поэтому producer'ов можно переводить на бинарный формат по одному.
+ */
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+    
+    private final ValueFormat defaultFormat;
+    private final Map<String, ValueFormat> topicFormats;
+    
+    private final JsonDeserializer<UserEvent> jsonDeserializer = new JsonDeserializer<>(UserEvent.class);
+    private final UserEventJsonDeserializer fastJsonDeserializer = new UserEventJsonDeserializer();
+    private final UserEventBinaryDeserializer binaryDeserializer = new UserEventBinaryDeserializer();
+    
+    /**
+     * @param defaultFormat - формат для топиков без явной настройки
+     * @param topicFormats - форматы отдельных топиков
+     */
+    public UserEventDeserializer(ValueFormat defaultFormat, Map<String, ValueFormat> topicFormats) {
+        this.defaultFormat = defaultFormat;
+        this.topicFormats = new HashMap<>(topicFormats);
+    }
+    
+    public UserEventDeserializer(ValueFormat defaultFormat) {
+        this(defaultFormat, Collections.emptyMap());
+    }
+    
+    /**
+     * Настройки передаются JsonDeserializer (trusted packages, type mapping) для формата JSON.
+     */
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonDeserializer.configure(configs, isKey);
+    }
+    
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+    
+    @Override
+    public UserEvent deserialize(String topic, Headers headers, byte[] data) {
+        switch (formatOf(topic)) {
+            case JSON:
+                return headers == null
+                    ? jsonDeserializer.deserialize(topic, data)
+                    : jsonDeserializer.deserialize(topic, headers, data);
+            case FAST_JSON:
+                return fastJsonDeserializer.deserialize(topic, data);
+            case BINARY:
+                return binaryDeserializer.deserialize(topic, data);
+            default:
+                return UserEventBinaryFormat.isBinary(data)
+                    ? binaryDeserializer.deserialize(topic, data)
+                    : fastJsonDeserializer.deserialize(topic, data);
+        }
+    }
+    
+    /**
+     * @return формат значения для топика
+     */
+    public ValueFormat formatOf(String topic) {
+        return topicFormats.getOrDefault(topic, defaultFormat);
+    }
+    
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+    
+    /**
+     * Разбирает настройку форматов топиков вида "user-events=binary,user-events-dlt=json".
+     * 
+     * @param value - значение настройки; пустая строка - без переопределений
+     * @return форматы по топикам
+     * @throws IllegalArgumentException при некорректной записи или неизвестном формате
+     */
+    public static Map<String, ValueFormat> parseTopicFormats(String value) {
+        Map<String, ValueFormat> formats = new HashMap<>();
+        for (String entry : value.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Ожидалось топик=формат: " + entry.trim());
+            }
+            formats.put(entry.substring(0, separator).trim(), ValueFormat.parse(entry.substring(separator + 1)));
+        }
+        return formats;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.notificationservice.serde;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.io.IOException;
+
+/**
+ * Потоковый десериализатор UserEvent из JSON.
+ * 
+ * Читает поля через JsonParser напрямую: без рефлексии ObjectMapper и без
+ * заголовков типа. Совместим с записями JsonSerializer Spring и любых других
+ * JSON-producer'ов: неизвестные поля пропускаются, числа и boolean в строковых
+ * полях приводятся к строке, как это делает Jackson.
+ */
+public class UserEventJsonDeserializer implements Deserializer<UserEvent> {
+    
+    // JsonFactory потокобезопасна и переиспользует буферы парсеров
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new SerializationException("Ожидался JSON-объект UserEvent, получено " + token);
+            }
+            UserEvent userEvent = new UserEvent();
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                switch (field) {
+                    case "operation":
+                        userEvent.setOperation(readString(parser));
+                        break;
+                    case "email":
+                        userEvent.setEmail(readString(parser));
+                        break;
+                    case "eventId":
+                        userEvent.setEventId(readString(parser));
+                        break;
+                    case "locale":
+                        userEvent.setLocale(readString(parser));
+                        break;
+                    default:
+                        parser.nextToken();
+                        parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new SerializationException("Ожидалось поле UserEvent, получено " + parser.currentToken());
+            }
+            return userEvent;
+        } catch (IOException e) {
+            throw new SerializationException("Не удалось разобрать JSON UserEvent", e);
+        }
+    }
+    
+    private static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != null && token.isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        throw new SerializationException("Поле " + parser.currentName() + " UserEvent должно быть строкой");
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.notificationservice.serde;
+
+import java.util.Locale;
+
+/**
+ * Формат значения записи Kafka с UserEvent.
+ */
+public enum ValueFormat {
+    // JsonDeserializer Spring: рефлексия Jackson и заголовки типа (прежнее поведение)
+    JSON,
+    // Потоковый разбор JSON без рефлексии; заголовки типа игнорируются
+    FAST_JSON,
+    // Компактный бинарный формат UserEventBinaryFormat
+    BINARY,
+    // BINARY, если запись начинается с маркера формата, иначе FAST_JSON
+    AUTO;
+    
+    /**
+     * Разбирает значение настройки: json, fast-json, binary, auto.
+     * 
+     * @throws IllegalArgumentException для неизвестного формата
+     */
+    public static ValueFormat parse(String value) {
+        return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.notificationservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+import com.example.notificationservice.dedup.EventDeduplicator;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.NotificationResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.metrics.NotificationMetrics;
+import com.example.notificationservice.spool.MailSpool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис для пакетной обработки сообщений из Kafka.
+ * 
+ * Получает весь результат poll() из топика user-events списком и отправляет
+ * уведомления одним вызовом EmailService.sendEmails, то есть через одно
+ * SMTP-соединение на пакет вместо соединения на каждое сообщение.
+ * Включается настройкой notification.kafka.batch.enabled=true.
+ * Если включен топик результатов, итог каждой записи пакета публикуется
+ * через NotificationResultPublisher.
+ */
+@Service
+@ConditionalOnProperty(name = "notification.kafka.batch.enabled", havingValue = "true")
+public class BatchKafkaConsumerService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BatchKafkaConsumerService.class);
+    
+    /**
+     * Режимы обработки ошибок отправки отдельных сообщений пакета.
+     */
+    public enum FailureMode {
+        // Залогировать ошибки и подтвердить весь пакет
+        LOG,
+        // Выбросить BatchListenerFailedException для первой ошибки, чтобы
+        // контейнер подтвердил успешную часть и повторил пакет с этой записи
+        // (письма, отправленные после нее, при повторе уйдут еще раз)
+        RETRY
+    }
+    
+    private final EmailService emailService;
+    private final NotificationMetrics metrics;
+    private final FailureMode failureMode;
+    
+    // Надежная очередь писем; null - письма отправляются напрямую
+    private final MailSpool mailSpool;
+    
+    // Кэш отправленных событий; null - дубли не отсеиваются
+    private final EventDeduplicator deduplicator;
+    
+    // Публикация результатов обработки; null - топик результатов выключен
+    private final NotificationResultPublisher resultPublisher;
+    
+    /**
+     * Конструктор с внедрением зависимостей.
+     * 
+     * @param emailService - сервис для отправки email
+     * @param metrics - метрики получения и доставки событий
+     * @param failureMode - режим обработки ошибок (log или retry)
+     * @param mailSpool - надежная очередь писем, если включен notification.spool.enabled
+     * @param deduplicator - кэш отправленных событий, если включен notification.dedup.enabled
+     * @param resultPublisher - публикация результатов, если включен notification.kafka.results.enabled
+     */
+    public BatchKafkaConsumerService(EmailService emailService,
+                                     NotificationMetrics metrics,
+                                     @Value("${notification.kafka.batch.failure-mode:log}") String failureMode,
+                                     @Nullable MailSpool mailSpool,
+                                     @Nullable EventDeduplicator deduplicator,
+                                     @Nullable NotificationResultPublisher resultPublisher) {
+        this.emailService = emailService;
+        this.metrics = metrics;
+        this.failureMode = FailureMode.valueOf(failureMode.trim().toUpperCase());
+        this.mailSpool = mailSpool;
+        this.deduplicator = deduplicator;
+        this.resultPublisher = resultPublisher;
+    }
+    
+    /**
+     * Обработчик пакета сообщений из Kafka топика user-events.
+     * 
+     * @param userEvents - десериализованные сообщения одного poll()
+     * @param timestamps - время записей пакета (для ключа дедупликации)
+     */
+    @KafkaListener(topics = "user-events", groupId = "notification-group")
+    public void handleUserEvents(List<UserEvent> userEvents,
+                                 @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> timestamps) {
+        logger.info("Получен пакет из {} событий из Kafka", userEvents.size());
+        
+        // Сообщения для отправки, индексы соответствующих им записей пакета
+        // и ключи дедупликации
+        List<SimpleMailMessage> messages = new ArrayList<>(userEvents.size());
+        int[] recordIndexes = new int[userEvents.size()];
+        long[] dedupKeys = new long[userEvents.size()];
+        
+        for (int i = 0; i < userEvents.size(); i++) {
+            UserEvent userEvent = userEvents.get(i);
+            if (userEvent != null) {
+                metrics.recordReceived(userEvent.getOperationType());
+            }
+            long dedupKey = 0;
+            if (deduplicator != null && userEvent != null) {
+                long timestamp = timestamps != null ? timestamps.get(i) : System.currentTimeMillis();
+                dedupKey = deduplicator.keyOf(userEvent, timestamp);
+                // Захват ключа отсеивает и дубль в этом же пакете, и событие,
+                // которое сейчас отправляется из топика повторов
+                if (!deduplicator.tryAcquire(dedupKey)) {
+                    logger.info("Уведомление для события уже отправлено, событие пропущено: {}", userEvent);
+                    publishResult(userEvent, timestamps, i, NotificationResult.Status.DUPLICATE, null);
+                    continue;
+                }
+            }
+            SimpleMailMessage message = emailService.createUserEventMessage(userEvent);
+            if (message != null) {
+                recordIndexes[messages.size()] = i;
+                dedupKeys[messages.size()] = dedupKey;
+                messages.add(message);
+            } else {
+                release(dedupKey, userEvent);
+                publishResult(userEvent, timestamps, i, NotificationResult.Status.SKIPPED, null);
+            }
+        }
+        
+        // С включенным spool пакет подтверждается после одного fsync на все письма
+        if (mailSpool != null) {
+            try {
+                mailSpool.appendAll(messages);
+            } catch (IOException e) {
+                releaseAll(dedupKeys, messages.size());
+                throw new UncheckedIOException("Не удалось записать пакет уведомлений в spool", e);
+            } catch (RuntimeException e) {
+                releaseAll(dedupKeys, messages.size());
+                throw e;
+            }
+            logger.info("Уведомления пакета записаны в spool: {}", messages.size());
+            markDelivered(dedupKeys, messages.size(), null);
+            for (int i = 0; i < messages.size(); i++) {
+                publishResult(userEvents.get(recordIndexes[i]), timestamps, recordIndexes[i],
+                    NotificationResult.Status.SPOOLED, null);
+            }
+            return;
+        }
+        
+        // В пакете только письма об аккаунте (CREATE/DELETE)
+        BulkSendResult result;
+        try {
+            result = emailService.sendEmails(messages, Priority.TRANSACTIONAL);
+        } catch (RuntimeException e) {
+            releaseAll(dedupKeys, messages.size());
+            throw e;
+        }
+        markDelivered(dedupKeys, messages.size(), result);
+        publishResults(userEvents, timestamps, recordIndexes, result);
+        if (timestamps != null) {
+            for (int i = 0; i < messages.size(); i++) {
+                if (result.isSent(i)) {
+                    metrics.recordDelivered(timestamps.get(recordIndexes[i]));
+                }
+            }
+        }
+        if (result.getSuppressedCount() > 0) {
+            logger.info("Уведомления пакета на адреса из списка подавления не отправлены: {}",
+                       result.getSuppressedCount());
+        }
+        if (result.isAllSent()) {
+            logger.info("Уведомления пакета успешно отправлены: {}", result.getSentCount());
+            return;
+        }
+        
+        // Отчет по каждой неотправленной записи
+        for (Map.Entry<Integer, Exception> failure : result.getFailures().entrySet()) {
+            UserEvent userEvent = userEvents.get(recordIndexes[failure.getKey()]);
+            logger.error("Не удалось отправить уведомление для операции '{}' на {}: {}",
+                        userEvent.getOperation(), userEvent.getEmail(), failure.getValue().getMessage());
+        }
+        
+        if (failureMode == FailureMode.RETRY) {
+            int firstFailed = recordIndexes[result.getFirstFailedIndex()];
+            throw new BatchListenerFailedException(
+                "Не удалось отправить " + result.getFailedCount() + " уведомлений пакета",
+                result.getFailures().get(result.getFirstFailedIndex()),
+                firstFailed);
+        }
+    }
+    
+    /**
+     * Обработчик пакета без времени записей (время дедупликации - текущее).
+     * 
+     * @param userEvents - десериализованные сообщения одного poll()
+     */
+    public void handleUserEvents(List<UserEvent> userEvents) {
+        handleUserEvents(userEvents, null);
+    }
+    
+    /**
+     * Публикует итог каждого отправлявшегося письма пакета, если включен топик результатов.
+     */
+    private void publishResults(List<UserEvent> userEvents, @Nullable List<Long> timestamps,
+                                int[] recordIndexes, BulkSendResult result) {
+        if (resultPublisher == null) {
+            return;
+        }
+        for (int i = 0; i < result.getTotal(); i++) {
+            UserEvent userEvent = userEvents.get(recordIndexes[i]);
+            if (result.isSent(i)) {
+                publishResult(userEvent, timestamps, recordIndexes[i], NotificationResult.Status.SENT, null);
+            } else if (result.isSuppressed(i)) {
+                publishResult(userEvent, timestamps, recordIndexes[i], NotificationResult.Status.SUPPRESSED, null);
+            } else {
+                Exception failure = result.getFailures().get(i);
+                publishResult(userEvent, timestamps, recordIndexes[i], NotificationResult.Status.FAILED,
+                    failure != null ? failure.getMessage() : null);
+            }
+        }
+    }
+    
+    private void publishResult(UserEvent userEvent, @Nullable List<Long> timestamps, int index,
+                               NotificationResult.Status status, @Nullable String error) {
+        if (resultPublisher != null && userEvent != null) {
+            long timestamp = timestamps != null ? timestamps.get(index) : 0;
+            resultPublisher.publish(NotificationResult.of(userEvent, timestamp, 1, status, error));
+        }
+    }
+    
+    /**
+     * Запоминает ключи отправленных писем и освобождает ключи неотправленных,
+     * чтобы повторная доставка записи снова попробовала отправить письмо.
+     */
+    private void markDelivered(long[] dedupKeys, int count, @Nullable BulkSendResult result) {
+        if (deduplicator == null) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (result != null && result.isFailed(i)) {
+                deduplicator.release(dedupKeys[i]);
+            } else {
+                deduplicator.markDelivered(dedupKeys[i]);
+            }
+        }
+    }
+    
+    /**
+     * Освобождает ключи пакета, который не был отправлен или записан в spool.
+     */
+    private void releaseAll(long[] dedupKeys, int count) {
+        if (deduplicator == null) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            deduplicator.release(dedupKeys[i]);
+        }
+    }
+    
+    private void release(long dedupKey, @Nullable UserEvent userEvent) {
+        if (deduplicator != null && userEvent != null) {
+            deduplicator.release(dedupKey);
+        }
+    }
+}
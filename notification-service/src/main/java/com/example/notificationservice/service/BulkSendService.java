@@ -0,0 +1,290 @@
+package com.example.notificationservice.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.BulkSendSummary;
+import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.dto.Priority;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис массовой отправки писем из потока запросов.
+ * 
+ * Тело запроса - NDJSON (по объекту EmailRequest в строке) или JSON-массив
+ * EmailRequest. Тело разбирается потоково через JsonParser, запросы
+ * накапливаются пакетами по batchSize и отправляются через
+ * EmailService.sendEmails (одно SMTP-соединение на пакет). Результат по
+ * каждому письму пишется в ответ строкой NDJSON сразу после отправки пакета,
+ * поэтому в памяти находится не больше одного пакета независимо от размера тела.
+ * 
+ * Письма без priority отправляются с приоритетом BULK. Пакет содержит письма
+ * одного приоритета: смена приоритета в потоке запросов отправляет текущий пакет.
+ */
+@Service
+public class BulkSendService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BulkSendService.class);
+    
+    private static final String SENT = "SENT";
+    private static final String FAILED = "FAILED";
+    private static final String INVALID = "INVALID";
+    private static final String SUPPRESSED = "SUPPRESSED";
+    
+    private final EmailService emailService;
+    private final JsonFactory jsonFactory;
+    private final ObjectReader requestReader;
+    private final int batchSize;
+    
+    /**
+     * Конструктор с внедрением зависимостей.
+     * 
+     * @param emailService - сервис для отправки email
+     * @param objectMapper - ObjectMapper приложения
+     * @param batchSize - количество писем в одном пакете отправки
+     */
+    public BulkSendService(EmailService emailService, ObjectMapper objectMapper,
+                           @Value("${notification.bulk.batch-size:100}") int batchSize) {
+        this.emailService = emailService;
+        this.jsonFactory = objectMapper.getFactory();
+        this.requestReader = objectMapper.readerFor(EmailRequest.class);
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Отправляет письма из потока запросов и пишет результаты в поток ответа.
+     * 
+     * Каждая строка ответа - {"index":N,"email":"...","status":"SENT|FAILED|INVALID|SUPPRESSED"},
+     * для FAILED, INVALID и SUPPRESSED с полем error. Последняя строка - итог
+     * {"total":...,"sent":...,"failed":...,"invalid":...}, с полем suppressed,
+     * если есть письма на адреса из списка подавления. При синтаксической
+     * ошибке в теле уже разобранные письма отправляются, а перед итогом
+     * пишется строка {"error":"..."}.
+     * 
+     * @param body - тело запроса (NDJSON или JSON-массив)
+     * @param out - поток ответа (не закрывается)
+     * @param failuresOnly - писать только строки неотправленных писем
+     * @return итог отправки
+     * @throws IOException при ошибке записи ответа
+     */
+    public BulkSendSummary send(InputStream body, OutputStream out, boolean failuresOnly) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Строки разделяются переводом строки, а не пробелом по умолчанию
+            generator.setRootValueSeparator(null);
+            Session session = openSession(failuresOnly, (index, email, status, error) -> {
+                generator.writeStartObject();
+                generator.writeNumberField("index", index);
+                generator.writeStringField("email", email);
+                generator.writeStringField("status", status);
+                if (error != null) {
+                    generator.writeStringField("error", error);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            });
+            
+            String parseError = null;
+            try {
+                JsonToken token = parser.nextToken();
+                boolean array = token == JsonToken.START_ARRAY;
+                if (array) {
+                    token = parser.nextToken();
+                }
+                while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                    if (token != JsonToken.START_OBJECT) {
+                        throw new JsonParseException(parser, "Ожидался объект EmailRequest, получено " + token);
+                    }
+                    if (session.add(requestReader.readValue(parser))) {
+                        // Клиент получает результаты пакета, не дожидаясь конца тела
+                        generator.flush();
+                    }
+                    token = parser.nextToken();
+                }
+            } catch (JsonProcessingException e) {
+                parseError = e.getOriginalMessage();
+                logger.warn("Ошибка разбора тела массовой отправки после {} запросов: {}",
+                            session.getTotal(), parseError);
+            }
+            BulkSendSummary summary = session.finish();
+            
+            if (parseError != null) {
+                generator.writeStartObject();
+                generator.writeStringField("error", parseError);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+            generator.writeStartObject();
+            generator.writeNumberField("total", summary.getTotal());
+            generator.writeNumberField("sent", summary.getSent());
+            generator.writeNumberField("failed", summary.getFailed());
+            generator.writeNumberField("invalid", summary.getInvalid());
+            if (summary.getSuppressed() > 0) {
+                generator.writeNumberField("suppressed", summary.getSuppressed());
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            generator.flush();
+            return summary;
+        }
+    }
+    
+    /**
+     * Открывает сеанс массовой отправки для уже разобранных запросов.
+     * 
+     * Используется реактивным API, которое получает EmailRequest из декодера
+     * WebFlux. Сеанс не потокобезопасен: запросы передаются по одному.
+     * 
+     * @param failuresOnly - сообщать только статусы неотправленных писем
+     * @param listener - получатель статусов писем
+     * @return сеанс отправки
+     */
+    public Session openSession(boolean failuresOnly, StatusListener listener) {
+        return new Session(failuresOnly, listener);
+    }
+    
+    /**
+     * @return количество писем в одном пакете отправки
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    /**
+     * Получатель статуса отдельного письма.
+     */
+    @FunctionalInterface
+    public interface StatusListener {
+        /**
+         * @param index - номер запроса в теле, начиная с 0
+         * @param email - адрес получателя из запроса
+         * @param status - SENT, FAILED, INVALID или SUPPRESSED
+         * @param error - описание ошибки для FAILED, INVALID и SUPPRESSED
+         */
+        void onStatus(long index, String email, String status, String error) throws IOException;
+    }
+    
+    /**
+     * Состояние одного запроса массовой отправки.
+     * 
+     * Запросы проверяются и накапливаются в пакет одного приоритета; пакет
+     * отправляется при заполнении и при смене приоритета, статусы его писем
+     * передаются StatusListener.
+     */
+    public final class Session {
+        private final List<SimpleMailMessage> messages = new ArrayList<>(batchSize);
+        private final List<Long> indexes = new ArrayList<>(batchSize);
+        private final boolean failuresOnly;
+        private final StatusListener listener;
+        private Priority priority = Priority.BULK;
+        private long total;
+        private long sent;
+        private long failed;
+        private long invalid;
+        private long suppressed;
+        
+        private Session(boolean failuresOnly, StatusListener listener) {
+            this.failuresOnly = failuresOnly;
+            this.listener = listener;
+        }
+        
+        /**
+         * Проверяет запрос и добавляет письмо в текущий пакет.
+         * 
+         * @return true, если был отправлен пакет
+         */
+        public boolean add(EmailRequest request) throws IOException {
+            boolean flushed = false;
+            long index = total++;
+            // Те же проверки и сборка письма, что у POST /api/notifications/send-email
+            Priority requestPriority;
+            SimpleMailMessage message;
+            try {
+                requestPriority = Priority.of(request.getPriority(), Priority.BULK);
+                message = EmailRequests.createMessage(emailService, request);
+            } catch (IllegalArgumentException e) {
+                invalid(index, request.getEmail(), e.getMessage());
+                return false;
+            }
+            if (requestPriority != priority) {
+                flushed = flush();
+                priority = requestPriority;
+            }
+            messages.add(message);
+            indexes.add(index);
+            if (messages.size() >= batchSize) {
+                flushed |= flush();
+            }
+            return flushed;
+        }
+        
+        /**
+         * Отправляет остаток пакета.
+         * 
+         * @return итог отправки
+         */
+        public BulkSendSummary finish() throws IOException {
+            flush();
+            BulkSendSummary summary = new BulkSendSummary(total, sent, failed, invalid, suppressed);
+            logger.info("Массовая отправка завершена: {}", summary);
+            return summary;
+        }
+        
+        /**
+         * @return количество принятых запросов
+         */
+        public long getTotal() {
+            return total;
+        }
+        
+        /**
+         * Отправляет накопленный пакет и сообщает результаты по письмам.
+         */
+        private boolean flush() throws IOException {
+            if (messages.isEmpty()) {
+                return false;
+            }
+            BulkSendResult result = emailService.sendEmails(messages, priority);
+            for (int i = 0; i < messages.size(); i++) {
+                String email = messages.get(i).getTo()[0];
+                if (result.isFailed(i)) {
+                    failed++;
+                    listener.onStatus(indexes.get(i), email, FAILED, result.getFailures().get(i).getMessage());
+                } else if (result.isSuppressed(i)) {
+                    suppressed++;
+                    listener.onStatus(indexes.get(i), email, SUPPRESSED, "Адрес в списке подавления");
+                } else {
+                    sent++;
+                    if (!failuresOnly) {
+                        listener.onStatus(indexes.get(i), email, SENT, null);
+                    }
+                }
+            }
+            messages.clear();
+            indexes.clear();
+            return true;
+        }
+        
+        private void invalid(long index, String email, String error) throws IOException {
+            invalid++;
+            listener.onStatus(index, email, INVALID, error);
+        }
+    }
+}
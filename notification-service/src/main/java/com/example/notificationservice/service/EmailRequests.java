@@ -0,0 +1,54 @@
+package com.example.notificationservice.service;
+
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.support.Validation;
+import com.example.notificationservice.template.EmailTemplateEngine;
+import com.example.notificationservice.template.TemplateVariables;
+
+/**
+ * Проверка EmailRequest и сборка письма, общие для REST API
+ * (NotificationController, ReactiveNotificationController) и массовой
+ * отправки (BulkSendService): правило, добавленное здесь, действует
+ * во всех способах приема писем.
+ */
+public final class EmailRequests {
+    
+    private EmailRequests() {}
+    
+    /**
+     * Проверяет запрос и собирает письмо: по шаблону, если указан template,
+     * иначе из subject и message.
+     * 
+     * @param emailService - сервис для сборки письма
+     * @param emailRequest - запрос на отправку
+     * @return письмо одному получателю
+     * @throws IllegalArgumentException с описанием ошибки для клиента
+     */
+    public static SimpleMailMessage createMessage(EmailService emailService, EmailRequest emailRequest) {
+        if (Validation.isBlank(emailRequest.getEmail())) {
+            throw new IllegalArgumentException("Email адрес не может быть пустым");
+        }
+        if (!Validation.isValidEmail(emailRequest.getEmail())) {
+            throw new IllegalArgumentException("Некорректный email адрес: " + emailRequest.getEmail());
+        }
+        if (!Validation.isBlank(emailRequest.getTemplate())) {
+            SimpleMailMessage message = emailService.createTemplateMessage(
+                emailRequest.getEmail(),
+                emailRequest.getTemplate().trim(),
+                EmailTemplateEngine.parseLocale(emailRequest.getLocale()),
+                TemplateVariables.of(emailRequest.getVariables()));
+            if (message == null) {
+                throw new IllegalArgumentException("Шаблон не найден: " + emailRequest.getTemplate());
+            }
+            return message;
+        }
+        if (Validation.isBlank(emailRequest.getMessage())) {
+            throw new IllegalArgumentException("Текст сообщения не может быть пустым");
+        }
+        return emailService.createMailMessage(
+            emailRequest.getEmail(),
+            emailRequest.getSubject() != null ? emailRequest.getSubject() : "Уведомление",
+            emailRequest.getMessage());
+    }
+}
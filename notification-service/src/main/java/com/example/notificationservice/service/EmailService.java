@@ -2,15 +2,56 @@ package com.example.notificationservice.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import com.example.notificationservice.digest.DigestItem;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.mail.RoutingJavaMailSender;
+import com.example.notificationservice.mail.SmtpReplies;
+import com.example.notificationservice.metrics.NotificationMetrics;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.suppression.SuppressionList;
+import com.example.notificationservice.suppression.SuppressionReason;
+import com.example.notificationservice.support.LogSampler;
+import com.example.notificationservice.template.EmailTemplate;
+import com.example.notificationservice.template.EmailTemplateEngine;
+import com.example.notificationservice.template.TemplateVariables;
+import com.example.notificationservice.throttle.SendLanes;
+import com.example.notificationservice.throttle.SendThrottle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Сервис для отправки email-уведомлений.
  * 
  * Инкапсулирует логику работы с почтовым сервером и отправки сообщений.
  * Использует Spring Mail для интеграции с SMTP-сервером.
+ * Тексты уведомлений берутся из шаблонов EmailTemplateEngine.
+ * 
+ * Каждое письмо отправляется с приоритетом (Priority): письма об аккаунте -
+ * TRANSACTIONAL, остальные по умолчанию STANDARD. При включенных полосах
+ * отправки приоритет определяет очередь, в которой письмо ждет слота SMTP.
+ * 
+ * При включенном списке подавления адрес проверяется до лимитов и очередей:
+ * письмо на подавленный адрес не отправляется и завершается статусом
+ * SUPPRESSED, а в пакетной отправке попадает в подавленные индексы.
  */
 @Service
 public class EmailService {
@@ -19,18 +60,63 @@ public class EmailService {
     
     private final JavaMailSender mailSender;
     
-    // Тема письма для создания аккаунта
-    private static final String CREATE_SUBJECT = "Добро пожаловать!";
-    // Тема письма для удаления аккаунта
-    private static final String DELETE_SUBJECT = "Ваш аккаунт удален";
+    // Ограниченный исполнитель для асинхронной отправки
+    private final BoundedExecutor mailSendExecutor;
+    
+    // Шаблоны писем
+    private final EmailTemplateEngine templateEngine;
+    
+    // Метрики отправки и рендеринга
+    private final NotificationMetrics metrics;
+    
+    // Лимиты отправки по доменам и релею (null - без ограничений)
+    @Nullable
+    private final SendThrottle throttle;
+    
+    // Полосы отправки по приоритетам (null - общая очередь исполнителя)
+    @Nullable
+    private final SendLanes lanes;
+    
+    // Адреса, на которые письма не отправляются (null - проверка выключена)
+    @Nullable
+    private final SuppressionList suppressionList;
+    
+    // Сводка успешных отправок в INFO вместо строки на каждое письмо
+    private final LogSampler sentLog = new LogSampler(10, TimeUnit.SECONDS);
+    
+    // Шаблон письма для создания аккаунта
+    private static final String CREATE_TEMPLATE = "create";
+    // Шаблон письма для удаления аккаунта
+    private static final String DELETE_TEMPLATE = "delete";
+    // Шаблон сводки уведомлений
+    private static final String DIGEST_TEMPLATE = "digest";
+    // Обработчик начала отправки по умолчанию
+    private static final Runnable NO_OP = () -> { };
+    // Переменная шаблона с адресом получателя
+    private static final String EMAIL_VARIABLE = "email";
     
     /**
-     * Конструктор с внедрением зависимости JavaMailSender.
+     * Конструктор с внедрением зависимостей.
      * 
      * @param mailSender - компонент Spring для отправки email
+     * @param mailSendExecutor - исполнитель для асинхронной отправки
+     * @param templateEngine - шаблоны писем
+     * @param metrics - метрики отправки
+     * @param throttle - лимиты отправки, если notification.mail.throttle.enabled=true
+     * @param lanes - полосы отправки, если notification.mail.lanes.enabled=true
+     * @param suppressionList - список подавления, если notification.suppression.enabled=true
      */
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender, BoundedExecutor mailSendExecutor,
+                        EmailTemplateEngine templateEngine, NotificationMetrics metrics,
+                        @Nullable SendThrottle throttle, @Nullable SendLanes lanes,
+                        @Nullable SuppressionList suppressionList) {
         this.mailSender = mailSender;
+        this.mailSendExecutor = mailSendExecutor;
+        this.templateEngine = templateEngine;
+        this.metrics = metrics;
+        this.throttle = throttle;
+        this.lanes = lanes;
+        this.suppressionList = suppressionList;
     }
     
     /**
@@ -38,10 +124,10 @@ public class EmailService {
      * 
      * @param email - адрес получателя
      * @return true если сообщение отправлено успешно, false в случае ошибки
+     *         или если адрес в списке подавления
      */
     public boolean sendAccountCreatedEmail(String email) {
-        String message = "Здравствуйте! Ваш аккаунт на сайте ваш сайт был успешно создан.";
-        return sendEmail(email, CREATE_SUBJECT, message);
+        return send(createAccountCreatedMessage(email), Priority.TRANSACTIONAL).isSent();
     }
     
     /**
@@ -49,10 +135,118 @@ public class EmailService {
      * 
      * @param email - адрес получателя
      * @return true если сообщение отправлено успешно, false в случае ошибки
+     *         или если адрес в списке подавления
      */
     public boolean sendAccountDeletedEmail(String email) {
-        String message = "Здравствуйте! Ваш аккаунт был удалён.";
-        return sendEmail(email, DELETE_SUBJECT, message);
+        return send(createAccountDeletedMessage(email), Priority.TRANSACTIONAL).isSent();
+    }
+    
+    /**
+     * Формирует уведомление о создании аккаунта без отправки.
+     * 
+     * @param email - адрес получателя
+     * @return готовое к отправке сообщение
+     */
+    public SimpleMailMessage createAccountCreatedMessage(String email) {
+        return createRequiredTemplateMessage(email, CREATE_TEMPLATE, null);
+    }
+    
+    /**
+     * Формирует уведомление об удалении аккаунта без отправки.
+     * 
+     * @param email - адрес получателя
+     * @return готовое к отправке сообщение
+     */
+    public SimpleMailMessage createAccountDeletedMessage(String email) {
+        return createRequiredTemplateMessage(email, DELETE_TEMPLATE, null);
+    }
+    
+    /**
+     * Формирует сводку из нескольких уведомлений без отправки.
+     * 
+     * Уведомления подставляются в плейсхолдер {{items}} шаблона digest
+     * темой и текстом по порядку поступления, их количество - в {{count}}.
+     * 
+     * @param email - адрес получателя
+     * @param items - уведомления сводки
+     * @return готовое к отправке сообщение
+     */
+    public SimpleMailMessage createDigestMessage(String email, List<DigestItem> items) {
+        StringBuilder text = new StringBuilder();
+        for (DigestItem item : items) {
+            text.append("— ").append(item.getSubject()).append('\n')
+                .append(item.getText()).append("\n\n");
+        }
+        int count = items.size();
+        return createRequiredTemplateMessage(email, DIGEST_TEMPLATE, null,
+            name -> "count".equals(name) ? count : "items".equals(name) ? text : null);
+    }
+    
+    /**
+     * Формирует уведомление для события пользователя без отправки.
+     * 
+     * Шаблон выбирается по операции и локали события.
+     * 
+     * @param userEvent - событие из Kafka
+     * @return готовое к отправке сообщение или null, если операция неизвестна
+     */
+    public SimpleMailMessage createUserEventMessage(UserEvent userEvent) {
+        if (userEvent == null || userEvent.getOperation() == null) {
+            logger.warn("Пропущено некорректное событие: {}", userEvent);
+            return null;
+        }
+        Locale locale = EmailTemplateEngine.parseLocale(userEvent.getLocale());
+        switch (userEvent.getOperationType()) {
+            case CREATE:
+                return createRequiredTemplateMessage(userEvent.getEmail(), CREATE_TEMPLATE, locale);
+            case DELETE:
+                return createRequiredTemplateMessage(userEvent.getEmail(), DELETE_TEMPLATE, locale);
+            default:
+                logger.warn("Неизвестная операция: {}", userEvent.getOperation());
+                return null;
+        }
+    }
+    
+    /**
+     * Формирует сообщение по шаблону без отправки.
+     * 
+     * Переменная {{email}} всегда содержит адрес получателя.
+     * 
+     * @param email - адрес получателя
+     * @param templateName - имя шаблона
+     * @param locale - локаль получателя или null для локали по умолчанию
+     * @param variables - значения плейсхолдеров шаблона
+     * @return готовое к отправке сообщение или null, если шаблона нет
+     */
+    public SimpleMailMessage createTemplateMessage(String email, String templateName, @Nullable Locale locale,
+                                                   TemplateVariables variables) {
+        EmailTemplate template = templateEngine.find(templateName, locale);
+        if (template == null) {
+            logger.warn("Шаблон {} для локали {} не найден", templateName, locale);
+            return null;
+        }
+        TemplateVariables withEmail = name -> EMAIL_VARIABLE.equals(name) ? email : variables.get(name);
+        long start = System.nanoTime();
+        String subject = EmailTemplateEngine.render(template.getSubject(), withEmail);
+        String body = EmailTemplateEngine.render(template.getBody(), withEmail);
+        metrics.recordRender(System.nanoTime() - start);
+        return createMailMessage(email, subject, body);
+    }
+    
+    /**
+     * Создает объект email сообщения.
+     * 
+     * @param email - адрес получателя
+     * @param subject - тема письма
+     * @param message - текст сообщения
+     * @return сообщение для передачи в JavaMailSender
+     */
+    public SimpleMailMessage createMailMessage(String email, String subject, String message) {
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setTo(email);
+        mailMessage.setSubject(subject);
+        mailMessage.setText(message);
+        return mailMessage;
     }
     
     /**
@@ -64,24 +258,450 @@ public class EmailService {
      * @return true если сообщение отправлено успешно, false в случае ошибки
      */
     public boolean sendEmail(String email, String subject, String message) {
+        return send(createMailMessage(email, subject, message)).isSent();
+    }
+    
+    /**
+     * Асинхронно отправляет уведомление о создании аккаунта.
+     * 
+     * @param email - адрес получателя
+     * @return future с результатом отправки
+     */
+    public CompletableFuture<SendResult> sendAccountCreatedEmailAsync(String email) {
+        return sendAsync(createAccountCreatedMessage(email), Priority.TRANSACTIONAL);
+    }
+    
+    /**
+     * Асинхронно отправляет уведомление об удалении аккаунта.
+     * 
+     * @param email - адрес получателя
+     * @return future с результатом отправки
+     */
+    public CompletableFuture<SendResult> sendAccountDeletedEmailAsync(String email) {
+        return sendAsync(createAccountDeletedMessage(email), Priority.TRANSACTIONAL);
+    }
+    
+    /**
+     * Асинхронно отправляет произвольное email-сообщение.
+     * 
+     * @param email - адрес получателя
+     * @param subject - тема письма
+     * @param message - текст сообщения
+     * @return future с результатом отправки
+     */
+    public CompletableFuture<SendResult> sendEmailAsync(String email, String subject, String message) {
+        return sendEmailAsync(email, subject, message, Priority.STANDARD);
+    }
+    
+    /**
+     * Асинхронно отправляет произвольное email-сообщение с заданным приоритетом.
+     * 
+     * @param email - адрес получателя
+     * @param subject - тема письма
+     * @param message - текст сообщения
+     * @param priority - приоритет письма
+     * @return future с результатом отправки
+     */
+    public CompletableFuture<SendResult> sendEmailAsync(String email, String subject, String message,
+                                                        Priority priority) {
+        return sendAsync(createMailMessage(email, subject, message), priority);
+    }
+    
+    /**
+     * Ставит сообщение в очередь отправки с приоритетом STANDARD.
+     * 
+     * @see #sendAsync(SimpleMailMessage, Priority)
+     */
+    public CompletableFuture<SendResult> sendAsync(SimpleMailMessage mailMessage) {
+        return sendAsync(mailMessage, Priority.STANDARD);
+    }
+    
+    /**
+     * Ставит сообщение в очередь отправки без ожидания.
+     * 
+     * Если исполнитель заполнен, сообщение не ставится в очередь, а future
+     * сразу завершается со статусом REJECTED - вызывающая сторона сама решает,
+     * вернуть ошибку клиенту или повторить позже. При включенных лимитах
+     * сообщение ждет отправки в очереди домена получателя, при включенных
+     * полосах - в очереди полосы своего приоритета.
+     * 
+     * @param mailMessage - сообщение для отправки
+     * @param priority - приоритет письма
+     * @return future с результатом отправки
+     */
+    public CompletableFuture<SendResult> sendAsync(SimpleMailMessage mailMessage, Priority priority) {
+        return sendAsync(mailMessage, priority, NO_OP);
+    }
+    
+    /**
+     * Ставит сообщение в очередь отправки без ожидания, сообщая о начале отправки.
+     * 
+     * @param mailMessage - сообщение для отправки
+     * @param priority - приоритет письма
+     * @param onStart - вызывается в потоке отправки, когда письмо вышло из очереди
+     * @return future с результатом отправки
+     * @see #sendAsync(SimpleMailMessage, Priority)
+     */
+    public CompletableFuture<SendResult> sendAsync(SimpleMailMessage mailMessage, Priority priority,
+                                                   Runnable onStart) {
+        SendResult suppressed = suppressedResult(mailMessage);
+        if (suppressed != null) {
+            return CompletableFuture.completedFuture(suppressed);
+        }
         try {
-            logger.info("Попытка отправки email на адрес: {}, тема: {}", email, subject);
-            
-            // Создание объекта email сообщения
-            SimpleMailMessage mailMessage = new SimpleMailMessage();
-            mailMessage.setTo(email);
-            mailMessage.setSubject(subject);
-            mailMessage.setText(message);
+            if (throttle != null) {
+                // Слот полосы занимает SendThrottle до передачи письма исполнителю
+                return throttle.submit(mailMessage, priority, message -> {
+                    onStart.run();
+                    return deliver(message);
+                });
+            }
+            if (lanes != null) {
+                return lanes.submit(priority, () -> {
+                    onStart.run();
+                    return deliver(mailMessage);
+                }).exceptionally(e -> rejectedResult(mailMessage, e));
+            }
+            return mailSendExecutor.submit(() -> {
+                onStart.run();
+                return sendAllowed(mailMessage, priority);
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(rejectedResult(mailMessage, e));
+        }
+    }
+    
+    /**
+     * Ставит сообщение в очередь отправки, ожидая свободного места не дольше таймаута.
+     * 
+     * Используется потребителем Kafka: вместо отказа поток consumer'а ждет,
+     * что замедляет чтение из топика до скорости отправки.
+     * 
+     * @param mailMessage - сообщение для отправки
+     * @param priority - приоритет письма
+     * @param maxWaitMillis - максимальное время ожидания места в очереди
+     * @return future с результатом отправки
+     */
+    public CompletableFuture<SendResult> sendAsync(SimpleMailMessage mailMessage, Priority priority,
+                                                   long maxWaitMillis) {
+        SendResult suppressed = suppressedResult(mailMessage);
+        if (suppressed != null) {
+            return CompletableFuture.completedFuture(suppressed);
+        }
+        try {
+            if (throttle != null) {
+                return throttle.submit(mailMessage, priority, this::deliver, maxWaitMillis);
+            }
+            if (lanes != null) {
+                return lanes.submit(priority, () -> deliver(mailMessage), maxWaitMillis)
+                    .exceptionally(e -> rejectedResult(mailMessage, e));
+            }
+            return mailSendExecutor.submit(() -> sendAllowed(mailMessage, priority), maxWaitMillis);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(rejectedResult(mailMessage, e));
+        }
+    }
+    
+    /**
+     * Синхронно отправляет сообщение с приоритетом STANDARD.
+     * 
+     * @see #send(SimpleMailMessage, Priority)
+     */
+    public SendResult send(SimpleMailMessage mailMessage) {
+        return send(mailMessage, Priority.STANDARD);
+    }
+    
+    /**
+     * Синхронно отправляет сообщение в текущем потоке.
+     * 
+     * При включенных лимитах поток ждет разрешения для домена получателя
+     * не дольше notification.mail.throttle.max-wait-ms, при включенных
+     * полосах - слота отправки не дольше notification.mail.lanes.max-wait-ms,
+     * после чего сообщение не отправляется и возвращается статус REJECTED.
+     * 
+     * @param mailMessage - сообщение для отправки
+     * @param priority - приоритет письма
+     * @return результат отправки
+     */
+    public SendResult send(SimpleMailMessage mailMessage, Priority priority) {
+        SendResult suppressed = suppressedResult(mailMessage);
+        return suppressed != null ? suppressed : sendAllowed(mailMessage, priority);
+    }
+    
+    /**
+     * Отправляет сообщение на адрес не из списка подавления с учетом лимитов.
+     */
+    private SendResult sendAllowed(SimpleMailMessage mailMessage, Priority priority) {
+        if (throttle == null) {
+            return deliver(mailMessage, priority);
+        }
+        String email = recipientOf(mailMessage);
+        String domain = SendThrottle.domainOf(email);
+        if (!throttle.acquire(domain)) {
+            metrics.recordFailure(NotificationMetrics.FailureReason.THROTTLED);
+            logger.warn("Не дождались лимита отправки для домена {}, email на адрес {} отклонен", domain, email);
+            return SendResult.rejected(email, "Превышено ожидание лимита отправки для домена " + domain);
+        }
+        long start = System.nanoTime();
+        SendResult result = null;
+        try {
+            result = deliver(mailMessage, priority);
+            return result;
+        } finally {
+            throttle.release(domain, System.nanoTime() - start, result);
+        }
+    }
+    
+    /**
+     * Отправляет сообщение в слоте полосы приоритета.
+     */
+    private SendResult deliver(SimpleMailMessage mailMessage, Priority priority) {
+        if (lanes == null) {
+            return deliver(mailMessage);
+        }
+        if (!lanes.acquire(priority)) {
+            String email = recipientOf(mailMessage);
+            metrics.recordFailure(NotificationMetrics.FailureReason.QUEUE_FULL);
+            logger.warn("Не дождались слота отправки в полосе {}, email на адрес {} отклонен", priority, email);
+            return SendResult.rejected(email, "Превышено ожидание слота отправки в полосе " + priority);
+        }
+        try {
+            return deliver(mailMessage);
+        } finally {
+            lanes.release(priority);
+        }
+    }
+    
+    /**
+     * Отправляет сообщение SMTP-серверу без учета лимитов.
+     */
+    private SendResult deliver(SimpleMailMessage mailMessage) {
+        String email = recipientOf(mailMessage);
+        long start = System.nanoTime();
+        try {
+            logger.debug("Попытка отправки email на адрес: {}, тема: {}", email, mailMessage.getSubject());
             
             // Отправка сообщения
             mailSender.send(mailMessage);
             
-            logger.info("Email успешно отправлен на адрес: {}", email);
-            return true;
+            long elapsed = System.nanoTime() - start;
+            metrics.recordSend(elapsed, true);
+            logger.debug("Email успешно отправлен на адрес: {}", email);
+            long sentCount = sentLog.sample();
+            if (sentCount > 0) {
+                logger.info("Успешно отправлено email за последние {} с: {}", sentLog.getIntervalSeconds(), sentCount);
+            }
+            return SendResult.sent(email, TimeUnit.NANOSECONDS.toMillis(elapsed), relayOf());
             
         } catch (Exception e) {
+            long elapsed = System.nanoTime() - start;
+            metrics.recordSend(elapsed, false);
+            metrics.recordFailure(e);
             logger.error("Ошибка при отправке email на адрес: {}", email, e);
-            return false;
+            return SendResult.failed(email, TimeUnit.NANOSECONDS.toMillis(elapsed), e.getMessage(),
+                SmtpReplies.replyCode(e), relayOf());
+        }
+    }
+    
+    /**
+     * @return релей только что завершенной в этом потоке отправки или хост
+     *         единственного SMTP-сервера; null, если отправитель его не сообщает
+     */
+    @Nullable
+    private String relayOf() {
+        if (mailSender instanceof RoutingJavaMailSender) {
+            return ((RoutingJavaMailSender) mailSender).takeLastRelay();
+        }
+        if (mailSender instanceof JavaMailSenderImpl) {
+            return ((JavaMailSenderImpl) mailSender).getHost();
+        }
+        return null;
+    }
+    
+    /**
+     * Отправляет пакет сообщений через одно SMTP-соединение.
+     * 
+     * JavaMailSender.send(SimpleMailMessage...) открывает транспорт один раз
+     * на весь пакет, поэтому стоимость подключения и авторизации делится
+     * между всеми сообщениями. Ошибки по отдельным сообщениям не прерывают
+     * отправку остальных и возвращаются в результате по индексам.
+     * 
+     * При включенных лимитах пакет раскладывается по очередям доменов
+     * получателей: письма одного домена уходят через одно соединение,
+     * письма в домен, упершийся в лимит, не задерживают остальные,
+     * а метод ждет завершения всех писем пакета.
+     * 
+     * При включенных полосах пакет отправляется в одном слоте полосы
+     * своего приоритета.
+     * 
+     * Сообщения на адреса из списка подавления исключаются из пакета до
+     * отправки и возвращаются в результате подавленными индексами.
+     * 
+     * @param messages - сообщения для отправки
+     * @param priority - приоритет писем пакета
+     * @return результат с ошибками по индексам сообщений
+     */
+    public BulkSendResult sendEmails(List<SimpleMailMessage> messages, Priority priority) {
+        if (suppressionList == null || messages.isEmpty()) {
+            return sendAllowed(messages, priority);
+        }
+        Set<Integer> suppressed = new LinkedHashSet<>();
+        List<SimpleMailMessage> allowed = new ArrayList<>(messages.size());
+        int[] allowedIndexes = new int[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            SimpleMailMessage message = messages.get(i);
+            if (suppressedResult(message) != null) {
+                suppressed.add(i);
+            } else {
+                allowedIndexes[allowed.size()] = i;
+                allowed.add(message);
+            }
+        }
+        if (suppressed.isEmpty()) {
+            return sendAllowed(messages, priority);
+        }
+        
+        // Индексы результата отправки - позиции в allowed, а не в исходном пакете
+        BulkSendResult result = sendAllowed(allowed, priority);
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+        result.getFailures().forEach((index, failure) -> failures.put(allowedIndexes[index], failure));
+        for (int index : result.getSuppressed()) {
+            suppressed.add(allowedIndexes[index]);
+        }
+        return new BulkSendResult(messages.size(), failures, suppressed);
+    }
+    
+    private BulkSendResult sendAllowed(List<SimpleMailMessage> messages, Priority priority) {
+        if (messages.isEmpty()) {
+            return BulkSendResult.allSent(0);
+        }
+        if (throttle != null) {
+            return sendThrottled(messages, priority);
+        }
+        if (lanes == null) {
+            return sendBatch(messages);
+        }
+        if (!lanes.acquire(priority)) {
+            logger.warn("Не дождались слота отправки в полосе {}, пакет из {} email-сообщений отклонен",
+                       priority, messages.size());
+            return failAll(messages.size(), NotificationMetrics.FailureReason.QUEUE_FULL,
+                new MailSendException("Превышено ожидание слота отправки в полосе " + priority));
+        }
+        try {
+            return sendBatch(messages);
+        } finally {
+            lanes.release(priority);
+        }
+    }
+    
+    /**
+     * Отправляет пакет сообщений с приоритетом STANDARD.
+     * 
+     * @see #sendEmails(List, Priority)
+     */
+    public BulkSendResult sendEmails(List<SimpleMailMessage> messages) {
+        return sendEmails(messages, Priority.STANDARD);
+    }
+    
+    private BulkSendResult sendBatch(List<SimpleMailMessage> messages) {
+        try {
+            logger.info("Пакетная отправка {} email-сообщений", messages.size());
+            
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+            
+            logger.info("Пакет из {} email-сообщений успешно отправлен", messages.size());
+            return BulkSendResult.allSent(messages.size());
+            
+        } catch (MailSendException e) {
+            // Ошибки по отдельным сообщениям: остальные сообщения пакета отправлены
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            Map<Integer, Exception> failures = new LinkedHashMap<>();
+            for (int i = 0; i < messages.size(); i++) {
+                Exception failure = failedMessages.get(messages.get(i));
+                if (failure != null) {
+                    failures.put(i, failure);
+                    metrics.recordFailure(failure);
+                }
+            }
+            // Пустая карта означает, что не удалось даже подключиться к серверу
+            if (failures.isEmpty()) {
+                return failAll(messages.size(), e);
+            }
+            logger.error("Не удалось отправить {} из {} email-сообщений пакета",
+                        failures.size(), messages.size());
+            return new BulkSendResult(messages.size(), failures);
+            
+        } catch (Exception e) {
+            return failAll(messages.size(), e);
+        }
+    }
+    
+    private BulkSendResult sendThrottled(List<SimpleMailMessage> messages, Priority priority) {
+        try {
+            return throttle.submitBatch(messages, priority, this::sendBatch, throttle.getMaxWaitMillis()).join();
+        } catch (RejectedExecutionException e) {
+            logger.warn("Очереди доменов заполнены, пакет из {} email-сообщений отклонен", messages.size());
+            return failAll(messages.size(), NotificationMetrics.FailureReason.QUEUE_FULL,
+                new MailSendException(e.getMessage(), e));
+        } catch (CompletionException e) {
+            return failAll(messages.size(), e);
+        }
+    }
+    
+    private SimpleMailMessage createRequiredTemplateMessage(String email, String templateName, Locale locale) {
+        return createRequiredTemplateMessage(email, templateName, locale, TemplateVariables.EMPTY);
+    }
+    
+    private SimpleMailMessage createRequiredTemplateMessage(String email, String templateName, Locale locale,
+                                                            TemplateVariables variables) {
+        SimpleMailMessage message = createTemplateMessage(email, templateName, locale, variables);
+        if (message == null) {
+            throw new IllegalStateException("Не найден встроенный шаблон " + templateName);
+        }
+        return message;
+    }
+    
+    private SendResult rejectedResult(SimpleMailMessage mailMessage, Throwable e) {
+        String email = recipientOf(mailMessage);
+        metrics.recordFailure(NotificationMetrics.FailureReason.QUEUE_FULL);
+        logger.warn("Очередь отправки заполнена, email на адрес {} отклонен", email);
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return SendResult.rejected(email, cause.getMessage());
+    }
+    
+    /**
+     * @return результат SUPPRESSED, если адрес получателя в списке подавления, иначе null
+     */
+    @Nullable
+    private SendResult suppressedResult(SimpleMailMessage mailMessage) {
+        if (suppressionList == null) {
+            return null;
+        }
+        String email = recipientOf(mailMessage);
+        SuppressionReason reason = suppressionList.check(email);
+        if (reason == null) {
+            return null;
+        }
+        logger.debug("Адрес {} в списке подавления ({}), email не отправлен", email, reason.getTag());
+        return SendResult.suppressed(email, "Адрес в списке подавления: " + reason.getTag());
+    }
+    
+    private static String recipientOf(SimpleMailMessage mailMessage) {
+        String[] to = mailMessage.getTo();
+        return to != null && to.length > 0 ? to[0] : null;
+    }
+    
+    private BulkSendResult failAll(int total, Exception e) {
+        logger.error("Ошибка при пакетной отправке {} email-сообщений", total, e);
+        return failAll(total, NotificationMetrics.classify(e), e);
+    }
+    
+    private BulkSendResult failAll(int total, NotificationMetrics.FailureReason reason, Exception e) {
+        metrics.recordFailures(reason, total);
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+        for (int i = 0; i < total; i++) {
+            failures.put(i, e);
         }
+        return new BulkSendResult(total, failures);
     }
 }
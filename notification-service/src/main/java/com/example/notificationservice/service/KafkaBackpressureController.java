@@ -0,0 +1,141 @@
+package com.example.notificationservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.throttle.SendLanes;
+import com.example.notificationservice.throttle.SendThrottle;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Управляет скоростью чтения из Kafka по заполненности очереди отправки.
+ * 
+ * Когда очередь, в которую попадает письмо, заполнена выше pause-threshold,
+ * контейнер listener'а ставится на паузу (consumer продолжает poll() для
+ * heartbeat, но не получает новых записей). Когда заполненность падает ниже
+ * resume-threshold, чтение возобновляется. Так письма не накапливаются в heap,
+ * а consumer не выпадает из группы, как при длительной блокировке.
+ * 
+ * Заполненность берется у первой ступени отправки: очередей доменов
+ * SendThrottle, если лимиты включены, иначе очереди полосы SendLanes
+ * для приоритета письма, иначе исполнителя отправки. Ступени за ней
+ * получают не больше писем, чем слотов отправки, и не заполняются.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.kafka.async-send.enabled", havingValue = "true")
+public class KafkaBackpressureController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(KafkaBackpressureController.class);
+    
+    // Идентификатор контейнера из @KafkaListener(id = ...) в KafkaConsumerService
+    static final String LISTENER_ID = "user-events-listener";
+    
+    private final KafkaListenerEndpointRegistry registry;
+    private final BoundedExecutor mailSendExecutor;
+    
+    // Лимиты отправки (null - выключены)
+    @Nullable
+    private final SendThrottle throttle;
+    
+    // Полосы отправки (null - выключены)
+    @Nullable
+    private final SendLanes lanes;
+    
+    private final double pauseThreshold;
+    private final double resumeThreshold;
+    private final long maxWaitMillis;
+    private final AtomicBoolean paused = new AtomicBoolean();
+    
+    // Полоса, заполнение которой поставило consumer на паузу
+    private volatile Priority pausedPriority = Priority.STANDARD;
+    
+    /**
+     * @param registry - контейнеры listener'ов Kafka
+     * @param mailSendExecutor - исполнитель асинхронной отправки
+     * @param throttle - лимиты отправки, если notification.mail.throttle.enabled=true
+     * @param lanes - полосы отправки, если notification.mail.lanes.enabled=true
+     */
+    public KafkaBackpressureController(
+            KafkaListenerEndpointRegistry registry,
+            BoundedExecutor mailSendExecutor,
+            @Nullable SendThrottle throttle,
+            @Nullable SendLanes lanes,
+            @Value("${notification.kafka.async-send.pause-threshold:0.9}") double pauseThreshold,
+            @Value("${notification.kafka.async-send.resume-threshold:0.5}") double resumeThreshold,
+            @Value("${notification.kafka.async-send.max-wait-ms:60000}") long maxWaitMillis) {
+        this.registry = registry;
+        this.mailSendExecutor = mailSendExecutor;
+        this.throttle = throttle;
+        this.lanes = lanes;
+        this.pauseThreshold = pauseThreshold;
+        this.resumeThreshold = resumeThreshold;
+        this.maxWaitMillis = maxWaitMillis;
+        if (throttle != null) {
+            throttle.addReleaseListener(this::resumeIfDrained);
+        } else if (lanes != null) {
+            lanes.addReleaseListener(this::resumeIfDrained);
+        } else {
+            mailSendExecutor.addCompletionListener(this::resumeIfDrained);
+        }
+    }
+    
+    /**
+     * Вызывается перед постановкой письма в очередь; при перегрузке ставит consumer на паузу.
+     * 
+     * @param priority - приоритет письма (выбирает полосу отправки)
+     */
+    public void beforeSubmit(Priority priority) {
+        double utilization = getUtilization(priority);
+        if (utilization >= pauseThreshold && paused.compareAndSet(false, true)) {
+            pausedPriority = priority;
+            MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+            if (container != null) {
+                logger.warn("Очередь отправки заполнена на {}%, чтение из Kafka приостановлено",
+                           Math.round(utilization * 100));
+                container.pause();
+            }
+        }
+    }
+    
+    /**
+     * @return сколько поток consumer'а может ждать места в очереди отправки
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    public boolean isPaused() {
+        return paused.get();
+    }
+    
+    /**
+     * @return доля занятого места в первой ступени отправки письма с этим приоритетом
+     */
+    double getUtilization(Priority priority) {
+        if (throttle != null) {
+            return throttle.getUtilization();
+        }
+        if (lanes != null) {
+            return lanes.getUtilization(priority);
+        }
+        return mailSendExecutor.getUtilization();
+    }
+    
+    private void resumeIfDrained() {
+        if (paused.get() && getUtilization(pausedPriority) <= resumeThreshold && paused.compareAndSet(true, false)) {
+            MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+            if (container != null) {
+                logger.info("Очередь отправки разгружена, чтение из Kafka возобновлено");
+                container.resume();
+            }
+        }
+    }
+}
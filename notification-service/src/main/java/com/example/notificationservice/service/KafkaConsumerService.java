@@ -1,31 +1,119 @@
 package com.example.notificationservice.service;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Service;
+import com.example.notificationservice.coalesce.EventCoalescer;
+import com.example.notificationservice.dedup.EventDeduplicator;
+import com.example.notificationservice.digest.DigestAggregator;
+import com.example.notificationservice.dto.NotificationResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
 import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.metrics.NotificationMetrics;
+import com.example.notificationservice.spool.MailSpool;
+import com.example.notificationservice.support.KeyOrderedExecutor;
+import com.example.notificationservice.support.LogSampler;
+import com.example.notificationservice.support.OrderedAcknowledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Сервис для обработки сообщений из Kafka.
  * 
  * Слушает топик user-events и обрабатывает события создания/удаления пользователей.
  * Автоматически запускается при старте приложения и работает в фоновом режиме.
+ * Активен в режиме поштучной обработки; пакетный режим обслуживает BatchKafkaConsumerService.
+ * Если включен топик результатов, итог обработки каждой записи публикуется
+ * через NotificationResultPublisher.
  */
 @Service
+@ConditionalOnProperty(name = "notification.kafka.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class KafkaConsumerService {
     
     private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerService.class);
     
     private final EmailService emailService;
     
+    // Метрики получения и доставки событий
+    private final NotificationMetrics metrics;
+    
+    // Пул обработчиков; null - события обрабатываются в потоке consumer'а
+    private final KeyOrderedExecutor userEventExecutor;
+    
+    // Контроль заполненности очереди; null - асинхронная отправка выключена
+    private final KafkaBackpressureController backpressure;
+    
+    // Надежная очередь писем; null - письма отправляются напрямую
+    private final MailSpool mailSpool;
+    
+    // Передача неудачных записей в топики повторов; null - повторы выключены
+    private final ConsumerRecordRecoverer userEventRecoverer;
+    
+    // Кэш отправленных событий; null - дубли не отсеиваются
+    private final EventDeduplicator deduplicator;
+    
+    // Окно схлопывания событий одного email; null - события обрабатываются сразу
+    private final EventCoalescer coalescer;
+    
+    // Сводки уведомлений одного получателя; null - каждое уведомление отдельным письмом
+    private final DigestAggregator digest;
+    
+    // Публикация результатов обработки; null - топик результатов выключен
+    private final NotificationResultPublisher resultPublisher;
+    
+    // Подтверждение записей по порядку без паузы чтения; null - подтверждения
+    // передаются контейнеру напрямую (см. KafkaConfig)
+    private final OrderedAcknowledger acknowledger;
+    
+    // Сводка доставленных уведомлений в INFO вместо строки на каждое событие
+    private final LogSampler deliveredLog = new LogSampler(10, TimeUnit.SECONDS);
+    
     /**
-     * Конструктор с внедрением зависимости EmailService.
+     * Конструктор с внедрением зависимостей.
      * 
      * @param emailService - сервис для отправки email
+     * @param metrics - метрики получения и доставки событий
+     * @param userEventExecutor - пул обработчиков, если включен notification.kafka.workers.enabled
+     * @param backpressure - контроль чтения, если включен notification.kafka.async-send.enabled
+     * @param mailSpool - надежная очередь писем, если включен notification.spool.enabled
+     * @param userEventRecoverer - передача в топики повторов, если включен notification.kafka.retry.enabled
+     * @param deduplicator - кэш отправленных событий, если включен notification.dedup.enabled
+     * @param coalescer - окно схлопывания, если включен notification.kafka.coalesce.enabled
+     * @param digest - сводки уведомлений, если включен notification.digest.enabled
+     * @param resultPublisher - публикация результатов, если включен notification.kafka.results.enabled
      */
-    public KafkaConsumerService(EmailService emailService) {
+    public KafkaConsumerService(EmailService emailService,
+                                NotificationMetrics metrics,
+                                @Nullable KeyOrderedExecutor userEventExecutor,
+                                @Nullable KafkaBackpressureController backpressure,
+                                @Nullable MailSpool mailSpool,
+                                @Nullable ConsumerRecordRecoverer userEventRecoverer,
+                                @Nullable EventDeduplicator deduplicator,
+                                @Nullable EventCoalescer coalescer,
+                                @Nullable DigestAggregator digest,
+                                @Nullable NotificationResultPublisher resultPublisher) {
         this.emailService = emailService;
+        this.metrics = metrics;
+        this.userEventExecutor = userEventExecutor;
+        this.backpressure = backpressure;
+        this.mailSpool = mailSpool;
+        this.userEventRecoverer = userEventRecoverer;
+        this.deduplicator = deduplicator;
+        this.coalescer = coalescer;
+        this.digest = digest;
+        this.resultPublisher = resultPublisher;
+        this.acknowledger = coalescer != null || digest != null ? new OrderedAcknowledger() : null;
     }
     
     /**
@@ -33,38 +121,391 @@ public class KafkaConsumerService {
      * 
      * Этот метод автоматически вызывается при поступлении нового сообщения в топик.
      * Аннотация @KafkaListener настраивает подписку на указанный топик.
+     * Если пул обработчиков включен, событие передается в полосу по email
+     * пользователя, а запись подтверждается после завершения обработки.
+     * При асинхронной отправке письмо ставится в очередь EmailService,
+     * а запись подтверждается, когда отправка завершится. Если включен spool,
+     * запись подтверждается сразу после записи письма в spool на диск.
      * 
-     * @param userEvent - десериализованное сообщение из Kafka
+     * Неудачная отправка в потоке consumer'а пробрасывается контейнеру, и его
+     * обработчик ошибок передает запись в топик повторов. При обработке в других
+     * потоках запись передается в топик повторов до подтверждения.
+     * 
+     * Событие, уведомление для которого уже отправлено (повторная доставка
+     * после ребаланса или перезапуска), подтверждается без отправки.
+     * Если включено окно схлопывания, события одного email сначала
+     * накапливаются в EventCoalescer, и обрабатывается только итоговое.
+     * Если включены сводки, уведомление добавляется в сводку получателя,
+     * а запись подтверждается после отправки сводки.
+     * В обоих режимах записи подтверждаются через OrderedAcknowledger: consumer
+     * продолжает чтение, пока окна и сводки открыты, а смещение коммитится
+     * только ниже самой старой еще не обработанной записи партиции.
+     * 
+     * Результат обработки публикуется до подтверждения записи. Для событий,
+     * схлопнутых в окне, результат публикуется только по итоговому событию окна.
+     * 
+     * @param record - запись Kafka с десериализованным событием
+     * @param acknowledgment - подтверждение обработки записи
+     */
+    @KafkaListener(id = "user-events-listener", topics = "user-events", groupId = "notification-group")
+    public void onUserEvent(ConsumerRecord<String, UserEvent> record, Acknowledgment acknowledgment) {
+        if (record.value() != null) {
+            metrics.recordReceived(record.value().getOperationType());
+        }
+        if (acknowledger == null) {
+            process(record, acknowledgment::acknowledge);
+            return;
+        }
+        
+        Runnable acknowledge = acknowledger.track(record, acknowledgment);
+        if (coalescer != null && record.value() != null) {
+            coalescer.submit(record, acknowledge, this::dispatchCoalesced);
+            return;
+        }
+        try {
+            process(record, acknowledge);
+        } catch (RuntimeException e) {
+            // Обработчик ошибок контейнера сразу передает запись в топик повторов
+            // (или логирует) и сам коммитит ее смещение; незавершенная запись
+            // остановила бы подтверждение следующих записей партиции
+            acknowledge.run();
+            throw e;
+        }
+    }
+    
+    /**
+     * Обрабатывает запись одним из режимов: spool, сводка, асинхронная отправка,
+     * поток consumer'а или пул обработчиков.
+     * 
+     * @param record - запись Kafka с десериализованным событием
+     * @param acknowledgment - подтверждение записи (или всех записей окна схлопывания)
      */
-    @KafkaListener(topics = "user-events", groupId = "notification-group")
-    public void handleUserEvent(UserEvent userEvent) {
-        logger.info("Получено событие из Kafka: {}", userEvent);
+    private void process(ConsumerRecord<String, UserEvent> record, Runnable acknowledgment) {
+        UserEvent userEvent = record.value();
+        long dedupKey = deduplicator != null && userEvent != null
+            ? deduplicator.keyOf(userEvent, record.timestamp()) : 0;
         
+        // Проверка и захват ключа атомарны и выполняются до выбора режима:
+        // запись, прочитанная повторно, пока первая еще в пуле, в сводке
+        // или в очереди отправки, не будет отправлена второй раз
+        if (!tryAcquire(dedupKey, userEvent)) {
+            publishResult(record, NotificationResult.Status.DUPLICATE, null);
+            acknowledgment.run();
+            return;
+        }
         try {
-            // Определение типа операции и отправка соответствующего уведомления
-            boolean sendResult;
-            switch (userEvent.getOperation().toUpperCase()) {
-                case "CREATE":
-                    sendResult = emailService.sendAccountCreatedEmail(userEvent.getEmail());
-                    break;
-                case "DELETE":
-                    sendResult = emailService.sendAccountDeletedEmail(userEvent.getEmail());
-                    break;
-                default:
-                    logger.warn("Неизвестная операция: {}", userEvent.getOperation());
-                    return;
+            dispatch(record, dedupKey, acknowledgment);
+        } catch (RuntimeException e) {
+            release(dedupKey, userEvent);
+            throw e;
+        }
+    }
+    
+    private void dispatch(ConsumerRecord<String, UserEvent> record, long dedupKey, Runnable acknowledgment) {
+        UserEvent userEvent = record.value();
+        if (mailSpool != null && userEvent != null) {
+            boolean spooled = spoolUserEvent(userEvent);
+            markDelivered(dedupKey, userEvent);
+            publishResult(record, spooled ? NotificationResult.Status.SPOOLED : NotificationResult.Status.SKIPPED,
+                null);
+            acknowledgment.run();
+            return;
+        }
+        
+        if (digest != null && userEvent != null && digest.accepts(Priority.of(userEvent.getOperationType()))) {
+            SimpleMailMessage message = emailService.createUserEventMessage(userEvent);
+            if (message == null) {
+                release(dedupKey, userEvent);
+                publishResult(record, NotificationResult.Status.SKIPPED, null);
+                acknowledgment.run();
+                return;
             }
-            
-            if (sendResult) {
-                logger.info("Уведомление для операции '{}' успешно отправлено на {}", 
-                           userEvent.getOperation(), userEvent.getEmail());
+            digest.submit(message, Priority.of(userEvent.getOperationType()))
+                .whenComplete((result, e) -> {
+                    logResult(userEvent, result);
+                    complete(record, dedupKey, result, e, acknowledgment);
+                });
+            return;
+        }
+        
+        if (backpressure != null && userEvent != null) {
+            handleUserEventAsync(userEvent)
+                .whenComplete((result, e) -> complete(record, dedupKey, result, e, acknowledgment));
+            return;
+        }
+        
+        if (userEventExecutor == null || userEvent == null) {
+            deliverAndMark(record, dedupKey);
+            acknowledgment.run();
+            return;
+        }
+        
+        userEventExecutor.execute(userEvent.getEmail(), () -> {
+            try {
+                deliverAndMark(record, dedupKey);
+            } catch (NotificationDeliveryException e) {
+                recover(record, e);
+            } finally {
+                acknowledgment.run();
+            }
+        });
+    }
+    
+    /**
+     * Отправляет уведомление в текущем потоке и запоминает или освобождает ключ события.
+     */
+    private void deliverAndMark(ConsumerRecord<String, UserEvent> record, long dedupKey) {
+        UserEvent userEvent = record.value();
+        boolean delivered = false;
+        try {
+            delivered = deliver(record);
+        } finally {
+            if (delivered) {
+                markDelivered(dedupKey, userEvent);
+                metrics.recordDelivered(record.timestamp());
             } else {
-                logger.error("Не удалось отправить уведомление для операции '{}' на {}", 
-                            userEvent.getOperation(), userEvent.getEmail());
+                release(dedupKey, userEvent);
             }
-            
+        }
+    }
+    
+    /**
+     * Завершает обработку записи по результату асинхронной отправки или сводки.
+     */
+    private void complete(ConsumerRecord<String, UserEvent> record, long dedupKey, SendResult result,
+                          Throwable error, Runnable acknowledgment) {
+        if (resultPublisher != null && record.value() != null) {
+            if (result != null) {
+                resultPublisher.publish(record, result);
+            } else if (error != null) {
+                resultPublisher.publish(record, NotificationResult.Status.FAILED, error.toString());
+            } else {
+                resultPublisher.publish(record, NotificationResult.Status.SKIPPED, null);
+            }
+        }
+        if (result != null && result.isSent()) {
+            markDelivered(dedupKey, record.value());
+            metrics.recordDelivered(record.timestamp());
+            acknowledgment.run();
+            return;
+        }
+        release(dedupKey, record.value());
+        if (result != null && result.isSuppressed()) {
+            // Адрес в списке подавления: повтор ничего не изменит
+            logger.debug("Уведомление для {} не отправлено: {}", result.getEmail(), result.getError());
+        } else if (result != null) {
+            recover(record, new NotificationDeliveryException(
+                "Не удалось отправить уведомление: " + result.getStatus() + " " + result.getError()));
+        } else if (error != null) {
+            recover(record, new NotificationDeliveryException("Не удалось отправить уведомление", error));
+        }
+        acknowledgment.run();
+    }
+    
+    /**
+     * Отправляет уведомление для записи в текущем потоке.
+     * 
+     * С включенным топиком результатов письмо отправляется через
+     * EmailService.send, чтобы в результат попали длительность отправки
+     * и SMTP-релей.
+     * 
+     * @param record - запись Kafka с десериализованным событием
+     * @return true если уведомление отправлено, false если событие пропущено
+     *         или адрес в списке подавления
+     * @throws NotificationDeliveryException если письмо не удалось отправить
+     */
+    private boolean deliver(ConsumerRecord<String, UserEvent> record) {
+        UserEvent userEvent = record.value();
+        if (resultPublisher == null || userEvent == null) {
+            return handleUserEvent(userEvent);
+        }
+        logger.debug("Получено событие из Kafka: {}", userEvent);
+        
+        SimpleMailMessage message = emailService.createUserEventMessage(userEvent);
+        if (message == null) {
+            resultPublisher.publish(record, NotificationResult.Status.SKIPPED, null);
+            return false;
+        }
+        SendResult result = emailService.send(message, Priority.of(userEvent.getOperationType()));
+        resultPublisher.publish(record, result);
+        logResult(userEvent, result);
+        if (result.isSent() || result.isSuppressed()) {
+            return result.isSent();
+        }
+        throw new NotificationDeliveryException("Не удалось отправить уведомление для операции '"
+            + userEvent.getOperation() + "' на " + userEvent.getEmail() + ": " + result.getError());
+    }
+    
+    /**
+     * Публикует итог обработки записи без результата отправки, если включен топик результатов.
+     */
+    private void publishResult(ConsumerRecord<String, UserEvent> record, NotificationResult.Status status,
+                               @Nullable String error) {
+        if (resultPublisher != null && record.value() != null) {
+            resultPublisher.publish(record, status, error);
+        }
+    }
+    
+    /**
+     * Обрабатывает событие, оставшееся после закрытия окна схлопывания.
+     * 
+     * Вызывается в пуле потоков EventCoalescer: ошибка не дойдет до обработчика
+     * ошибок контейнера, поэтому запись сразу передается в топик повторов,
+     * а записи окна подтверждаются. Это относится к любой ошибке обработки,
+     * в том числе к ошибке записи в spool: неподтвержденные записи держали бы
+     * коммит смещений партиции до ребаланса.
+     */
+    private void dispatchCoalesced(ConsumerRecord<String, UserEvent> record, Runnable acknowledgment) {
+        try {
+            process(record, acknowledgment);
+        } catch (NotificationDeliveryException e) {
+            recover(record, e);
+            acknowledgment.run();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при обработке события {} после окна схлопывания", record.value(), e);
+            recover(record, new NotificationDeliveryException("Ошибка обработки события", e));
+            acknowledgment.run();
+        }
+    }
+    
+    /**
+     * Обрабатывает событие пользователя и отправляет соответствующее уведомление.
+     * 
+     * @param userEvent - десериализованное сообщение из Kafka
+     * @return true если уведомление отправлено, false если событие пропущено
+     *         или адрес в списке подавления
+     * @throws NotificationDeliveryException если письмо не удалось отправить
+     */
+    public boolean handleUserEvent(UserEvent userEvent) {
+        logger.debug("Получено событие из Kafka: {}", userEvent);
+        
+        // Формирование уведомления по операции и отправка с приоритетом операции
+        SendResult result;
+        try {
+            SimpleMailMessage message = emailService.createUserEventMessage(userEvent);
+            if (message == null) {
+                return false;
+            }
+            result = emailService.send(message, Priority.of(userEvent.getOperationType()));
         } catch (Exception e) {
             logger.error("Ошибка при обработке события пользователя: {}", userEvent, e);
+            return false;
+        }
+        
+        // Подавленный адрес - не ошибка доставки: повтор ничего не изменит
+        logResult(userEvent, result);
+        if (result.isSent() || result.isSuppressed()) {
+            return result.isSent();
+        }
+        throw new NotificationDeliveryException("Не удалось отправить уведомление для операции '"
+            + userEvent.getOperation() + "' на " + userEvent.getEmail() + ": " + result.getError());
+    }
+    
+    /**
+     * Ставит уведомление для события в очередь асинхронной отправки.
+     * 
+     * @param userEvent - десериализованное сообщение из Kafka
+     * @return future с результатом отправки; null в результате - уведомление не требуется
+     */
+    public CompletableFuture<SendResult> handleUserEventAsync(UserEvent userEvent) {
+        logger.debug("Получено событие из Kafka: {}", userEvent);
+        
+        SimpleMailMessage message = emailService.createUserEventMessage(userEvent);
+        if (message == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        Priority priority = Priority.of(userEvent.getOperationType());
+        backpressure.beforeSubmit(priority);
+        return emailService.sendAsync(message, priority, backpressure.getMaxWaitMillis())
+            .whenComplete((result, e) -> logResult(userEvent, result));
+    }
+    
+    /**
+     * Передает запись в топик повторов из потока, отличного от потока consumer'а.
+     * 
+     * Ошибка публикации только логируется: запись все равно подтверждается,
+     * иначе асинхронные подтверждения остановили бы коммит смещений партиции.
+     */
+    private void recover(ConsumerRecord<String, UserEvent> record, NotificationDeliveryException e) {
+        if (userEventRecoverer == null) {
+            return;
+        }
+        try {
+            userEventRecoverer.accept(record, e);
+        } catch (Exception recoverException) {
+            logger.error("Не удалось передать событие {} в топик повторов", record.value(), recoverException);
+        }
+    }
+    
+    private boolean tryAcquire(long dedupKey, UserEvent userEvent) {
+        if (deduplicator == null || userEvent == null || deduplicator.tryAcquire(dedupKey)) {
+            return true;
+        }
+        logger.info("Уведомление для события уже отправлено, событие пропущено: {}", userEvent);
+        return false;
+    }
+    
+    private void release(long dedupKey, UserEvent userEvent) {
+        if (deduplicator != null && userEvent != null) {
+            deduplicator.release(dedupKey);
+        }
+    }
+    
+    private void markDelivered(long dedupKey, UserEvent userEvent) {
+        if (deduplicator != null && userEvent != null) {
+            deduplicator.markDelivered(dedupKey);
+        }
+    }
+    
+    private void logResult(UserEvent userEvent, SendResult result) {
+        if (result == null) {
+            return;
+        }
+        if (result.isSent()) {
+            logDelivered(userEvent);
+        } else if (result.isSuppressed()) {
+            logger.debug("Уведомление для операции '{}' на {} не отправлено: {}",
+                        userEvent.getOperation(), userEvent.getEmail(), result.getError());
+        } else {
+            logger.error("Не удалось отправить уведомление для операции '{}' на {}: {} {}",
+                        userEvent.getOperation(), userEvent.getEmail(), result.getStatus(), result.getError());
+        }
+    }
+    
+    /**
+     * Пишет успешную доставку в DEBUG, а в INFO - не чаще раза в интервал сводкой.
+     */
+    private void logDelivered(UserEvent userEvent) {
+        logger.debug("Уведомление для операции '{}' успешно отправлено на {}",
+                    userEvent.getOperationType(), userEvent.getEmail());
+        long delivered = deliveredLog.sample();
+        if (delivered > 0) {
+            logger.info("Отправлено уведомлений по событиям за последние {} с: {}",
+                       deliveredLog.getIntervalSeconds(), delivered);
+        }
+    }
+    
+    /**
+     * Записывает уведомление для события в spool; отправит его SpoolSenderService.
+     * 
+     * @param userEvent - десериализованное сообщение из Kafka
+     * @return true если письмо записано, false если событие не требует письма
+     * @throws UncheckedIOException если запись на диск не удалась - запись Kafka
+     *         не подтверждается и будет обработана повторно
+     */
+    public boolean spoolUserEvent(UserEvent userEvent) {
+        logger.debug("Получено событие из Kafka: {}", userEvent);
+        
+        SimpleMailMessage message = emailService.createUserEventMessage(userEvent);
+        if (message == null) {
+            return false;
+        }
+        try {
+            mailSpool.append(message);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать уведомление в spool", e);
         }
+        return true;
     }
 }
@@ -0,0 +1,18 @@
+package com.example.notificationservice.service;
+
+/**
+ * Исключение, означающее, что уведомление не удалось отправить.
+ * 
+ * Выбрасывается из обработчиков Kafka, чтобы обработчик ошибок контейнера
+ * перенаправил запись в топик повторов или в dead-letter топик.
+ */
+public class NotificationDeliveryException extends RuntimeException {
+    
+    public NotificationDeliveryException(String message) {
+        super(message);
+    }
+    
+    public NotificationDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
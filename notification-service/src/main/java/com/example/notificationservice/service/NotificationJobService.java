@@ -0,0 +1,167 @@
+package com.example.notificationservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+import com.example.notificationservice.digest.DigestAggregator;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.NotificationStatus.State;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.status.NotificationStatusIndex;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис уведомлений, принимаемых в очередь без ожидания отправки.
+ * 
+ * submit ставит письмо в очередь EmailService (или в сводку получателя)
+ * и сразу возвращает идентификатор, по которому состояние отправки
+ * (QUEUED, SENDING, SENT, FAILED, SUPPRESSED) читается из NotificationStatusIndex.
+ * Время ответа клиенту поэтому не зависит от задержки SMTP-сервера.
+ * 
+ * Ожидающие завершения клиенты (awaitTerminal) получают future, который
+ * завершается вместе с отправкой; future создается только для уведомлений,
+ * которых кто-то ждет.
+ */
+@Service
+public class NotificationJobService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NotificationJobService.class);
+    
+    private final EmailService emailService;
+    
+    // Сводки уведомлений одного получателя; null - каждое письмо отправляется сразу
+    @Nullable
+    private final DigestAggregator digest;
+    
+    private final NotificationStatusIndex index;
+    private final long maxWaitMillis;
+    
+    // Ожидания завершения по идентификатору уведомления
+    private final ConcurrentHashMap<Long, CompletableFuture<NotificationStatus>> waiters = new ConcurrentHashMap<>();
+    
+    /**
+     * Конструктор с внедрением зависимостей.
+     * 
+     * @param emailService - сервис для отправки email
+     * @param digest - сводки уведомлений, если включен notification.digest.enabled
+     * @param capacity - число хранимых статусов
+     * @param ttlMillis - сколько хранить статус отправленного уведомления
+     * @param maxWaitMillis - максимальное ожидание завершения в GET /api/notifications/{id}
+     */
+    public NotificationJobService(EmailService emailService, @Nullable DigestAggregator digest,
+                                  @Value("${notification.status.capacity:262144}") int capacity,
+                                  @Value("${notification.status.ttl-ms:3600000}") long ttlMillis,
+                                  @Value("${notification.status.max-wait-ms:30000}") long maxWaitMillis) {
+        this.emailService = emailService;
+        this.digest = digest;
+        this.index = new NotificationStatusIndex(capacity, ttlMillis);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+    
+    /**
+     * Ставит письмо в очередь отправки.
+     * 
+     * @param message - письмо одному получателю
+     * @param priority - приоритет письма
+     * @return статус уведомления: QUEUED, FAILED, если очередь отправки переполнена,
+     *         или SUPPRESSED, если адрес в списке подавления
+     */
+    public NotificationStatus submit(SimpleMailMessage message, Priority priority) {
+        long id = index.register();
+        CompletableFuture<SendResult> result = digest != null && digest.accepts(priority)
+            ? digest.submit(message, priority)
+            : emailService.sendAsync(message, priority, () -> index.update(id, State.SENDING, null));
+        CompletableFuture<NotificationStatus> terminal = result.handle((sendResult, error) -> complete(id, sendResult, error));
+        // Слот индекса мог быть уже занят другим уведомлением (или статус
+        // вытеснен по TTL): тогда статус собирается из известного состояния
+        NotificationStatus status = index.get(id);
+        return status != null ? status : terminal.getNow(statusOf(id, State.QUEUED, null));
+    }
+    
+    /**
+     * @param id - идентификатор уведомления
+     * @return статус или null, если уведомление неизвестно или его статус вытеснен
+     */
+    @Nullable
+    public NotificationStatus getStatus(String id) {
+        long parsed = parseId(id);
+        return parsed < 0 ? null : index.get(parsed);
+    }
+    
+    /**
+     * Ожидает окончательного состояния уведомления.
+     * 
+     * @param id - идентификатор уведомления
+     * @return future со статусом SENT, FAILED или SUPPRESSED; null, если уведомление неизвестно
+     */
+    @Nullable
+    public CompletableFuture<NotificationStatus> awaitTerminal(String id) {
+        long parsed = parseId(id);
+        NotificationStatus status = parsed < 0 ? null : index.get(parsed);
+        if (status == null || status.getStatus().isTerminal()) {
+            return status == null ? null : CompletableFuture.completedFuture(status);
+        }
+        CompletableFuture<NotificationStatus> future = waiters.computeIfAbsent(parsed, key -> new CompletableFuture<>());
+        // Отправка могла завершиться до регистрации ожидания
+        status = index.get(parsed);
+        if (status == null || status.getStatus().isTerminal()) {
+            waiters.remove(parsed, future);
+            future.complete(status);
+        }
+        return future;
+    }
+    
+    /**
+     * @return максимальное ожидание завершения, мс
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    private NotificationStatus complete(long id, @Nullable SendResult sendResult, @Nullable Throwable error) {
+        State state;
+        String message;
+        if (error != null) {
+            logger.error("Ошибка отправки уведомления {}", id, error);
+            state = State.FAILED;
+            message = error.getMessage();
+        } else if (sendResult.getStatus() == SendResult.Status.SENT) {
+            state = State.SENT;
+            message = null;
+        } else if (sendResult.isSuppressed()) {
+            state = State.SUPPRESSED;
+            message = sendResult.getError();
+        } else {
+            state = State.FAILED;
+            message = sendResult.getError();
+        }
+        index.update(id, state, message);
+        NotificationStatus status = index.get(id);
+        if (status == null) {
+            status = statusOf(id, state, message);
+        }
+        CompletableFuture<NotificationStatus> future = waiters.remove(id);
+        if (future != null) {
+            future.complete(status);
+        }
+        return status;
+    }
+    
+    private static NotificationStatus statusOf(long id, State state, @Nullable String error) {
+        return new NotificationStatus(Long.toString(id), state, System.currentTimeMillis(), error);
+    }
+    
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.lang.Nullable;
+import com.example.notificationservice.dto.NotificationResult;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.support.LogSampler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публикатор результатов обработки событий в топик результатов.
+ * 
+ * На каждое обработанное событие user-events (и каждый его повтор)
+ * публикуется NotificationResult с ключом - email получателя, поэтому
+ * результаты одного пользователя лежат в одной партиции по порядку.
+ * 
+ * Отправка не ждет брокера: записи копятся в пакеты producer'а (linger.ms,
+ * batch.size) и сжимаются целиком, а ошибка публикации только считается
+ * в notification.kafka.results.failed и логируется сводкой - письмо уже
+ * отправлено, и повторять событие из-за результата нельзя.
+ * 
+ * Если шаблон транзакционный, результат публикуется в транзакции
+ * контейнера, читающего запись: смещение записи и ее результат фиксируются
+ * вместе. Вне такой транзакции (пул обработчиков, топики повторов)
+ * результат публикуется в собственной короткой транзакции.
+ */
+public class NotificationResultPublisher implements DisposableBean {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NotificationResultPublisher.class);
+    
+    private final KafkaTemplate<String, NotificationResult> template;
+    private final String topic;
+    private final Counter failed;
+    
+    // Сводка ошибок публикации вместо строки на каждый результат
+    private final LogSampler failureLog = new LogSampler(10, TimeUnit.SECONDS);
+    
+    /**
+     * @param template - шаблон с producer'ом результатов
+     * @param topic - топик результатов
+     * @param meterRegistry - реестр метрик
+     */
+    public NotificationResultPublisher(KafkaTemplate<String, NotificationResult> template,
+                                       String topic,
+                                       MeterRegistry meterRegistry) {
+        this.template = template;
+        this.topic = topic;
+        this.failed = Counter.builder("notification.kafka.results.failed")
+            .description("Результаты обработки событий, не опубликованные в топик результатов")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Публикует результат отправки письма для записи user-events или топика повторов.
+     * 
+     * @param record - обработанная запись
+     * @param result - результат отправки
+     */
+    public void publish(ConsumerRecord<String, UserEvent> record, SendResult result) {
+        publish(NotificationResult.of(record.value(), RetryTopicRouter.originalTimestampOf(record),
+            RetryTopicRouter.attemptOf(record) + 1, result));
+    }
+    
+    /**
+     * Публикует итог обработки записи без результата отправки.
+     * 
+     * @param record - обработанная запись
+     * @param status - итог обработки
+     * @param error - описание ошибки или null
+     */
+    public void publish(ConsumerRecord<String, UserEvent> record, NotificationResult.Status status,
+                        @Nullable String error) {
+        publish(NotificationResult.of(record.value(), RetryTopicRouter.originalTimestampOf(record),
+            RetryTopicRouter.attemptOf(record) + 1, status, error));
+    }
+    
+    /**
+     * Публикует результат в топик результатов.
+     * 
+     * @param result - результат обработки события
+     */
+    public void publish(NotificationResult result) {
+        ProducerRecord<String, NotificationResult> record = new ProducerRecord<>(topic, result.getEmail(), result);
+        try {
+            if (template.isTransactional() && !template.inTransaction()) {
+                template.executeInTransaction(operations -> operations.send(record))
+                    .addCallback(sent -> { }, e -> onFailure(result, e));
+            } else {
+                template.send(record).addCallback(sent -> { }, e -> onFailure(result, e));
+            }
+        } catch (RuntimeException e) {
+            onFailure(result, e);
+        }
+    }
+    
+    private void onFailure(NotificationResult result, Throwable e) {
+        failed.increment();
+        logger.debug("Не удалось опубликовать результат {}", result, e);
+        long failures = failureLog.sample();
+        if (failures > 0) {
+            logger.warn("Не опубликовано результатов в {} за последние {} с: {}",
+                       topic, failureLog.getIntervalSeconds(), failures, e);
+        }
+    }
+    
+    /**
+     * @return фабрика producer'ов результатов (для менеджера транзакций контейнеров)
+     */
+    public ProducerFactory<String, NotificationResult> getProducerFactory() {
+        return template.getProducerFactory();
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    /**
+     * Закрывает producer'ы; закрытие дожидается отправки накопленных пакетов.
+     */
+    @Override
+    public void destroy() {
+        if (template.getProducerFactory() instanceof DisposableBean) {
+            try {
+                ((DisposableBean) template.getProducerFactory()).destroy();
+            } catch (Exception e) {
+                logger.warn("Ошибка при закрытии producer'а результатов", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.notificationservice.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ListenerUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+import com.example.notificationservice.dedup.EventDeduplicator;
+import com.example.notificationservice.dto.NotificationResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.metrics.NotificationMetrics;
+
+/**
+ * Сервис повторной обработки событий из топиков повторов.
+ * 
+ * Каждый уровень повторов читается отдельным контейнером, поэтому ожидание
+ * срока повтора в одном уровне не задерживает ни основной топик, ни другие
+ * уровни. Записи внутри уровня упорядочены по сроку повтора, так что ожидание
+ * первой записи не задерживает следующие сверх их собственного срока.
+ * Неудачный повтор снова передается обработчику ошибок контейнера, который
+ * отправляет запись на следующий уровень или в dead-letter топик.
+ * Итог каждой попытки публикуется в топик результатов, если он включен.
+ */
+@Service
+@ConditionalOnProperty(name = "notification.kafka.retry.enabled", havingValue = "true", matchIfMissing = true)
+public class RetryTopicConsumerService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RetryTopicConsumerService.class);
+    
+    private final EmailService emailService;
+    private final KafkaListenerEndpointRegistry registry;
+    private final NotificationMetrics metrics;
+    
+    // Кэш отправленных событий; null - дубли не отсеиваются
+    private final EventDeduplicator deduplicator;
+    
+    // Публикация результатов обработки; null - топик результатов выключен
+    private final NotificationResultPublisher resultPublisher;
+    
+    /**
+     * Конструктор с внедрением зависимостей.
+     * 
+     * @param emailService - сервис для отправки email
+     * @param registry - реестр контейнеров для прерываемого ожидания
+     * @param metrics - метрики доставки событий
+     * @param deduplicator - кэш отправленных событий, если включен notification.dedup.enabled
+     * @param resultPublisher - публикация результатов, если включен notification.kafka.results.enabled
+     */
+    public RetryTopicConsumerService(EmailService emailService, KafkaListenerEndpointRegistry registry,
+                                     NotificationMetrics metrics, @Nullable EventDeduplicator deduplicator,
+                                     @Nullable NotificationResultPublisher resultPublisher) {
+        this.emailService = emailService;
+        this.registry = registry;
+        this.metrics = metrics;
+        this.deduplicator = deduplicator;
+        this.resultPublisher = resultPublisher;
+    }
+    
+    @KafkaListener(id = RetryTopicRouter.RETRY_1S_TOPIC, topics = RetryTopicRouter.RETRY_1S_TOPIC,
+                   groupId = "notification-group", containerFactory = "retryKafkaListenerContainerFactory")
+    public void onRetry1s(ConsumerRecord<String, UserEvent> record) throws InterruptedException {
+        retry(record, RetryTopicRouter.RETRY_1S_TOPIC);
+    }
+    
+    @KafkaListener(id = RetryTopicRouter.RETRY_10S_TOPIC, topics = RetryTopicRouter.RETRY_10S_TOPIC,
+                   groupId = "notification-group", containerFactory = "retryKafkaListenerContainerFactory")
+    public void onRetry10s(ConsumerRecord<String, UserEvent> record) throws InterruptedException {
+        retry(record, RetryTopicRouter.RETRY_10S_TOPIC);
+    }
+    
+    @KafkaListener(id = RetryTopicRouter.RETRY_1M_TOPIC, topics = RetryTopicRouter.RETRY_1M_TOPIC,
+                   groupId = "notification-group", containerFactory = "retryKafkaListenerContainerFactory")
+    public void onRetry1m(ConsumerRecord<String, UserEvent> record) throws InterruptedException {
+        retry(record, RetryTopicRouter.RETRY_1M_TOPIC);
+    }
+    
+    /**
+     * Дожидается срока повтора и повторяет отправку уведомления.
+     * 
+     * @param record - запись из топика повторов
+     * @param listenerId - идентификатор контейнера уровня
+     * @throws InterruptedException если контейнер останавливается во время ожидания
+     */
+    void retry(ConsumerRecord<String, UserEvent> record, String listenerId) throws InterruptedException {
+        long waitMillis = RetryTopicRouter.dueAtOf(record) - System.currentTimeMillis();
+        if (waitMillis > 0) {
+            // Ожидание прерывается при остановке контейнера; запись будет прочитана снова
+            ListenerUtils.stoppableSleep(registry.getListenerContainer(listenerId), waitMillis);
+        }
+        
+        UserEvent userEvent = record.value();
+        // Ключ и задержка доставки считаются от времени исходной записи
+        long originalTimestamp = RetryTopicRouter.originalTimestampOf(record);
+        long dedupKey = deduplicator != null && userEvent != null
+            ? deduplicator.keyOf(userEvent, originalTimestamp) : 0;
+        if (deduplicator != null && userEvent != null && !deduplicator.tryAcquire(dedupKey)) {
+            logger.info("Уведомление для события уже отправлено, повтор пропущен: {}", userEvent);
+            publishResult(record, NotificationResult.Status.DUPLICATE);
+            return;
+        }
+        
+        SendResult result = null;
+        try {
+            SimpleMailMessage message = emailService.createUserEventMessage(userEvent);
+            if (message == null) {
+                publishResult(record, NotificationResult.Status.SKIPPED);
+                return;
+            }
+            
+            result = emailService.send(message, Priority.of(userEvent.getOperationType()));
+        } finally {
+            if (deduplicator != null && userEvent != null) {
+                if (result != null && result.isSent()) {
+                    deduplicator.markDelivered(dedupKey);
+                } else {
+                    deduplicator.release(dedupKey);
+                }
+            }
+        }
+        if (resultPublisher != null) {
+            resultPublisher.publish(record, result);
+        }
+        if (result.isSuppressed()) {
+            logger.info("Повтор для {} не отправлен: {}", userEvent.getEmail(), result.getError());
+            return;
+        }
+        if (!result.isSent()) {
+            throw new NotificationDeliveryException("Повтор " + RetryTopicRouter.attemptOf(record)
+                + " не удался для операции '" + userEvent.getOperation() + "' на " + userEvent.getEmail()
+                + ": " + result.getError());
+        }
+        metrics.recordDelivered(originalTimestamp);
+        logger.info("Уведомление для операции '{}' отправлено на {} с попытки {}",
+                   userEvent.getOperation(), userEvent.getEmail(), RetryTopicRouter.attemptOf(record) + 1);
+    }
+    
+    private void publishResult(ConsumerRecord<String, UserEvent> record, NotificationResult.Status status) {
+        if (resultPublisher != null && record.value() != null) {
+            resultPublisher.publish(record, status, null);
+        }
+    }
+}
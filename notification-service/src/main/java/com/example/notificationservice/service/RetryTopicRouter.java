@@ -0,0 +1,158 @@
+package com.example.notificationservice.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.handler.invocation.MethodArgumentResolutionException;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Маршрутизация неудачно обработанных событий по уровням повторов.
+ * 
+ * Запись из user-events после ошибки попадает в user-events-retry-1s, затем
+ * в user-events-retry-10s и user-events-retry-1m; после последнего уровня,
+ * а также при ошибках, которые повтор не исправит (десериализация, конвертация),
+ * запись уходит в user-events-dlt. В заголовках записи хранятся номер попытки
+ * и момент, не раньше которого ее можно повторить (задержка со случайным
+ * разбросом, чтобы повторы не приходили на SMTP-сервер одной волной).
+ */
+public class RetryTopicRouter {
+    
+    public static final String MAIN_TOPIC = "user-events";
+    public static final String RETRY_1S_TOPIC = "user-events-retry-1s";
+    public static final String RETRY_10S_TOPIC = "user-events-retry-10s";
+    public static final String RETRY_1M_TOPIC = "user-events-retry-1m";
+    public static final String DLT_TOPIC = "user-events-dlt";
+    
+    // Номер попытки повтора (1 - первый повтор)
+    public static final String ATTEMPT_HEADER = "notification-retry-attempt";
+    // Момент (epoch ms), не раньше которого запись можно обрабатывать
+    public static final String DUE_AT_HEADER = "notification-retry-due-at";
+    
+    /**
+     * Уровни повторов в порядке возрастания задержки.
+     */
+    public enum Tier {
+        ONE_SECOND(RETRY_1S_TOPIC, 1_000),
+        TEN_SECONDS(RETRY_10S_TOPIC, 10_000),
+        ONE_MINUTE(RETRY_1M_TOPIC, 60_000);
+        
+        private final String topic;
+        private final long delayMillis;
+        
+        Tier(String topic, long delayMillis) {
+            this.topic = topic;
+            this.delayMillis = delayMillis;
+        }
+        
+        public String getTopic() {
+            return topic;
+        }
+        
+        public long getDelayMillis() {
+            return delayMillis;
+        }
+    }
+    
+    private static final Tier[] TIERS = Tier.values();
+    
+    private final double jitter;
+    
+    /**
+     * @param jitter - доля случайного разброса задержки, например 0.2 - плюс-минус 20%
+     */
+    public RetryTopicRouter(double jitter) {
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("jitter должен быть в диапазоне [0, 1)");
+        }
+        this.jitter = jitter;
+    }
+    
+    /**
+     * Определяет топик для неудачно обработанной записи.
+     * 
+     * @param record - запись, обработка которой завершилась ошибкой
+     * @param exception - ошибка обработки
+     * @return следующий уровень повторов или dead-letter топик (партицию выбирает producer)
+     */
+    public TopicPartition resolveDestination(ConsumerRecord<?, ?> record, Exception exception) {
+        int attempt = attemptOf(record);
+        if (!isRetryable(exception) || attempt >= TIERS.length) {
+            return new TopicPartition(DLT_TOPIC, -1);
+        }
+        return new TopicPartition(TIERS[attempt].getTopic(), -1);
+    }
+    
+    /**
+     * Формирует заголовки для перенаправляемой записи.
+     * 
+     * @param record - запись, обработка которой завершилась ошибкой
+     * @param exception - ошибка обработки
+     * @return заголовки с номером попытки и сроком повтора
+     */
+    public Headers retryHeaders(ConsumerRecord<?, ?> record, Exception exception) {
+        int attempt = attemptOf(record);
+        Headers headers = new RecordHeaders();
+        headers.add(ATTEMPT_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(attempt + 1).array());
+        if (isRetryable(exception) && attempt < TIERS.length) {
+            long dueAt = System.currentTimeMillis() + jitteredDelay(TIERS[attempt].getDelayMillis());
+            headers.add(DUE_AT_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(dueAt).array());
+        }
+        return headers;
+    }
+    
+    /**
+     * @return количество уже выполненных повторов записи
+     */
+    public static int attemptOf(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ATTEMPT_HEADER);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getInt();
+    }
+    
+    /**
+     * @return момент, не раньше которого запись можно повторить, или 0
+     */
+    public static long dueAtOf(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(DUE_AT_HEADER);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getLong();
+    }
+    
+    /**
+     * @return время исходной записи user-events (первый переход сохраняет его в заголовке)
+     */
+    public static long originalTimestampOf(ConsumerRecord<?, ?> record) {
+        Iterator<Header> headers = record.headers().headers(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP).iterator();
+        return headers.hasNext() ? ByteBuffer.wrap(headers.next().value()).getLong() : record.timestamp();
+    }
+    
+    /**
+     * Ошибки, которые повтор не исправит: запись сразу уходит в dead-letter топик.
+     */
+    static boolean isRetryable(Throwable exception) {
+        Throwable cause = exception;
+        while (cause != null) {
+            if (cause instanceof DeserializationException
+                    || cause instanceof MessageConversionException
+                    || cause instanceof org.springframework.kafka.support.converter.ConversionException
+                    || cause instanceof MethodArgumentResolutionException
+                    || cause instanceof ClassCastException) {
+                return false;
+            }
+            cause = cause.getCause();
+        }
+        return true;
+    }
+    
+    private long jitteredDelay(long delayMillis) {
+        double factor = 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.round(delayMillis * factor);
+    }
+}
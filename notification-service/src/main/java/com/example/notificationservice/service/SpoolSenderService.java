@@ -0,0 +1,223 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.mail.SmtpReplies;
+import com.example.notificationservice.spool.MailSpool;
+import com.example.notificationservice.spool.SpoolEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Сервис, отправляющий письма из spool на SMTP-сервер в собственном темпе.
+ * 
+ * Читает ожидающие записи пакетами, отправляет их через EmailService.sendEmails
+ * и помечает доставленными. Неудачное письмо откладывается со своим сроком
+ * повтора (экспоненциальная задержка по числу попыток), а отправка остальных
+ * писем продолжается: письмо, срок повтора которого наступил, попадает
+ * в следующий пакет вместе с новыми. Скорость чтения из Kafka при этом
+ * ограничена только скоростью записи в spool.
+ * 
+ * Отбрасывается только письмо с постоянным отказом 5xx. Ошибки соединения,
+ * временные отказы 4xx, выключенные релеи и ошибка отправки пакета целиком
+ * письмо не отбрасывают: оно повторяется, пока релей не восстановится.
+ * Чтобы во время сбоя SMTP весь spool не переехал в память, новые записи
+ * не читаются, пока отложенных писем max-deferred или пока последний пакет
+ * не доставил ни одного письма из-за ошибки релея; повторы отложенных писем
+ * в это время служат пробой релея.
+ */
+@Service
+@ConditionalOnProperty(name = "notification.spool.enabled", havingValue = "true")
+public class SpoolSenderService implements SmartLifecycle {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SpoolSenderService.class);
+    
+    private static final long IDLE_WAIT_MILLIS = 500;
+    
+    private final MailSpool mailSpool;
+    private final EmailService emailService;
+    private final int batchSize;
+    private final int maxDeferred;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    
+    // Отложенные письма по сроку повтора; используется только потоком отправки
+    private final PriorityQueue<SpoolEntry> retries =
+        new PriorityQueue<>(Comparator.comparingLong(SpoolEntry::getRetryAt));
+    
+    // Последний пакет не доставил ни одного письма из-за ошибки релея
+    private boolean relayFailing;
+    
+    private volatile boolean running;
+    private Thread worker;
+    
+    public SpoolSenderService(MailSpool mailSpool,
+                              EmailService emailService,
+                              MeterRegistry meterRegistry,
+                              @Value("${notification.spool.batch-size:100}") int batchSize,
+                              @Value("${notification.spool.max-deferred:1000}") int maxDeferred,
+                              @Value("${notification.spool.initial-backoff-ms:1000}") long initialBackoffMillis,
+                              @Value("${notification.spool.max-backoff-ms:60000}") long maxBackoffMillis) {
+        this.mailSpool = mailSpool;
+        this.emailService = emailService;
+        this.batchSize = batchSize;
+        this.maxDeferred = maxDeferred;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        Gauge.builder("notification.spool.pending", mailSpool, MailSpool::getPendingCount)
+            .description("Письма в spool, ожидающие отправки").register(meterRegistry);
+        Gauge.builder("notification.spool.segments", mailSpool, MailSpool::getSegmentCount)
+            .description("Количество сегментов spool на диске").register(meterRegistry);
+    }
+    
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "spool-sender");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        mailSpool.flush();
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * Основной цикл: письма с наступившим сроком повтора и новые письма
+     * из spool - отправка - пометка - откладывание неудачных.
+     * 
+     * Новые письма читаются, только пока релей отвечает и число отложенных
+     * писем вместе с пакетом не превышает max-deferred.
+     */
+    private void drainLoop() {
+        int errors = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                List<SpoolEntry> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && !retries.isEmpty() && retries.peek().getRetryAt() <= now) {
+                    batch.add(retries.poll());
+                }
+                int room = Math.min(batchSize - batch.size(), maxDeferred - retries.size() - batch.size());
+                if (!relayFailing && room > 0) {
+                    batch.addAll(mailSpool.readPending(room));
+                }
+                if (batch.isEmpty()) {
+                    if (retries.isEmpty()) {
+                        relayFailing = false;
+                        mailSpool.compact();
+                    }
+                    long untilRetry = retries.isEmpty() ? IDLE_WAIT_MILLIS : retries.peek().getRetryAt() - now;
+                    mailSpool.awaitAppend(Math.max(1, Math.min(IDLE_WAIT_MILLIS, untilRetry)));
+                    continue;
+                }
+                
+                sendBatch(batch);
+                mailSpool.flush();
+                errors = 0;
+            } catch (InterruptedException e) {
+                // Прерывание означает остановку сервиса; письма останутся в spool
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Ошибка вне отправки (например, чтения spool): пауза вместо холостого цикла
+                logger.error("Ошибка при отправке писем из spool", e);
+                try {
+                    Thread.sleep(backoffMillis(++errors));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Отправляет пакет, помечает доставленные письма и откладывает неудачные.
+     * 
+     * Письмо с постоянным отказом 5xx отбрасывается, остальные неудачи
+     * откладываются без ограничения числа попыток.
+     */
+    private void sendBatch(List<SpoolEntry> batch) {
+        List<SimpleMailMessage> messages = new ArrayList<>(batch.size());
+        for (SpoolEntry entry : batch) {
+            messages.add(entry.getMessage());
+        }
+        
+        // В spool попадают только письма об аккаунте из событий Kafka
+        BulkSendResult result;
+        try {
+            result = emailService.sendEmails(messages, Priority.TRANSACTIONAL);
+        } catch (RuntimeException e) {
+            // Ошибка пакета целиком - ошибка релея, а не писем
+            logger.error("Ошибка при отправке пакета из {} писем из spool", batch.size(), e);
+            for (SpoolEntry entry : batch) {
+                retryLater(entry);
+            }
+            relayFailing = true;
+            return;
+        }
+        boolean answered = false;
+        for (int i = 0; i < batch.size(); i++) {
+            SpoolEntry entry = batch.get(i);
+            if (!result.isFailed(i)) {
+                mailSpool.markDelivered(entry);
+                answered = true;
+            } else if (isPermanent(result.getFailures().get(i))) {
+                logger.error("Письмо на адрес {} отброшено: постоянный отказ SMTP",
+                            (Object) entry.getMessage().getTo(), result.getFailures().get(i));
+                mailSpool.markDiscarded(entry);
+                answered = true;
+            } else {
+                retryLater(entry);
+            }
+        }
+        relayFailing = !answered;
+    }
+    
+    private void retryLater(SpoolEntry entry) {
+        entry.incrementAttempts();
+        entry.setRetryAt(System.currentTimeMillis() + backoffMillis(entry.getAttempts()));
+        retries.add(entry);
+    }
+    
+    /**
+     * Постоянный отказ 5xx относится к самому письму: повтор не поможет.
+     */
+    static boolean isPermanent(Exception failure) {
+        int replyCode = SmtpReplies.replyCode(failure);
+        return replyCode >= 500 && replyCode < 600;
+    }
+    
+    private long backoffMillis(int attempts) {
+        long backoff = initialBackoffMillis << Math.min(attempts - 1, 20);
+        return Math.min(backoff, maxBackoffMillis);
+    }
+}
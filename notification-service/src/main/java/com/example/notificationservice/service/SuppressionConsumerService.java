@@ -0,0 +1,61 @@
+package com.example.notificationservice.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import com.example.notificationservice.suppression.SuppressionList;
+
+import java.util.List;
+
+/**
+ * Сервис для получения изменений списка подавления из Kafka.
+ * 
+ * Ключ записи - адрес, значение - причина (bounce, unsubscribe, deleted),
+ * пустое значение или tombstone удаляет адрес из списка. Топик рассчитан
+ * на cleanup.policy=compact: каждый экземпляр сервиса читает его с начала
+ * в своей группе (см. SuppressionConfig), поэтому после перезапуска список
+ * восстанавливается полностью.
+ * Включается настройками notification.suppression.enabled=true и
+ * notification.suppression.kafka.enabled=true.
+ */
+@Service
+@ConditionalOnExpression("${notification.suppression.enabled:false} and ${notification.suppression.kafka.enabled:false}")
+public class SuppressionConsumerService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SuppressionConsumerService.class);
+    
+    private final SuppressionList suppressionList;
+    
+    /**
+     * Конструктор с внедрением зависимостей.
+     * 
+     * @param suppressionList - список подавления
+     */
+    public SuppressionConsumerService(SuppressionList suppressionList) {
+        this.suppressionList = suppressionList;
+    }
+    
+    /**
+     * Обработчик пакета изменений списка подавления.
+     * 
+     * @param records - записи одного poll()
+     */
+    @KafkaListener(topics = "${notification.suppression.kafka.topic:email-suppressions}",
+                   containerFactory = "suppressionKafkaListenerContainerFactory")
+    public void handleUpdates(List<ConsumerRecord<String, String>> records) {
+        int applied = 0;
+        for (ConsumerRecord<String, String> record : records) {
+            if (record.key() == null || record.key().trim().isEmpty()) {
+                logger.warn("Пропущена запись списка подавления без адреса: {}-{}@{}",
+                           record.topic(), record.partition(), record.offset());
+                continue;
+            }
+            suppressionList.apply(record.key(), record.value());
+            applied++;
+        }
+        logger.debug("Применено изменений списка подавления из Kafka: {}", applied);
+    }
+}
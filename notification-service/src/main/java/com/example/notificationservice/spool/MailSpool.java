@@ -0,0 +1,532 @@
+package com.example.notificationservice.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Надежная локальная очередь (spool) писем, ожидающих отправки.
+ * 
+ * Хранит сообщения в журнале только для добавления, разбитом на сегменты
+ * фиксированного размера, которые отображаются в память (memory-mapped).
+ * Формат сегмента: заголовок MAGIC (4 байта) + VERSION (4 байта), затем записи
+ * [длина (int)][CRC32 (int)][статус (byte)][данные]. Нулевая длина означает конец
+ * записанной части сегмента.
+ * 
+ * - append/appendAll возвращают управление только после fsync сегмента;
+ * - доставленные записи помечаются статусом на месте, без перезаписи журнала;
+ * - когда сегмент заполнен, создается новый (rolling);
+ * - сегменты, в которых не осталось ожидающих записей, удаляются (compaction);
+ * - при открытии все сегменты проверяются по CRC, оборванная при сбое
+ *   последняя запись отбрасывается, ожидающие записи снова выдаются на отправку.
+ */
+public class MailSpool implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MailSpool.class);
+    
+    private static final int MAGIC = 0x4D53504C; // "MSPL"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 9;
+    
+    private static final byte STATUS_PENDING = 0;
+    private static final byte STATUS_DELIVERED = 1;
+    private static final byte STATUS_DISCARDED = 2;
+    
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    
+    private final Path directory;
+    private final int segmentSize;
+    
+    // Сегменты по возрастанию номера; последний - активный для записи
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    
+    // Позиция чтения для отправителя
+    private long readSegmentId;
+    private int readPosition = SEGMENT_HEADER_SIZE;
+    
+    private final Object appendSignal = new Object();
+    
+    /**
+     * Открывает spool в каталоге, восстанавливая ранее записанные сегменты.
+     * 
+     * @param directory - каталог сегментов
+     * @param segmentSize - размер сегмента в байтах
+     * @throws IOException при ошибке доступа к файлам
+     */
+    public MailSpool(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Размер сегмента должен быть не меньше 1 КБ");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        recover();
+    }
+    
+    /**
+     * Добавляет сообщение в spool и дожидается его записи на диск.
+     * 
+     * @param message - сообщение для отправки
+     * @throws IOException если записать сообщение не удалось
+     */
+    public void append(SimpleMailMessage message) throws IOException {
+        appendAll(Collections.singletonList(message));
+    }
+    
+    /**
+     * Добавляет пакет сообщений с одним fsync на весь пакет.
+     * 
+     * @param messages - сообщения для отправки
+     * @throws IOException если записать сообщения не удалось
+     */
+    public void appendAll(List<SimpleMailMessage> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<byte[]> payloads = new ArrayList<>(messages.size());
+        for (SimpleMailMessage message : messages) {
+            byte[] payload = encode(message);
+            if (payload.length + RECORD_HEADER_SIZE > segmentSize - SEGMENT_HEADER_SIZE) {
+                throw new IOException("Сообщение размером " + payload.length + " байт не помещается в сегмент");
+            }
+            payloads.add(payload);
+        }
+        
+        synchronized (this) {
+            ensureOpen();
+            for (byte[] payload : payloads) {
+                if (!active.hasRoom(payload.length)) {
+                    // Заполненный сегмент сбрасывается на диск перед переходом к новому
+                    active.force();
+                    active = createSegment(active.id + 1);
+                }
+                active.append(payload);
+            }
+            active.force();
+        }
+        
+        synchronized (appendSignal) {
+            appendSignal.notifyAll();
+        }
+    }
+    
+    /**
+     * Читает следующие ожидающие записи после текущей позиции чтения.
+     * 
+     * Позиция чтения сдвигается за возвращенные записи: отправитель сам отвечает
+     * за их повтор и пометку через markDelivered/markDiscarded. После перезапуска
+     * непомеченные записи будут выданы снова.
+     * 
+     * @param maxEntries - максимальное количество записей
+     * @return записи в порядке добавления
+     */
+    public synchronized List<SpoolEntry> readPending(int maxEntries) {
+        List<SpoolEntry> result = new ArrayList<>();
+        while (result.size() < maxEntries) {
+            Segment segment = segments.get(readSegmentId);
+            if (segment == null) {
+                Map.Entry<Long, Segment> next = segments.higherEntry(readSegmentId);
+                if (next == null) {
+                    break;
+                }
+                readSegmentId = next.getKey();
+                readPosition = SEGMENT_HEADER_SIZE;
+                continue;
+            }
+            if (readPosition >= segment.writePosition) {
+                Map.Entry<Long, Segment> next = segments.higherEntry(readSegmentId);
+                if (next == null || segment == active) {
+                    break;
+                }
+                readSegmentId = next.getKey();
+                readPosition = SEGMENT_HEADER_SIZE;
+                continue;
+            }
+            int length = segment.buffer.getInt(readPosition);
+            byte status = segment.buffer.get(readPosition + 8);
+            if (status == STATUS_PENDING) {
+                byte[] payload = new byte[length];
+                ByteBuffer view = segment.buffer.duplicate();
+                view.position(readPosition + RECORD_HEADER_SIZE);
+                view.get(payload);
+                result.add(new SpoolEntry(segment.id, readPosition, decode(payload)));
+            }
+            readPosition += RECORD_HEADER_SIZE + length;
+        }
+        return result;
+    }
+    
+    /**
+     * Ожидает добавления новых записей не дольше таймаута.
+     */
+    public void awaitAppend(long timeoutMillis) throws InterruptedException {
+        synchronized (appendSignal) {
+            appendSignal.wait(timeoutMillis);
+        }
+    }
+    
+    /**
+     * Помечает запись как доставленную.
+     */
+    public void markDelivered(SpoolEntry entry) {
+        mark(entry, STATUS_DELIVERED);
+    }
+    
+    /**
+     * Помечает запись как отброшенную после исчерпания попыток отправки.
+     */
+    public void markDiscarded(SpoolEntry entry) {
+        mark(entry, STATUS_DISCARDED);
+    }
+    
+    /**
+     * Сбрасывает на диск пометки о доставке. Без этого после сбоя часть
+     * доставленных писем может быть отправлена повторно.
+     */
+    public synchronized void flush() {
+        for (Segment segment : segments.values()) {
+            if (segment.dirty) {
+                segment.force();
+            }
+        }
+    }
+    
+    /**
+     * Удаляет сегменты, в которых не осталось ожидающих записей (кроме активного).
+     * 
+     * @return количество удаленных сегментов
+     */
+    public synchronized int compact() {
+        int removed = 0;
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment != active && segment.pending.get() == 0 && segment.id < readSegmentId) {
+                iterator.remove();
+                segment.delete();
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * @return количество записей, ожидающих отправки
+     */
+    public synchronized long getPendingCount() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.pending.get();
+        }
+        return total;
+    }
+    
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+    
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            segment.force();
+            segment.close();
+        }
+        segments.clear();
+        active = null;
+    }
+    
+    private void mark(SpoolEntry entry, byte status) {
+        Segment segment;
+        synchronized (this) {
+            segment = segments.get(entry.getSegmentId());
+        }
+        if (segment == null) {
+            return;
+        }
+        int statusIndex = entry.getPosition() + 8;
+        synchronized (segment) {
+            if (segment.buffer.get(statusIndex) == STATUS_PENDING) {
+                segment.buffer.put(statusIndex, status);
+                segment.pending.decrementAndGet();
+                segment.dirty = true;
+            }
+        }
+    }
+    
+    private void ensureOpen() throws IOException {
+        if (active == null) {
+            throw new IOException("Spool закрыт");
+        }
+    }
+    
+    /**
+     * Открывает существующие сегменты и восстанавливает их состояние.
+     */
+    private void recover() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            // Сбой между созданием последнего сегмента и записью его заголовка
+            // оставляет файл из нулей: записей в нем нет, сегмент создается заново
+            if (file.getKey().equals(files.lastKey()) && hasBlankHeader(file.getValue())) {
+                logger.warn("Сегмент {} без заголовка создается заново", file.getValue().getFileName());
+                createSegment(file.getKey());
+                continue;
+            }
+            segments.put(file.getKey(), openSegment(file.getKey(), file.getValue()));
+        }
+        
+        if (segments.isEmpty()) {
+            active = createSegment(0);
+        } else {
+            // Последний сегмент продолжает принимать записи, полностью
+            // обработанные сегменты перед ним удаляются сразу
+            active = segments.lastEntry().getValue();
+            Iterator<Segment> iterator = segments.values().iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next();
+                if (segment != active && segment.pending.get() == 0) {
+                    iterator.remove();
+                    segment.delete();
+                }
+            }
+        }
+        readSegmentId = segments.firstKey();
+        readPosition = SEGMENT_HEADER_SIZE;
+        
+        long pending = getPendingCount();
+        if (pending > 0) {
+            logger.info("Восстановлено {} неотправленных писем в {} сегментах spool", pending, segments.size());
+        }
+    }
+    
+    private Segment createSegment(long id) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, file, segmentSize);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segment.writePosition = SEGMENT_HEADER_SIZE;
+        segment.force();
+        segments.put(id, segment);
+        return segment;
+    }
+    
+    /**
+     * @return true, если заголовок сегмента не записан (нули или файл короче заголовка)
+     */
+    private static boolean hasBlankHeader(Path file) throws IOException {
+        byte[] header = new byte[SEGMENT_HEADER_SIZE];
+        int length;
+        try (InputStream in = Files.newInputStream(file)) {
+            length = in.readNBytes(header, 0, header.length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (header[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private Segment openSegment(long id, Path file) throws IOException {
+        Segment segment = new Segment(id, file, (int) Files.size(file));
+        MappedByteBuffer buffer = segment.buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            segment.close();
+            throw new IOException("Файл " + file + " не является сегментом spool");
+        }
+        
+        int position = SEGMENT_HEADER_SIZE;
+        int pending = 0;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(position + RECORD_HEADER_SIZE).limit(position + RECORD_HEADER_SIZE + length);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            if (buffer.get(position + 8) == STATUS_PENDING) {
+                pending++;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        
+        // Затирание оборванной записи, чтобы новые записи не смешались с мусором
+        if (position + 4 <= buffer.capacity() && buffer.getInt(position) != 0) {
+            logger.warn("В сегменте {} отброшена поврежденная запись по смещению {}", file.getFileName(), position);
+            for (int i = position; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+        
+        segment.writePosition = position;
+        segment.pending.set(pending);
+        return segment;
+    }
+    
+    /**
+     * Кодирует сообщение в компактный бинарный вид.
+     */
+    static byte[] encode(SimpleMailMessage message) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, message.getFrom());
+            String[] to = message.getTo();
+            out.writeInt(to == null ? 0 : to.length);
+            if (to != null) {
+                for (String address : to) {
+                    writeString(out, address);
+                }
+            }
+            writeString(out, message.getSubject());
+            writeString(out, message.getText());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка кодирования сообщения", e);
+        }
+    }
+    
+    static SimpleMailMessage decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(readString(in));
+        String[] to = new String[in.getInt()];
+        for (int i = 0; i < to.length; i++) {
+            to[i] = readString(in);
+        }
+        message.setTo(to);
+        message.setSubject(readString(in));
+        message.setText(readString(in));
+        return message;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+    
+    /**
+     * Один файл журнала, отображенный в память.
+     */
+    private static final class Segment {
+        
+        private final long id;
+        private final Path file;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile int writePosition;
+        private volatile boolean dirty;
+        
+        Segment(long id, Path file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.raf = new RandomAccessFile(file.toFile(), "rw");
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        
+        boolean hasRoom(int payloadLength) {
+            // Оставляем место под нулевой маркер конца записей
+            return writePosition + RECORD_HEADER_SIZE + payloadLength + 4 <= buffer.capacity();
+        }
+        
+        void append(byte[] payload) {
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            int position = writePosition;
+            // Длина пишется последней: до этого запись не видна при восстановлении
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.put(position + 8, STATUS_PENDING);
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + RECORD_HEADER_SIZE);
+            view.put(payload);
+            buffer.putInt(position, payload.length);
+            pending.incrementAndGet();
+            writePosition = position + RECORD_HEADER_SIZE + payload.length;
+        }
+        
+        void force() {
+            buffer.force();
+            dirty = false;
+        }
+        
+        void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                logger.debug("Ошибка при закрытии сегмента {}", file, e);
+            }
+        }
+        
+        void delete() {
+            close();
+            try {
+                // Отображение освобождается сборщиком мусора; на Linux файл удаляется сразу
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Не удалось удалить сегмент spool {}", file, e);
+            }
+        }
+    }
+}
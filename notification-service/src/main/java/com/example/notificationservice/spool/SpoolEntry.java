@@ -0,0 +1,55 @@
+package com.example.notificationservice.spool;
+
+import org.springframework.mail.SimpleMailMessage;
+
+/**
+ * Запись spool: сообщение и его положение в журнале.
+ */
+public final class SpoolEntry {
+    
+    private final long segmentId;
+    private final int position;
+    private final SimpleMailMessage message;
+    private int attempts;
+    private long retryAt;
+    
+    SpoolEntry(long segmentId, int position, SimpleMailMessage message) {
+        this.segmentId = segmentId;
+        this.position = position;
+        this.message = message;
+    }
+    
+    public long getSegmentId() {
+        return segmentId;
+    }
+    
+    public int getPosition() {
+        return position;
+    }
+    
+    public SimpleMailMessage getMessage() {
+        return message;
+    }
+    
+    /**
+     * @return количество неудачных попыток отправки в текущем запуске
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public int incrementAttempts() {
+        return ++attempts;
+    }
+    
+    /**
+     * @return момент (System.currentTimeMillis), раньше которого письмо не повторяется
+     */
+    public long getRetryAt() {
+        return retryAt;
+    }
+    
+    public void setRetryAt(long retryAt) {
+        this.retryAt = retryAt;
+    }
+}
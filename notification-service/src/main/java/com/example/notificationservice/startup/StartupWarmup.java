@@ -0,0 +1,146 @@
+package com.example.notificationservice.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMailMessage;
+import com.example.notificationservice.dto.Operation;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.mail.PooledJavaMailSender;
+import com.example.notificationservice.serde.UserEventBinarySerializer;
+import com.example.notificationservice.serde.UserEventDeserializer;
+import com.example.notificationservice.serde.ValueFormat;
+import com.example.notificationservice.service.EmailService;
+
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прогрев приложения перед запуском Kafka listener'ов.
+ * 
+ * Выполняется по ApplicationReadyEvent, то есть до того, как приложение
+ * сообщает о готовности принимать трафик (ReadinessState). Прогрев создает
+ * топики повторов, компилирует шаблоны писем, проходит путь десериализации
+ * и сборки MIME-сообщения и открывает SMTP-соединения пула, после чего
+ * запускает контейнеры listener'ов: первое событие из Kafka не платит
+ * за загрузку классов и подключения. Ошибка шага прогрева только логируется -
+ * listener'ы запускаются в любом случае.
+ * 
+ * С exitAfterWarmup приложение завершается после прогрева, не запуская
+ * listener'ы: это обучающий запуск для архива AppCDS (профиль Maven cds).
+ */
+public class StartupWarmup implements ApplicationListener<ApplicationReadyEvent> {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+    
+    private static final String WARMUP_EMAIL = "warmup@example.com";
+    private static final String WARMUP_TOPIC = "user-events";
+    
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final int smtpConnections;
+    private final boolean exitAfterWarmup;
+    
+    /**
+     * @param emailService - сборка писем по шаблонам
+     * @param mailSender - отправитель писем; соединения открываются только у PooledJavaMailSender
+     * @param listenerRegistry - контейнеры @KafkaListener, созданные без автозапуска
+     * @param kafkaAdmin - администратор Kafka без создания топиков при старте
+     * @param smtpConnections - сколько SMTP-соединений открыть заранее, 0 - ни одного
+     * @param exitAfterWarmup - завершить приложение после прогрева
+     */
+    public StartupWarmup(EmailService emailService, JavaMailSender mailSender,
+                         KafkaListenerEndpointRegistry listenerRegistry, KafkaAdmin kafkaAdmin,
+                         int smtpConnections, boolean exitAfterWarmup) {
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.listenerRegistry = listenerRegistry;
+        this.kafkaAdmin = kafkaAdmin;
+        this.smtpConnections = smtpConnections;
+        this.exitAfterWarmup = exitAfterWarmup;
+    }
+    
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long start = System.nanoTime();
+        warmUp();
+        logger.info("Прогрев завершен за {} мс", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        
+        if (exitAfterWarmup) {
+            logger.info("Завершение после прогрева (notification.startup.exit-after-warmup)");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+            return;
+        }
+        startListeners();
+    }
+    
+    /**
+     * Выполняет шаги прогрева; каждый шаг независим от успеха предыдущих.
+     */
+    void warmUp() {
+        try {
+            if (!kafkaAdmin.initialize()) {
+                logger.warn("Топики Kafka не созданы при прогреве, listener'ы запускаются без них");
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Ошибка создания топиков Kafka при прогреве: {}", e.getMessage());
+        }
+        
+        SimpleMailMessage message = null;
+        try {
+            // Сериализованное событие в обоих форматах проходит путь listener'а
+            UserEventDeserializer deserializer = new UserEventDeserializer(ValueFormat.AUTO);
+            byte[] binary = new UserEventBinarySerializer().serialize(WARMUP_TOPIC,
+                new UserEvent(Operation.CREATE.name(), WARMUP_EMAIL));
+            byte[] json = ("{\"operation\":\"DELETE\",\"email\":\"" + WARMUP_EMAIL + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+            
+            message = emailService.createUserEventMessage(deserializer.deserialize(WARMUP_TOPIC, binary));
+            emailService.createUserEventMessage(deserializer.deserialize(WARMUP_TOPIC, json));
+        } catch (RuntimeException e) {
+            logger.warn("Ошибка прогрева шаблонов и десериализации: {}", e.getMessage());
+        }
+        
+        if (message != null) {
+            try {
+                // Те же кодировки и заголовки, что и при отправке, без подключения к SMTP
+                MimeMessage mimeMessage = mailSender.createMimeMessage();
+                message.copyTo(new MimeMailMessage(mimeMessage));
+                mimeMessage.saveChanges();
+            } catch (Exception e) {
+                logger.warn("Ошибка прогрева сборки MIME-сообщения: {}", e.getMessage());
+            }
+        }
+        
+        if (smtpConnections > 0 && mailSender instanceof PooledJavaMailSender) {
+            try {
+                int opened = ((PooledJavaMailSender) mailSender).getPool().prestart(smtpConnections);
+                logger.info("Открыто SMTP-соединений при прогреве: {}", opened);
+            } catch (Exception e) {
+                logger.warn("SMTP-соединения не открыты при прогреве: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Запускает контейнеры listener'ов, созданные без автозапуска.
+     */
+    void startListeners() {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (!container.isRunning()) {
+                container.start();
+            }
+        }
+        logger.info("Запущены Kafka listener'ы: {}", listenerRegistry.getListenerContainerIds());
+    }
+}
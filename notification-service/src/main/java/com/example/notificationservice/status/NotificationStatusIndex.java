@@ -0,0 +1,191 @@
+package com.example.notificationservice.status;
+
+import org.springframework.lang.Nullable;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.NotificationStatus.State;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Компактный индекс статусов уведомлений в памяти.
+ * 
+ * Ячейки кольца занимаются по очереди, статус уведомления хранится
+ * в ячейке id & (capacity - 1): идентификатор, состояние вместе со временем
+ * изменения в одном long и описание ошибки (только у FAILED и SUPPRESSED). Объем памяти
+ * фиксирован - около 20 байт на ячейку без учета ошибок, объектов
+ * на уведомление не создается, чтение и запись без блокировок.
+ * 
+ * Старшие биты идентификатора случайны: по своему идентификатору нельзя
+ * подобрать чужие через GET /api/notifications/{id}, а идентификаторы
+ * после перезапуска не совпадают с выданными до него. Часть этих битов
+ * хранится в одном long с состоянием, поэтому изменение состояния
+ * и проверка владельца ячейки выполняются одним CAS.
+ * 
+ * Запись вытесняется, когда после окончательного состояния прошло
+ * ttlMillis или когда ее ячейку заняло уведомление на capacity позже.
+ * Поэтому capacity должна покрывать число уведомлений за ttlMillis.
+ */
+public class NotificationStatusIndex {
+    
+    // Упакованное состояние: State.ordinal(), над ним метка владельца ячейки (биты
+    // идентификатора над номером ячейки), старшие биты - время изменения от создания индекса
+    private static final int STATE_BITS = 3;
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+    private static final int TAG_BITS = 22;
+    private static final long TAG_MASK = (1L << TAG_BITS) - 1;
+    private static final int TIME_SHIFT = STATE_BITS + TAG_BITS;
+    private static final State[] STATES = State.values();
+    // Значение ячейки, которую сейчас занимает новое уведомление
+    private static final long NO_ID = -1;
+    
+    private final int mask;
+    private final int slotBits;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final long baseMillis;
+    private final AtomicLong sequence = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLongArray ids;
+    private final AtomicLongArray states;
+    private final AtomicReferenceArray<String> errors;
+    
+    /**
+     * @param capacity - число хранимых статусов, округляется вверх до степени двойки
+     * @param ttlMillis - сколько хранить окончательный статус
+     */
+    public NotificationStatusIndex(int capacity, long ttlMillis) {
+        this(capacity, ttlMillis, System::currentTimeMillis);
+    }
+    
+    NotificationStatusIndex(int capacity, long ttlMillis, LongSupplier clock) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity должна быть от 1 до 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slotBits = Integer.numberOfTrailingZeros(size);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.baseMillis = clock.getAsLong();
+        this.ids = new AtomicLongArray(size);
+        this.states = new AtomicLongArray(size);
+        this.errors = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.set(i, NO_ID);
+        }
+    }
+    
+    /**
+     * Регистрирует новое уведомление в состоянии QUEUED.
+     * 
+     * @return идентификатор уведомления
+     */
+    public long register() {
+        int slot = (int) (sequence.getAndIncrement() & mask);
+        // Метка отличается от метки прежнего владельца ячейки, чтобы его запоздавший CAS не прошел
+        long previousTag = unpackTag(states.get(slot));
+        long id;
+        do {
+            id = random.nextLong() & Long.MAX_VALUE & ~(long) mask | slot;
+        } while (tagOf(id) == previousTag);
+        // Читатель, увидевший id, видит и записанное до него состояние
+        ids.set(slot, NO_ID);
+        errors.set(slot, null);
+        states.set(slot, pack(State.QUEUED, clock.getAsLong(), tagOf(id)));
+        ids.set(slot, id);
+        return id;
+    }
+    
+    /**
+     * Меняет состояние уведомления.
+     * 
+     * Окончательное состояние не меняется; уведомление, вытесненное
+     * из индекса, не обновляется.
+     * 
+     * @param id - идентификатор уведомления
+     * @param state - новое состояние
+     * @param error - описание ошибки для FAILED или причина для SUPPRESSED
+     */
+    public void update(long id, State state, @Nullable String error) {
+        int slot = (int) (id & mask);
+        if (id < 0 || ids.get(slot) != id) {
+            return;
+        }
+        if (error != null) {
+            errors.set(slot, error);
+        }
+        long tag = tagOf(id);
+        long packed = pack(state, clock.getAsLong(), tag);
+        long current;
+        do {
+            current = states.get(slot);
+            if (unpackTag(current) != tag) {
+                // Ячейку заняло новое уведомление: ошибка относится не к нему
+                if (error != null) {
+                    errors.compareAndSet(slot, error, null);
+                }
+                return;
+            }
+            if (unpackState(current).isTerminal()) {
+                return;
+            }
+        } while (!states.compareAndSet(slot, current, packed));
+    }
+    
+    /**
+     * @param id - идентификатор уведомления
+     * @return статус или null, если уведомление неизвестно или вытеснено
+     */
+    @Nullable
+    public NotificationStatus get(long id) {
+        int slot = (int) (id & mask);
+        if (id < 0 || ids.get(slot) != id) {
+            return null;
+        }
+        long packed = states.get(slot);
+        String error = errors.get(slot);
+        if (ids.get(slot) != id || unpackTag(packed) != tagOf(id)) {
+            return null;
+        }
+        State state = unpackState(packed);
+        long updatedAt = baseMillis + (packed >>> TIME_SHIFT);
+        if (state.isTerminal() && clock.getAsLong() - updatedAt > ttlMillis) {
+            return null;
+        }
+        return new NotificationStatus(Long.toString(id), state, updatedAt, hasError(state) ? error : null);
+    }
+    
+    /**
+     * @return число ячеек индекса
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+    
+    private static boolean hasError(State state) {
+        return state == State.FAILED || state == State.SUPPRESSED;
+    }
+    
+    private long tagOf(long id) {
+        return id >>> slotBits & TAG_MASK;
+    }
+    
+    private long pack(State state, long timeMillis, long tag) {
+        return Math.max(0, timeMillis - baseMillis) << TIME_SHIFT | tag << STATE_BITS | state.ordinal();
+    }
+    
+    private static long unpackTag(long packed) {
+        return packed >>> STATE_BITS & TAG_MASK;
+    }
+    
+    private static State unpackState(long packed) {
+        return STATES[(int) (packed & STATE_MASK)];
+    }
+}
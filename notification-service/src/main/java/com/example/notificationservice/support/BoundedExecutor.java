@@ -0,0 +1,217 @@
+package com.example.notificationservice.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Исполнитель с ограниченным числом задач "в полете".
+ * 
+ * Лимит (потоки + очередь) контролируется семафором, поэтому работает одинаково
+ * для пула платформенных потоков и для виртуальных потоков (JDK 21+), у которых
+ * нет собственной очереди. Когда лимит исчерпан, submit отклоняет задачу, а
+ * submit с таймаутом ждет освобождения места - так очередь писем не может
+ * разрастись и заполнить heap.
+ * 
+ * С виртуальными потоками каждая принятая задача сразу получает поток,
+ * поэтому число одновременно выполняемых задач ограничивает второй семафор
+ * на threads разрешений: задачи сверх него ждут в своих виртуальных потоках,
+ * как в очереди пула.
+ */
+public class BoundedExecutor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BoundedExecutor.class);
+    
+    /**
+     * Тип потоков исполнителя.
+     */
+    public enum ThreadType {
+        PLATFORM,
+        // Доступно при запуске на JDK 21+, иначе используется PLATFORM
+        VIRTUAL
+    }
+    
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    // Одновременно выполняемые задачи в виртуальных потоках; null - их ограничивает пул
+    private final Semaphore running;
+    private final int capacity;
+    private final List<Runnable> completionListeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * @param name - префикс имен потоков
+     * @param threadType - платформенные или виртуальные потоки
+     * @param threads - максимум одновременно выполняемых задач (для PLATFORM - размер пула)
+     * @param queueCapacity - максимум задач, ожидающих начала выполнения
+     */
+    public BoundedExecutor(String name, ThreadType threadType, int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("threads должно быть положительным, queueCapacity - неотрицательным");
+        }
+        this.capacity = threads + queueCapacity;
+        this.permits = new Semaphore(capacity);
+        ExecutorService virtual = threadType == ThreadType.VIRTUAL ? newVirtualThreadExecutor() : null;
+        if (virtual != null) {
+            // Виртуальные потоки дешевы, ограничение одновременных задач дает семафор
+            this.executor = virtual;
+            this.running = new Semaphore(threads);
+        } else {
+            this.running = null;
+            // Очередь пула не ограничена сама по себе: число задач в ней ограничено семафором
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreadFactory(name));
+        }
+    }
+    
+    /**
+     * Выполняет задачу асинхронно, если есть свободное место.
+     * 
+     * @param task - задача
+     * @return future с результатом задачи
+     * @throws RejectedExecutionException если исполнитель заполнен
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Исполнитель заполнен: " + capacity + " задач в работе");
+        }
+        return execute(task);
+    }
+    
+    /**
+     * Выполняет задачу асинхронно, ожидая освобождения места не дольше таймаута.
+     * 
+     * @param task - задача
+     * @param timeoutMillis - максимальное время ожидания места
+     * @return future с результатом задачи
+     * @throws RejectedExecutionException если место не освободилось или поток прерван
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task, long timeoutMillis) {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Исполнитель заполнен дольше " + timeoutMillis + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Прервано ожидание места в исполнителе", e);
+        }
+        return execute(task);
+    }
+    
+    /**
+     * Регистрирует обработчик, вызываемый после завершения каждой задачи.
+     */
+    public void addCompletionListener(Runnable listener) {
+        completionListeners.add(listener);
+    }
+    
+    /**
+     * @return количество принятых и еще не завершенных задач
+     */
+    public int getInFlight() {
+        return capacity - permits.availablePermits();
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * @return доля занятой емкости от 0.0 до 1.0
+     */
+    public double getUtilization() {
+        return (double) getInFlight() / capacity;
+    }
+    
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Исполнитель не завершил {} задач за отведенное время", getInFlight());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+    
+    private <T> CompletableFuture<T> execute(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T result = null;
+                Throwable failure = null;
+                try {
+                    if (running != null) {
+                        running.acquireUninterruptibly();
+                    }
+                    try {
+                        result = task.get();
+                    } finally {
+                        if (running != null) {
+                            running.release();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                // Место освобождается до завершения future: продолжение, которое
+                // сразу ставит следующую задачу, не получит отказ
+                permits.release();
+                try {
+                    if (failure != null) {
+                        future.completeExceptionally(failure);
+                    } else {
+                        future.complete(result);
+                    }
+                } finally {
+                    for (Runnable listener : completionListeners) {
+                        listener.run();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Исполнитель остановлен
+            permits.release();
+            throw e;
+        }
+        return future;
+    }
+    
+    private static ThreadFactory namedThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * Создает исполнитель на виртуальных потоках через reflection, чтобы код
+     * собирался под Java 11 и использовал виртуальные потоки на JDK 21+.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Виртуальные потоки недоступны в JDK {}, используются платформенные потоки",
+                       System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.notificationservice.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пул обработчиков, сохраняющий порядок задач с одинаковым ключом.
+ * 
+ * Каждая задача попадает в "полосу" по хэшу ключа; полоса обслуживается одним
+ * потоком, поэтому задачи одного ключа выполняются строго последовательно,
+ * а задачи разных ключей - параллельно. Очередь каждой полосы ограничена:
+ * при ее заполнении вызывающий поток (поток Kafka consumer'а) блокируется,
+ * что естественным образом замедляет чтение из топика.
+ */
+public class KeyOrderedExecutor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(KeyOrderedExecutor.class);
+    
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    
+    private final Lane[] lanes;
+    private volatile boolean running = true;
+    
+    /**
+     * @param name - префикс имен потоков
+     * @param laneCount - количество полос (потоков)
+     * @param queueCapacity - максимальное число ожидающих задач в одной полосе
+     */
+    public KeyOrderedExecutor(String name, int laneCount, int queueCapacity) {
+        if (laneCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("laneCount и queueCapacity должны быть положительными");
+        }
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(name + "-" + i, queueCapacity);
+            lanes[i].start();
+        }
+    }
+    
+    /**
+     * Ставит задачу в очередь полосы, соответствующей ключу.
+     * Блокируется, пока в очереди полосы нет места.
+     * 
+     * @param key - ключ упорядочивания (null допускается и попадает в полосу 0)
+     * @param task - задача
+     * @throws RejectedExecutionException если пул остановлен или поток прерван
+     */
+    public void execute(Object key, Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("KeyOrderedExecutor остановлен");
+        }
+        try {
+            laneFor(key).queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Прервано ожидание места в очереди", e);
+        }
+    }
+    
+    /**
+     * @return суммарное число задач, ожидающих выполнения
+     */
+    public int getQueuedTaskCount() {
+        int total = 0;
+        for (Lane lane : lanes) {
+            total += lane.queue.size();
+        }
+        return total;
+    }
+    
+    public int getLaneCount() {
+        return lanes.length;
+    }
+    
+    /**
+     * Прекращает прием задач и ждет выполнения уже поставленных.
+     * 
+     * @param timeoutMillis - максимальное время ожидания
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Lane lane : lanes) {
+            try {
+                lane.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (lane.isAlive() || !lane.queue.isEmpty()) {
+                logger.warn("Полоса {} не завершила {} задач за отведенное время", lane.getName(), lane.queue.size());
+            }
+        }
+    }
+    
+    public void shutdown() {
+        shutdown(TimeUnit.SECONDS.toMillis(30));
+    }
+    
+    private Lane laneFor(Object key) {
+        return lanes[laneIndex(key)];
+    }
+    
+    // Номер полосы для ключа (пакетная видимость для тестов)
+    int laneIndex(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        // Перемешивание битов, чтобы близкие хэши расходились по разным полосам
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % lanes.length;
+    }
+    
+    /**
+     * Поток полосы с собственной ограниченной очередью.
+     */
+    private final class Lane extends Thread {
+        
+        private final BlockingQueue<Runnable> queue;
+        
+        Lane(String name, int capacity) {
+            super(name);
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                Runnable task;
+                try {
+                    // Ожидание с таймаутом, чтобы своевременно заметить остановку пула
+                    task = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (task == null) {
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    logger.error("Ошибка при выполнении задачи в полосе {}", getName(), e);
+                }
+            }
+        }
+    }
+}
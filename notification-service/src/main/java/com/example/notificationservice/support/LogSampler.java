@@ -0,0 +1,52 @@
+package com.example.notificationservice.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Прореживание однотипных сообщений лога.
+ * 
+ * Вместо строки лога на каждое успешное событие обработчик вызывает
+ * sample(), и не чаще одного раза за интервал получает число событий с
+ * прошлой записи - его и пишет одной строкой. Между записями sample()
+ * стоит одного инкремента LongAdder и чтения System.nanoTime().
+ */
+public class LogSampler {
+    
+    private final long intervalNanos;
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong nextAt;
+    
+    /**
+     * @param interval - минимальный интервал между записями
+     * @param unit - единица измерения интервала
+     */
+    public LogSampler(long interval, TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+        this.nextAt = new AtomicLong(System.nanoTime() + intervalNanos);
+    }
+    
+    /**
+     * Учитывает событие.
+     * 
+     * @return число событий с прошлой записи (включая текущее), если пора
+     *         писать в лог; иначе -1
+     */
+    public long sample() {
+        count.increment();
+        long now = System.nanoTime();
+        long next = nextAt.get();
+        if (now - next < 0 || !nextAt.compareAndSet(next, now + intervalNanos)) {
+            return -1;
+        }
+        return count.sumThenReset();
+    }
+    
+    /**
+     * @return интервал между записями в секундах
+     */
+    public long getIntervalSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(intervalNanos);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.notificationservice.support;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Подтверждение записей партиции по порядку смещений без паузы consumer'а.
+ * 
+ * Запись, обработка которой завершается в другом потоке и позже (окно
+ * схлопывания, сводка), регистрируется в момент получения. Подтверждение
+ * контейнеру передается только для непрерывного префикса завершенных
+ * записей партиции: коммитится смещение ниже самой старой незавершенной
+ * записи, поэтому после перезапуска или ребаланса она будет прочитана снова.
+ * 
+ * В отличие от режима asyncAcks контейнера (spring-kafka 2.8), который
+ * приостанавливает consumer до подтверждения всех записей предыдущего
+ * poll(), чтение не останавливается: записи, ожидающие секунды и минуты,
+ * держат только коммит смещения, а не выборку новых записей.
+ * 
+ * Контейнер коммитит наибольшее из подтвержденных смещений партиции,
+ * поэтому достаточно подтвердить последнюю запись префикса. Если запись
+ * пришла со смещением не больше уже зарегистрированного (повторное чтение
+ * после seek или ребаланса), незавершенные записи начиная с него
+ * забываются: они будут зарегистрированы заново, а их старые
+ * подтверждения ничего не делают.
+ */
+public class OrderedAcknowledger {
+    
+    private final Map<TopicPartition, Partition> partitions = new ConcurrentHashMap<>();
+    
+    /**
+     * Регистрирует полученную запись.
+     * 
+     * @param record - запись Kafka
+     * @param acknowledgment - подтверждение записи контейнеру
+     * @return завершение обработки записи; повторный вызов ничего не делает
+     */
+    public Runnable track(ConsumerRecord<?, ?> record, Acknowledgment acknowledgment) {
+        Partition partition = partitions.computeIfAbsent(
+            new TopicPartition(record.topic(), record.partition()), tp -> new Partition());
+        Entry entry = partition.add(record.offset(), acknowledgment);
+        return () -> partition.complete(entry);
+    }
+    
+    /**
+     * @return количество зарегистрированных и еще не подтвержденных записей
+     */
+    public int getPendingCount() {
+        int total = 0;
+        for (Partition partition : partitions.values()) {
+            total += partition.size();
+        }
+        return total;
+    }
+    
+    private static final class Partition {
+        private final TreeMap<Long, Entry> entries = new TreeMap<>();
+        private long lastOffset = -1;
+        
+        synchronized Entry add(long offset, Acknowledgment acknowledgment) {
+            if (offset <= lastOffset) {
+                // Повторное чтение: записи с этого смещения придут снова
+                entries.tailMap(offset, true).clear();
+            }
+            lastOffset = offset;
+            Entry entry = new Entry(offset, acknowledgment);
+            entries.put(offset, entry);
+            return entry;
+        }
+        
+        void complete(Entry entry) {
+            Acknowledgment last = null;
+            synchronized (this) {
+                if (entry.done || entries.get(entry.offset) != entry) {
+                    return;
+                }
+                entry.done = true;
+                while (!entries.isEmpty() && entries.firstEntry().getValue().done) {
+                    last = entries.pollFirstEntry().getValue().acknowledgment;
+                }
+            }
+            if (last != null) {
+                last.acknowledge();
+            }
+        }
+        
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+    
+    private static final class Entry {
+        final long offset;
+        final Acknowledgment acknowledgment;
+        boolean done;
+        
+        Entry(long offset, Acknowledgment acknowledgment) {
+            this.offset = offset;
+            this.acknowledgment = acknowledgment;
+        }
+    }
+}
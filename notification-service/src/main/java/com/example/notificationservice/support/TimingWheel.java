@@ -0,0 +1,168 @@
+package com.example.notificationservice.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Хешированное колесо таймеров с точностью до одного тика.
+ * 
+ * Постановка таймера - O(1): узел кладется в lock-free очередь, откуда поток
+ * колеса переносит его в ячейку по номеру тика. На каждом тике обходится одна
+ * ячейка; таймеры дальше одного оборота колеса ждут нужного числа оборотов.
+ * В отличие от ScheduledExecutorService с задачей на каждый ключ, здесь нет
+ * кучи с O(log n) на вставку и объекта задачи на таймер, поэтому колесо
+ * выдерживает миллионы одновременно ожидающих таймеров.
+ * 
+ * Обработчик истечения вызывается в потоке колеса и не должен блокироваться надолго.
+ * 
+ * @param <T> - тип элемента таймера
+ */
+public class TimingWheel<T> implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+    
+    private final long tickNanos;
+    private final Node<T>[] buckets;
+    private final int mask;
+    private final Queue<Node<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Consumer<T> onExpire;
+    private final Thread worker;
+    private final long startNanos;
+    
+    private volatile boolean running = true;
+    
+    // Номер текущего тика; изменяется только потоком колеса
+    private long tick;
+    
+    /**
+     * @param name - имя потока колеса
+     * @param tickMillis - длительность тика (точность таймеров)
+     * @param wheelSize - количество ячеек (округляется до степени двойки)
+     * @param onExpire - обработчик истекших элементов
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(String name, long tickMillis, int wheelSize, Consumer<T> onExpire) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis и wheelSize должны быть положительными");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1 > 0 ? (wheelSize - 1) << 1 : 1);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = (Node<T>[]) new Node<?>[size];
+        this.mask = size - 1;
+        this.onExpire = onExpire;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+    
+    /**
+     * Ставит таймер для элемента.
+     * 
+     * @param item - элемент, который будет передан обработчику по истечении
+     * @param delayMillis - задержка
+     * @throws RejectedExecutionException если колесо остановлено
+     */
+    public void schedule(T item, long delayMillis) {
+        if (!running) {
+            throw new RejectedExecutionException("TimingWheel остановлено");
+        }
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        pending.incrementAndGet();
+        incoming.add(new Node<>(item, deadline));
+    }
+    
+    /**
+     * @return количество ожидающих таймеров
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+    
+    /**
+     * Останавливает поток колеса; ожидающие таймеры не срабатывают.
+     */
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void run() {
+        while (running) {
+            long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            transferIncoming();
+            expireBucket(buckets[(int) (tick & mask)], (int) (tick & mask));
+            tick++;
+        }
+    }
+    
+    private void transferIncoming() {
+        Node<T> node;
+        while ((node = incoming.poll()) != null) {
+            long deadlineTick = node.deadlineNanos / tickNanos;
+            node.remainingRounds = (deadlineTick - tick) / buckets.length;
+            // Просроченный таймер попадает в текущую ячейку и сработает на этом тике
+            int index = (int) (Math.max(deadlineTick, tick) & mask);
+            node.next = buckets[index];
+            buckets[index] = node;
+        }
+    }
+    
+    private void expireBucket(Node<T> head, int index) {
+        Node<T> kept = null;
+        Node<T> node = head;
+        while (node != null) {
+            Node<T> next = node.next;
+            if (node.remainingRounds <= 0) {
+                pending.decrementAndGet();
+                try {
+                    onExpire.accept(node.item);
+                } catch (RuntimeException e) {
+                    logger.error("Ошибка обработчика таймера", e);
+                }
+            } else {
+                node.remainingRounds--;
+                node.next = kept;
+                kept = node;
+            }
+            node = next;
+        }
+        buckets[index] = kept;
+    }
+    
+    private static final class Node<T> {
+        final T item;
+        final long deadlineNanos;
+        long remainingRounds;
+        Node<T> next;
+        
+        Node(T item, long deadlineNanos) {
+            this.item = item;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.notificationservice.support;
+
+/**
+ * Ограничитель скорости "ведро токенов".
+ * 
+ * Токены пополняются с постоянной скоростью до емкости ведра, каждая
+ * операция забирает один токен. Емкость задает допустимый всплеск после
+ * простоя, скорость - среднюю пропускную способность. Время передается
+ * явно (System.nanoTime()), чтобы вызывающая сторона могла проверить
+ * несколько ведер на один момент времени, а тесты - не зависеть от часов.
+ */
+public class TokenBucket {
+    
+    private final double tokensPerNano;
+    private final double capacity;
+    
+    private double tokens;
+    private long lastRefillNanos;
+    
+    /**
+     * @param ratePerSecond - токенов в секунду; 0 или меньше - без ограничения
+     * @param burst - емкость ведра (не меньше 1)
+     * @param nowNanos - текущее время; ведро создается полным
+     */
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.tokensPerNano = ratePerSecond > 0 ? ratePerSecond / 1_000_000_000d : 0;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+    
+    /**
+     * @param nowNanos - текущее время
+     * @return 0, если токен есть, иначе наносекунды до появления токена
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        return nanosUntilAvailable(nowNanos, 1);
+    }
+    
+    /**
+     * @param nowNanos - текущее время
+     * @param permits - нужное количество токенов
+     * @return 0, если токены есть, иначе наносекунды до их появления
+     */
+    public synchronized long nanosUntilAvailable(long nowNanos, int permits) {
+        if (isUnlimited()) {
+            return 0;
+        }
+        refill(nowNanos);
+        double needed = required(permits);
+        return tokens >= needed ? 0 : (long) Math.ceil((needed - tokens) / tokensPerNano);
+    }
+    
+    /**
+     * Забирает токен, если он есть.
+     * 
+     * @param nowNanos - текущее время
+     * @return true если токен получен
+     */
+    public boolean tryTake(long nowNanos) {
+        return tryTake(nowNanos, 1);
+    }
+    
+    /**
+     * Забирает несколько токенов сразу, если они есть.
+     * 
+     * Больше емкости ведра за раз не накопить, поэтому для такой операции
+     * достаточно полного ведра, а недостающие токены берутся в долг:
+     * следующая операция подождет, и средняя скорость сохранится.
+     * 
+     * @param nowNanos - текущее время
+     * @param permits - количество токенов
+     * @return true если токены получены
+     */
+    public synchronized boolean tryTake(long nowNanos, int permits) {
+        if (isUnlimited()) {
+            return true;
+        }
+        refill(nowNanos);
+        if (tokens < required(permits)) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+    
+    /**
+     * Возвращает токен, полученный для операции, которая не была выполнена.
+     */
+    public void refund() {
+        refund(1);
+    }
+    
+    /**
+     * Возвращает токены, полученные для операции, которая не была выполнена.
+     * 
+     * @param permits - количество токенов
+     */
+    public synchronized void refund(int permits) {
+        tokens = Math.min(capacity, tokens + permits);
+    }
+    
+    /**
+     * @return емкость ведра: столько операций проходит подряд после простоя
+     */
+    public int getBurst() {
+        return (int) capacity;
+    }
+    
+    /**
+     * @return true если ведро заполнено (за время простоя ограничение не действовало)
+     */
+    public synchronized boolean isFull(long nowNanos) {
+        if (isUnlimited()) {
+            return true;
+        }
+        refill(nowNanos);
+        return tokens >= capacity;
+    }
+    
+    public boolean isUnlimited() {
+        return tokensPerNano == 0;
+    }
+    
+    private double required(int permits) {
+        return Math.min(permits, capacity);
+    }
+    
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.notificationservice.support;
+
+/**
+ * Проверки входных данных для горячего пути обработки запросов и событий.
+ * 
+ * Методы не создают объектов: без trim(), регулярных выражений и
+ * промежуточных строк.
+ */
+public final class Validation {
+    
+    private static final int MAX_EMAIL_LENGTH = 254;
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    
+    private Validation() {}
+    
+    /**
+     * @return true если строка null, пустая или состоит из пробельных символов
+     */
+    public static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+    
+    /**
+     * Проверяет синтаксис email-адреса.
+     * 
+     * Проверка упрощенная (local@domain, без пробелов и управляющих символов,
+     * домен с точкой и без пустых меток) - ее задача отсеять явный мусор до
+     * обращения к SMTP-серверу, а не реализовать RFC 5322.
+     * 
+     * @param email - адрес получателя
+     * @return true если адрес синтаксически допустим
+     */
+    public static boolean isValidEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int length = email.length();
+        if (length < 3 || length > MAX_EMAIL_LENGTH) {
+            return false;
+        }
+        int at = -1;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c <= ' ' || c == 0x7f) {
+                return false;
+            }
+            if (c == '@') {
+                if (at >= 0) {
+                    return false;
+                }
+                at = i;
+            }
+        }
+        if (at <= 0 || at > MAX_LOCAL_PART_LENGTH || at == length - 1) {
+            return false;
+        }
+        // Домен: метки через точку, хотя бы одна точка, без пустых меток
+        boolean dot = false;
+        char previous = '.';
+        for (int i = at + 1; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (previous == '.') {
+                    return false;
+                }
+                dot = true;
+            }
+            previous = c;
+        }
+        return dot && previous != '.';
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.notificationservice.suppression;
+
+import com.example.notificationservice.dedup.BloomFilter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Неизменяемый индекс списка подавления в отображаемом в память файле.
+ * 
+ * Адрес представлен 64-битным ключом: хешем нормализованного адреса
+ * (без пробелов по краям, в нижнем регистре), в двух младших битах которого
+ * хранится код причины (SuppressionReason). Файл содержит заголовок,
+ * фильтр Блума, каталог корзин и отсортированные записи; ничто из этого
+ * не занимает heap - данные читаются из page cache через MappedByteBuffer.
+ * 
+ * Фильтр блочный: все биты ключа лежат в одном блоке размером с линию
+ * кэша, поэтому адрес, которого нет в списке (обычный случай), почти
+ * всегда отсекается за одно обращение к памяти. Каталог хранит начало
+ * записей для каждого значения старших битов ключа (в среднем 4-8 записей
+ * на корзину), и бинарный поиск идет только внутри корзины. Вероятность
+ * принять отсутствующий адрес за подавленный из-за совпадения 62-битных
+ * хешей - порядка N / 2^62 на проверку.
+ * 
+ * Формат (big-endian): заголовок (magic "SUPR", версия, число записей,
+ * число блоков фильтра, число хеш-функций, биты каталога, размер и время
+ * изменения исходного файла), блоки фильтра по 64 байта, каталог
+ * (2^биты + 1 индексов int) и записи. Файл строит SuppressionIndexBuilder.
+ * Размер файла ограничен 2 ГБ (около 200 млн адресов).
+ * 
+ * Отображение освобождается сборщиком мусора после того, как индекс
+ * перестал использоваться; явно закрывать индекс не нужно.
+ */
+public final class SuppressionIndex {
+    
+    // Сигнатура файла индекса ("SUPR")
+    static final int MAGIC = 0x53555052;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int BLOOM_BLOCK_BYTES = 64;
+    // Хеш-функций не больше 7: позиции битов в блоке берутся по 9 бит из одного хеша
+    static final int MAX_HASH_COUNT = 7;
+    
+    // Младшие биты записи - код причины
+    static final long REASON_MASK = 3L;
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private static final SuppressionIndex EMPTY = new SuppressionIndex(null, null, 0, 0, 0, 1, -1, -1);
+    
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int count;
+    private final long bloomBlocks;
+    private final int hashCount;
+    private final int directoryShift;
+    private final int directoryOffset;
+    private final int entriesOffset;
+    private final long sourceSize;
+    private final long sourceModified;
+    
+    private SuppressionIndex(Path file, ByteBuffer buffer, int count, long bloomBlocks, int hashCount,
+                             int directoryBits, long sourceSize, long sourceModified) {
+        this.file = file;
+        this.buffer = buffer;
+        this.count = count;
+        this.bloomBlocks = bloomBlocks;
+        this.hashCount = hashCount;
+        this.directoryShift = 64 - directoryBits;
+        this.directoryOffset = (int) directoryOffset(bloomBlocks);
+        this.entriesOffset = (int) entriesOffset(bloomBlocks, directoryBits);
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+    }
+    
+    /**
+     * @return индекс без записей
+     */
+    public static SuppressionIndex empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Отображает файл индекса в память.
+     * 
+     * @param file - файл, построенный SuppressionIndexBuilder
+     * @return индекс
+     * @throws IOException если файл не читается или имеет неверный формат
+     */
+    public static SuppressionIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Неверный размер файла индекса подавления " + file + ": " + size);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Файл " + file + " не является индексом подавления версии " + VERSION);
+            }
+            long count = buffer.getLong(8);
+            long bloomBlocks = buffer.getLong(16);
+            int hashCount = buffer.getInt(24);
+            int directoryBits = buffer.getInt(28);
+            if (count < 0 || bloomBlocks < 1 || hashCount < 1 || hashCount > MAX_HASH_COUNT
+                    || directoryBits < 1 || directoryBits > 30
+                    || entriesOffset(bloomBlocks, directoryBits) + count * 8 > size) {
+                throw new IOException("Поврежден заголовок индекса подавления " + file);
+            }
+            return new SuppressionIndex(file, buffer, (int) count, bloomBlocks, hashCount, directoryBits,
+                buffer.getLong(32), buffer.getLong(40));
+        }
+    }
+    
+    /**
+     * Вычисляет ключ адреса: хеш без пробелов по краям и без учета регистра.
+     * 
+     * Не создает объектов, поэтому используется и при построении индекса,
+     * и на пути отправки.
+     * 
+     * @param email - адрес
+     * @return ключ с нулевыми битами причины
+     */
+    public static long keyOf(CharSequence email) {
+        int start = 0;
+        int end = email.length();
+        while (start < end && Character.isWhitespace(email.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(email.charAt(end - 1))) {
+            end--;
+        }
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ Character.toLowerCase(email.charAt(i))) * FNV_PRIME;
+        }
+        return BloomFilter.mix(hash) & ~REASON_MASK;
+    }
+    
+    /**
+     * Ищет ключ адреса.
+     * 
+     * @param key - ключ из keyOf
+     * @return код причины или -1, если адреса нет
+     */
+    public int lookup(long key) {
+        if (count == 0 || !mightContain(key)) {
+            return -1;
+        }
+        int bucket = directoryOffset + (int) (bucketOf(key) >>> directoryShift) * 4;
+        int low = buffer.getInt(bucket);
+        int high = buffer.getInt(bucket + 4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = buffer.getLong(entriesOffset + (mid << 3));
+            long midKey = entry & ~REASON_MASK;
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return (int) (entry & REASON_MASK);
+            }
+        }
+        return -1;
+    }
+    
+    private boolean mightContain(long key) {
+        int block = bloomBlockOffset(key, bloomBlocks);
+        long bits = BloomFilter.mix(key);
+        for (int i = 0; i < hashCount; i++, bits >>>= 9) {
+            int bit = (int) bits & 511;
+            if ((buffer.getLong(block + (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return смещение блока фильтра для ключа
+     */
+    static int bloomBlockOffset(long key, long bloomBlocks) {
+        // Старшие 32 бита ключа, приведенные к числу блоков умножением
+        return HEADER_BYTES + (int) (((key >>> 32) * bloomBlocks) >>> 32) * BLOOM_BLOCK_BYTES;
+    }
+    
+    /**
+     * @return ключ в беззнаковом порядке: старшие биты - номер корзины каталога
+     */
+    static long bucketOf(long key) {
+        return key ^ Long.MIN_VALUE;
+    }
+    
+    static long directoryOffset(long bloomBlocks) {
+        return HEADER_BYTES + bloomBlocks * BLOOM_BLOCK_BYTES;
+    }
+    
+    static long entriesOffset(long bloomBlocks, int directoryBits) {
+        long directoryBytes = ((1L << directoryBits) + 1) * 4;
+        return directoryOffset(bloomBlocks) + ((directoryBytes + 7) & ~7L);
+    }
+    
+    /**
+     * @return число адресов в индексе
+     */
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * @return объем отображаемого файла в байтах
+     */
+    public long getSizeBytes() {
+        return buffer != null ? buffer.capacity() : 0;
+    }
+    
+    /**
+     * @return файл индекса или null для пустого индекса
+     */
+    public Path getFile() {
+        return file;
+    }
+    
+    /**
+     * @return размер исходного файла, по которому построен индекс, или -1
+     */
+    long getSourceSize() {
+        return sourceSize;
+    }
+    
+    /**
+     * @return время изменения исходного файла, по которому построен индекс, или -1
+     */
+    long getSourceModified() {
+        return sourceModified;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.notificationservice.suppression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.example.notificationservice.dedup.BloomFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Строит файл SuppressionIndex из текстового списка адресов.
+ * 
+ * Строка списка - адрес или "адрес,причина" (bounce, unsubscribe, deleted);
+ * пустые строки, строки с # в начале и строки без @ пропускаются.
+ * Повторы адреса схлопываются в одну запись.
+ * 
+ * Сортировка внешняя: ключи читаются порциями по runEntries (8 байт на
+ * адрес в heap), каждая порция сортируется и пишется во временный файл
+ * рядом с индексом, после чего порции сливаются прямо в отображаемый
+ * в память файл индекса. Поэтому heap при построении ограничен одной
+ * порцией независимо от размера списка, а готовый индекс подменяет
+ * старый атомарным переименованием.
+ */
+public class SuppressionIndexBuilder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SuppressionIndexBuilder.class);
+    
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    
+    private final int runEntries;
+    private final int bloomBitsPerEntry;
+    
+    /**
+     * @param runEntries - адресов в одной порции сортировки
+     * @param bloomBitsPerEntry - бит фильтра Блума на адрес (10 - около 1% ложных срабатываний)
+     */
+    public SuppressionIndexBuilder(int runEntries, int bloomBitsPerEntry) {
+        this.runEntries = Math.max(1, runEntries);
+        this.bloomBitsPerEntry = Math.max(1, bloomBitsPerEntry);
+    }
+    
+    /**
+     * Строит индекс по исходному файлу и открывает его.
+     * 
+     * @param source - текстовый список адресов
+     * @param target - файл индекса; заменяется только после успешного построения
+     * @return построенный индекс
+     * @throws IOException при ошибке чтения списка или записи индекса
+     */
+    public SuppressionIndex build(Path source, Path target) throws IOException {
+        long start = System.nanoTime();
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        
+        List<Path> runs = new ArrayList<>();
+        List<Integer> runSizes = new ArrayList<>();
+        try {
+            long[] chunk = new long[runEntries];
+            int size = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    Files.newInputStream(source), StandardCharsets.UTF_8), IO_BUFFER_BYTES)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!isEntry(line)) {
+                        continue;
+                    }
+                    if (size == chunk.length) {
+                        size = sortUnique(chunk, size);
+                        runs.add(writeRun(dir, chunk, size));
+                        runSizes.add(size);
+                        size = 0;
+                    }
+                    chunk[size++] = entryOf(line);
+                }
+            }
+            size = sortUnique(chunk, size);
+            
+            if (runs.isEmpty()) {
+                write(temp, Arrays.stream(chunk, 0, size).iterator(), size, attributes);
+            } else {
+                runs.add(writeRun(dir, chunk, size));
+                runSizes.add(size);
+                chunk = null;
+                long total = runSizes.stream().mapToLong(Integer::longValue).sum();
+                try (RunMerger merger = new RunMerger(runs, runSizes)) {
+                    write(temp, merger, total, attributes);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+        
+        SuppressionIndex index = SuppressionIndex.open(target);
+        logger.info("Индекс подавления {} построен из {} за {} мс: {} адресов, {} порций сортировки",
+                   target, source, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                   index.size(), Math.max(1, runs.size()));
+        return index;
+    }
+    
+    /**
+     * @return true, если строка списка содержит адрес
+     */
+    static boolean isEntry(String line) {
+        int at = line.indexOf('@');
+        if (at < 0) {
+            return false;
+        }
+        int comma = line.indexOf(',');
+        if (comma >= 0 && comma < at) {
+            return false;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c != '#';
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return запись индекса для строки списка: ключ адреса и код причины
+     */
+    static long entryOf(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return SuppressionIndex.keyOf(line) | SuppressionReason.OTHER.ordinal();
+        }
+        return SuppressionIndex.keyOf(line.substring(0, comma))
+            | SuppressionReason.parse(line.substring(comma + 1)).ordinal();
+    }
+    
+    /**
+     * Сортирует порцию и оставляет по одной записи на адрес.
+     * 
+     * @return число записей после удаления повторов
+     */
+    private static int sortUnique(long[] entries, int size) {
+        Arrays.sort(entries, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || !sameKey(entries[unique - 1], entries[i])) {
+                entries[unique++] = entries[i];
+            }
+        }
+        return unique;
+    }
+    
+    private static boolean sameKey(long a, long b) {
+        return (a & ~SuppressionIndex.REASON_MASK) == (b & ~SuppressionIndex.REASON_MASK);
+    }
+    
+    private static Path writeRun(Path dir, long[] entries, int size) throws IOException {
+        Path run = Files.createTempFile(dir, "suppression-", ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(run), IO_BUFFER_BYTES))) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(entries[i]);
+            }
+        }
+        return run;
+    }
+    
+    /**
+     * Пишет отсортированные записи, фильтр Блума и каталог корзин в файл индекса.
+     * 
+     * @param entries - записи по возрастанию; повторы адреса пропускаются
+     * @param maxCount - верхняя оценка числа адресов для размера файла, фильтра и каталога
+     */
+    private void write(Path file, PrimitiveIterator.OfLong entries, long maxCount,
+                       BasicFileAttributes source) throws IOException {
+        long bloomBlocks = Math.max(1, (maxCount * bloomBitsPerEntry + 511) / 512);
+        int hashCount = Math.min(SuppressionIndex.MAX_HASH_COUNT,
+            Math.max(1, (int) Math.round(bloomBitsPerEntry * Math.log(2))));
+        // От 4 до 8 записей на корзину
+        int directoryBits = Math.max(1, 63 - Long.numberOfLeadingZeros(Math.max(1, maxCount / 4)));
+        int buckets = 1 << directoryBits;
+        long directoryOffset = SuppressionIndex.directoryOffset(bloomBlocks);
+        long entriesOffset = SuppressionIndex.entriesOffset(bloomBlocks, directoryBits);
+        long fileSize = entriesOffset + maxCount * 8;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Список подавления слишком велик для одного индекса: " + maxCount + " адресов");
+        }
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            int count = 0;
+            int nextBucket = 0;
+            long last = 0;
+            while (entries.hasNext()) {
+                long entry = entries.nextLong();
+                if (count > 0 && sameKey(last, entry)) {
+                    continue;
+                }
+                long key = entry & ~SuppressionIndex.REASON_MASK;
+                int bucket = (int) (SuppressionIndex.bucketOf(key) >>> (64 - directoryBits));
+                for (; nextBucket <= bucket; nextBucket++) {
+                    buffer.putInt((int) directoryOffset + nextBucket * 4, count);
+                }
+                buffer.putLong((int) entriesOffset + (count << 3), entry);
+                
+                int block = SuppressionIndex.bloomBlockOffset(key, bloomBlocks);
+                long bits = BloomFilter.mix(key);
+                for (int i = 0; i < hashCount; i++, bits >>>= 9) {
+                    int bit = (int) bits & 511;
+                    int position = block + (bit >>> 6) * 8;
+                    buffer.putLong(position, buffer.getLong(position) | (1L << bit));
+                }
+                last = entry;
+                count++;
+            }
+            for (; nextBucket <= buckets; nextBucket++) {
+                buffer.putInt((int) directoryOffset + nextBucket * 4, count);
+            }
+            
+            buffer.putInt(0, SuppressionIndex.MAGIC);
+            buffer.putInt(4, SuppressionIndex.VERSION);
+            buffer.putLong(8, count);
+            buffer.putLong(16, bloomBlocks);
+            buffer.putInt(24, hashCount);
+            buffer.putInt(28, directoryBits);
+            buffer.putLong(32, source.size());
+            buffer.putLong(40, source.lastModifiedTime().toMillis());
+            buffer.force();
+        }
+    }
+    
+    /**
+     * Слияние отсортированных порций по возрастанию записей.
+     */
+    private static final class RunMerger implements PrimitiveIterator.OfLong, Closeable {
+        
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue =
+            new PriorityQueue<>(Comparator.comparingLong(reader -> reader.head));
+        
+        RunMerger(List<Path> runs, List<Integer> sizes) throws IOException {
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    RunReader reader = new RunReader(runs.get(i), sizes.get(i));
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+        
+        @Override
+        public long nextLong() {
+            RunReader reader = queue.poll();
+            long entry = reader.head;
+            try {
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return entry;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+    
+    private static final class RunReader {
+        
+        final DataInputStream in;
+        int remaining;
+        long head;
+        
+        RunReader(Path run, int size) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_BYTES));
+            this.remaining = size;
+        }
+        
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            head = in.readLong();
+            remaining--;
+            return true;
+        }
+    }
+}
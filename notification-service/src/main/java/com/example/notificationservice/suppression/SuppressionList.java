@@ -0,0 +1,335 @@
+package com.example.notificationservice.suppression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Список адресов, на которые письма не отправляются: постоянные ошибки
+ * доставки, отписки и удаленные аккаунты.
+ * 
+ * Основной объем списка - текстовый файл (см. SuppressionIndexBuilder),
+ * по которому строится отображаемый в память SuppressionIndex. Индекс
+ * сохраняется рядом и при следующем запуске открывается без построения,
+ * если исходный файл не изменился. Файл проверяется раз в интервал:
+ * дописанные в конец строки применяются без перестроения, замененный
+ * или измененный иначе файл перестраивается в фоне, и новый индекс
+ * подменяет старый. Поэтому файл обновляется дописыванием целых строк
+ * или заменой (запись во временный файл и переименование).
+ * 
+ * Поверх индекса хранятся изменения из Kafka (SuppressionConsumerService):
+ * адрес с причиной добавляется в список, адрес без причины удаляется из
+ * него (повторная подписка). Изменения из Kafka приоритетнее файла и
+ * хранятся в heap до перезапуска, поэтому топик предназначен для
+ * изменений, а не для выгрузки всего списка.
+ * 
+ * Проверка адреса не создает объектов и не берет блокировок.
+ */
+public class SuppressionList implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SuppressionList.class);
+    
+    // Код изменения из Kafka, удаляющего адрес из списка
+    private static final byte REMOVED = -1;
+    
+    private static final int TAIL_BUFFER_BYTES = 1 << 16;
+    
+    private final Path source;
+    private final Path indexFile;
+    private final SuppressionIndexBuilder builder;
+    private final int maxAppendedEntries;
+    
+    private volatile SuppressionIndex index = SuppressionIndex.empty();
+    
+    // Ключ -> код причины для строк, дописанных в файл после построения индекса
+    private final ConcurrentHashMap<Long, Byte> appended = new ConcurrentHashMap<>();
+    
+    // Ключ -> код причины или REMOVED для изменений из Kafka
+    private final ConcurrentHashMap<Long, Byte> updates = new ConcurrentHashMap<>();
+    
+    // Состояние исходного файла, учтенное в индексе и дописанных строках;
+    // меняется только при загрузке и в потоке проверки файла
+    private Object sourceKey;
+    private long sourceSize = -1;
+    private long sourceModified = -1;
+    
+    private final Counter[] filtered = new Counter[SuppressionReason.values().length];
+    
+    // Периодическая проверка исходного файла; null - не запущена
+    private ScheduledExecutorService watcher;
+    
+    /**
+     * @param source - текстовый список адресов или null, если список ведется только через Kafka
+     * @param indexFile - файл индекса для source
+     * @param builder - построение индекса
+     * @param maxAppendedEntries - дописанных строк, после которых файл перестраивается
+     * @param meterRegistry - реестр метрик
+     */
+    public SuppressionList(@Nullable Path source, @Nullable Path indexFile, SuppressionIndexBuilder builder,
+                           int maxAppendedEntries, MeterRegistry meterRegistry) {
+        this.source = source;
+        this.indexFile = indexFile;
+        this.builder = builder;
+        this.maxAppendedEntries = maxAppendedEntries;
+        
+        for (SuppressionReason reason : SuppressionReason.values()) {
+            filtered[reason.ordinal()] = Counter.builder("notification.suppression.filtered")
+                .tag("reason", reason.tag)
+                .description("Письма, не отправленные адресам из списка подавления")
+                .register(meterRegistry);
+        }
+        Gauge.builder("notification.suppression.entries", this, list -> list.index.size())
+            .description("Адреса в индексе списка подавления").register(meterRegistry);
+        Gauge.builder("notification.suppression.updates", this, SuppressionList::getUpdateCount)
+            .description("Изменения списка подавления в heap: дописанные строки файла и записи Kafka")
+            .register(meterRegistry);
+        Gauge.builder("notification.suppression.index.size", this, list -> list.index.getSizeBytes())
+            .description("Размер отображаемого в память индекса подавления").baseUnit("bytes")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Открывает сохраненный индекс или строит его по исходному файлу.
+     * 
+     * @throws IOException если исходный файл существует, но индекс не построить
+     */
+    public synchronized void load() throws IOException {
+        if (source == null) {
+            return;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            logger.warn("Файл списка подавления {} не найден, список пуст до его появления", source);
+            return;
+        }
+        SuppressionIndex saved = openSaved(attributes);
+        if (saved != null) {
+            logger.info("Открыт индекс подавления {}: {} адресов", indexFile, saved.size());
+            swap(saved, attributes);
+        } else {
+            swap(builder.build(source, indexFile), attributes);
+        }
+    }
+    
+    /**
+     * Запускает периодическую проверку исходного файла.
+     * 
+     * @param intervalMillis - интервал проверки; 0 - не проверять
+     */
+    public synchronized void startWatching(long intervalMillis) {
+        if (source == null || intervalMillis <= 0 || watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "suppression-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                logger.error("Ошибка обновления списка подавления из {}", source, e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Проверяет адрес и учитывает подавленное письмо в метриках.
+     * 
+     * @param email - адрес получателя
+     * @return причина подавления или null, если письмо можно отправлять
+     */
+    @Nullable
+    public SuppressionReason check(@Nullable String email) {
+        if (email == null) {
+            return null;
+        }
+        int code = lookup(SuppressionIndex.keyOf(email));
+        if (code < 0) {
+            return null;
+        }
+        filtered[code].increment();
+        return SuppressionReason.of(code);
+    }
+    
+    /**
+     * Применяет изменение списка из Kafka.
+     * 
+     * @param email - адрес
+     * @param reason - причина подавления; null или пусто - удалить адрес из списка
+     */
+    public void apply(String email, @Nullable String reason) {
+        long key = SuppressionIndex.keyOf(email);
+        if (reason == null || reason.trim().isEmpty()) {
+            updates.put(key, REMOVED);
+        } else {
+            updates.put(key, (byte) SuppressionReason.parse(reason).ordinal());
+        }
+    }
+    
+    /**
+     * Учитывает изменения исходного файла: дописанные строки применяются
+     * сразу, иначе индекс перестраивается.
+     * 
+     * @throws IOException при ошибке чтения файла или построения индекса
+     */
+    public synchronized void refresh() throws IOException {
+        if (source == null) {
+            return;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        boolean sameFile = sourceSize >= 0 && Objects.equals(sourceKey, attributes.fileKey());
+        if (sameFile && size == sourceSize && modified == sourceModified) {
+            return;
+        }
+        if (sameFile && size > sourceSize && appended.size() < maxAppendedEntries) {
+            int added = readTail(size);
+            sourceModified = modified;
+            logger.info("Из {} применено дописанных адресов подавления: {}", source, added);
+            return;
+        }
+        swap(builder.build(source, indexFile), attributes);
+    }
+    
+    /**
+     * @return изменения списка в heap: дописанные строки файла и записи Kafka
+     */
+    public int getUpdateCount() {
+        return appended.size() + updates.size();
+    }
+    
+    /**
+     * @return текущий индекс
+     */
+    public SuppressionIndex getIndex() {
+        return index;
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+    
+    private int lookup(long key) {
+        if (!updates.isEmpty()) {
+            Byte update = updates.get(key);
+            if (update != null) {
+                return update;
+            }
+        }
+        if (!appended.isEmpty()) {
+            Byte code = appended.get(key);
+            if (code != null) {
+                return code;
+            }
+        }
+        return index.lookup(key);
+    }
+    
+    /**
+     * @return сохраненный индекс, если он построен по текущему состоянию файла, иначе null
+     */
+    @Nullable
+    private SuppressionIndex openSaved(BasicFileAttributes attributes) {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        try {
+            SuppressionIndex saved = SuppressionIndex.open(indexFile);
+            if (saved.getSourceSize() == attributes.size()
+                    && saved.getSourceModified() == attributes.lastModifiedTime().toMillis()) {
+                return saved;
+            }
+            logger.info("Файл списка подавления {} изменился, индекс будет перестроен", source);
+        } catch (IOException e) {
+            logger.warn("Индекс подавления {} не открыт, будет перестроен: {}", indexFile, e.getMessage());
+        }
+        return null;
+    }
+    
+    private void swap(SuppressionIndex built, BasicFileAttributes attributes) {
+        index = built;
+        appended.clear();
+        sourceKey = attributes.fileKey();
+        sourceSize = attributes.size();
+        sourceModified = attributes.lastModifiedTime().toMillis();
+    }
+    
+    /**
+     * Читает целые строки, дописанные после sourceSize; неполная последняя
+     * строка будет прочитана при следующей проверке.
+     * 
+     * @return число примененных адресов
+     */
+    private int readTail(long size) throws IOException {
+        int added = 0;
+        long position = sourceSize;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+             InputStream in = Channels.newInputStream(channel.position(position))) {
+            byte[] buffer = new byte[TAIL_BUFFER_BYTES];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long remaining = size - position;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                remaining -= read;
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    line.write(buffer, start, i - start);
+                    position += line.size() + 1;
+                    String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                    line.reset();
+                    start = i + 1;
+                    if (SuppressionIndexBuilder.isEntry(text)) {
+                        long entry = SuppressionIndexBuilder.entryOf(text);
+                        appended.put(entry & ~SuppressionIndex.REASON_MASK,
+                            (byte) (entry & SuppressionIndex.REASON_MASK));
+                        added++;
+                    }
+                }
+                line.write(buffer, start, read - start);
+            }
+        }
+        sourceSize = position;
+        return added;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.notificationservice.suppression;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Причины, по которым адрес находится в списке подавления.
+ * 
+ * Код причины (ordinal) хранится в двух младших битах записи индекса,
+ * поэтому причин не больше четырех.
+ */
+public enum SuppressionReason {
+    // Постоянная ошибка доставки (5xx от сервера получателя)
+    BOUNCE,
+    // Отписка получателя или жалоба на спам
+    UNSUBSCRIBE,
+    // Аккаунт пользователя удален
+    DELETED,
+    // Причина не указана или неизвестна
+    OTHER;
+    
+    private static final SuppressionReason[] VALUES = values();
+    
+    final String tag = name().toLowerCase(Locale.ROOT);
+    
+    /**
+     * @return причина по коду из записи индекса
+     */
+    static SuppressionReason of(int code) {
+        return VALUES[code];
+    }
+    
+    /**
+     * Разбирает причину из файла или записи Kafka без учета регистра.
+     * 
+     * @param value - bounce, unsubscribe, deleted или другое значение
+     * @return причина; OTHER для пустого или неизвестного значения
+     */
+    public static SuppressionReason parse(@Nullable String value) {
+        if (value == null) {
+            return OTHER;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (SuppressionReason reason : VALUES) {
+            if (reason.tag.equals(normalized)) {
+                return reason;
+            }
+        }
+        return OTHER;
+    }
+    
+    /**
+     * @return значение тега метрик и текста ошибки
+     */
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.notificationservice.template;
+
+/**
+ * Шаблон, разобранный один раз в последовательность литералов и плейсхолдеров.
+ * 
+ * Синтаксис плейсхолдера - {{name}}. Рендеринг - это чередование append
+ * литерала и значения переменной в переданный StringBuilder, без регулярных
+ * выражений и рефлексии.
+ */
+public final class CompiledTemplate {
+    
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    
+    // literals.length == names.length + 1: literal[0] name[0] literal[1] ... literal[n]
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+    
+    private CompiledTemplate(String[] literals, String[] names) {
+        this.literals = literals;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+    
+    /**
+     * Разбирает исходный текст шаблона.
+     * 
+     * @param source - текст с плейсхолдерами {{name}}
+     * @return скомпилированный шаблон
+     * @throws IllegalArgumentException если плейсхолдер не закрыт или пуст
+     */
+    public static CompiledTemplate compile(String source) {
+        int count = 0;
+        for (int i = source.indexOf(OPEN); i >= 0; i = source.indexOf(OPEN, i + OPEN.length())) {
+            count++;
+        }
+        String[] literals = new String[count + 1];
+        String[] names = new String[count];
+        
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int open = source.indexOf(OPEN, position);
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Незакрытый плейсхолдер в позиции " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).trim();
+            if (name.isEmpty() || name.contains(OPEN)) {
+                throw new IllegalArgumentException("Некорректный плейсхолдер в позиции " + open);
+            }
+            literals[i] = source.substring(position, open);
+            names[i] = name.intern();
+            position = close + CLOSE.length();
+        }
+        literals[count] = source.substring(position);
+        return new CompiledTemplate(literals, names);
+    }
+    
+    /**
+     * Дописывает результат рендеринга в builder.
+     * 
+     * @param variables - значения плейсхолдеров
+     * @param out - буфер для результата
+     */
+    public void renderTo(TemplateVariables variables, StringBuilder out) {
+        out.ensureCapacity(out.length() + literalLength + names.length * 16);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            Object value = variables.get(names[i]);
+            if (value instanceof CharSequence) {
+                out.append((CharSequence) value);
+            } else if (value != null) {
+                out.append(value);
+            }
+        }
+        out.append(literals[names.length]);
+    }
+    
+    /**
+     * @return true если в шаблоне нет плейсхолдеров и его текст можно использовать как есть
+     */
+    public boolean isConstant() {
+        return names.length == 0;
+    }
+    
+    /**
+     * @return текст шаблона без плейсхолдеров (только для isConstant())
+     */
+    String constantText() {
+        return literals[0];
+    }
+    
+    public int getPlaceholderCount() {
+        return names.length;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.notificationservice.template;
+
+/**
+ * Скомпилированный шаблон письма: тема и текст.
+ */
+public final class EmailTemplate {
+    
+    private final String name;
+    private final CompiledTemplate subject;
+    private final CompiledTemplate body;
+    
+    public EmailTemplate(String name, CompiledTemplate subject, CompiledTemplate body) {
+        this.name = name;
+        this.subject = subject;
+        this.body = body;
+    }
+    
+    /**
+     * Разбирает файл шаблона: первая строка - тема, все после нее - текст письма.
+     * 
+     * @param name - имя шаблона для логов
+     * @param source - содержимое файла
+     * @return скомпилированный шаблон
+     */
+    public static EmailTemplate parse(String name, String source) {
+        int lineEnd = source.indexOf('\n');
+        if (lineEnd < 0) {
+            throw new IllegalArgumentException("Шаблон " + name + " не содержит текста письма");
+        }
+        String subject = source.substring(0, lineEnd).trim();
+        String body = source.substring(lineEnd + 1);
+        if (body.endsWith("\n")) {
+            body = body.substring(0, body.length() - (body.endsWith("\r\n") ? 2 : 1));
+        }
+        return new EmailTemplate(name, CompiledTemplate.compile(subject), CompiledTemplate.compile(body));
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public CompiledTemplate getSubject() {
+        return subject;
+    }
+    
+    public CompiledTemplate getBody() {
+        return body;
+    }
+    
+    @Override
+    public String toString() {
+        return "EmailTemplate{" + name + "}";
+    }
+}
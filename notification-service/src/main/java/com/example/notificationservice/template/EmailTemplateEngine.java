@@ -0,0 +1,236 @@
+package com.example.notificationservice.template;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Движок шаблонов писем с кэшем скомпилированных шаблонов.
+ * 
+ * Шаблон с именем name для локали ru_RU ищется в файлах name_ru_RU.txt,
+ * name_ru.txt, name_{локаль по умолчанию}.txt и name.txt - сначала в каталоге
+ * notification.templates.dir, затем среди встроенных шаблонов classpath:templates/.
+ * Файл разбирается один раз; скомпилированные шаблоны хранятся в LRU-кэше
+ * ограниченного размера. Файлы из каталога перечитываются при изменении
+ * (проверка времени изменения не чаще раза в reloadCheckMillis), так что
+ * тексты писем можно менять без перезапуска.
+ * 
+ * Рендеринг выполняется в StringBuilder, переиспользуемый потоком.
+ */
+public class EmailTemplateEngine {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateEngine.class);
+    
+    private static final String CLASSPATH_PREFIX = "templates/";
+    private static final String EXTENSION = ".txt";
+    
+    // Имя шаблона становится частью пути к файлу: разделители и ".." недопустимы
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-z0-9_-]+");
+    
+    // Буфер больше этого размера не сохраняется для следующего рендеринга
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+    
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    
+    private final Path directory;
+    private final Locale defaultLocale;
+    private final long reloadCheckMillis;
+    private final Map<String, CacheEntry> cache;
+    
+    /**
+     * @param directory - каталог шаблонов с горячей перезагрузкой или null
+     * @param defaultLocale - локаль, если шаблона для запрошенной нет
+     * @param cacheSize - максимальное количество шаблонов в кэше
+     * @param reloadCheckMillis - интервал проверки изменения файлов
+     */
+    public EmailTemplateEngine(@Nullable Path directory, Locale defaultLocale, int cacheSize, long reloadCheckMillis) {
+        this.directory = directory;
+        this.defaultLocale = defaultLocale;
+        this.reloadCheckMillis = reloadCheckMillis;
+        this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+    
+    /**
+     * Находит шаблон с учетом цепочки локалей.
+     * 
+     * @param name - имя шаблона (например, create)
+     * @param locale - локаль получателя или null для локали по умолчанию
+     * @return скомпилированный шаблон или null, если шаблона нет или имя недопустимо
+     */
+    public EmailTemplate find(String name, @Nullable Locale locale) {
+        String baseName = name.toLowerCase(Locale.ROOT);
+        if (!NAME_PATTERN.matcher(baseName).matches()) {
+            logger.warn("Недопустимое имя шаблона: {}", name);
+            return null;
+        }
+        Locale effective = locale != null ? locale : defaultLocale;
+        
+        EmailTemplate template = null;
+        if (!effective.getCountry().isEmpty()) {
+            template = lookup(baseName + '_' + effective.getLanguage() + '_' + effective.getCountry());
+        }
+        if (template == null && !effective.getLanguage().isEmpty()) {
+            template = lookup(baseName + '_' + effective.getLanguage());
+        }
+        if (template == null && !effective.getLanguage().equals(defaultLocale.getLanguage())) {
+            template = lookup(baseName + '_' + defaultLocale.getLanguage());
+        }
+        if (template == null) {
+            template = lookup(baseName);
+        }
+        return template;
+    }
+    
+    /**
+     * Рендерит шаблон в строку через буфер текущего потока.
+     * 
+     * @param template - скомпилированный шаблон
+     * @param variables - значения плейсхолдеров
+     * @return результат рендеринга
+     */
+    public static String render(CompiledTemplate template, TemplateVariables variables) {
+        if (template.isConstant()) {
+            return template.constantText();
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        template.renderTo(variables, buffer);
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+    
+    /**
+     * Разбирает локаль вида ru или en_US.
+     * 
+     * @param locale - строковое представление локали
+     * @return локаль или null, если строка пуста
+     */
+    public static Locale parseLocale(@Nullable String locale) {
+        if (locale == null || locale.trim().isEmpty()) {
+            return null;
+        }
+        return Locale.forLanguageTag(locale.trim().replace('_', '-'));
+    }
+    
+    /**
+     * Сбрасывает кэш: шаблоны будут прочитаны заново при следующем обращении.
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+    
+    public int getCachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+    
+    private EmailTemplate lookup(String key) {
+        CacheEntry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        long now = System.currentTimeMillis();
+        if (entry != null && (entry.file == null || now - entry.checkedAt < reloadCheckMillis)) {
+            return entry.template;
+        }
+        
+        // Чтение файла выполняется вне блокировки; параллельная загрузка
+        // одного шаблона безопасна - в кэше останется последний результат
+        CacheEntry loaded = load(key, entry, now);
+        synchronized (cache) {
+            cache.put(key, loaded);
+        }
+        return loaded.template;
+    }
+    
+    private CacheEntry load(String key, @Nullable CacheEntry previous, long now) {
+        if (directory != null) {
+            Path file = directory.resolve(key + EXTENSION);
+            if (!file.normalize().startsWith(directory.normalize())) {
+                logger.warn("Шаблон {} вне каталога шаблонов {}", key, directory);
+                return new CacheEntry(null, null, -1, now);
+            }
+            try {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (previous != null && previous.template != null && file.equals(previous.file)
+                        && previous.modified == modified) {
+                    return new CacheEntry(previous.template, file, modified, now);
+                }
+                String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                EmailTemplate template = EmailTemplate.parse(key, source);
+                if (previous != null) {
+                    logger.info("Шаблон {} перезагружен из {}", key, file);
+                }
+                return new CacheEntry(template, file, modified, now);
+            } catch (NoSuchFileException e) {
+                // Нет в каталоге - используется встроенный шаблон
+                if (previous != null && previous.modified < 0) {
+                    return new CacheEntry(previous.template, file, -1, now);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Не удалось загрузить шаблон {} из {}", key, file, e);
+                if (previous != null && previous.template != null) {
+                    return new CacheEntry(previous.template, file, previous.modified, now);
+                }
+            }
+        }
+        
+        EmailTemplate template = loadFromClasspath(key);
+        // Встроенные шаблоны не меняются, но каталог проверяется снова:
+        // в нем может появиться шаблон, переопределяющий встроенный
+        return new CacheEntry(template, directory != null ? directory.resolve(key + EXTENSION) : null, -1, now);
+    }
+    
+    private static EmailTemplate loadFromClasspath(String key) {
+        ClassLoader classLoader = EmailTemplateEngine.class.getClassLoader();
+        try (InputStream in = classLoader.getResourceAsStream(CLASSPATH_PREFIX + key + EXTENSION)) {
+            if (in == null) {
+                return null;
+            }
+            byte[] bytes = in.readAllBytes();
+            return EmailTemplate.parse(key, new String(bytes, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.error("Не удалось прочитать встроенный шаблон {}", key, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Запись кэша; template == null означает, что шаблона с таким ключом нет.
+     */
+    private static final class CacheEntry {
+        final EmailTemplate template;
+        final Path file;
+        final long modified;
+        final long checkedAt;
+        
+        CacheEntry(EmailTemplate template, Path file, long modified, long checkedAt) {
+            this.template = template;
+            this.file = file;
+            this.modified = modified;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.notificationservice.template;
+
+import java.util.Map;
+
+/**
+ * Источник значений для плейсхолдеров шаблона.
+ * 
+ * Вызывается по имени плейсхолдера при каждом рендеринге, поэтому для одной
+ * переменной достаточно лямбды без создания Map.
+ */
+@FunctionalInterface
+public interface TemplateVariables {
+    
+    TemplateVariables EMPTY = name -> null;
+    
+    /**
+     * @param name - имя плейсхолдера
+     * @return значение или null, если переменная не задана (подставляется пустая строка)
+     */
+    Object get(String name);
+    
+    static TemplateVariables of(Map<String, ?> variables) {
+        return variables == null ? EMPTY : variables::get;
+    }
+}
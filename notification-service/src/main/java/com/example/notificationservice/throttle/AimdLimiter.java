@@ -0,0 +1,114 @@
+package com.example.notificationservice.throttle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Адаптивный лимит одновременных отправок (AIMD).
+ * 
+ * Каждая успешная отправка быстрее порога задержки увеличивает лимит на
+ * 1/limit, то есть примерно на единицу за "окно" из limit отправок
+ * (аддитивный рост). Ответ 4xx/421 или отправка медленнее порога уменьшают
+ * лимит в backoffRatio раз (мультипликативное снижение), но не чаще раза
+ * за период охлаждения - иначе пачка одновременных отказов сбросила бы
+ * лимит до минимума за один раз. Так параллельность держится чуть ниже
+ * точки, где SMTP-сервер начинает тормозить или отказывать.
+ */
+public class AimdLimiter {
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final long cooldownNanos;
+    
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    
+    /**
+     * @param initialLimit - начальный лимит
+     * @param minLimit - лимит не опускается ниже
+     * @param maxLimit - лимит не поднимается выше (обычно число потоков отправки)
+     * @param latencyThresholdMillis - отправка дольше считается признаком перегрузки;
+     *                                 также период охлаждения между снижениями
+     * @param backoffRatio - множитель снижения, от 0 до 1
+     */
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis, double backoffRatio) {
+        if (minLimit <= 0 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Требуется 0 < minLimit <= maxLimit и 0 < backoffRatio < 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.cooldownNanos = latencyThresholdNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime() - cooldownNanos;
+    }
+    
+    /**
+     * Занимает слот, если число отправок в работе меньше текущего лимита.
+     * 
+     * @return true если слот получен; его нужно вернуть через onSuccess, onThrottled, onIgnored или cancel
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+    
+    /**
+     * Возвращает слот без отправки.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+    
+    /**
+     * Возвращает слот после принятого сервером письма.
+     * 
+     * @param latencyNanos - длительность отправки
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        inFlight--;
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+    
+    /**
+     * Возвращает слот после временного отказа сервера (4xx, в том числе 421).
+     */
+    public synchronized void onThrottled() {
+        inFlight--;
+        decrease();
+    }
+    
+    /**
+     * Возвращает слот после ошибки, не связанной с перегрузкой сервера
+     * (неверный адрес, ошибка авторизации): лимит не меняется.
+     */
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+    
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+    
+    private void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos >= cooldownNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecreaseNanos = now;
+        }
+    }
+}
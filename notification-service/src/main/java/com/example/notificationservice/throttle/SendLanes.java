@@ -0,0 +1,521 @@
+package com.example.notificationservice.throttle;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.support.BoundedExecutor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Полосы отправки по приоритетам писем.
+ * 
+ * Число одновременных отправок ограничено слотами. Письма, ждущие слота,
+ * стоят в ограниченной очереди своей полосы (Priority), а освободившийся
+ * слот получает полоса, выбранная взвешенно-справедливым планировщиком
+ * (stride scheduling): при заполнении всех полос полоса с весом w получает
+ * долю слотов w / сумма весов, а полоса, простаивавшая какое-то время,
+ * не накапливает за простой кредит. Дополнительно полосе можно ограничить
+ * число занятых слотов, чтобы долгие массовые пакеты не заняли их все и
+ * транзакционное письмо ждало не дольше одной отправки.
+ * 
+ * Синхронная отправка (acquire/release) ждет слота в вызывающем потоке,
+ * асинхронная (submit) - в очереди полосы, а получив слот, выполняется
+ * в BoundedExecutor. Поэтому асинхронные письма не стоят в общей FIFO-очереди
+ * исполнителя за письмами низкого приоритета. Слот асинхронной отправки
+ * возвращается после места в исполнителе, поэтому при slots не больше
+ * емкости исполнителя письмо, получившее слот, не получает отказ исполнителя.
+ */
+public class SendLanes {
+    
+    // Шаг прохода полосы с весом 1; полоса с весом w продвигается на STRIDE / w
+    private static final long STRIDE = 1L << 20;
+    
+    /**
+     * Параметры полосы.
+     */
+    public static final class LaneLimit {
+        
+        private final int weight;
+        private final int queueCapacity;
+        private final int maxInFlight;
+        
+        /**
+         * @param weight - доля слотов при заполнении всех полос
+         * @param queueCapacity - максимум писем, ждущих слота
+         * @param maxInFlight - максимум занятых полосой слотов; 0 - без ограничения
+         */
+        public LaneLimit(int weight, int queueCapacity, int maxInFlight) {
+            if (weight <= 0 || queueCapacity <= 0 || maxInFlight < 0) {
+                throw new IllegalArgumentException("weight и queueCapacity должны быть положительными, "
+                    + "maxInFlight - неотрицательным");
+            }
+            this.weight = weight;
+            this.queueCapacity = queueCapacity;
+            this.maxInFlight = maxInFlight;
+        }
+    }
+    
+    private final BoundedExecutor executor;
+    private final int slots;
+    private final long maxWaitMillis;
+    private final Lane[] lanes;
+    private final List<Runnable> releaseListeners = new CopyOnWriteArrayList<>();
+    
+    // Свободные слоты и виртуальное время планировщика (под блокировкой this)
+    private int available;
+    private long virtualTime;
+    
+    /**
+     * @param executor - исполнитель асинхронной отправки
+     * @param slots - одновременные отправки всех полос
+     * @param limits - параметры полос; для каждого Priority
+     * @param maxWaitMillis - сколько синхронная отправка ждет слота
+     * @param registry - реестр метрик
+     */
+    public SendLanes(BoundedExecutor executor, int slots, Map<Priority, LaneLimit> limits,
+                     long maxWaitMillis, MeterRegistry registry) {
+        if (slots <= 0) {
+            throw new IllegalArgumentException("slots должно быть положительным");
+        }
+        this.executor = executor;
+        this.slots = slots;
+        this.available = slots;
+        this.maxWaitMillis = maxWaitMillis;
+        Priority[] priorities = Priority.values();
+        this.lanes = new Lane[priorities.length];
+        for (Priority priority : priorities) {
+            LaneLimit limit = limits.get(priority);
+            if (limit == null) {
+                throw new IllegalArgumentException("Не заданы параметры полосы " + priority);
+            }
+            lanes[priority.ordinal()] = new Lane(priority, limit, slots, registry);
+        }
+    }
+    
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    public int getSlots() {
+        return slots;
+    }
+    
+    /**
+     * @return письма полосы, ждущие слота
+     */
+    public int getQueued(Priority priority) {
+        return lanes[priority.ordinal()].queued.get();
+    }
+    
+    /**
+     * @return доля занятого места в очереди полосы от 0.0 до 1.0
+     */
+    public double getUtilization(Priority priority) {
+        Lane lane = lanes[priority.ordinal()];
+        return (double) (lane.queueCapacity - lane.capacity.availablePermits()) / lane.queueCapacity;
+    }
+    
+    /**
+     * @return слоты, занятые полосой
+     */
+    public int getInFlight(Priority priority) {
+        return lanes[priority.ordinal()].inFlight.get();
+    }
+    
+    /**
+     * Ждет слота не дольше maxWaitMillis.
+     * 
+     * @see #acquire(Priority, long)
+     */
+    public boolean acquire(Priority priority) {
+        return acquire(priority, maxWaitMillis);
+    }
+    
+    /**
+     * Ждет слота в вызывающем потоке.
+     * 
+     * Получивший слот обязан вернуть его через release с тем же приоритетом.
+     * 
+     * @param priority - полоса
+     * @param timeoutMillis - максимальное время ожидания места в очереди и слота
+     * @return true, если слот получен; false при переполненной очереди,
+     *         истечении таймаута или прерывании потока
+     */
+    public boolean acquire(Priority priority, long timeoutMillis) {
+        Lane lane = lanes[priority.ordinal()];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (!reserve(lane, timeoutMillis)) {
+            return false;
+        }
+        SyncWaiter waiter = new SyncWaiter(priority, Thread.currentThread());
+        enqueue(lane, waiter);
+        boolean interrupted = false;
+        try {
+            while (!waiter.granted) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || Thread.interrupted()) {
+                    interrupted |= remaining > 0;
+                    return !cancel(lane, waiter);
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Занимает слот без ожидания.
+     * 
+     * Слот выдается, только если полосе не превышен maxInFlight, а письма
+     * других полос не ждут слота раньше нее по очереди планировщика. Так
+     * отправку можно передать исполнителю, лишь когда слот для нее уже есть,
+     * и поток исполнителя не блокируется в ожидании слота.
+     * 
+     * @param priority - полоса
+     * @return true, если слот получен; тогда его нужно вернуть через release
+     */
+    public boolean tryAcquire(Priority priority) {
+        Lane lane = lanes[priority.ordinal()];
+        synchronized (this) {
+            if (available <= 0 || lane.inFlight.get() >= lane.maxInFlight) {
+                return false;
+            }
+            long pass = lane.waiters.isEmpty() ? Math.max(lane.pass, virtualTime) : lane.pass;
+            for (Lane other : lanes) {
+                if (other != lane && !other.waiters.isEmpty() && other.inFlight.get() < other.maxInFlight
+                        && other.pass < pass) {
+                    return false;
+                }
+            }
+            lane.pass = pass + STRIDE / lane.weight;
+            lane.inFlight.incrementAndGet();
+            available--;
+            virtualTime = pass;
+        }
+        return true;
+    }
+    
+    /**
+     * Возвращает слот, полученный через acquire или tryAcquire.
+     * 
+     * @param priority - полоса, получившая слот
+     */
+    public void release(Priority priority) {
+        grant(free(priority));
+        notifyReleased();
+    }
+    
+    /**
+     * Регистрирует обработчик, вызываемый после возврата каждого слота.
+     * 
+     * К вызову обработчика ожидания, получившие освободившийся слот, уже
+     * покинули очередь полосы, поэтому getUtilization показывает новое место.
+     * 
+     * @param listener - быстрый неблокирующий обработчик
+     */
+    public void addReleaseListener(Runnable listener) {
+        releaseListeners.add(listener);
+    }
+    
+    /**
+     * Ставит задачу в очередь полосы без ожидания места.
+     * 
+     * @param priority - полоса
+     * @param task - отправка, выполняется в потоке исполнителя после получения слота
+     * @return future с результатом задачи
+     * @throws RejectedExecutionException если очередь полосы заполнена
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<T> task) {
+        Lane lane = lanes[priority.ordinal()];
+        if (!lane.capacity.tryAcquire()) {
+            throw new RejectedExecutionException("Очередь полосы " + priority + " заполнена: "
+                + lane.queueCapacity + " писем");
+        }
+        return enqueue(lane, task);
+    }
+    
+    /**
+     * Ставит задачу в очередь полосы, ожидая места не дольше таймаута.
+     * 
+     * @param priority - полоса
+     * @param task - отправка, выполняется в потоке исполнителя после получения слота
+     * @param timeoutMillis - максимальное время ожидания места в очереди
+     * @return future с результатом задачи
+     * @throws RejectedExecutionException если место не освободилось или поток прерван
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<T> task, long timeoutMillis) {
+        Lane lane = lanes[priority.ordinal()];
+        if (!reserve(lane, timeoutMillis)) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new RejectedExecutionException("Прервано ожидание места в очереди полосы " + priority);
+            }
+            throw new RejectedExecutionException("Очередь полосы " + priority + " заполнена дольше "
+                + timeoutMillis + " мс");
+        }
+        return enqueue(lane, task);
+    }
+    
+    private boolean reserve(Lane lane, long timeoutMillis) {
+        try {
+            return lane.capacity.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private <T> CompletableFuture<T> enqueue(Lane lane, Supplier<T> task) {
+        AsyncWaiter<T> waiter = new AsyncWaiter<>(lane.priority, task);
+        enqueue(lane, waiter);
+        return waiter.future;
+    }
+    
+    private void enqueue(Lane lane, Waiter waiter) {
+        List<Waiter> granted;
+        synchronized (this) {
+            if (lane.waiters.isEmpty()) {
+                // Простаивавшая полоса не получает кредит за время простоя
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            lane.waiters.addLast(waiter);
+            lane.queued.incrementAndGet();
+            granted = dispatch();
+        }
+        grant(granted);
+    }
+    
+    /**
+     * Убирает из очереди ожидание, прерванное по таймауту.
+     * 
+     * @return false, если слот уже выдан и ожидание считается успешным
+     */
+    private boolean cancel(Lane lane, Waiter waiter) {
+        synchronized (this) {
+            if (waiter.granted) {
+                return false;
+            }
+            lane.waiters.remove(waiter);
+            lane.queued.decrementAndGet();
+        }
+        lane.capacity.release();
+        return true;
+    }
+    
+    /**
+     * Раздает свободные слоты ожидающим; вызывается под блокировкой.
+     * 
+     * @return ожидания, получившие слот: их нужно запустить вне блокировки
+     */
+    private List<Waiter> dispatch() {
+        List<Waiter> granted = null;
+        while (available > 0) {
+            Lane next = null;
+            for (Lane lane : lanes) {
+                if (!lane.waiters.isEmpty() && lane.inFlight.get() < lane.maxInFlight
+                        && (next == null || lane.pass < next.pass)) {
+                    next = lane;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            Waiter waiter = next.waiters.pollFirst();
+            next.queued.decrementAndGet();
+            next.capacity.release();
+            next.inFlight.incrementAndGet();
+            available--;
+            virtualTime = next.pass;
+            next.pass += STRIDE / next.weight;
+            next.waitTimer.record(System.nanoTime() - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+            waiter.granted = true;
+            if (granted == null) {
+                granted = new ArrayList<>(2);
+            }
+            granted.add(waiter);
+        }
+        return granted;
+    }
+    
+    /**
+     * Возвращает слот и раздает свободные слоты ожидающим.
+     * 
+     * @return ожидания, получившие слот: их нужно запустить вне блокировки
+     */
+    private synchronized List<Waiter> free(Priority priority) {
+        available++;
+        lanes[priority.ordinal()].inFlight.decrementAndGet();
+        return dispatch();
+    }
+    
+    /**
+     * Запускает ожидания, получившие слот.
+     * 
+     * Слот отправки, отклоненной исполнителем, возвращается, а выданные
+     * взамен слоты запускаются в этом же цикле, без рекурсии.
+     */
+    private void grant(List<Waiter> granted) {
+        if (granted == null) {
+            return;
+        }
+        ArrayDeque<Waiter> ready = new ArrayDeque<>(granted);
+        boolean freed = false;
+        Waiter waiter;
+        while ((waiter = ready.pollFirst()) != null) {
+            try {
+                waiter.run();
+            } catch (RejectedExecutionException e) {
+                List<Waiter> next = free(waiter.priority);
+                if (next != null) {
+                    ready.addAll(next);
+                }
+                waiter.reject(e);
+                freed = true;
+            }
+        }
+        if (freed) {
+            notifyReleased();
+        }
+    }
+    
+    private void notifyReleased() {
+        for (Runnable listener : releaseListeners) {
+            listener.run();
+        }
+    }
+    
+    /**
+     * Очередь и счетчики одной полосы.
+     */
+    private static final class Lane {
+        
+        final Priority priority;
+        final int weight;
+        final int queueCapacity;
+        final int maxInFlight;
+        final Semaphore capacity;
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Timer waitTimer;
+        // Ожидающие и проход планировщика (под блокировкой SendLanes)
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        long pass;
+        
+        Lane(Priority priority, LaneLimit limit, int slots, MeterRegistry registry) {
+            this.priority = priority;
+            this.weight = limit.weight;
+            this.queueCapacity = limit.queueCapacity;
+            this.maxInFlight = limit.maxInFlight > 0 ? Math.min(limit.maxInFlight, slots) : slots;
+            this.capacity = new Semaphore(limit.queueCapacity);
+            String name = priority.name().toLowerCase();
+            Gauge.builder("notification.lane.queued", queued, AtomicInteger::get)
+                .tag("lane", name)
+                .description("Письма, ждущие слота отправки в полосе")
+                .register(registry);
+            Gauge.builder("notification.lane.in.flight", inFlight, AtomicInteger::get)
+                .tag("lane", name)
+                .description("Слоты отправки, занятые полосой")
+                .register(registry);
+            this.waitTimer = Timer.builder("notification.lane.wait")
+                .tag("lane", name)
+                .description("Ожидание слота отправки в полосе")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(registry);
+        }
+    }
+    
+    /**
+     * Ожидание слота; granted выставляется под блокировкой SendLanes.
+     */
+    private abstract static class Waiter {
+        
+        final Priority priority;
+        final long enqueuedNanos = System.nanoTime();
+        volatile boolean granted;
+        
+        Waiter(Priority priority) {
+            this.priority = priority;
+        }
+        
+        /**
+         * Запускает отправку, получившую слот.
+         * 
+         * @throws RejectedExecutionException если исполнитель отклонил отправку;
+         *         слот тогда возвращается, а ожидание завершается через reject
+         */
+        abstract void run();
+        
+        /**
+         * Завершает ожидание, отправку которого отклонил исполнитель.
+         */
+        void reject(RejectedExecutionException e) {
+        }
+    }
+    
+    private static final class SyncWaiter extends Waiter {
+        
+        private final Thread thread;
+        
+        SyncWaiter(Priority priority, Thread thread) {
+            super(priority);
+            this.thread = thread;
+        }
+        
+        @Override
+        void run() {
+            LockSupport.unpark(thread);
+        }
+    }
+    
+    private final class AsyncWaiter<T> extends Waiter {
+        
+        final Supplier<T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        
+        AsyncWaiter(Priority priority, Supplier<T> task) {
+            super(priority);
+            this.task = task;
+        }
+        
+        @Override
+        void run() {
+            // Отказ исполнителя (заполнен другими задачами или остановлен) обрабатывает grant
+            CompletableFuture<T> result = executor.submit(task);
+            result.whenComplete((value, error) -> {
+                // Исполнитель уже освободил место: следующее письмо, получившее
+                // этот слот, не получит отказ
+                try {
+                    release(priority);
+                } finally {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(value);
+                    }
+                }
+            });
+        }
+        
+        @Override
+        void reject(RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
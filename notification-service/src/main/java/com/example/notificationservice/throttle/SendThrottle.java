@@ -0,0 +1,837 @@
+package com.example.notificationservice.throttle;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.mail.SmtpReplies;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.support.TokenBucket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Ограничение темпа отправки по доменам получателей и SMTP-релею.
+ * 
+ * Письмо уходит на сервер, только когда одновременно есть токен в ведре
+ * домена получателя, токен в ведре релея и свободный слот адаптивного
+ * лимита параллельности (AimdLimiter). Временный отказ 4xx приостанавливает
+ * домен (421 - весь релей) с экспоненциально растущей паузой и снижает
+ * лимит параллельности; успешная отправка сбрасывает паузу.
+ * 
+ * Асинхронные письма попадают в очереди по доменам, которые поток-диспетчер
+ * обходит по кругу, передавая по одному письму из каждого готового домена
+ * в BoundedExecutor. Поэтому домен, упершийся в лимит или паузу, копит
+ * очередь, не задерживая письма в другие домены. Синхронная отправка
+ * (acquire/release) ждет разрешения в вызывающем потоке.
+ * 
+ * Пакет (submitBatch) раскладывается по доменам получателей, и письма
+ * одного домена уходят одной отправкой через одно SMTP-соединение: такая
+ * отправка забирает по токену на письмо, но один слот параллельности.
+ * 
+ * При включенных полосах (SendLanes) диспетчер занимает слот полосы
+ * приоритета письма до передачи исполнителю, поэтому поток исполнителя
+ * не ждет слота, а письма заполненной полосы остаются в очереди домена.
+ */
+public class SendThrottle implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SendThrottle.class);
+    
+    // Максимальный сон диспетчера: страховка на случай пропущенного сигнала
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // Повторная проверка, когда токен перехватил другой поток
+    private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Интервал удаления состояний простаивающих доменов
+    private static final long EVICT_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    // Нет свободного слота параллельности или места в исполнителе
+    private static final long NO_SLOT = -1;
+    
+    /**
+     * Лимит скорости: писем в секунду и допустимый всплеск.
+     */
+    public static final class RateLimit {
+        
+        public static final RateLimit UNLIMITED = new RateLimit(0, 1);
+        
+        private final double ratePerSecond;
+        private final int burst;
+        
+        /**
+         * @param ratePerSecond - писем в секунду; 0 - без ограничения
+         * @param burst - писем подряд после простоя
+         */
+        public RateLimit(double ratePerSecond, int burst) {
+            this.ratePerSecond = ratePerSecond;
+            this.burst = burst;
+        }
+        
+        /**
+         * Разбирает лимиты доменов вида "gmail.com=20:40,example.org=5":
+         * скорость в секунду и необязательный всплеск (по умолчанию равен скорости).
+         * 
+         * @param spec - строка настройки; пустая строка - без переопределений
+         * @return лимиты по доменам в нижнем регистре
+         */
+        public static Map<String, RateLimit> parseOverrides(String spec) {
+            Map<String, RateLimit> limits = new LinkedHashMap<>();
+            if (spec == null || spec.trim().isEmpty()) {
+                return limits;
+            }
+            for (String entry : spec.split(",")) {
+                int eq = entry.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Ожидается домен=скорость[:всплеск]: " + entry.trim());
+                }
+                String domain = entry.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+                String value = entry.substring(eq + 1).trim();
+                int colon = value.indexOf(':');
+                double rate = Double.parseDouble(colon < 0 ? value : value.substring(0, colon));
+                int burst = colon < 0 ? (int) Math.ceil(rate) : Integer.parseInt(value.substring(colon + 1));
+                limits.put(domain, new RateLimit(rate, burst));
+            }
+            return limits;
+        }
+        
+        @Override
+        public String toString() {
+            return ratePerSecond > 0 ? ratePerSecond + "/s, burst " + burst : "unlimited";
+        }
+    }
+    
+    private final BoundedExecutor executor;
+    private final AimdLimiter limiter;
+    @Nullable
+    private final SendLanes lanes;
+    private final Gate relay;
+    private final RateLimit defaultDomainLimit;
+    private final Map<String, RateLimit> domainLimits;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long maxWaitMillis;
+    private final int queueCapacity;
+    private final Semaphore capacity;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final List<Runnable> releaseListeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, Domain> domains = new ConcurrentHashMap<>();
+    // Домены с непустой очередью в порядке обхода
+    private final Deque<Domain> ready = new ConcurrentLinkedDeque<>();
+    private final Counter domainDeferrals;
+    private final Counter relayDeferrals;
+    private final Thread dispatcher;
+    
+    private volatile boolean running = true;
+    
+    // Время следующей очистки доменов; изменяется только диспетчером
+    private long nextEvictNanos;
+    
+    /**
+     * @param executor - исполнитель, в котором выполняются асинхронные отправки
+     * @param limiter - адаптивный лимит одновременных отправок
+     * @param lanes - полосы отправки по приоритетам или null
+     * @param relayName - имя SMTP-релея для логов
+     * @param relayLimit - лимит скорости релея
+     * @param defaultDomainLimit - лимит скорости домена получателя по умолчанию
+     * @param domainLimits - лимиты отдельных доменов
+     * @param initialBackoffMillis - пауза после первого отказа 4xx
+     * @param maxBackoffMillis - максимальная пауза при повторных отказах
+     * @param queueCapacity - максимум писем в очередях доменов
+     * @param maxWaitMillis - сколько синхронная отправка ждет разрешения
+     * @param registry - реестр метрик
+     */
+    public SendThrottle(BoundedExecutor executor, AimdLimiter limiter, @Nullable SendLanes lanes,
+                        String relayName, RateLimit relayLimit,
+                        RateLimit defaultDomainLimit, Map<String, RateLimit> domainLimits,
+                        long initialBackoffMillis, long maxBackoffMillis,
+                        int queueCapacity, long maxWaitMillis, MeterRegistry registry) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity должно быть положительным");
+        }
+        this.executor = executor;
+        this.limiter = limiter;
+        this.lanes = lanes;
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(initialBackoffMillis, maxBackoffMillis));
+        this.relay = new Gate("релея " + relayName, relayLimit, System.nanoTime(), initialBackoffNanos);
+        this.defaultDomainLimit = defaultDomainLimit;
+        this.domainLimits = Collections.unmodifiableMap(new LinkedHashMap<>(domainLimits));
+        this.maxWaitMillis = maxWaitMillis;
+        this.queueCapacity = queueCapacity;
+        this.capacity = new Semaphore(queueCapacity);
+        
+        Gauge.builder("notification.throttle.concurrency.limit", limiter, AimdLimiter::getLimit)
+            .description("Текущий адаптивный лимит одновременных отправок").register(registry);
+        Gauge.builder("notification.throttle.in.flight", limiter, AimdLimiter::getInFlight)
+            .description("Отправки, занявшие слот лимита").register(registry);
+        Gauge.builder("notification.throttle.queued", queued, AtomicInteger::get)
+            .description("Письма в очередях доменов").register(registry);
+        this.domainDeferrals = deferralCounter(registry, "domain");
+        this.relayDeferrals = deferralCounter(registry, "relay");
+        
+        this.nextEvictNanos = System.nanoTime() + EVICT_INTERVAL_NANOS;
+        this.dispatcher = new Thread(this::run, "send-throttle");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        // Освободившийся поток исполнителя может принять письмо, отложенное из-за заполнения
+        executor.addCompletionListener(() -> LockSupport.unpark(dispatcher));
+        if (lanes != null) {
+            // Освободившийся слот полосы может принять письмо, отложенное из-за ее заполнения
+            lanes.addReleaseListener(() -> LockSupport.unpark(dispatcher));
+        }
+    }
+    
+    /**
+     * Домен адреса получателя для выбора очереди и лимита.
+     * 
+     * @param email - адрес получателя
+     * @return домен в нижнем регистре или пустая строка
+     */
+    public static String domainOf(@Nullable String email) {
+        int at = email != null ? email.lastIndexOf('@') : -1;
+        return at >= 0 ? email.substring(at + 1).trim().toLowerCase(Locale.ROOT) : "";
+    }
+    
+    /**
+     * Ставит письмо в очередь домена получателя без ожидания и без полосы.
+     * 
+     * @see #submit(SimpleMailMessage, Priority, Function)
+     */
+    public CompletableFuture<SendResult> submit(SimpleMailMessage message, Function<SimpleMailMessage, SendResult> sender) {
+        return submit(message, null, sender);
+    }
+    
+    /**
+     * Ставит письмо в очередь домена получателя без ожидания.
+     * 
+     * @param message - письмо
+     * @param priority - полоса, слот которой занимает отправка; null - без полосы
+     * @param sender - отправка письма, выполняется в потоке исполнителя
+     * @return future с результатом отправки
+     * @throws RejectedExecutionException если очереди доменов заполнены
+     */
+    public CompletableFuture<SendResult> submit(SimpleMailMessage message, @Nullable Priority priority,
+                                                Function<SimpleMailMessage, SendResult> sender) {
+        if (!capacity.tryAcquire()) {
+            throw new RejectedExecutionException("Очереди доменов заполнены: " + queueCapacity + " писем");
+        }
+        return enqueue(message, priority, sender);
+    }
+    
+    /**
+     * Ставит письмо в очередь домена получателя, ожидая места не дольше таймаута, без полосы.
+     * 
+     * @see #submit(SimpleMailMessage, Priority, Function, long)
+     */
+    public CompletableFuture<SendResult> submit(SimpleMailMessage message, Function<SimpleMailMessage, SendResult> sender,
+                                                long timeoutMillis) {
+        return submit(message, null, sender, timeoutMillis);
+    }
+    
+    /**
+     * Ставит письмо в очередь домена получателя, ожидая места не дольше таймаута.
+     * 
+     * @param message - письмо
+     * @param priority - полоса, слот которой занимает отправка; null - без полосы
+     * @param sender - отправка письма, выполняется в потоке исполнителя
+     * @param timeoutMillis - максимальное время ожидания места
+     * @return future с результатом отправки
+     * @throws RejectedExecutionException если место не освободилось или поток прерван
+     */
+    public CompletableFuture<SendResult> submit(SimpleMailMessage message, @Nullable Priority priority,
+                                                Function<SimpleMailMessage, SendResult> sender, long timeoutMillis) {
+        reserve(1, timeoutMillis);
+        return enqueue(message, priority, sender);
+    }
+    
+    /**
+     * Ставит пакет писем в очереди доменов получателей.
+     * 
+     * Письма одного домена передаются sender одним списком, чтобы ушли
+     * через одно SMTP-соединение. Список не длиннее всплеска лимита домена
+     * и релея: больший список все равно не получил бы токены разом.
+     * 
+     * @param messages - письма пакета
+     * @param priority - полоса, слот которой занимает каждая отправка; null - без полосы
+     * @param sender - отправка писем одного домена, выполняется в потоке исполнителя
+     * @param timeoutMillis - максимальное время ожидания места для всего пакета
+     * @return future с результатом по индексам писем пакета
+     * @throws RejectedExecutionException если место не освободилось, поток прерван
+     *         или пакет больше очередей доменов
+     */
+    public CompletableFuture<BulkSendResult> submitBatch(List<SimpleMailMessage> messages, @Nullable Priority priority,
+                                                         Function<List<SimpleMailMessage>, BulkSendResult> sender,
+                                                         long timeoutMillis) {
+        if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(BulkSendResult.allSent(0));
+        }
+        if (messages.size() > queueCapacity) {
+            throw new RejectedExecutionException("Пакет из " + messages.size() + " писем больше очередей доменов: "
+                + queueCapacity + " писем");
+        }
+        reserve(messages.size(), timeoutMillis);
+        if (!running) {
+            capacity.release(messages.size());
+            throw new RejectedExecutionException("SendThrottle остановлен");
+        }
+        Map<String, List<Integer>> byDomain = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            byDomain.computeIfAbsent(domainOf(recipientOf(messages.get(i))), key -> new ArrayList<>()).add(i);
+        }
+        List<CompletableFuture<BulkSendResult>> parts = new ArrayList<>();
+        List<int[]> partIndexes = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entry : byDomain.entrySet()) {
+            Domain domain = domain(entry.getKey());
+            List<Integer> indexes = entry.getValue();
+            int chunk = batchLimit(domain);
+            for (int from = 0; from < indexes.size(); from += chunk) {
+                int[] part = indexes.subList(from, Math.min(indexes.size(), from + chunk)).stream()
+                    .mapToInt(Integer::intValue).toArray();
+                List<SimpleMailMessage> partMessages = new ArrayList<>(part.length);
+                for (int index : part) {
+                    partMessages.add(messages.get(index));
+                }
+                String recipient = recipientOf(partMessages.get(0));
+                Pending<BulkSendResult> pending = new Pending<>(part.length, priority,
+                    () -> sender.apply(partMessages),
+                    result -> summarize(recipient, result),
+                    error -> failedBatch(part.length, new RejectedExecutionException(error)));
+                parts.add(pending.future.handle((result, error) ->
+                    error != null ? failedBatch(part.length, error) : result));
+                partIndexes.add(part);
+                enqueue(domain, pending);
+            }
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<Integer, Exception> failures = new LinkedHashMap<>();
+            Set<Integer> suppressed = new LinkedHashSet<>();
+            for (int i = 0; i < parts.size(); i++) {
+                BulkSendResult result = parts.get(i).join();
+                int[] indexes = partIndexes.get(i);
+                result.getFailures().forEach((index, failure) -> failures.put(indexes[index], failure));
+                for (int index : result.getSuppressed()) {
+                    suppressed.add(indexes[index]);
+                }
+            }
+            return new BulkSendResult(messages.size(), failures, suppressed);
+        });
+    }
+    
+    /**
+     * Ждет разрешения на синхронную отправку не дольше notification.mail.throttle.max-wait-ms.
+     * 
+     * @param domain - домен получателя
+     * @return true если разрешение получено; тогда после отправки нужно вызвать release
+     */
+    public boolean acquire(String domain) {
+        return acquire(domain, maxWaitMillis);
+    }
+    
+    /**
+     * Ждет разрешения на синхронную отправку.
+     * 
+     * @param domain - домен получателя
+     * @param timeoutMillis - максимальное время ожидания
+     * @return true если разрешение получено; тогда после отправки нужно вызвать release
+     */
+    public boolean acquire(String domain, long timeoutMillis) {
+        Gate gate = domain(domain);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            long now = System.nanoTime();
+            long delay = tryAcquire(gate, now);
+            if (delay == 0) {
+                return true;
+            }
+            long remaining = deadline - now;
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, delay == NO_SLOT ? RETRY_NANOS : delay));
+        }
+    }
+    
+    /**
+     * Возвращает разрешение после синхронной отправки и учитывает ее результат.
+     * 
+     * @param domain - домен получателя
+     * @param latencyNanos - длительность отправки
+     * @param result - результат или null, если отправка завершилась исключением
+     */
+    public void release(String domain, long latencyNanos, @Nullable SendResult result) {
+        release(domain(domain), latencyNanos, result);
+    }
+    
+    /**
+     * @return сколько синхронная отправка ждет разрешения по умолчанию
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    /**
+     * @return количество писем в очередях доменов
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+    
+    /**
+     * @return доля занятого места в очередях доменов от 0.0 до 1.0
+     */
+    public double getUtilization() {
+        return (double) (queueCapacity - capacity.availablePermits()) / queueCapacity;
+    }
+    
+    /**
+     * Регистрирует обработчик, вызываемый после того, как письма покинули
+     * очередь домена и освободили в ней место.
+     * 
+     * @param listener - быстрый неблокирующий обработчик
+     */
+    public void addReleaseListener(Runnable listener) {
+        releaseListeners.add(listener);
+    }
+    
+    public AimdLimiter getLimiter() {
+        return limiter;
+    }
+    
+    /**
+     * Останавливает диспетчер; письма, не переданные исполнителю,
+     * завершаются со статусом REJECTED.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Set<Domain> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+        remaining.addAll(domains.values());
+        remaining.addAll(ready);
+        int rejected = 0;
+        for (Domain domain : remaining) {
+            Pending<?> pending;
+            while ((pending = domain.pending.poll()) != null) {
+                queued.addAndGet(-pending.size);
+                pending.reject("SendThrottle остановлен");
+                rejected += pending.size;
+            }
+        }
+        if (rejected > 0) {
+            logger.warn("При остановке не отправлено {} писем из очередей доменов", rejected);
+        }
+    }
+    
+    private void reserve(int permits, long timeoutMillis) {
+        try {
+            if (!capacity.tryAcquire(permits, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Очереди доменов заполнены дольше " + timeoutMillis + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Прервано ожидание места в очереди домена", e);
+        }
+    }
+    
+    private CompletableFuture<SendResult> enqueue(SimpleMailMessage message, @Nullable Priority priority,
+                                                  Function<SimpleMailMessage, SendResult> sender) {
+        if (!running) {
+            capacity.release();
+            throw new RejectedExecutionException("SendThrottle остановлен");
+        }
+        String recipient = recipientOf(message);
+        Pending<SendResult> pending = new Pending<>(1, priority, () -> sender.apply(message),
+            Function.identity(), error -> SendResult.rejected(recipient, error));
+        enqueue(domain(domainOf(recipient)), pending);
+        return pending.future;
+    }
+    
+    private void enqueue(Domain domain, Pending<?> pending) {
+        queued.addAndGet(pending.size);
+        domain.pending.add(pending);
+        schedule(domain);
+    }
+    
+    /**
+     * @return сколько писем одного домена можно отправить одним списком
+     */
+    private int batchLimit(Gate domain) {
+        int limit = Integer.MAX_VALUE;
+        if (!domain.bucket.isUnlimited()) {
+            limit = domain.bucket.getBurst();
+        }
+        if (!relay.bucket.isUnlimited()) {
+            limit = Math.min(limit, relay.bucket.getBurst());
+        }
+        return limit;
+    }
+    
+    private Domain domain(String name) {
+        return domains.computeIfAbsent(name, key -> new Domain(key,
+            domainLimits.getOrDefault(key, defaultDomainLimit), System.nanoTime(), initialBackoffNanos));
+    }
+    
+    private void schedule(Domain domain) {
+        if (domain.scheduled.compareAndSet(false, true)) {
+            ready.addLast(domain);
+            LockSupport.unpark(dispatcher);
+        }
+    }
+    
+    private void run() {
+        while (running) {
+            long parkNanos = dispatch();
+            if (parkNanos > 0) {
+                LockSupport.parkNanos(this, Math.min(parkNanos, MAX_PARK_NANOS));
+            }
+            evictIdleDomains();
+        }
+    }
+    
+    /**
+     * Один круг по готовым доменам: не больше одного письма из каждого.
+     * 
+     * @return 0 если что-то отправлено, иначе время до возможной следующей отправки
+     */
+    private long dispatch() {
+        long now = System.nanoTime();
+        long parkNanos = MAX_PARK_NANOS;
+        boolean dispatched = false;
+        for (int i = ready.size(); i > 0; i--) {
+            Domain domain = ready.pollFirst();
+            if (domain == null) {
+                break;
+            }
+            Pending<?> next = domain.pending.peek();
+            if (next == null) {
+                domain.scheduled.set(false);
+                // Письмо могло прийти между peek и сбросом флага
+                if (!domain.pending.isEmpty()) {
+                    schedule(domain);
+                }
+                continue;
+            }
+            long delay = tryAcquire(domain, now, next.size);
+            if (delay == 0) {
+                delay = start(domain, next);
+            }
+            if (delay == NO_SLOT) {
+                // Ждем завершения отправки; домен сохраняет свою очередь в обходе
+                ready.addFirst(domain);
+                return dispatched ? 0 : MAX_PARK_NANOS;
+            }
+            if (delay == 0) {
+                dispatched = true;
+            } else {
+                parkNanos = Math.min(parkNanos, delay);
+            }
+            ready.addLast(domain);
+        }
+        return dispatched ? 0 : parkNanos;
+    }
+    
+    /**
+     * Передает первую отправку домена исполнителю; разрешение уже получено.
+     * 
+     * @return 0 если отправка передана, NO_SLOT если исполнитель заполнен
+     *         синхронными отправками, иначе время до повторной проверки
+     *         заполненной полосы
+     */
+    private long start(Domain domain, Pending<?> pending) {
+        if (lanes != null && pending.priority != null && !lanes.tryAcquire(pending.priority)) {
+            // Слот полосы освободится позже; письма других полос идут своим чередом
+            cancel(domain, pending.size);
+            return MAX_PARK_NANOS;
+        }
+        // Очередь домена разбирает только диспетчер: при отказе письмо возвращается в ее начало
+        domain.pending.poll();
+        try {
+            submit(domain, pending);
+        } catch (RejectedExecutionException e) {
+            domain.pending.addFirst(pending);
+            if (lanes != null && pending.priority != null) {
+                lanes.release(pending.priority);
+            }
+            cancel(domain, pending.size);
+            return NO_SLOT;
+        }
+        return 0;
+    }
+    
+    /**
+     * Возвращает разрешение, полученное для отправки, которая не началась.
+     */
+    private void cancel(Gate domain, int permits) {
+        domain.bucket.refund(permits);
+        relay.bucket.refund(permits);
+        limiter.cancel();
+    }
+    
+    private <R> void submit(Domain domain, Pending<R> pending) {
+        executor.submit(() -> send(domain, pending)).whenComplete((result, error) -> {
+            // Слот полосы возвращается после места в исполнителе: письмо,
+            // которому он достанется, не получит отказ исполнителя
+            try {
+                if (lanes != null && pending.priority != null) {
+                    lanes.release(pending.priority);
+                }
+            } finally {
+                if (error != null) {
+                    pending.future.completeExceptionally(error);
+                } else {
+                    pending.future.complete(result);
+                }
+            }
+        });
+    }
+    
+    private <R> R send(Domain domain, Pending<R> pending) {
+        // Место освобождается до завершения future: получивший результат может сразу ставить следующее письмо
+        queued.addAndGet(-pending.size);
+        capacity.release(pending.size);
+        for (Runnable listener : releaseListeners) {
+            listener.run();
+        }
+        long start = System.nanoTime();
+        R result = null;
+        try {
+            result = pending.sender.get();
+            return result;
+        } finally {
+            // Для AIMD важна задержка одного письма, а не всего списка
+            long latencyNanos = (System.nanoTime() - start) / pending.size;
+            release(domain, latencyNanos, result != null ? pending.feedback.apply(result) : null);
+        }
+    }
+    
+    /**
+     * Пытается получить токены домена и релея и слот параллельности.
+     * 
+     * @return 0 если разрешение получено, NO_SLOT если нет свободного слота,
+     *         иначе наносекунды до появления токена или конца паузы
+     */
+    private long tryAcquire(Gate domain, long now) {
+        return tryAcquire(domain, now, 1);
+    }
+    
+    /**
+     * Пытается получить токены на отправку permits писем одним соединением.
+     * 
+     * @see #tryAcquire(Gate, long)
+     */
+    private long tryAcquire(Gate domain, long now, int permits) {
+        long delay = Math.max(relay.delayNanos(now, permits), domain.delayNanos(now, permits));
+        if (delay > 0) {
+            return delay;
+        }
+        if (!limiter.tryAcquire()) {
+            return NO_SLOT;
+        }
+        if (domain.bucket.tryTake(now, permits)) {
+            if (relay.bucket.tryTake(now, permits)) {
+                return 0;
+            }
+            domain.bucket.refund(permits);
+        }
+        // Токен забрал другой поток между проверкой и получением
+        limiter.cancel();
+        return RETRY_NANOS;
+    }
+    
+    private void release(Gate domain, long latencyNanos, @Nullable SendResult result) {
+        int replyCode = result != null ? result.getReplyCode() : 0;
+        if (result != null && result.isSent()) {
+            limiter.onSuccess(latencyNanos);
+            domain.resetBackoff(initialBackoffNanos);
+            relay.resetBackoff(initialBackoffNanos);
+        } else if (SmtpReplies.isTransient(replyCode)) {
+            limiter.onThrottled();
+            // 421 относится к соединению с релеем, остальные 4xx - к домену получателя
+            boolean relayWide = replyCode == SmtpReplies.SERVICE_NOT_AVAILABLE;
+            Gate gate = relayWide ? relay : domain;
+            long pauseNanos = gate.backOff(System.nanoTime(), maxBackoffNanos);
+            (relayWide ? relayDeferrals : domainDeferrals).increment();
+            logger.warn("Временный отказ {} для {}: отправка приостановлена на {} мс, лимит параллельности {}",
+                       replyCode, gate.name, TimeUnit.NANOSECONDS.toMillis(pauseNanos), limiter.getLimit());
+        } else {
+            limiter.onIgnored();
+        }
+        LockSupport.unpark(dispatcher);
+    }
+    
+    /**
+     * Удаляет состояния доменов без очереди, паузы и израсходованных токенов,
+     * чтобы число доменов в памяти не росло с числом разных получателей.
+     * Домен, удаленный одновременно с постановкой письма, остается в обходе
+     * и досылает свою очередь; следующее письмо создаст новое состояние.
+     */
+    private void evictIdleDomains() {
+        long now = System.nanoTime();
+        if (now - nextEvictNanos < 0) {
+            return;
+        }
+        nextEvictNanos = now + EVICT_INTERVAL_NANOS;
+        domains.values().removeIf(domain -> domain.isIdle(now));
+    }
+    
+    /**
+     * Сводит результат списка писем к одному результату для AIMD и пауз:
+     * временный отказ важнее постоянного, а постоянные отказы части
+     * адресов при успешной отправке остальных не означают перегрузки.
+     */
+    private static SendResult summarize(String recipient, BulkSendResult result) {
+        Exception failure = null;
+        int replyCode = 0;
+        for (Exception candidate : result.getFailures().values()) {
+            int code = SmtpReplies.replyCode(candidate);
+            if (failure == null || SmtpReplies.isTransient(code) && !SmtpReplies.isTransient(replyCode)) {
+                failure = candidate;
+                replyCode = code;
+            }
+        }
+        if (failure == null || !SmtpReplies.isTransient(replyCode) && result.getSentCount() > 0) {
+            return SendResult.sent(recipient, 0);
+        }
+        return SendResult.failed(recipient, 0, failure.getMessage(), replyCode);
+    }
+    
+    private static BulkSendResult failedBatch(int total, Throwable error) {
+        Exception failure = error instanceof Exception ? (Exception) error : new IllegalStateException(error);
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+        for (int i = 0; i < total; i++) {
+            failures.put(i, failure);
+        }
+        return new BulkSendResult(total, failures);
+    }
+    
+    @Nullable
+    private static String recipientOf(SimpleMailMessage message) {
+        String[] to = message.getTo();
+        return to != null && to.length > 0 ? to[0] : null;
+    }
+    
+    private static Counter deferralCounter(MeterRegistry registry, String scope) {
+        return Counter.builder("notification.throttle.deferrals")
+            .tag("scope", scope)
+            .description("Временные отказы SMTP (4xx), приостановившие отправку")
+            .register(registry);
+    }
+    
+    /**
+     * Ведро токенов и пауза после отказов для релея или домена.
+     */
+    private static class Gate {
+        
+        final String name;
+        final TokenBucket bucket;
+        
+        volatile long pausedUntilNanos;
+        
+        // Следующая пауза; растет вдвое с каждым отказом подряд
+        private long backoffNanos;
+        
+        Gate(String name, RateLimit limit, long nowNanos, long initialBackoffNanos) {
+            this.name = name;
+            this.bucket = new TokenBucket(limit.ratePerSecond, limit.burst, nowNanos);
+            this.pausedUntilNanos = nowNanos;
+            this.backoffNanos = initialBackoffNanos;
+        }
+        
+        long delayNanos(long nowNanos, int permits) {
+            long paused = pausedUntilNanos - nowNanos;
+            return paused > 0 ? paused : bucket.nanosUntilAvailable(nowNanos, permits);
+        }
+        
+        synchronized long backOff(long nowNanos, long maxBackoffNanos) {
+            long pause = backoffNanos;
+            pausedUntilNanos = nowNanos + pause;
+            backoffNanos = Math.min(maxBackoffNanos, backoffNanos * 2);
+            return pause;
+        }
+        
+        synchronized void resetBackoff(long initialBackoffNanos) {
+            backoffNanos = initialBackoffNanos;
+        }
+    }
+    
+    /**
+     * Домен получателя с очередью асинхронных писем.
+     */
+    private static final class Domain extends Gate {
+        
+        final Deque<Pending<?>> pending = new ConcurrentLinkedDeque<>();
+        // Домен стоит в очереди обхода диспетчера
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        Domain(String name, RateLimit limit, long nowNanos, long initialBackoffNanos) {
+            super("домена " + name, limit, nowNanos, initialBackoffNanos);
+        }
+        
+        boolean isIdle(long nowNanos) {
+            return !scheduled.get() && pending.isEmpty()
+                && pausedUntilNanos - nowNanos <= 0 && bucket.isFull(nowNanos);
+        }
+    }
+    
+    /**
+     * Отправка в очереди домена: одно письмо или список писем одного домена.
+     * 
+     * @param <R> - результат отправки
+     */
+    private static final class Pending<R> {
+        
+        final int size;
+        @Nullable
+        final Priority priority;
+        final Supplier<R> sender;
+        // Результат для AIMD и пауз после отказов
+        final Function<R, SendResult> feedback;
+        // Результат отправки, отклоненной при остановке
+        final Function<String, R> rejection;
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        
+        Pending(int size, @Nullable Priority priority, Supplier<R> sender,
+                Function<R, SendResult> feedback, Function<String, R> rejection) {
+            this.size = size;
+            this.priority = priority;
+            this.sender = sender;
+            this.feedback = feedback;
+            this.rejection = rejection;
+        }
+        
+        void reject(String error) {
+            future.complete(rejection.apply(error));
+        }
+    }
+}
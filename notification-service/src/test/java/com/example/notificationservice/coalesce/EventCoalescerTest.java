@@ -0,0 +1,97 @@
+package com.example.notificationservice.coalesce;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для EventCoalescer.
+ * 
+ * Проверяет отмену пары CREATE/DELETE, схлопывание повторов и подтверждение записей окна.
+ */
+class EventCoalescerTest {
+    
+    private final EventCoalescer coalescer = new EventCoalescer(200, 10, 64, 2, new SimpleMeterRegistry());
+    
+    @AfterEach
+    void tearDown() {
+        coalescer.close();
+    }
+    
+    /**
+     * Тест: CREATE и DELETE в одном окне не порождают писем, но подтверждаются.
+     */
+    @Test
+    void testCreateThenDeleteCancelsOut() throws Exception {
+        List<ConsumerRecord<String, UserEvent>> dispatched = new CopyOnWriteArrayList<>();
+        CountDownLatch acknowledged = new CountDownLatch(2);
+        
+        coalescer.submit(record(0, "CREATE", "a@example.com"), acknowledged::countDown, (r, ack) -> dispatched.add(r));
+        coalescer.submit(record(1, "DELETE", "A@example.com"), acknowledged::countDown, (r, ack) -> dispatched.add(r));
+        
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatched.isEmpty());
+        assertEquals(0, coalescer.getPendingCount());
+    }
+    
+    /**
+     * Тест: повторы сводятся к последнему событию, разные email обрабатываются независимо.
+     */
+    @Test
+    void testRepeatsCollapseToLatestEvent() throws Exception {
+        List<ConsumerRecord<String, UserEvent>> dispatched = new CopyOnWriteArrayList<>();
+        AtomicInteger acknowledged = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(2);
+        EventCoalescer.Dispatcher dispatcher = (r, ack) -> {
+            dispatched.add(r);
+            ack.run();
+            done.countDown();
+        };
+        
+        coalescer.submit(record(0, "DELETE", "a@example.com"), acknowledged::incrementAndGet, dispatcher);
+        coalescer.submit(record(1, "CREATE", "a@example.com"), acknowledged::incrementAndGet, dispatcher);
+        coalescer.submit(record(2, "CREATE", "a@example.com"), acknowledged::incrementAndGet, dispatcher);
+        coalescer.submit(record(3, "CREATE", "b@example.com"), acknowledged::incrementAndGet, dispatcher);
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, dispatched.size());
+        assertTrue(dispatched.stream().anyMatch(r -> r.offset() == 2));
+        assertTrue(dispatched.stream().anyMatch(r -> r.offset() == 3));
+        assertEquals(4, acknowledged.get());
+    }
+    
+    /**
+     * Тест: ошибка обработчика не оставляет записи окна неподтвержденными,
+     * а сам обработчик выполняется не в потоке колеса таймеров.
+     */
+    @Test
+    void testDispatcherFailureAcknowledgesWindow() throws Exception {
+        CountDownLatch acknowledged = new CountDownLatch(2);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        EventCoalescer.Dispatcher dispatcher = (r, ack) -> {
+            threads.add(Thread.currentThread().getName());
+            throw new IllegalStateException("spool недоступен");
+        };
+        
+        coalescer.submit(record(0, "CREATE", "a@example.com"), acknowledged::countDown, dispatcher);
+        coalescer.submit(record(1, "CREATE", "a@example.com"), acknowledged::countDown, dispatcher);
+        
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        assertTrue(threads.get(0).startsWith("event-coalescer-dispatch"));
+    }
+    
+    private static ConsumerRecord<String, UserEvent> record(long offset, String operation, String email) {
+        return new ConsumerRecord<>("user-events", 0, offset, null, new UserEvent(operation, email));
+    }
+}
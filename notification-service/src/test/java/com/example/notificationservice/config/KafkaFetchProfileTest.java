@@ -0,0 +1,55 @@
+package com.example.notificationservice.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit тесты для KafkaFetchProfile и разбора стратегий распределения партиций.
+ */
+class KafkaFetchProfileTest {
+    
+    /**
+     * Тест значений профиля и их переопределения.
+     */
+    @Test
+    void testProfileWithOverrides() {
+        Map<String, Object> props = new HashMap<>();
+        
+        KafkaFetchProfile.of("Throughput").apply(props, 0, 0, 200, 0);
+        
+        assertEquals(65536, props.get(ConsumerConfig.FETCH_MIN_BYTES_CONFIG));
+        assertEquals(500, props.get(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG));
+        assertEquals(200, props.get(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
+        assertEquals(4194304, props.get(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG));
+    }
+    
+    /**
+     * Тест разбора имени профиля.
+     */
+    @Test
+    void testParseProfile() {
+        assertEquals(KafkaFetchProfile.DEFAULT, KafkaFetchProfile.of(""));
+        assertEquals(KafkaFetchProfile.LATENCY, KafkaFetchProfile.of(" latency "));
+        assertThrows(IllegalArgumentException.class, () -> KafkaFetchProfile.of("fast"));
+    }
+    
+    /**
+     * Тест разбора стратегий распределения партиций.
+     */
+    @Test
+    void testParseAssignmentStrategy() {
+        assertEquals(Arrays.asList(CooperativeStickyAssignor.class.getName(), RangeAssignor.class.getName()),
+            KafkaConfig.parseAssignmentStrategy("cooperative-sticky, range"));
+        assertThrows(IllegalArgumentException.class, () -> KafkaConfig.parseAssignmentStrategy("random"));
+        assertThrows(IllegalArgumentException.class, () -> KafkaConfig.parseAssignmentStrategy(" "));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.notificationservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.service.KafkaConsumerService;
+import com.example.notificationservice.service.RetryTopicConsumerService;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для StartupConfig.
+ */
+class StartupConfigTest {
+    
+    /**
+     * Тест: listener'ы Kafka создаются сразу, остальные бины - лениво.
+     */
+    @Test
+    void testKafkaListenersExcludedFromLazyInit() {
+        LazyInitializationExcludeFilter filter = StartupConfig.kafkaListenerLazyInitExcludeFilter();
+        
+        assertTrue(filter.isExcluded("kafkaConsumerService", null, KafkaConsumerService.class));
+        assertTrue(filter.isExcluded("retryTopicConsumerService", null, RetryTopicConsumerService.class));
+        assertFalse(filter.isExcluded("emailService", null, EmailService.class));
+        assertFalse(filter.isExcluded("unknown", null, null));
+    }
+}
@@ -5,14 +5,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.service.BulkSendService;
 import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.service.NotificationJobService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -30,6 +40,12 @@ class NotificationControllerTest {
     @MockBean
     private EmailService emailService;
     
+    @MockBean
+    private BulkSendService bulkSendService;
+    
+    @MockBean
+    private NotificationJobService jobService;
+    
     @Autowired
     private ObjectMapper objectMapper;
     
@@ -42,12 +58,13 @@ class NotificationControllerTest {
         EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
         
         // Настройка моков
-        when(emailService.sendEmail(anyString(), anyString(), anyString())).thenReturn(true);
+        SimpleMailMessage message = new SimpleMailMessage();
+        when(emailService.createMailMessage("test@example.com", "Test Subject", "Test Message")).thenReturn(message);
+        when(emailService.sendAsync(message, Priority.STANDARD))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.sent("test@example.com", 10)));
         
         // Вызов и проверка REST endpoint
-        mockMvc.perform(post("/api/notifications/send-email")
-                .contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(emailRequest)))
+        mockMvc.perform(asyncDispatch(performSend(emailRequest)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").exists());
@@ -62,14 +79,204 @@ class NotificationControllerTest {
         EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
         
         // Настройка моков (симуляция ошибки)
-        when(emailService.sendEmail(anyString(), anyString(), anyString())).thenReturn(false);
+        SimpleMailMessage message = new SimpleMailMessage();
+        when(emailService.createMailMessage("test@example.com", "Test Subject", "Test Message")).thenReturn(message);
+        when(emailService.sendAsync(message, Priority.STANDARD))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.failed("test@example.com", 10, "Connection refused")));
         
         // Вызов и проверка REST endpoint
-        mockMvc.perform(post("/api/notifications/send-email")
-                .contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(emailRequest)))
+        mockMvc.perform(asyncDispatch(performSend(emailRequest)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.message").exists());
     }
+    
+    /**
+     * Тест отказа при переполненной очереди отправки.
+     */
+    @Test
+    void testSendEmailRejectedWhenSaturated() throws Exception {
+        // Подготовка тестовых данных
+        EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
+        
+        // Настройка моков (очередь отправки заполнена)
+        SimpleMailMessage message = new SimpleMailMessage();
+        when(emailService.createMailMessage("test@example.com", "Test Subject", "Test Message")).thenReturn(message);
+        when(emailService.sendAsync(message, Priority.STANDARD))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.rejected("test@example.com", "full")));
+        
+        // Вызов и проверка REST endpoint
+        mockMvc.perform(asyncDispatch(performSend(emailRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+    
+    /**
+     * Тест отказа для синтаксически некорректного адреса без обращения к EmailService.
+     */
+    @Test
+    void testSendEmailInvalidAddress() throws Exception {
+        EmailRequest emailRequest = new EmailRequest("not-an-email", "Test Subject", "Test Message");
+        
+        mockMvc.perform(asyncDispatch(performSend(emailRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false));
+        
+        verifyNoInteractions(emailService);
+    }
+    
+    /**
+     * Тест отказа для пустого текста: та же проверка, что у POST /api/notifications.
+     */
+    @Test
+    void testSendEmailBlankMessage() throws Exception {
+        EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", " ");
+        
+        mockMvc.perform(asyncDispatch(performSend(emailRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("Текст сообщения не может быть пустым"));
+        
+        verifyNoInteractions(emailService);
+    }
+    
+    /**
+     * Тест передачи приоритета из запроса в EmailService.
+     */
+    @Test
+    void testSendEmailWithPriority() throws Exception {
+        EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
+        emailRequest.setPriority("transactional");
+        
+        SimpleMailMessage message = new SimpleMailMessage();
+        when(emailService.createMailMessage("test@example.com", "Test Subject", "Test Message")).thenReturn(message);
+        when(emailService.sendAsync(message, Priority.TRANSACTIONAL))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.sent("test@example.com", 10)));
+        
+        mockMvc.perform(asyncDispatch(performSend(emailRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+    }
+    
+    /**
+     * Тест отказа для неизвестного приоритета без обращения к EmailService.
+     */
+    @Test
+    void testSendEmailInvalidPriority() throws Exception {
+        EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
+        emailRequest.setPriority("urgent");
+        
+        mockMvc.perform(asyncDispatch(performSend(emailRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false));
+        
+        verifyNoInteractions(emailService);
+    }
+    
+    /**
+     * Тест постановки в очередь: 202 с идентификатором и Location без ожидания отправки.
+     */
+    @Test
+    void testAcceptEmailReturnsAccepted() throws Exception {
+        EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
+        SimpleMailMessage message = new SimpleMailMessage();
+        
+        when(emailService.createMailMessage("test@example.com", "Test Subject", "Test Message")).thenReturn(message);
+        when(jobService.submit(message, Priority.STANDARD))
+            .thenReturn(new NotificationStatus("42", NotificationStatus.State.QUEUED, 1000, null));
+        
+        mockMvc.perform(post("/api/notifications")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(emailRequest)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/notifications/42"))
+                .andExpect(jsonPath("$.id").value("42"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+    
+    /**
+     * Тест постановки письма на подавленный адрес: 200 с причиной, а не 503.
+     */
+    @Test
+    void testAcceptEmailSuppressed() throws Exception {
+        EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
+        SimpleMailMessage message = new SimpleMailMessage();
+        
+        when(emailService.createMailMessage("test@example.com", "Test Subject", "Test Message")).thenReturn(message);
+        when(jobService.submit(message, Priority.STANDARD))
+            .thenReturn(new NotificationStatus("42", NotificationStatus.State.SUPPRESSED, 1000, "HARD_BOUNCE"));
+        
+        mockMvc.perform(post("/api/notifications")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(emailRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUPPRESSED"))
+                .andExpect(jsonPath("$.error").value("HARD_BOUNCE"));
+    }
+    
+    /**
+     * Тест постановки в очередь некорректного запроса: 400 без обращения к очереди.
+     */
+    @Test
+    void testAcceptEmailInvalidAddress() throws Exception {
+        EmailRequest emailRequest = new EmailRequest("not-an-email", "Test Subject", "Test Message");
+        
+        mockMvc.perform(post("/api/notifications")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(emailRequest)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+        
+        verifyNoInteractions(jobService);
+    }
+    
+    /**
+     * Тест чтения статуса: известное уведомление и 404 для вытесненного.
+     */
+    @Test
+    void testGetStatus() throws Exception {
+        when(jobService.getStatus("42"))
+            .thenReturn(new NotificationStatus("42", NotificationStatus.State.SENDING, 1000, null));
+        
+        MvcResult found = mockMvc.perform(get("/api/notifications/42"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(found))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SENDING"));
+        
+        MvcResult missing = mockMvc.perform(get("/api/notifications/43"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(missing))
+                .andExpect(status().isNotFound());
+    }
+    
+    /**
+     * Тест ожидания окончательного статуса через wait-ms.
+     */
+    @Test
+    void testGetStatusWaitsForCompletion() throws Exception {
+        CompletableFuture<NotificationStatus> terminal = new CompletableFuture<>();
+        when(jobService.getMaxWaitMillis()).thenReturn(30000L);
+        when(jobService.awaitTerminal("42")).thenReturn(terminal);
+        
+        MvcResult started = mockMvc.perform(get("/api/notifications/42").param("wait-ms", "5000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        terminal.complete(new NotificationStatus("42", NotificationStatus.State.FAILED, 2000, "Connection refused"));
+        
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.error").value("Connection refused"));
+    }
+    
+    private MvcResult performSend(EmailRequest emailRequest) throws Exception {
+        return mockMvc.perform(post("/api/notifications/send-email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(emailRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
 }
@@ -0,0 +1,134 @@
+package com.example.notificationservice.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import com.example.notificationservice.config.ReactiveConfig;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.service.BulkSendService;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.service.NotificationJobService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для ReactiveNotificationController.
+ * 
+ * Проверяет одиночную отправку и потоковую массовую отправку через WebFlux.
+ */
+@WebFluxTest(controllers = ReactiveNotificationController.class, properties = "notification.bulk.batch-size=2")
+@Import({ReactiveConfig.class, BulkSendService.class})
+class ReactiveNotificationControllerTest {
+    
+    @Autowired
+    private WebTestClient webTestClient;
+    
+    @MockBean
+    private EmailService emailService;
+    
+    @MockBean
+    private NotificationJobService jobService;
+    
+    /**
+     * Тест успешной отправки email и отказа при переполненной очереди.
+     */
+    @Test
+    void testSendEmail() {
+        when(emailService.createMailMessage(anyString(), anyString(), anyString())).thenReturn(new SimpleMailMessage());
+        when(emailService.sendAsync(any(SimpleMailMessage.class), eq(Priority.STANDARD)))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.sent("test@example.com", 10)))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.rejected("test@example.com", "full")));
+        EmailRequest emailRequest = new EmailRequest("test@example.com", "Test Subject", "Test Message");
+        
+        webTestClient.post().uri("/api/notifications/send-email").bodyValue(emailRequest)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.success").isEqualTo(true);
+        
+        webTestClient.post().uri("/api/notifications/send-email").bodyValue(emailRequest)
+            .exchange()
+            .expectStatus().isEqualTo(503);
+    }
+    
+    /**
+     * Тест массовой отправки NDJSON пакетами по batch-size со строками как у MVC.
+     */
+    @Test
+    void testSendBulkNdjson() {
+        stubSend();
+        
+        String body = "{\"email\":\"a@example.com\",\"message\":\"A\"}\n"
+            + "{\"email\":\"\",\"message\":\"B\"}\n"
+            + "{\"email\":\"c@example.com\",\"message\":\"C\"}\n"
+            + "{\"email\":\"d@example.com\",\"message\":\"D\"}\n";
+        
+        String response = webTestClient.post().uri("/api/notifications/send-bulk")
+            .contentType(MediaType.parseMediaType(NotificationController.APPLICATION_NDJSON_VALUE))
+            .bodyValue(body)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody();
+        
+        List<String> lines = Arrays.asList(response.trim().split("\n"));
+        assertEquals(5, lines.size());
+        assertEquals("{\"index\":1,\"email\":\"\",\"status\":\"INVALID\",\"error\":\"Email адрес не может быть пустым\"}",
+            lines.get(0));
+        assertEquals("{\"index\":0,\"email\":\"a@example.com\",\"status\":\"SENT\"}", lines.get(1));
+        assertEquals("{\"total\":4,\"sent\":3,\"failed\":0,\"invalid\":1}", lines.get(4));
+        verify(emailService, times(2)).sendEmails(anyList(), eq(Priority.BULK));
+    }
+    
+    /**
+     * Тест: при синтаксической ошибке уже разобранные письма отправляются.
+     */
+    @Test
+    void testSendBulkMalformedBody() {
+        stubSend();
+        
+        String response = webTestClient.post().uri("/api/notifications/send-bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("[{\"email\":\"a@example.com\",\"message\":\"A\"}, {\"email\":")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody();
+        
+        String[] lines = response.trim().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"index\":0,\"email\":\"a@example.com\",\"status\":\"SENT\"}", lines[0]);
+        assertTrue(lines[1].startsWith("{\"error\":"));
+        assertEquals("{\"total\":1,\"sent\":1,\"failed\":0,\"invalid\":0}", lines[2]);
+    }
+    
+    /**
+     * Настраивает отправку пакетов без ошибок.
+     */
+    private void stubSend() {
+        when(emailService.createMailMessage(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(invocation.getArgument(0, String.class));
+            return message;
+        });
+        when(emailService.sendEmails(anyList(), eq(Priority.BULK)))
+            .thenAnswer(invocation -> BulkSendResult.allSent(invocation.getArgument(0, List.class).size()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.notificationservice.dedup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для EventDeduplicator.
+ * 
+ * Проверяет ключи событий, подавление дублей и сохранение между перезапусками.
+ */
+class EventDeduplicatorTest {
+    
+    @TempDir
+    Path directory;
+    
+    /**
+     * Тест подавления повторной доставки и учета метрик.
+     */
+    @Test
+    void testDuplicateSuppressedOnlyAfterDelivery() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EventDeduplicator deduplicator = new EventDeduplicator(60_000, 60_000, 1000, null, registry);
+        UserEvent event = new UserEvent("CREATE", "Test@Example.com");
+        
+        long key = deduplicator.keyOf(event, 1_000);
+        // Тот же интервал времени и регистр email не влияют на ключ, операция и интервал - влияют
+        assertEquals(key, deduplicator.keyOf(new UserEvent("create", "test@example.com"), 59_000));
+        assertNotEquals(key, deduplicator.keyOf(new UserEvent("DELETE", "test@example.com"), 1_000));
+        assertNotEquals(key, deduplicator.keyOf(event, 61_000));
+        
+        // Пока письмо не отправлено, повтор не считается дублем
+        assertFalse(deduplicator.isDuplicate(key));
+        deduplicator.markDelivered(key);
+        assertTrue(deduplicator.isDuplicate(key));
+        
+        assertEquals(1.0, registry.counter("notification.dedup.checks", "result", "hit").count());
+        assertEquals(1.0, registry.counter("notification.dedup.checks", "result", "miss").count());
+        assertEquals(1.0, registry.get("notification.dedup.entries").gauge().value());
+        assertTrue(registry.get("notification.dedup.memory").gauge().value() > 0);
+    }
+    
+    /**
+     * Тест ключа по eventId и истечения времени жизни.
+     */
+    @Test
+    void testEventIdKeyAndExpiry() throws Exception {
+        EventDeduplicator deduplicator = new EventDeduplicator(50, 60_000, 1000, null, new SimpleMeterRegistry());
+        UserEvent first = new UserEvent("CREATE", "a@example.com");
+        first.setEventId("evt-1");
+        UserEvent resent = new UserEvent("CREATE", "a@example.com");
+        resent.setEventId("evt-1");
+        
+        long key = deduplicator.keyOf(first, 0);
+        assertEquals(key, deduplicator.keyOf(resent, 3_600_000));
+        
+        deduplicator.markDelivered(key);
+        assertTrue(deduplicator.isDuplicate(key));
+        Thread.sleep(120);
+        assertFalse(deduplicator.isDuplicate(key));
+    }
+    
+    /**
+     * Тест атомарного захвата ключа: одно событие отправляет только один поток.
+     */
+    @Test
+    void testAcquireAllowsSingleSender() throws Exception {
+        EventDeduplicator deduplicator = new EventDeduplicator(60_000, 60_000, 1000, null, new SimpleMeterRegistry());
+        long key = deduplicator.keyOf(new UserEvent("CREATE", "c@example.com"), 0);
+        
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return deduplicator.tryAcquire(key);
+            }));
+        }
+        start.countDown();
+        int acquired = 0;
+        for (Future<Boolean> result : results) {
+            acquired += result.get(5, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+        assertEquals(1, acquired);
+        
+        // Неудачная отправка освобождает ключ, успешная - запоминает
+        deduplicator.release(key);
+        assertTrue(deduplicator.tryAcquire(key));
+        deduplicator.markDelivered(key);
+        assertFalse(deduplicator.tryAcquire(key));
+    }
+    
+    /**
+     * Тест восстановления кэша из файла после перезапуска.
+     */
+    @Test
+    void testStateSurvivesRestart() throws Exception {
+        Path file = directory.resolve("dedup.bin");
+        EventDeduplicator deduplicator = new EventDeduplicator(60_000, 60_000, 1000, file, new SimpleMeterRegistry());
+        long key = deduplicator.keyOf(new UserEvent("DELETE", "b@example.com"), 5_000);
+        deduplicator.markDelivered(key);
+        deduplicator.close();
+        
+        EventDeduplicator restarted = new EventDeduplicator(60_000, 60_000, 1000, file, new SimpleMeterRegistry());
+        assertTrue(restarted.isDuplicate(key));
+        assertEquals(1, restarted.size());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.notificationservice.digest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для DigestAggregator.
+ * 
+ * Проверяет объединение уведомлений получателя в одно письмо, отправку
+ * по заполнению сводки и вытеснение на диск сверх бюджета heap.
+ */
+class DigestAggregatorTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private final List<SimpleMailMessage> sent = Collections.synchronizedList(new ArrayList<>());
+    private final List<Priority> sentPriorities = Collections.synchronizedList(new ArrayList<>());
+    
+    private DigestAggregator aggregator;
+    
+    @AfterEach
+    void tearDown() {
+        if (aggregator != null) {
+            aggregator.close();
+        }
+    }
+    
+    /**
+     * Тест: уведомления одного получателя внутри окна уходят одним письмом.
+     */
+    @Test
+    void testMergesNotificationsPerRecipient() throws Exception {
+        aggregator = newAggregator(100, 10, Long.MAX_VALUE, null);
+        
+        CompletableFuture<SendResult> first = aggregator.submit(message("a@example.com", "A1"), Priority.STANDARD);
+        CompletableFuture<SendResult> second = aggregator.submit(message("A@example.com", "A2"), Priority.TRANSACTIONAL);
+        CompletableFuture<SendResult> other = aggregator.submit(message("b@example.com", "B1"), Priority.STANDARD);
+        assertEquals(2, aggregator.getPendingCount());
+        
+        assertTrue(first.get(5, TimeUnit.SECONDS).isSent());
+        assertTrue(second.get(5, TimeUnit.SECONDS).isSent());
+        other.get(5, TimeUnit.SECONDS);
+        
+        assertEquals(2, sent.size());
+        SimpleMailMessage digest = sentTo("a@example.com");
+        assertEquals("Сводка: 2", digest.getSubject());
+        assertEquals("A1|A2", digest.getText());
+        // Единственное уведомление отправляется исходным письмом
+        assertEquals("B1", sentTo("b@example.com").getSubject());
+        // Сводка отправляется с наивысшим приоритетом своих уведомлений
+        assertTrue(sentPriorities.contains(Priority.TRANSACTIONAL));
+        assertEquals(0, aggregator.getPendingCount());
+    }
+    
+    /**
+     * Тест: заполненная сводка отправляется, не дожидаясь окна.
+     */
+    @Test
+    void testFullDigestSentImmediately() throws Exception {
+        aggregator = newAggregator(60000, 2, Long.MAX_VALUE, null);
+        
+        aggregator.submit(message("a@example.com", "A1"), Priority.STANDARD);
+        CompletableFuture<SendResult> result = aggregator.submit(message("a@example.com", "A2"), Priority.STANDARD);
+        
+        assertTrue(result.get(1, TimeUnit.SECONDS).isSent());
+        assertEquals("A1|A2", sentTo("a@example.com").getText());
+        assertEquals(0, aggregator.getPendingCount());
+    }
+    
+    /**
+     * Тест: уведомления сверх бюджета heap вытесняются на диск и попадают в сводку.
+     */
+    @Test
+    void testSpillsOverHeapBudget() throws Exception {
+        DigestSpillFile spillFile = new DigestSpillFile(tempDir);
+        aggregator = newAggregator(100, 10, 150, spillFile);
+        
+        CompletableFuture<SendResult> result = null;
+        for (int i = 1; i <= 3; i++) {
+            result = aggregator.submit(message("a@example.com", "Уведомление " + i), Priority.STANDARD);
+        }
+        // В бюджет помещается только первое уведомление
+        assertEquals(2, spillFile.getLiveCount());
+        
+        result.get(5, TimeUnit.SECONDS);
+        assertEquals("Уведомление 1|Уведомление 2|Уведомление 3", sentTo("a@example.com").getText());
+        // Файл обрезается, когда вытесненных уведомлений не осталось
+        assertEquals(0, spillFile.getLiveCount());
+        assertEquals(0, spillFile.getSizeBytes());
+    }
+    
+    /**
+     * Тест: без файла вытеснения уведомление сверх бюджета отправляется сразу.
+     */
+    @Test
+    void testBypassesDigestWithoutSpillFile() throws Exception {
+        aggregator = newAggregator(60000, 10, 0, null);
+        
+        assertTrue(aggregator.submit(message("a@example.com", "A1"), Priority.STANDARD)
+            .get(1, TimeUnit.SECONDS).isSent());
+        assertEquals(0, aggregator.getPendingCount());
+        assertEquals("A1", sentTo("a@example.com").getText());
+    }
+    
+    private DigestAggregator newAggregator(long windowMillis, int maxItems, long heapBudgetBytes,
+                                           DigestSpillFile spillFile) {
+        return new DigestAggregator(windowMillis, 10, 64, maxItems, heapBudgetBytes, spillFile,
+            EnumSet.allOf(Priority.class), DigestAggregatorTest::render, this::send, new SimpleMeterRegistry());
+    }
+    
+    private CompletableFuture<SendResult> send(SimpleMailMessage message, Priority priority) {
+        sent.add(message);
+        sentPriorities.add(priority);
+        return CompletableFuture.completedFuture(SendResult.sent(message.getTo()[0], 1));
+    }
+    
+    private SimpleMailMessage sentTo(String email) {
+        synchronized (sent) {
+            return sent.stream().filter(message -> message.getTo()[0].equalsIgnoreCase(email))
+                .findFirst().orElseThrow(AssertionError::new);
+        }
+    }
+    
+    private static SimpleMailMessage render(String email, List<DigestItem> items) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(email);
+        message.setSubject("Сводка: " + items.size());
+        message.setText(items.stream().map(DigestItem::getText).collect(Collectors.joining("|")));
+        return message;
+    }
+    
+    private static SimpleMailMessage message(String to, String text) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject(text);
+        message.setText(text);
+        return message;
+    }
+}
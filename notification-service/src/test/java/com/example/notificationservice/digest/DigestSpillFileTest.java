@@ -0,0 +1,91 @@
+package com.example.notificationservice.digest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для DigestSpillFile.
+ * 
+ * Проверяет чтение вытесненных уведомлений и освобождение сегментов
+ * при постоянно открытых сводках.
+ */
+class DigestSpillFileTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private DigestSpillFile spillFile;
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        if (spillFile != null) {
+            spillFile.close();
+        }
+    }
+    
+    /**
+     * Тест: при чередовании вытеснения и чтения, когда непрочитанные уведомления
+     * есть всегда, размер файла ограничен ожидающими уведомлениями, а не историей.
+     */
+    @Test
+    void testSizeBoundedWhileItemsPending() throws Exception {
+        spillFile = new DigestSpillFile(tempDir, 1024);
+        ArrayDeque<DigestSpillFile.Ref> pending = new ArrayDeque<>();
+        long written = 0;
+        long maxSize = 0;
+        
+        for (int i = 0; i < 2000; i++) {
+            DigestSpillFile.Ref ref = spillFile.append(new DigestItem("Тема " + i, "Уведомление " + i));
+            pending.addLast(ref);
+            written += ref.length;
+            // Открыты 20 сводок: самое старое уведомление читается после нового
+            if (pending.size() > 20) {
+                int read = i - 20;
+                assertEquals("Уведомление " + read, spillFile.read(pending.pollFirst()).getText());
+            }
+            maxSize = Math.max(maxSize, spillFile.getSizeBytes());
+        }
+        
+        assertTrue(spillFile.getLiveCount() > 0);
+        // Ожидающие уведомления занимают меньше сегмента: на диске не больше двух сегментов
+        assertTrue(maxSize < 3 * 1024, "Размер файла вытеснения: " + maxSize);
+        assertTrue(written > 20 * maxSize);
+        assertTrue(spillFile.getSegmentCount() <= 2);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(spillFile.getSegmentCount(), files.count());
+        }
+        
+        while (!pending.isEmpty()) {
+            spillFile.read(pending.pollFirst());
+        }
+        assertEquals(0, spillFile.getLiveCount());
+        assertEquals(0, spillFile.getSizeBytes());
+    }
+    
+    /**
+     * Тест: уведомление, которое не будет прочитано, тоже освобождает сегмент.
+     */
+    @Test
+    void testReleaseDeletesDrainedSegment() throws Exception {
+        spillFile = new DigestSpillFile(tempDir, 16);
+        DigestSpillFile.Ref first = spillFile.append(new DigestItem("Тема", "Первое уведомление"));
+        DigestSpillFile.Ref second = spillFile.append(new DigestItem("Тема", "Второе уведомление"));
+        assertEquals(2, spillFile.getSegmentCount());
+        
+        spillFile.release(first);
+        
+        assertEquals(1, spillFile.getSegmentCount());
+        assertEquals("Второе уведомление", spillFile.read(second).getText());
+        assertEquals(0, spillFile.getSizeBytes());
+    }
+}
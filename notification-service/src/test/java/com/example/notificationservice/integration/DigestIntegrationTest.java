@@ -0,0 +1,103 @@
+package com.example.notificationservice.integration;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.TestPropertySource;
+import com.example.notificationservice.digest.DigestAggregator;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Интеграционный тест сводок в listener-контейнере.
+ * 
+ * Проверяет, что consumer продолжает чтение, пока сводка открыта: второе
+ * уведомление, записанное после того, как первое уже открыло сводку,
+ * попадает в ту же сводку, а смещения обеих записей коммитятся только
+ * после ее отправки.
+ */
+@SpringBootTest
+@EmbeddedKafka(partitions = 1, topics = {"user-events", "user-events-retry-1s", "user-events-retry-10s",
+                                         "user-events-retry-1m", "user-events-dlt"})
+@TestPropertySource(properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.mail.host=localhost",
+    "spring.mail.port=3025",
+    "notification.digest.enabled=true",
+    "notification.digest.window-ms=3000",
+    "notification.digest.tick-ms=50"
+})
+class DigestIntegrationTest {
+    
+    private static final TopicPartition PARTITION = new TopicPartition("user-events", 0);
+    
+    @Autowired
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+    
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+    
+    @Autowired
+    private DigestAggregator digest;
+    
+    @MockBean
+    private JavaMailSender mailSender;
+    
+    /**
+     * Тест: уведомления из разных poll() отправляются одной сводкой.
+     */
+    @Test
+    void testNotificationsFromSeparatePollsShareDigest() throws Exception {
+        kafkaTemplate.send("user-events", new UserEvent("CREATE", "digest@example.com")).get();
+        assertTrue(await(() -> digest.getPendingCount() == 1), "Уведомление не открыло сводку");
+        
+        // Сводка открыта: запись прочитана, но смещение не закоммичено
+        assertEquals(0, committedOffset());
+        
+        kafkaTemplate.send("user-events", new UserEvent("CREATE", "digest@example.com")).get();
+        assertTrue(await(() -> committedOffset() == 2), "Смещения записей сводки не закоммичены");
+        verify(mailSender, timeout(5000).times(1)).send(any(SimpleMailMessage.class));
+    }
+    
+    private long committedOffset() {
+        try (AdminClient admin = AdminClient.create(
+                Collections.singletonMap("bootstrap.servers", embeddedKafka.getBrokersAsString()))) {
+            OffsetAndMetadata committed = admin.listConsumerGroupOffsets("notification-group")
+                .partitionsToOffsetAndMetadata().get(5, TimeUnit.SECONDS)
+                .get(PARTITION);
+            return committed == null ? 0 : committed.offset();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        return false;
+    }
+}
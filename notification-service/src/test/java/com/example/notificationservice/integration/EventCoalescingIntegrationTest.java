@@ -0,0 +1,112 @@
+package com.example.notificationservice.integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.TestPropertySource;
+import com.example.notificationservice.coalesce.EventCoalescer;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Интеграционный тест окна схлопывания в listener-контейнере.
+ * 
+ * Проверяет, что consumer продолжает чтение, пока окно открыто: DELETE,
+ * записанный после того, как CREATE уже прочитан и открыл окно (то есть
+ * полученный другим poll()), отменяет CREATE, а смещения обеих записей
+ * коммитятся только после закрытия окна.
+ */
+@SpringBootTest
+@EmbeddedKafka(partitions = 1, topics = {"user-events", "user-events-retry-1s", "user-events-retry-10s",
+                                         "user-events-retry-1m", "user-events-dlt"})
+@TestPropertySource(properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.mail.host=localhost",
+    "spring.mail.port=3025",
+    "notification.kafka.coalesce.enabled=true",
+    "notification.kafka.coalesce.window-ms=3000",
+    "notification.kafka.coalesce.tick-ms=50"
+})
+class EventCoalescingIntegrationTest {
+    
+    private static final TopicPartition PARTITION = new TopicPartition("user-events", 0);
+    
+    @Autowired
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+    
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+    
+    @Autowired
+    private EventCoalescer coalescer;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @MockBean
+    private JavaMailSender mailSender;
+    
+    /**
+     * Тест: CREATE и DELETE из разных poll() схлопываются без письма.
+     */
+    @Test
+    void testCreateAndDeleteFromSeparatePollsCancelOut() throws Exception {
+        kafkaTemplate.send("user-events", new UserEvent("CREATE", "coalesce@example.com")).get();
+        assertTrue(await(() -> coalescer.getPendingCount() == 1), "CREATE не открыл окно");
+        
+        // Окно открыто: его запись прочитана, но смещение не закоммичено
+        assertEquals(0, committedOffset());
+        
+        kafkaTemplate.send("user-events", new UserEvent("DELETE", "coalesce@example.com")).get();
+        assertTrue(await(() -> cancelled() == 2), "DELETE не попал в открытое окно");
+        
+        assertTrue(await(() -> committedOffset() == 2), "Смещения записей окна не закоммичены");
+        verify(mailSender, never()).send(any(SimpleMailMessage.class));
+    }
+    
+    private double cancelled() {
+        return meterRegistry.counter("notification.coalesce.events", "result", "cancelled").count();
+    }
+    
+    private long committedOffset() {
+        try (AdminClient admin = AdminClient.create(
+                Collections.singletonMap("bootstrap.servers", embeddedKafka.getBrokersAsString()))) {
+            OffsetAndMetadata committed = admin.listConsumerGroupOffsets("notification-group")
+                .partitionsToOffsetAndMetadata().get(5, TimeUnit.SECONDS)
+                .get(PARTITION);
+            return committed == null ? 0 : committed.offset();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        return false;
+    }
+}
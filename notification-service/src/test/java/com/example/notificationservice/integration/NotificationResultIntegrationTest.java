@@ -0,0 +1,123 @@
+package com.example.notificationservice.integration;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.TestPropertySource;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Интеграционный тест топика результатов в транзакционном режиме.
+ * 
+ * Проверяет, что результат записи user-events виден читателю
+ * с read_committed вместе с зафиксированным смещением записи,
+ * а повтор из топика повторов публикует результат следующей попытки.
+ */
+@SpringBootTest
+@EmbeddedKafka(partitions = 1,
+               topics = {"user-events", "user-events-retry-1s", "user-events-retry-10s",
+                         "user-events-retry-1m", "user-events-dlt", "notification-results"},
+               brokerProperties = {"transaction.state.log.replication.factor=1",
+                                   "transaction.state.log.min.isr=1"})
+@TestPropertySource(properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.mail.host=localhost",
+    "spring.mail.port=3025",
+    "notification.kafka.results.enabled=true",
+    "notification.kafka.results.transactional=true",
+    "notification.kafka.results.linger-ms=5"
+})
+class NotificationResultIntegrationTest {
+    
+    @Autowired
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+    
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+    
+    @MockBean
+    private JavaMailSender mailSender;
+    
+    /**
+     * Тест: неудачная отправка и успешный повтор дают два результата,
+     * а смещение исходной записи зафиксировано.
+     */
+    @Test
+    void testResultsCommittedWithOffsets() throws Exception {
+        // Первая отправка падает, повтор проходит
+        doThrow(new MailSendException("SMTP-сервер недоступен"))
+            .doNothing()
+            .when(mailSender).send(any(SimpleMailMessage.class));
+        
+        UserEvent userEvent = new UserEvent("CREATE", "results@example.com");
+        userEvent.setEventId("results-1");
+        kafkaTemplate.send("user-events", userEvent).get();
+        
+        List<Map<String, Object>> results = readResults(2, Duration.ofSeconds(20));
+        assertEquals(2, results.size());
+        assertEquals("FAILED", results.get(0).get("status"));
+        assertEquals(1, results.get(0).get("attempt"));
+        assertEquals("results-1", results.get(0).get("eventId"));
+        assertEquals("SENT", results.get(1).get("status"));
+        assertEquals(2, results.get(1).get("attempt"));
+        assertTrue(((Number) results.get(1).get("latencyMillis")).longValue() >= 0);
+        
+        try (AdminClient admin = AdminClient.create(
+                Collections.singletonMap("bootstrap.servers", embeddedKafka.getBrokersAsString()))) {
+            OffsetAndMetadata committed = admin.listConsumerGroupOffsets("notification-group")
+                .partitionsToOffsetAndMetadata().get()
+                .get(new TopicPartition("user-events", 0));
+            assertNotNull(committed);
+            assertEquals(1, committed.offset());
+        }
+    }
+    
+    private List<Map<String, Object>> readResults(int count, Duration timeout) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("results-reader", "false", embeddedKafka);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, Map.class.getName());
+        List<Map<String, Object>> results = new ArrayList<>();
+        try (Consumer<String, Map<String, Object>> consumer = new DefaultKafkaConsumerFactory<String, Map<String, Object>>(
+                props, new StringDeserializer(), new JsonDeserializer<>()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "notification-results");
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (results.size() < count && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, Map<String, Object>> record
+                        : consumer.poll(Duration.ofMillis(200))) {
+                    assertEquals("results@example.com", record.key());
+                    results.add(record.value());
+                }
+            }
+        }
+        return results;
+    }
+}
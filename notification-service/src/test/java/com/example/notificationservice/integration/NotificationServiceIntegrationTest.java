@@ -6,6 +6,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.context.TestPropertySource;
@@ -14,6 +15,7 @@ import com.example.notificationservice.service.EmailService;
 import com.example.notificationservice.service.KafkaConsumerService;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
@@ -24,7 +26,8 @@ import static org.mockito.Mockito.verify;
  * и MockBean для мокирования почтового сервиса.
  */
 @SpringBootTest
-@EmbeddedKafka(partitions = 1, topics = {"user-events"})
+@EmbeddedKafka(partitions = 1, topics = {"user-events", "user-events-retry-1s", "user-events-retry-10s",
+                                         "user-events-retry-1m", "user-events-dlt"})
 @TestPropertySource(properties = {
     "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
     "spring.mail.host=localhost",
@@ -84,6 +87,26 @@ class NotificationServiceIntegrationTest {
         verify(mailSender, timeout(5000)).send(any(SimpleMailMessage.class));
     }
     
+    /**
+     * Тест повтора отправки через топик повторов.
+     * 
+     * Проверяет, что письмо, которое не удалось отправить из user-events,
+     * отправляется повторно из user-events-retry-1s.
+     */
+    @Test
+    void testFailedEventRetriedFromRetryTopic() {
+        // Первая отправка падает, повтор проходит
+        doThrow(new MailSendException("SMTP-сервер недоступен"))
+            .doNothing()
+            .when(mailSender).send(any(SimpleMailMessage.class));
+        
+        // Отправка события в Kafka
+        kafkaTemplate.send("user-events", new UserEvent("CREATE", "retry@example.com"));
+        
+        // Ожидание и проверка, что после ошибки письмо было отправлено повторно
+        verify(mailSender, timeout(15000).times(2)).send(any(SimpleMailMessage.class));
+    }
+    
     /**
      * Тест прямого вызова сервиса отправки email.
      * 
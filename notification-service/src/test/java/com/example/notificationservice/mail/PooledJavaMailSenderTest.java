@@ -0,0 +1,122 @@
+package com.example.notificationservice.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тесты PooledJavaMailSender на локальном SMTP-сервере GreenMail.
+ * 
+ * Проверяет переиспользование соединений, ограничение числа сообщений
+ * на соединение и переподключение после обрыва.
+ */
+class PooledJavaMailSenderTest {
+    
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    private PooledJavaMailSender mailSender;
+    
+    @BeforeEach
+    void setUp() {
+        mailSender = createSender(100);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        mailSender.destroy();
+    }
+    
+    /**
+     * Тест переиспользования одного соединения для последовательных писем.
+     */
+    @Test
+    void testConnectionReusedAcrossSends() {
+        for (int i = 0; i < 5; i++) {
+            mailSender.send(message("user" + i + "@example.com"));
+        }
+        
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(1.0, count("miss"));
+        assertEquals(4.0, count("hit"));
+        assertEquals(1, mailSender.getPool().getIdleCount());
+    }
+    
+    /**
+     * Тест переоткрытия соединения после max-messages-per-connection писем.
+     */
+    @Test
+    void testConnectionRecycledAfterMaxMessages() {
+        mailSender.destroy();
+        mailSender = createSender(2);
+        
+        for (int i = 0; i < 5; i++) {
+            mailSender.send(message("user" + i + "@example.com"));
+        }
+        
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(3.0, count("miss"));
+    }
+    
+    /**
+     * Тест переподключения после перезапуска SMTP-сервера.
+     */
+    @Test
+    void testReconnectAfterServerRestart() {
+        mailSender.send(message("first@example.com"));
+        
+        // Разрыв всех соединений на стороне сервера
+        greenMail.stop();
+        greenMail.start();
+        
+        mailSender.send(message("second@example.com"));
+        
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals(2.0, count("miss"));
+    }
+    
+    /**
+     * Тест заранее открытых соединений: первое письмо не ждет подключения.
+     */
+    @Test
+    void testPrestartOpensConnections() throws Exception {
+        assertEquals(2, mailSender.getPool().prestart(5));
+        
+        mailSender.send(message("user@example.com"));
+        
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals(2.0, count("miss"));
+        assertEquals(1.0, count("hit"));
+    }
+    
+    private PooledJavaMailSender createSender(int maxMessagesPerConnection) {
+        PooledJavaMailSender sender = new PooledJavaMailSender();
+        sender.setHost("localhost");
+        sender.setPort(ServerSetupTest.SMTP.getPort());
+        sender.setPool(new SmtpTransportPool(sender::openTransport, 2, 60000,
+            maxMessagesPerConnection, 5000, 1000, meterRegistry));
+        return sender;
+    }
+    
+    private double count(String result) {
+        return meterRegistry.get("notification.smtp.pool.requests").tag("result", result).counter().count();
+    }
+    
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo(to);
+        message.setSubject("Тест");
+        message.setText("Тестовое сообщение");
+        return message;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.notificationservice.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import java.net.ConnectException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты RoutingJavaMailSender на двух локальных SMTP-серверах GreenMail.
+ * 
+ * Проверяет распределение писем между релеями, переключение на исправный
+ * релей при отказе и возврат релея в работу после проверки соединения.
+ */
+class RoutingJavaMailSenderTest {
+    
+    private static final ServerSetup PRIMARY = new ServerSetup(3125, null, ServerSetup.PROTOCOL_SMTP);
+    private static final ServerSetup BACKUP = new ServerSetup(3126, null, ServerSetup.PROTOCOL_SMTP);
+    
+    @RegisterExtension
+    static GreenMailExtension primary = new GreenMailExtension(PRIMARY);
+    
+    @RegisterExtension
+    static GreenMailExtension backup = new GreenMailExtension(BACKUP);
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    private RoutingJavaMailSender mailSender;
+    
+    @BeforeEach
+    void setUp() {
+        mailSender = new RoutingJavaMailSender(Arrays.asList(
+            relay("primary", PRIMARY), relay("backup", BACKUP)), 0);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        mailSender.destroy();
+    }
+    
+    /**
+     * Тест: письма распределяются между исправными релеями.
+     */
+    @Test
+    void testSendsThroughBothRelays() {
+        for (int i = 0; i < 10; i++) {
+            mailSender.send(message("user" + i + "@example.com"));
+        }
+        
+        assertEquals(10, primary.getReceivedMessages().length + backup.getReceivedMessages().length);
+        assertTrue(primary.getReceivedMessages().length > 0);
+        assertTrue(backup.getReceivedMessages().length > 0);
+        assertEquals(10, sentCount("primary") + sentCount("backup"));
+    }
+    
+    /**
+     * Тест переключения на исправный релей и выключения недоступного.
+     */
+    @Test
+    void testFailoverToHealthyRelay() {
+        backup.stop();
+        
+        for (int i = 0; i < 5; i++) {
+            mailSender.send(message("user" + i + "@example.com"));
+        }
+        
+        assertEquals(5, primary.getReceivedMessages().length);
+        assertEquals(SmtpRelay.State.OPEN, mailSender.getRelays().get(1).getState());
+        assertEquals(1.0, meterRegistry.get("notification.smtp.relay.failovers").tag("relay", "backup")
+            .counter().count());
+        
+        // Проверка соединения возвращает восстановленный релей в работу
+        backup.start();
+        mailSender.checkHealth();
+        assertEquals(SmtpRelay.State.HALF_OPEN, mailSender.getRelays().get(1).getState());
+    }
+    
+    /**
+     * Тест ошибки, когда недоступны все релеи.
+     */
+    @Test
+    void testFailsWhenAllRelaysDown() {
+        primary.stop();
+        backup.stop();
+        
+        assertThrows(MailSendException.class, () -> mailSender.send(message("user@example.com")));
+        // Оба релея выключены: следующая отправка не пытается подключаться
+        MailSendException e = assertThrows(MailSendException.class,
+            () -> mailSender.send(message("user@example.com")));
+        assertTrue(e.getFailedMessages().values().iterator().next().getMessage().contains("выключены"));
+        
+        primary.start();
+        backup.start();
+    }
+    
+    /**
+     * Тест разделения ошибок релея и постоянных отказов по письму.
+     */
+    @Test
+    void testRelayFaultClassification() throws Exception {
+        assertTrue(RoutingJavaMailSender.isRelayFault(
+            new MessagingException("Couldn't connect", new ConnectException("Connection refused"))));
+        assertTrue(RoutingJavaMailSender.isRelayFault(new MessagingException("421 4.3.2 Service not available")));
+        assertTrue(RoutingJavaMailSender.isRelayFault(new MailSendException("Mail server connection failed",
+            new SmtpConnectionException(new MessagingException("Нет свободных SMTP-соединений за 5000 мс")))));
+        assertTrue(RoutingJavaMailSender.isRelayFault(new MailAuthenticationException("535 5.7.8 Bad credentials")));
+        assertFalse(RoutingJavaMailSender.isRelayFault(new SMTPAddressFailedException(
+            new InternetAddress("nobody@example.com"), "RCPT TO", 550, "550 5.1.1 User unknown")));
+        // Ошибка без кода ответа и без проблем с соединением относится к письму
+        assertFalse(RoutingJavaMailSender.isRelayFault(new MessagingException("Invalid Addresses")));
+        assertFalse(RoutingJavaMailSender.isRelayFault(new IllegalStateException("Ошибка подготовки письма")));
+    }
+    
+    private SmtpRelay relay(String name, ServerSetup setup) {
+        PooledJavaMailSender sender = new PooledJavaMailSender();
+        sender.setHost("localhost");
+        sender.setPort(setup.getPort());
+        sender.setPool(new SmtpTransportPool(sender::openTransport, 2, 60000, 100, 5000, 1000,
+            meterRegistry, Tags.of("relay", name)));
+        return new SmtpRelay(name, sender, 1.0, 1, 60000, 0.5, meterRegistry);
+    }
+    
+    private long sentCount(String relay) {
+        return meterRegistry.get("notification.smtp.relay.send").tags("relay", relay, "result", "sent").timer().count();
+    }
+    
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo(to);
+        message.setSubject("Тест");
+        message.setText("Тестовое сообщение");
+        return message;
+    }
+}
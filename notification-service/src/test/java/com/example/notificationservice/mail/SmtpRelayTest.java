@@ -0,0 +1,98 @@
+package com.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для SmtpRelay.
+ * 
+ * Проверяет переходы выключателя: поздние результаты отправок, начатых
+ * до выключения, единственность пробной отправки и учет проверок соединения.
+ */
+class SmtpRelayTest {
+    
+    /**
+     * Тест: успех отправки, начатой до выключения, не закрывает выключатель
+     * и не разрешает вторую пробную отправку.
+     */
+    @Test
+    void testLateSuccessDoesNotCloseBreaker() {
+        SmtpRelay relay = relay(1, 0);
+        SmtpRelay.Permit slow = relay.tryAcquire(System.nanoTime());
+        SmtpRelay.Permit failed = relay.tryAcquire(System.nanoTime());
+        
+        assertTrue(relay.onFailure(failed, 1000, 1));
+        assertEquals(SmtpRelay.State.OPEN, relay.getState());
+        
+        SmtpRelay.Permit probe = relay.tryAcquire(System.nanoTime());
+        assertNotNull(probe);
+        assertTrue(probe.probe);
+        relay.onSuccess(slow, 1000, 1);
+        assertEquals(SmtpRelay.State.HALF_OPEN, relay.getState());
+        assertNull(relay.tryAcquire(System.nanoTime()));
+        
+        relay.onSuccess(probe, 1000, 1);
+        assertEquals(SmtpRelay.State.CLOSED, relay.getState());
+    }
+    
+    /**
+     * Тест: поздняя ошибка отправки, начатой до выключения, не выключает
+     * релей, вернувшийся в работу.
+     */
+    @Test
+    void testLateFailureIgnoredAfterRecovery() {
+        SmtpRelay relay = relay(1, 0);
+        SmtpRelay.Permit slow = relay.tryAcquire(System.nanoTime());
+        relay.onFailure(relay.tryAcquire(System.nanoTime()), 1000, 1);
+        relay.onSuccess(relay.tryAcquire(System.nanoTime()), 1000, 1);
+        
+        assertFalse(relay.onFailure(slow, 1000, 1));
+        assertEquals(SmtpRelay.State.CLOSED, relay.getState());
+    }
+    
+    /**
+     * Тест: одна неудачная проверка соединения не выключает работающий релей.
+     */
+    @Test
+    void testHealthCheckFailuresCountTowardsThreshold() {
+        SmtpRelay relay = relay(3, 60_000);
+        
+        assertFalse(relay.onHealthCheck(false));
+        assertFalse(relay.onHealthCheck(false));
+        assertEquals(SmtpRelay.State.CLOSED, relay.getState());
+        assertTrue(relay.onHealthCheck(false));
+        assertEquals(SmtpRelay.State.OPEN, relay.getState());
+        
+        // Удачная проверка разрешает пробную отправку до конца выключения
+        assertTrue(relay.onHealthCheck(true));
+        assertEquals(SmtpRelay.State.HALF_OPEN, relay.getState());
+        assertTrue(relay.tryAcquire(System.nanoTime()).probe);
+    }
+    
+    /**
+     * Тест: первый замер задает оценку задержки, следующие сглаживаются.
+     */
+    @Test
+    void testLatencyEwma() {
+        SmtpRelay relay = relay(1, 0);
+        relay.onSuccess(relay.tryAcquire(System.nanoTime()), 1_000_000, 1);
+        relay.onSuccess(relay.tryAcquire(System.nanoTime()), 3_000_000, 1);
+        
+        assertEquals(Duration.ofMillis(2), relay.getLatency());
+    }
+    
+    private static SmtpRelay relay(int failureThreshold, long openDurationMillis) {
+        PooledJavaMailSender sender = new PooledJavaMailSender();
+        sender.setHost("localhost");
+        return new SmtpRelay("test", sender, 1.0, failureThreshold, openDurationMillis, 0.5,
+            new SimpleMeterRegistry());
+    }
+}
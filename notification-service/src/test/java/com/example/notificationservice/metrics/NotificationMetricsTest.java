@@ -0,0 +1,80 @@
+package com.example.notificationservice.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import com.example.notificationservice.dto.Operation;
+import com.example.notificationservice.mail.SmtpReplies;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для NotificationMetrics.
+ * 
+ * Проверяет классификацию ошибок отправки и запись метрик конвейера.
+ */
+class NotificationMetricsTest {
+    
+    /**
+     * Тест определения причины ошибки по цепочке исключений.
+     */
+    @Test
+    void testFailureClassification() {
+        assertEquals(NotificationMetrics.FailureReason.AUTHENTICATION,
+            NotificationMetrics.classify(new MailAuthenticationException("535 auth failed")));
+        assertEquals(NotificationMetrics.FailureReason.CONNECTION,
+            NotificationMetrics.classify(new MailSendException("connect failed",
+                new MessagingException("Couldn't connect", new ConnectException("Connection refused")))));
+        assertEquals(NotificationMetrics.FailureReason.TIMEOUT,
+            NotificationMetrics.classify(new MessagingException("Read timed out", new SocketTimeoutException())));
+        assertEquals(NotificationMetrics.FailureReason.OTHER,
+            NotificationMetrics.classify(new IllegalStateException("unexpected")));
+    }
+    
+    /**
+     * Тест классификации временных отказов 4xx по коду ответа сервера.
+     */
+    @Test
+    void testTransientReplyClassifiedAsThrottled() throws AddressException {
+        MailSendException greylisted = new MailSendException("send failed",
+            new SMTPAddressFailedException(new InternetAddress("user@example.com", false), "RCPT TO", 451,
+                "451 4.7.1 Greylisted, try again later"));
+        assertEquals(451, SmtpReplies.replyCode(greylisted));
+        assertEquals(NotificationMetrics.FailureReason.THROTTLED, NotificationMetrics.classify(greylisted));
+        assertEquals(421, SmtpReplies.replyCode(new MessagingException("421 4.3.2 Service not available")));
+        assertEquals(0, SmtpReplies.replyCode(new IllegalStateException("unexpected")));
+    }
+    
+    /**
+     * Тест записи метрик в предварительно зарегистрированные meter'ы.
+     */
+    @Test
+    void testMetersRecorded() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        NotificationMetrics metrics = new NotificationMetrics(registry);
+        
+        metrics.recordReceived(Operation.of("create"));
+        metrics.recordReceived(Operation.of("UPDATE"));
+        metrics.recordSend(TimeUnit.MILLISECONDS.toNanos(25), true);
+        metrics.recordDelivered(System.currentTimeMillis() - 100);
+        metrics.recordFailure(NotificationMetrics.FailureReason.QUEUE_FULL);
+        
+        assertEquals(1.0, registry.counter("notification.events.received", "operation", "create").count());
+        assertEquals(1.0, registry.counter("notification.events.received", "operation", "other").count());
+        Timer send = registry.get("notification.smtp.send").tag("result", "sent").timer();
+        assertEquals(1, send.count());
+        assertEquals(25.0, send.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertTrue(registry.get("notification.delivery.latency").timer().totalTime(TimeUnit.MILLISECONDS) >= 100);
+        assertEquals(1.0, registry.counter("notification.send.failures", "reason", "queue_full").count());
+    }
+}
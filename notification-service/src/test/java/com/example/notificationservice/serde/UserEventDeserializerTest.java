@@ -0,0 +1,136 @@
+package com.example.notificationservice.serde;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import com.example.notificationservice.dto.Operation;
+import com.example.notificationservice.dto.UserEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для форматов значений UserEvent.
+ * 
+ * Проверяет потоковый JSON, бинарный формат и выбор формата по топику.
+ */
+class UserEventDeserializerTest {
+    
+    /**
+     * Тест совместимости потокового JSON с записями JsonSerializer Spring.
+     */
+    @Test
+    void testFastJsonReadsSpringJsonRecords() {
+        UserEvent source = event("CREATE", "user@example.com", "id-1", "en");
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data;
+        try (JsonSerializer<UserEvent> serializer = new JsonSerializer<>()) {
+            data = serializer.serialize("user-events", headers, source);
+        }
+        
+        UserEvent userEvent = new UserEventJsonDeserializer().deserialize("user-events", data);
+        
+        assertFields(source, userEvent);
+        assertEquals(Operation.CREATE, userEvent.getOperationType());
+    }
+    
+    /**
+     * Тест пропуска неизвестных полей, null и приведения скаляров к строке.
+     */
+    @Test
+    void testFastJsonSkipsUnknownFields() {
+        String json = "{\"source\":{\"service\":\"user-service\",\"tags\":[1,2]},\"operation\":\"delete\","
+            + "\"email\":\"user@example.com\",\"eventId\":42,\"locale\":null}";
+        
+        UserEvent userEvent = new UserEventJsonDeserializer().deserialize("user-events", bytes(json));
+        
+        assertEquals(Operation.DELETE, userEvent.getOperationType());
+        assertEquals("user@example.com", userEvent.getEmail());
+        assertEquals("42", userEvent.getEventId());
+        assertNull(userEvent.getLocale());
+        assertNull(new UserEventJsonDeserializer().deserialize("user-events", null));
+    }
+    
+    /**
+     * Тест ошибок разбора JSON.
+     */
+    @Test
+    void testFastJsonRejectsMalformedRecords() {
+        UserEventJsonDeserializer deserializer = new UserEventJsonDeserializer();
+        
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("user-events", bytes("[1]")));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("user-events", bytes("{\"email\":")));
+        assertThrows(SerializationException.class,
+            () -> deserializer.deserialize("user-events", bytes("{\"email\":[\"a@example.com\"]}")));
+    }
+    
+    /**
+     * Тест бинарного формата: известная и произвольная операция, null-поля, не-ASCII.
+     */
+    @Test
+    void testBinaryRoundTrip() {
+        UserEventBinarySerializer serializer = new UserEventBinarySerializer();
+        UserEventBinaryDeserializer deserializer = new UserEventBinaryDeserializer();
+        
+        UserEvent created = event("CREATE", "user@example.com", null, null);
+        byte[] data = serializer.serialize("user-events", created);
+        assertEquals(3 + 17 + 1 + 1, data.length);
+        assertFields(created, deserializer.deserialize("user-events", data));
+        
+        UserEvent other = event("Update", "пользователь@пример.рф", "id-" + "x".repeat(200), "ru_RU");
+        assertFields(other, deserializer.deserialize("user-events", serializer.serialize("user-events", other)));
+        
+        assertThrows(SerializationException.class,
+            () -> deserializer.deserialize("user-events", Arrays.copyOf(data, data.length - 3)));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("user-events", bytes("{}")));
+    }
+    
+    /**
+     * Тест формата auto и переопределения формата по топику.
+     */
+    @Test
+    void testFormatSelectedPerTopic() {
+        Map<String, ValueFormat> topics = UserEventDeserializer.parseTopicFormats(" user-events-dlt = json ,legacy=binary");
+        UserEventDeserializer deserializer = new UserEventDeserializer(ValueFormat.AUTO, topics);
+        deserializer.configure(Collections.singletonMap(JsonDeserializer.TRUSTED_PACKAGES, "com.example.notificationservice.dto"), false);
+        
+        UserEvent source = event("CREATE", "user@example.com", "id-1", null);
+        byte[] binary = new UserEventBinarySerializer().serialize("user-events", source);
+        byte[] json = bytes("{\"operation\":\"CREATE\",\"email\":\"user@example.com\",\"eventId\":\"id-1\"}");
+        
+        assertEquals(ValueFormat.JSON, deserializer.formatOf("user-events-dlt"));
+        assertEquals(ValueFormat.AUTO, deserializer.formatOf("user-events"));
+        assertFields(source, deserializer.deserialize("user-events", new RecordHeaders(), binary));
+        assertFields(source, deserializer.deserialize("user-events", new RecordHeaders(), json));
+        assertFields(source, deserializer.deserialize("user-events-dlt", new RecordHeaders(), json));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("legacy", new RecordHeaders(), json));
+        
+        assertEquals(ValueFormat.FAST_JSON, ValueFormat.parse("fast-json"));
+        assertThrows(IllegalArgumentException.class, () -> UserEventDeserializer.parseTopicFormats("user-events"));
+        deserializer.close();
+    }
+    
+    private static UserEvent event(String operation, String email, String eventId, String locale) {
+        UserEvent userEvent = new UserEvent(operation, email);
+        userEvent.setEventId(eventId);
+        userEvent.setLocale(locale);
+        return userEvent;
+    }
+    
+    private static void assertFields(UserEvent expected, UserEvent actual) {
+        assertEquals(expected.getOperation(), actual.getOperation());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getEventId(), actual.getEventId());
+        assertEquals(expected.getLocale(), actual.getLocale());
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dedup.EventDeduplicator;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.metrics.NotificationMetrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для BatchKafkaConsumerService.
+ * 
+ * Проверяет формирование пакета уведомлений и обработку ошибок отправки.
+ */
+@ExtendWith(MockitoExtension.class)
+class BatchKafkaConsumerServiceTest {
+    
+    @Mock
+    private EmailService emailService;
+    
+    /**
+     * Тест отправки всего пакета одним вызовом EmailService.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandleBatchSendsAllMessagesAtOnce() {
+        BatchKafkaConsumerService service = new BatchKafkaConsumerService(emailService, NotificationMetrics.noop(), "log", null, null, null);
+        
+        // Настройка моков
+        when(emailService.createUserEventMessage(any())).thenAnswer(this::messageForKnownOperation);
+        when(emailService.sendEmails(anyList(), eq(Priority.TRANSACTIONAL))).thenReturn(BulkSendResult.allSent(2));
+        
+        // Вызов тестируемого метода (событие с неизвестной операцией пропускается)
+        service.handleUserEvents(Arrays.asList(
+            new UserEvent("CREATE", "a@example.com"),
+            new UserEvent("UPDATE", "c@example.com"),
+            new UserEvent("DELETE", "b@example.com")));
+        
+        // Проверка вызовов
+        verify(emailService, times(1)).sendEmails(argThat((List<SimpleMailMessage> messages) -> messages.size() == 2),
+            eq(Priority.TRANSACTIONAL));
+    }
+    
+    /**
+     * Тест режима retry: ошибка указывает на исходный индекс записи в пакете.
+     */
+    @Test
+    void testRetryModeReportsFirstFailedRecord() {
+        BatchKafkaConsumerService service = new BatchKafkaConsumerService(emailService, NotificationMetrics.noop(), "retry", null, null, null);
+        
+        // Настройка моков: второе сообщение пакета не отправлено
+        when(emailService.createUserEventMessage(any())).thenAnswer(this::messageForKnownOperation);
+        when(emailService.sendEmails(anyList(), eq(Priority.TRANSACTIONAL))).thenReturn(new BulkSendResult(2,
+            Collections.singletonMap(1, new IllegalStateException("550 mailbox unavailable"))));
+        
+        // Вызов и проверка: первая запись пропущена, поэтому сбой соответствует индексу 2
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () ->
+            service.handleUserEvents(Arrays.asList(
+                new UserEvent("UNKNOWN", "skip@example.com"),
+                new UserEvent("CREATE", "a@example.com"),
+                new UserEvent("CREATE", "b@example.com"))));
+        assertEquals(2, exception.getIndex());
+    }
+    
+    /**
+     * Тест: две записи с одним eventId в одном пакете дают одно письмо,
+     * а ключ неотправленного письма освобождается для повторной доставки.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDuplicateEventIdInBatchSentOnce() throws Exception {
+        EventDeduplicator deduplicator = new EventDeduplicator(60_000, 60_000, 1000, null, new SimpleMeterRegistry());
+        BatchKafkaConsumerService service = new BatchKafkaConsumerService(emailService, NotificationMetrics.noop(),
+            "retry", null, deduplicator, null);
+        UserEvent first = new UserEvent("CREATE", "a@example.com");
+        first.setEventId("event-1");
+        UserEvent second = new UserEvent("CREATE", "a@example.com");
+        second.setEventId("event-1");
+        
+        // Настройка моков: первая отправка не удалась
+        when(emailService.createUserEventMessage(any())).thenAnswer(this::messageForKnownOperation);
+        when(emailService.sendEmails(anyList(), eq(Priority.TRANSACTIONAL)))
+            .thenReturn(new BulkSendResult(1, Collections.singletonMap(0, new IllegalStateException("421 try later"))))
+            .thenReturn(BulkSendResult.allSent(1));
+        
+        assertThrows(BatchListenerFailedException.class, () -> service.handleUserEvents(Arrays.asList(first, second)));
+        // Повторная доставка: ключ не остался захваченным, письмо отправляется снова
+        service.handleUserEvents(Arrays.asList(first, second));
+        // После отправки событие - дубль
+        service.handleUserEvents(Collections.singletonList(first));
+        
+        verify(emailService, times(2)).sendEmails(argThat((List<SimpleMailMessage> messages) -> messages.size() == 1),
+            eq(Priority.TRANSACTIONAL));
+        verify(emailService, never()).sendEmails(argThat((List<SimpleMailMessage> messages) -> messages.size() > 1),
+            any(Priority.class));
+    }
+    
+    // Сообщение только для операций CREATE/DELETE, как в EmailService
+    private SimpleMailMessage messageForKnownOperation(InvocationOnMock invocation) {
+        UserEvent userEvent = invocation.getArgument(0);
+        String operation = userEvent.getOperation();
+        return "CREATE".equals(operation) || "DELETE".equals(operation) ? new SimpleMailMessage() : null;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.notificationservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.BulkSendSummary;
+import com.example.notificationservice.dto.Priority;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для BulkSendService.
+ * 
+ * Проверяет потоковый разбор NDJSON и JSON-массива, пакетную отправку
+ * и строки результата.
+ */
+@ExtendWith(MockitoExtension.class)
+class BulkSendServiceTest {
+    
+    @Mock
+    private EmailService emailService;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /**
+     * Тест отправки NDJSON пакетами заданного размера.
+     */
+    @Test
+    void testNdjsonSentInBatches() throws Exception {
+        BulkSendService service = new BulkSendService(emailService, objectMapper, 2);
+        List<Integer> batchSizes = stubSend(Collections.emptyMap());
+        
+        String body = "{\"email\":\"a@example.com\",\"message\":\"A\"}\n"
+            + "{\"email\":\"b@example.com\",\"message\":\"B\"}\n"
+            + "{\"email\":\"c@example.com\",\"message\":\"C\"}\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BulkSendSummary summary = service.send(stream(body), out, false);
+        
+        assertEquals(3, summary.getTotal());
+        assertEquals(3, summary.getSent());
+        assertEquals(Arrays.asList(2, 1), batchSizes);
+        
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("{\"index\":0,\"email\":\"a@example.com\",\"status\":\"SENT\"}", lines[0]);
+        assertEquals("{\"total\":3,\"sent\":3,\"failed\":0,\"invalid\":0}", lines[3]);
+    }
+    
+    /**
+     * Тест JSON-массива с невалидным и неотправленным письмом в режиме failures.
+     */
+    @Test
+    void testJsonArrayReportsFailuresOnly() throws Exception {
+        BulkSendService service = new BulkSendService(emailService, objectMapper, 100);
+        stubSend(Collections.singletonMap(1, new RuntimeException("550 mailbox unavailable")));
+        
+        String body = "[{\"email\":\"a@example.com\",\"message\":\"A\"},"
+            + "{\"email\":\"\",\"message\":\"B\"},"
+            + "{\"email\":\"c@example.com\",\"message\":\"C\"}]";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BulkSendSummary summary = service.send(stream(body), out, true);
+        
+        assertEquals(3, summary.getTotal());
+        assertEquals(1, summary.getSent());
+        assertEquals(1, summary.getFailed());
+        assertEquals(1, summary.getInvalid());
+        
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"index\":1") && lines[0].contains("INVALID"));
+        assertTrue(lines[1].contains("\"index\":2") && lines[1].contains("FAILED") && lines[1].contains("550"));
+    }
+    
+    /**
+     * Тест: при синтаксической ошибке уже разобранные письма отправляются.
+     */
+    @Test
+    void testMalformedBodySendsParsedPrefix() throws Exception {
+        BulkSendService service = new BulkSendService(emailService, objectMapper, 100);
+        List<Integer> batchSizes = stubSend(Collections.emptyMap());
+        
+        String body = "{\"email\":\"a@example.com\",\"message\":\"A\"}\n{\"email\":";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BulkSendSummary summary = service.send(stream(body), out, false);
+        
+        assertEquals(1, summary.getSent());
+        assertEquals(Collections.singletonList(1), batchSizes);
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("{\"error\":"));
+    }
+    
+    /**
+     * Тест: смена приоритета отправляет текущий пакет, неизвестный приоритет - INVALID.
+     */
+    @Test
+    void testPriorityChangeSplitsBatch() throws Exception {
+        BulkSendService service = new BulkSendService(emailService, objectMapper, 100);
+        List<Integer> batchSizes = stubSend(Collections.emptyMap());
+        when(emailService.sendEmails(anyList(), eq(Priority.TRANSACTIONAL)))
+            .thenAnswer(invocation -> BulkSendResult.allSent(invocation.getArgument(0, List.class).size()));
+        
+        String body = "{\"email\":\"a@example.com\",\"message\":\"A\"}\n"
+            + "{\"email\":\"b@example.com\",\"message\":\"B\",\"priority\":\"transactional\"}\n"
+            + "{\"email\":\"c@example.com\",\"message\":\"C\",\"priority\":\"urgent\"}\n"
+            + "{\"email\":\"d@example.com\",\"message\":\"D\",\"priority\":\"bulk\"}\n";
+        BulkSendSummary summary = service.send(stream(body), new ByteArrayOutputStream(), false);
+        
+        assertEquals(3, summary.getSent());
+        assertEquals(1, summary.getInvalid());
+        assertEquals(Arrays.asList(1, 1), batchSizes);
+        verify(emailService, times(1)).sendEmails(anyList(), eq(Priority.TRANSACTIONAL));
+    }
+    
+    /**
+     * Тест: запросы проверяются так же, как в /send-email, с теми же текстами ошибок.
+     */
+    @Test
+    void testInvalidRequestsUseSharedValidation() throws Exception {
+        BulkSendService service = new BulkSendService(emailService, objectMapper, 100);
+        stubSend(Collections.emptyMap());
+        
+        String body = "{\"email\":\"a@example.com\",\"message\":\"A\"}\n"
+            + "{\"email\":\"not-an-email\",\"message\":\"B\"}\n"
+            + "{\"email\":\"c@example.com\",\"template\":\"missing\"}\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BulkSendSummary summary = service.send(stream(body), out, true);
+        
+        assertEquals(1, summary.getSent());
+        assertEquals(2, summary.getInvalid());
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals("{\"index\":1,\"email\":\"not-an-email\",\"status\":\"INVALID\","
+            + "\"error\":\"Некорректный email адрес: not-an-email\"}", lines[0]);
+        assertEquals("{\"index\":2,\"email\":\"c@example.com\",\"status\":\"INVALID\","
+            + "\"error\":\"Шаблон не найден: missing\"}", lines[1]);
+    }
+    
+    /**
+     * Настраивает отправку с заданными ошибками и запоминает размеры пакетов.
+     */
+    private List<Integer> stubSend(Map<Integer, Exception> failures) {
+        when(emailService.createMailMessage(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(invocation.getArgument(0, String.class));
+            return message;
+        });
+        List<Integer> batchSizes = new ArrayList<>();
+        when(emailService.sendEmails(anyList(), eq(Priority.BULK))).thenAnswer(invocation -> {
+            int size = invocation.getArgument(0, List.class).size();
+            batchSizes.add(size);
+            return new BulkSendResult(size, failures);
+        });
+        return batchSizes;
+    }
+    
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
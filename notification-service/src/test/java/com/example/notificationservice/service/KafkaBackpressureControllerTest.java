@@ -0,0 +1,81 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.throttle.SendLanes;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для KafkaBackpressureController.
+ * 
+ * Проверяет паузу и возобновление чтения по заполненности очереди полосы,
+ * стоящей перед исполнителем отправки.
+ */
+class KafkaBackpressureControllerTest {
+    
+    private final BoundedExecutor executor =
+        new BoundedExecutor("test-backpressure", BoundedExecutor.ThreadType.PLATFORM, 1, 1000);
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * Тест: заполненная очередь полосы ставит consumer на паузу, хотя исполнитель почти пуст.
+     */
+    @Test
+    void testPausesOnLaneQueue() throws Exception {
+        Map<Priority, SendLanes.LaneLimit> limits = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            limits.put(priority, new SendLanes.LaneLimit(1, 4, 0));
+        }
+        SendLanes lanes = new SendLanes(executor, 1, limits, 1000, new SimpleMeterRegistry());
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(registry.getListenerContainer(KafkaBackpressureController.LISTENER_ID)).thenReturn(container);
+        KafkaBackpressureController controller =
+            new KafkaBackpressureController(registry, executor, null, lanes, 0.9, 0.5, 1000);
+        
+        // Слот занят, очередь транзакционной полосы заполнена
+        assertTrue(lanes.acquire(Priority.TRANSACTIONAL));
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(lanes.submit(Priority.TRANSACTIONAL, () -> 1));
+        }
+        assertTrue(executor.getUtilization() < 0.9);
+        
+        // Другая полоса свободна: чтение не останавливается
+        controller.beforeSubmit(Priority.BULK);
+        verify(container, never()).pause();
+        
+        controller.beforeSubmit(Priority.TRANSACTIONAL);
+        assertTrue(controller.isPaused());
+        verify(container).pause();
+        
+        // Освободившийся слот разбирает очередь полосы: чтение возобновляется
+        lanes.release(Priority.TRANSACTIONAL);
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        verify(container, timeout(5000)).resume();
+        assertFalse(controller.isPaused());
+    }
+}
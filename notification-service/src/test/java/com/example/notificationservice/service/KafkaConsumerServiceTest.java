@@ -1,12 +1,20 @@
 package com.example.notificationservice.service;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
 import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.metrics.NotificationMetrics;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -21,6 +29,9 @@ class KafkaConsumerServiceTest {
     @Mock
     private EmailService emailService;
     
+    @Mock
+    private NotificationMetrics metrics;
+    
     @InjectMocks
     private KafkaConsumerService kafkaConsumerService;
     
@@ -32,14 +43,18 @@ class KafkaConsumerServiceTest {
         // Подготовка тестовых данных
         UserEvent userEvent = new UserEvent("CREATE", "test@example.com");
         
+        SimpleMailMessage message = new SimpleMailMessage();
+        
         // Настройка моков
-        when(emailService.sendAccountCreatedEmail("test@example.com")).thenReturn(true);
+        when(emailService.createUserEventMessage(userEvent)).thenReturn(message);
+        when(emailService.send(message, Priority.TRANSACTIONAL))
+            .thenReturn(SendResult.sent("test@example.com", 1));
         
         // Вызов тестируемого метода
         kafkaConsumerService.handleUserEvent(userEvent);
         
         // Проверка вызовов
-        verify(emailService, times(1)).sendAccountCreatedEmail("test@example.com");
+        verify(emailService, times(1)).send(message, Priority.TRANSACTIONAL);
     }
     
     /**
@@ -50,13 +65,64 @@ class KafkaConsumerServiceTest {
         // Подготовка тестовых данных
         UserEvent userEvent = new UserEvent("DELETE", "test@example.com");
         
+        SimpleMailMessage message = new SimpleMailMessage();
+        
         // Настройка моков
-        when(emailService.sendAccountDeletedEmail("test@example.com")).thenReturn(true);
+        when(emailService.createUserEventMessage(userEvent)).thenReturn(message);
+        when(emailService.send(message, Priority.TRANSACTIONAL))
+            .thenReturn(SendResult.sent("test@example.com", 1));
         
         // Вызов тестируемого метода
         kafkaConsumerService.handleUserEvent(userEvent);
         
         // Проверка вызовов
-        verify(emailService, times(1)).sendAccountDeletedEmail("test@example.com");
+        verify(emailService, times(1)).send(message, Priority.TRANSACTIONAL);
+    }
+    
+    /**
+     * Тест подтверждения записи после обработки в потоке consumer'а.
+     */
+    @Test
+    void testRecordAcknowledgedAfterProcessing() {
+        // Подготовка тестовых данных
+        UserEvent userEvent = new UserEvent("CREATE", "test@example.com");
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        SimpleMailMessage message = new SimpleMailMessage();
+        
+        // Настройка моков
+        when(emailService.createUserEventMessage(userEvent)).thenReturn(message);
+        when(emailService.send(message, Priority.TRANSACTIONAL))
+            .thenReturn(SendResult.sent("test@example.com", 1));
+        
+        // Вызов тестируемого метода
+        kafkaConsumerService.onUserEvent(new ConsumerRecord<>("user-events", 0, 0L, null, userEvent), acknowledgment);
+        
+        // Проверка: подтверждение только после отправки письма
+        verify(emailService, times(1)).send(message, Priority.TRANSACTIONAL);
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+    
+    /**
+     * Тест события для адреса из списка подавления: это не ошибка доставки.
+     */
+    @Test
+    void testSuppressedRecipientIsNotDeliveryFailure() {
+        // Подготовка тестовых данных
+        UserEvent userEvent = new UserEvent("CREATE", "blocked@example.com");
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        SimpleMailMessage message = new SimpleMailMessage();
+        
+        // Настройка моков
+        when(emailService.createUserEventMessage(userEvent)).thenReturn(message);
+        when(emailService.send(message, Priority.TRANSACTIONAL))
+            .thenReturn(SendResult.suppressed("blocked@example.com", "HARD_BOUNCE"));
+        
+        // Вызов тестируемого метода: без исключения и передачи в топик повторов
+        assertFalse(kafkaConsumerService.handleUserEvent(userEvent));
+        kafkaConsumerService.onUserEvent(new ConsumerRecord<>("user-events", 0, 0L, null, userEvent), acknowledgment);
+        
+        // Проверка: запись подтверждена, повторной отправки нет
+        verify(emailService, times(2)).send(any(SimpleMailMessage.class), any(Priority.class));
+        verify(acknowledgment, times(1)).acknowledge();
     }
 }
@@ -0,0 +1,131 @@
+package com.example.notificationservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.NotificationStatus.State;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для NotificationJobService.
+ * 
+ * Проверяет статусы уведомления по ходу отправки, отказ очереди
+ * и ожидание окончательного статуса.
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationJobServiceTest {
+    
+    @Mock
+    private EmailService emailService;
+    
+    /**
+     * Тест статусов QUEUED -> SENDING -> SENT и ожидания завершения.
+     */
+    @Test
+    void testStatusFollowsSend() {
+        NotificationJobService service = new NotificationJobService(emailService, null, 16, 60_000, 30_000);
+        SimpleMailMessage message = message();
+        CompletableFuture<SendResult> sendResult = new CompletableFuture<>();
+        ArgumentCaptor<Runnable> onStart = ArgumentCaptor.forClass(Runnable.class);
+        when(emailService.sendAsync(eq(message), eq(Priority.STANDARD), onStart.capture())).thenReturn(sendResult);
+        
+        NotificationStatus accepted = service.submit(message, Priority.STANDARD);
+        assertEquals(State.QUEUED, accepted.getStatus());
+        
+        onStart.getValue().run();
+        assertEquals(State.SENDING, service.getStatus(accepted.getId()).getStatus());
+        
+        CompletableFuture<NotificationStatus> terminal = service.awaitTerminal(accepted.getId());
+        assertFalse(terminal.isDone());
+        sendResult.complete(SendResult.sent("user@example.com", 10));
+        
+        assertTrue(terminal.isDone());
+        assertEquals(State.SENT, terminal.join().getStatus());
+        assertEquals(State.SENT, service.getStatus(accepted.getId()).getStatus());
+    }
+    
+    /**
+     * Тест отказа переполненной очереди: статус FAILED сразу после постановки.
+     */
+    @Test
+    void testRejectedIsFailed() {
+        NotificationJobService service = new NotificationJobService(emailService, null, 16, 60_000, 30_000);
+        when(emailService.sendAsync(any(SimpleMailMessage.class), eq(Priority.BULK), any(Runnable.class)))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.rejected("user@example.com", "full")));
+        
+        NotificationStatus status = service.submit(message(), Priority.BULK);
+        
+        assertEquals(State.FAILED, status.getStatus());
+        assertEquals("full", status.getError());
+        assertEquals(State.FAILED, service.awaitTerminal(status.getId()).join().getStatus());
+    }
+    
+    /**
+     * Тест статуса, вытесненного из индекса до возврата из submit:
+     * возвращается статус, собранный из известного состояния, а не null.
+     */
+    @Test
+    void testSubmitReturnsStatusEvictedFromIndex() {
+        // Отрицательный TTL: окончательный статус вытесняется сразу
+        NotificationJobService service = new NotificationJobService(emailService, null, 16, -1, 30_000);
+        when(emailService.sendAsync(any(SimpleMailMessage.class), eq(Priority.BULK), any(Runnable.class)))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.rejected("user@example.com", "full")));
+        
+        NotificationStatus status = service.submit(message(), Priority.BULK);
+        
+        assertEquals(State.FAILED, status.getStatus());
+        assertEquals("full", status.getError());
+        assertNull(service.getStatus(status.getId()));
+    }
+    
+    /**
+     * Тест подавленного адреса: окончательный статус SUPPRESSED с причиной, а не FAILED.
+     */
+    @Test
+    void testSuppressedIsNotFailed() {
+        NotificationJobService service = new NotificationJobService(emailService, null, 16, 60_000, 30_000);
+        when(emailService.sendAsync(any(SimpleMailMessage.class), eq(Priority.STANDARD), any(Runnable.class)))
+            .thenReturn(CompletableFuture.completedFuture(SendResult.suppressed("user@example.com", "HARD_BOUNCE")));
+        
+        NotificationStatus status = service.submit(message(), Priority.STANDARD);
+        
+        assertEquals(State.SUPPRESSED, status.getStatus());
+        assertEquals("HARD_BOUNCE", status.getError());
+        assertEquals(State.SUPPRESSED, service.awaitTerminal(status.getId()).join().getStatus());
+    }
+    
+    /**
+     * Тест неизвестных идентификаторов.
+     */
+    @Test
+    void testUnknownId() {
+        NotificationJobService service = new NotificationJobService(emailService, null, 16, 60_000, 30_000);
+        
+        assertNull(service.getStatus("abc"));
+        assertNull(service.getStatus("12345"));
+        assertNull(service.awaitTerminal("12345"));
+    }
+    
+    private static SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo("user@example.com");
+        message.setSubject("Уведомление");
+        message.setText("Текст");
+        return message;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.NotificationResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.metrics.NotificationMetrics;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для NotificationResultPublisher.
+ * 
+ * Проверяет содержимое публикуемых результатов, учет ошибок публикации
+ * и публикацию из KafkaConsumerService.
+ */
+class NotificationResultPublisherTest {
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    
+    /**
+     * Тест результата отправки: ключ, попытка, задержка и релей.
+     */
+    @Test
+    void testPublishesSendResult() {
+        MockProducer<String, NotificationResult> producer = producer(true);
+        NotificationResultPublisher publisher = publisher(producer);
+        
+        UserEvent userEvent = new UserEvent("CREATE", "user@example.com");
+        userEvent.setEventId("event-1");
+        long eventTimestamp = System.currentTimeMillis() - 250;
+        ConsumerRecord<String, UserEvent> record = record(userEvent, eventTimestamp);
+        // Вторая попытка: запись из топика повторов
+        record.headers().add(RetryTopicRouter.ATTEMPT_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(1).array());
+        
+        publisher.publish(record, SendResult.sent("user@example.com", 12, "relay-1"));
+        
+        List<ProducerRecord<String, NotificationResult>> history = producer.history();
+        assertEquals(1, history.size());
+        assertEquals("notification-results", history.get(0).topic());
+        assertEquals("user@example.com", history.get(0).key());
+        NotificationResult result = history.get(0).value();
+        assertEquals("event-1", result.getEventId());
+        assertEquals("CREATE", result.getOperation());
+        assertEquals(NotificationResult.Status.SENT, result.getStatus());
+        assertEquals(2, result.getAttempt());
+        assertEquals(12, result.getSendMillis());
+        assertEquals("relay-1", result.getRelay());
+        assertTrue(result.getLatencyMillis() >= 250);
+    }
+    
+    /**
+     * Тест: ошибка публикации считается и не пробрасывается.
+     */
+    @Test
+    void testPublishFailureCounted() {
+        MockProducer<String, NotificationResult> producer = producer(false);
+        NotificationResultPublisher publisher = publisher(producer);
+        
+        publisher.publish(record(new UserEvent("DELETE", "user@example.com"), 0),
+            NotificationResult.Status.DUPLICATE, null);
+        assertTrue(producer.errorNext(new IllegalStateException("broker down")));
+        
+        assertEquals(1.0, registry.counter("notification.kafka.results.failed").count());
+    }
+    
+    /**
+     * Тест: KafkaConsumerService публикует результат неудачной отправки
+     * до передачи записи обработчику ошибок.
+     */
+    @Test
+    void testConsumerPublishesFailedResult() {
+        MockProducer<String, NotificationResult> producer = producer(true);
+        EmailService emailService = mock(EmailService.class);
+        UserEvent userEvent = new UserEvent("CREATE", "user@example.com");
+        SimpleMailMessage message = new SimpleMailMessage();
+        when(emailService.createUserEventMessage(userEvent)).thenReturn(message);
+        when(emailService.send(eq(message), any(Priority.class)))
+            .thenReturn(SendResult.failed("user@example.com", 30, "550 mailbox unavailable", 550, "relay-2"));
+        KafkaConsumerService service = new KafkaConsumerService(emailService, NotificationMetrics.noop(),
+            null, null, null, null, null, null, null, publisher(producer));
+        
+        assertThrows(NotificationDeliveryException.class,
+            () -> service.onUserEvent(record(userEvent, System.currentTimeMillis()), () -> { }));
+        
+        NotificationResult result = producer.history().get(0).value();
+        assertEquals(NotificationResult.Status.FAILED, result.getStatus());
+        assertEquals(550, result.getReplyCode());
+        assertEquals("relay-2", result.getRelay());
+        assertEquals(1, result.getAttempt());
+    }
+    
+    private NotificationResultPublisher publisher(MockProducer<String, NotificationResult> producer) {
+        return new NotificationResultPublisher(new KafkaTemplate<>(() -> producer), "notification-results", registry);
+    }
+    
+    private static ConsumerRecord<String, UserEvent> record(UserEvent userEvent, long timestamp) {
+        return new ConsumerRecord<>("user-events", 0, 0L, timestamp, TimestampType.CREATE_TIME, 0, 0,
+            userEvent.getEmail(), userEvent, new RecordHeaders(), Optional.empty());
+    }
+    
+    /**
+     * MockProducer, переживающий закрытие после каждой отправки KafkaTemplate.
+     */
+    private static MockProducer<String, NotificationResult> producer(boolean autoComplete) {
+        return new MockProducer<String, NotificationResult>(autoComplete, new StringSerializer(), new JsonSerializer<>()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.notificationservice.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import com.example.notificationservice.dto.UserEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для RetryTopicRouter.
+ * 
+ * Проверяет переход записи по уровням повторов и в dead-letter топик.
+ */
+class RetryTopicRouterTest {
+    
+    private final RetryTopicRouter router = new RetryTopicRouter(0.2);
+    
+    /**
+     * Тест прохождения всех уровней повторов до dead-letter топика.
+     */
+    @Test
+    void testRecordWalksThroughTiersToDlt() {
+        ConsumerRecord<String, UserEvent> record =
+            new ConsumerRecord<>("user-events", 0, 0L, null, new UserEvent("CREATE", "test@example.com"));
+        NotificationDeliveryException error = new NotificationDeliveryException("SMTP-сервер недоступен");
+        
+        String[] expected = {
+            RetryTopicRouter.RETRY_1S_TOPIC, RetryTopicRouter.RETRY_10S_TOPIC,
+            RetryTopicRouter.RETRY_1M_TOPIC, RetryTopicRouter.DLT_TOPIC
+        };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], router.resolveDestination(record, error).topic());
+            
+            // Заголовки копируются в следующую запись, как это делает DeadLetterPublishingRecoverer
+            long before = System.currentTimeMillis();
+            Headers headers = router.retryHeaders(record, error);
+            ConsumerRecord<String, UserEvent> next =
+                new ConsumerRecord<>(expected[i], 0, 0L, null, record.value());
+            record.headers().forEach(next.headers()::add);
+            for (Header header : headers) {
+                next.headers().add(header);
+            }
+            record = next;
+            
+            assertEquals(i + 1, RetryTopicRouter.attemptOf(record));
+            if (i < RetryTopicRouter.Tier.values().length) {
+                long delay = RetryTopicRouter.Tier.values()[i].getDelayMillis();
+                long dueAt = RetryTopicRouter.dueAtOf(record);
+                assertTrue(dueAt >= before + Math.round(delay * 0.8));
+                assertTrue(dueAt <= System.currentTimeMillis() + Math.round(delay * 1.2));
+            }
+        }
+    }
+    
+    /**
+     * Тест отправки неисправимой ошибки сразу в dead-letter топик.
+     */
+    @Test
+    void testDeserializationErrorGoesStraightToDlt() {
+        ConsumerRecord<String, UserEvent> record = new ConsumerRecord<>("user-events", 0, 0L, null, null);
+        Exception error = new RuntimeException(new DeserializationException("bad json", new byte[0], false, null));
+        
+        assertEquals(RetryTopicRouter.DLT_TOPIC, router.resolveDestination(record, error).topic());
+        assertNull(router.retryHeaders(record, error).lastHeader(RetryTopicRouter.DUE_AT_HEADER));
+    }
+}
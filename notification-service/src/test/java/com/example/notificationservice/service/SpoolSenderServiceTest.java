@@ -0,0 +1,192 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.spool.MailSpool;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для SpoolSenderService.
+ * 
+ * Проверяет, что неудачное письмо не задерживает остальные письма spool,
+ * что ошибка отправки пакета не приводит к холостому циклу и что сбой SMTP
+ * не отбрасывает письма и не переносит весь spool в память.
+ */
+class SpoolSenderServiceTest {
+    
+    @TempDir
+    Path directory;
+    
+    private MailSpool mailSpool;
+    private EmailService emailService;
+    private SpoolSenderService sender;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        mailSpool = new MailSpool(directory, 4096);
+        emailService = mock(EmailService.class);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (sender != null) {
+            sender.stop();
+        }
+        mailSpool.close();
+    }
+    
+    /**
+     * Тест: письмо, ожидающее повтора, не задерживает отправку новых писем.
+     */
+    @Test
+    void testFailedMessageDoesNotStallOthers() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        when(emailService.sendEmails(anyList(), any(Priority.class))).thenAnswer(invocation -> {
+            List<SimpleMailMessage> messages = invocation.getArgument(0);
+            Map<Integer, Exception> failures = new HashMap<>();
+            for (int i = 0; i < messages.size(); i++) {
+                String to = messages.get(i).getTo()[0];
+                if (to.startsWith("bad")) {
+                    failures.put(i, new IllegalStateException("451 4.7.1 Try again later"));
+                } else {
+                    sent.add(to);
+                }
+            }
+            return new BulkSendResult(messages.size(), failures);
+        });
+        sender = new SpoolSenderService(mailSpool, emailService, new SimpleMeterRegistry(), 10, 100, 60_000, 60_000);
+        
+        mailSpool.append(message("bad@example.com"));
+        mailSpool.append(message("first@example.com"));
+        sender.start();
+        assertTrue(await(() -> sent.contains("first@example.com")), "Первое письмо не отправлено");
+        
+        // Повтор неудачного письма отложен на минуту, но новое письмо уходит сразу
+        mailSpool.append(message("second@example.com"));
+        assertTrue(await(() -> sent.contains("second@example.com")), "Новое письмо ждет повтора неудачного");
+        assertEquals(1, mailSpool.getPendingCount());
+    }
+    
+    /**
+     * Тест: исключение при отправке пакета откладывает его письма с задержкой.
+     */
+    @Test
+    void testSendExceptionBacksOff() throws Exception {
+        when(emailService.sendEmails(anyList(), any(Priority.class)))
+            .thenThrow(new IllegalStateException("SMTP недоступен"));
+        sender = new SpoolSenderService(mailSpool, emailService, new SimpleMeterRegistry(), 10, 100, 1000, 1000);
+        
+        mailSpool.append(message("first@example.com"));
+        sender.start();
+        TimeUnit.MILLISECONDS.sleep(500);
+        
+        verify(emailService, atMost(1)).sendEmails(anyList(), any(Priority.class));
+        assertEquals(1, mailSpool.getPendingCount());
+    }
+    
+    /**
+     * Тест: письмо с постоянным отказом 5xx отбрасывается сразу.
+     */
+    @Test
+    void testPermanentFailureDiscarded() throws Exception {
+        when(emailService.sendEmails(anyList(), any(Priority.class))).thenAnswer(invocation -> {
+            List<SimpleMailMessage> messages = invocation.getArgument(0);
+            return new BulkSendResult(messages.size(),
+                Map.of(0, new IllegalStateException("550 5.1.1 Mailbox unavailable")));
+        });
+        sender = new SpoolSenderService(mailSpool, emailService, new SimpleMeterRegistry(), 10, 100, 60_000, 60_000);
+        
+        mailSpool.append(message("unknown@example.com"));
+        sender.start();
+        
+        assertTrue(await(() -> mailSpool.getPendingCount() == 0), "Письмо с отказом 5xx не отброшено");
+        verify(emailService, times(1)).sendEmails(anyList(), any(Priority.class));
+    }
+    
+    /**
+     * Тест: сбой SMTP дольше окна повторов не отбрасывает письма, а в память
+     * читается не больше max-deferred писем.
+     */
+    @Test
+    void testOutageKeepsSpoolAndBoundsDeferred() throws Exception {
+        AtomicBoolean outage = new AtomicBoolean(true);
+        Set<String> attempted = ConcurrentHashMap.newKeySet();
+        AtomicInteger outageCalls = new AtomicInteger();
+        when(emailService.sendEmails(anyList(), any(Priority.class))).thenAnswer(invocation -> {
+            List<SimpleMailMessage> messages = invocation.getArgument(0);
+            if (outage.get()) {
+                for (SimpleMailMessage message : messages) {
+                    attempted.add(message.getTo()[0]);
+                }
+                outageCalls.incrementAndGet();
+                Map<Integer, Exception> failures = new HashMap<>();
+                for (int i = 0; i < messages.size(); i++) {
+                    failures.put(i, new MailSendException("Couldn't connect to host"));
+                }
+                return new BulkSendResult(messages.size(), failures);
+            }
+            return BulkSendResult.allSent(messages.size());
+        });
+        // Повтор каждые 1-5 мс: за сбой письма проходят сотни попыток
+        sender = new SpoolSenderService(mailSpool, emailService, new SimpleMeterRegistry(), 5, 10, 1, 5);
+        
+        for (int i = 0; i < 100; i++) {
+            mailSpool.append(message("user" + i + "@example.com"));
+        }
+        sender.start();
+        assertTrue(await(() -> outageCalls.get() >= 200), "Повторы во время сбоя не идут");
+        
+        assertEquals(100, mailSpool.getPendingCount());
+        assertTrue(attempted.size() <= 10, "Прочитано писем во время сбоя: " + attempted.size());
+        
+        outage.set(false);
+        assertTrue(await(() -> mailSpool.getPendingCount() == 0), "Письма не доставлены после сбоя");
+    }
+    
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Тест");
+        message.setText("Текст");
+        return message;
+    }
+    
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        return false;
+    }
+}
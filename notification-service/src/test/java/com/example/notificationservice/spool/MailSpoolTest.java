@@ -0,0 +1,153 @@
+package com.example.notificationservice.spool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для MailSpool.
+ * 
+ * Проверяет восстановление после перезапуска, смену и удаление сегментов,
+ * отбрасывание оборванной записи и сегмента без заголовка.
+ */
+class MailSpoolTest {
+    
+    @TempDir
+    Path directory;
+    
+    /**
+     * Тест восстановления неотправленных писем после перезапуска.
+     */
+    @Test
+    void testPendingMessagesSurviveRestart() throws Exception {
+        try (MailSpool spool = new MailSpool(directory, 4096)) {
+            spool.append(message("first@example.com"));
+            spool.append(message("second@example.com"));
+            spool.append(message("third@example.com"));
+            
+            List<SpoolEntry> entries = spool.readPending(10);
+            assertEquals(3, entries.size());
+            spool.markDelivered(entries.get(0));
+            spool.flush();
+        }
+        
+        try (MailSpool spool = new MailSpool(directory, 4096)) {
+            List<SpoolEntry> entries = spool.readPending(10);
+            assertEquals(2, entries.size());
+            assertEquals(2, spool.getPendingCount());
+            assertArrayEquals(new String[] {"second@example.com"}, entries.get(0).getMessage().getTo());
+            assertEquals("Тест", entries.get(0).getMessage().getSubject());
+        }
+    }
+    
+    /**
+     * Тест смены сегментов и удаления полностью доставленных.
+     */
+    @Test
+    void testSegmentsRollAndCompact() throws Exception {
+        try (MailSpool spool = new MailSpool(directory, 1024)) {
+            for (int i = 0; i < 30; i++) {
+                spool.append(message("user" + i + "@example.com"));
+            }
+            assertTrue(spool.getSegmentCount() > 1);
+            
+            List<SpoolEntry> entries = spool.readPending(100);
+            assertEquals(30, entries.size());
+            for (SpoolEntry entry : entries) {
+                spool.markDelivered(entry);
+            }
+            spool.compact();
+            
+            assertEquals(1, spool.getSegmentCount());
+            assertEquals(0, spool.getPendingCount());
+            assertEquals(1, countSegmentFiles());
+        }
+    }
+    
+    /**
+     * Тест отбрасывания оборванной при сбое записи.
+     */
+    @Test
+    void testTornRecordDiscardedOnRecovery() throws Exception {
+        try (MailSpool spool = new MailSpool(directory, 4096)) {
+            spool.append(message("intact@example.com"));
+            spool.append(message("torn@example.com"));
+        }
+        
+        // Порча последнего байта данных второй записи
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        int secondRecordEnd = 8 + 2 * 9
+            + MailSpool.encode(message("intact@example.com")).length
+            + MailSpool.encode(message("torn@example.com")).length;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondRecordEnd - 1);
+            file.write(0x7F);
+        }
+        
+        try (MailSpool spool = new MailSpool(directory, 4096)) {
+            List<SpoolEntry> entries = spool.readPending(10);
+            assertEquals(1, entries.size());
+            assertArrayEquals(new String[] {"intact@example.com"}, entries.get(0).getMessage().getTo());
+            
+            // Новые записи пишутся на место отброшенной
+            spool.append(message("after@example.com"));
+            assertEquals(1, spool.readPending(10).size());
+        }
+    }
+    
+    /**
+     * Тест восстановления после сбоя между созданием сегмента и записью заголовка.
+     */
+    @Test
+    void testBlankLastSegmentReinitialised() throws Exception {
+        try (MailSpool spool = new MailSpool(directory, 4096)) {
+            spool.append(message("first@example.com"));
+        }
+        
+        // Следующий сегмент создан нужного размера, но заголовок не дошел до диска
+        Path first;
+        try (Stream<Path> files = Files.list(directory)) {
+            first = files.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        Path blank = first.resolveSibling(first.getFileName().toString()
+            .replace("00000000000000000000", "00000000000000000001"));
+        Files.write(blank, new byte[4096]);
+        
+        try (MailSpool spool = new MailSpool(directory, 4096)) {
+            assertEquals(1, spool.getPendingCount());
+            spool.append(message("second@example.com"));
+        }
+        try (MailSpool spool = new MailSpool(directory, 4096)) {
+            List<SpoolEntry> entries = spool.readPending(10);
+            assertEquals(2, entries.size());
+            assertArrayEquals(new String[] {"second@example.com"}, entries.get(1).getMessage().getTo());
+        }
+    }
+    
+    private long countSegmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+    
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Тест");
+        message.setText("Тестовое сообщение");
+        return message;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notificationservice.startup;
+
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import com.example.notificationservice.dto.UserEvent;
+import com.example.notificationservice.service.EmailService;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для StartupWarmup.
+ * 
+ * Проверяет шаги прогрева и запуск listener'ов после него.
+ */
+@ExtendWith(MockitoExtension.class)
+class StartupWarmupTest {
+    
+    @Mock
+    private EmailService emailService;
+    
+    @Mock
+    private KafkaListenerEndpointRegistry listenerRegistry;
+    
+    @Mock
+    private MessageListenerContainer stopped;
+    
+    @Mock
+    private MessageListenerContainer running;
+    
+    private StartupWarmup warmup;
+    
+    @BeforeEach
+    void setUp() {
+        // Без объявленных топиков администратор не обращается к брокеру
+        KafkaAdmin kafkaAdmin = new KafkaAdmin(Collections.singletonMap(
+            AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092"));
+        kafkaAdmin.setApplicationContext(new StaticApplicationContext());
+        warmup = new StartupWarmup(emailService, new JavaMailSenderImpl(), listenerRegistry, kafkaAdmin, 0, false);
+    }
+    
+    /**
+     * Тест прогрева: события обоих форматов, шаблоны и сборка MIME-сообщения.
+     */
+    @Test
+    void testWarmUp() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo("warmup@example.com");
+        message.setSubject("Тема");
+        message.setText("Текст");
+        when(emailService.createUserEventMessage(any(UserEvent.class))).thenReturn(message);
+        
+        warmup.warmUp();
+        
+        verify(emailService, times(2)).createUserEventMessage(any(UserEvent.class));
+    }
+    
+    /**
+     * Тест: ошибка шага прогрева не мешает остальным шагам.
+     */
+    @Test
+    void testWarmUpContinuesAfterFailure() {
+        when(emailService.createUserEventMessage(any(UserEvent.class)))
+            .thenThrow(new IllegalStateException("Шаблон не найден"));
+        
+        assertDoesNotThrow(warmup::warmUp);
+        
+        verify(emailService).createUserEventMessage(any(UserEvent.class));
+    }
+    
+    /**
+     * Тест запуска только остановленных контейнеров.
+     */
+    @Test
+    void testStartListeners() {
+        when(listenerRegistry.getListenerContainers()).thenReturn(Arrays.asList(stopped, running));
+        when(stopped.isRunning()).thenReturn(false);
+        when(running.isRunning()).thenReturn(true);
+        
+        warmup.startListeners();
+        
+        verify(stopped).start();
+        verify(running, never()).start();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notificationservice.status;
+
+import org.junit.jupiter.api.Test;
+import com.example.notificationservice.dto.NotificationStatus;
+import com.example.notificationservice.dto.NotificationStatus.State;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit тесты для NotificationStatusIndex.
+ * 
+ * Проверяет переходы состояний, вытеснение по TTL и по заполнению кольца
+ * и непредсказуемость идентификаторов.
+ */
+class NotificationStatusIndexTest {
+    
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    
+    /**
+     * Тест переходов QUEUED -> SENDING -> FAILED; окончательное состояние не меняется.
+     */
+    @Test
+    void testStateTransitions() {
+        NotificationStatusIndex index = new NotificationStatusIndex(16, 60_000, now::get);
+        
+        long id = index.register();
+        assertEquals(State.QUEUED, index.get(id).getStatus());
+        
+        now.addAndGet(10);
+        index.update(id, State.SENDING, null);
+        assertEquals(State.SENDING, index.get(id).getStatus());
+        assertEquals(1_000_010, index.get(id).getUpdatedAt());
+        
+        index.update(id, State.FAILED, "Connection refused");
+        index.update(id, State.SENT, null);
+        NotificationStatus status = index.get(id);
+        assertEquals(State.FAILED, status.getStatus());
+        assertEquals("Connection refused", status.getError());
+        assertEquals(Long.toString(id), status.getId());
+    }
+    
+    /**
+     * Тест вытеснения окончательного статуса по TTL; незавершенный статус не вытесняется.
+     */
+    @Test
+    void testTerminalStatusExpires() {
+        NotificationStatusIndex index = new NotificationStatusIndex(16, 60_000, now::get);
+        
+        long sent = index.register();
+        long queued = index.register();
+        index.update(sent, State.SENT, null);
+        
+        now.addAndGet(60_001);
+        assertNull(index.get(sent));
+        assertNotNull(index.get(queued));
+    }
+    
+    /**
+     * Тест вытеснения по заполнению кольца и неизвестных идентификаторов.
+     */
+    @Test
+    void testOverwrittenSlotIsEvicted() {
+        NotificationStatusIndex index = new NotificationStatusIndex(3, 60_000, now::get);
+        assertEquals(4, index.getCapacity());
+        
+        long first = index.register();
+        long last = first;
+        for (int i = 0; i < 4; i++) {
+            last = index.register();
+        }
+        assertNull(index.get(first));
+        // Обновление вытесненного уведомления не затрагивает занявшее его ячейку
+        index.update(first, State.FAILED, "Connection refused");
+        NotificationStatus status = index.get(last);
+        assertEquals(State.QUEUED, status.getStatus());
+        assertNull(status.getError());
+        
+        assertNull(index.get(last + 4));
+        assertNull(index.get(-1));
+    }
+    
+    /**
+     * Тест: по своему идентификатору нельзя получить статус соседних уведомлений.
+     */
+    @Test
+    void testIdsAreNotSequential() {
+        NotificationStatusIndex index = new NotificationStatusIndex(16, 60_000, now::get);
+        
+        long first = index.register();
+        long second = index.register();
+        
+        assertNotEquals(first + 1, second);
+        assertNull(index.get(first + 1));
+        assertNull(index.get(second - 1));
+        assertNotNull(index.get(second));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.notificationservice.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для BoundedExecutor.
+ * 
+ * Проверяет ограничение числа задач в работе и освобождение места.
+ */
+class BoundedExecutorTest {
+    
+    private final BoundedExecutor executor =
+        new BoundedExecutor("test-sender", BoundedExecutor.ThreadType.PLATFORM, 1, 1);
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * Тест отказа, когда заняты и поток, и очередь.
+     */
+    @Test
+    void testRejectsWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        
+        executor.submit(() -> await(release));
+        executor.submit(() -> await(release));
+        
+        assertEquals(2, executor.getInFlight());
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "rejected"));
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "rejected", 50));
+        
+        release.countDown();
+        assertEquals("done", executor.submit(() -> "done", 5000).get(5, TimeUnit.SECONDS));
+    }
+    
+    /**
+     * Тест: место освобождается до завершения future, поэтому продолжение
+     * может сразу поставить следующую задачу в заполненный исполнитель.
+     */
+    @Test
+    void testPermitFreedBeforeCompletion() throws Exception {
+        BoundedExecutor single = new BoundedExecutor("test-single", BoundedExecutor.ThreadType.PLATFORM, 1, 0);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<String> next = single.submit(() -> await(release))
+                .thenCompose(first -> single.submit(() -> "next"));
+            release.countDown();
+            
+            assertEquals("next", next.get(5, TimeUnit.SECONDS));
+        } finally {
+            single.shutdown();
+        }
+    }
+    
+    /**
+     * Тест вызова обработчиков завершения после каждой задачи.
+     */
+    @Test
+    void testCompletionListenerInvoked() throws Exception {
+        CountDownLatch completed = new CountDownLatch(2);
+        executor.addCompletionListener(completed::countDown);
+        
+        executor.submit(() -> "first").get(5, TimeUnit.SECONDS);
+        executor.submit(() -> "second").get(5, TimeUnit.SECONDS);
+        
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+    }
+    
+    /**
+     * Тест: с виртуальными потоками одновременно выполняется не больше threads задач.
+     */
+    @Test
+    void testVirtualThreadsLimitedToThreadCount() throws Exception {
+        BoundedExecutor virtual = new BoundedExecutor("test-virtual", BoundedExecutor.ThreadType.VIRTUAL, 2, 8);
+        try {
+            AtomicInteger active = new AtomicInteger();
+            AtomicInteger maxActive = new AtomicInteger();
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(virtual.submit(() -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    sleep(20);
+                    active.decrementAndGet();
+                    return "done";
+                }));
+            }
+            for (CompletableFuture<String> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(10, virtual.getCapacity());
+            assertEquals(2, maxActive.get());
+        } finally {
+            virtual.shutdown();
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.notificationservice.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для KeyOrderedExecutor.
+ * 
+ * Проверяет порядок выполнения задач одного ключа и параллелизм разных ключей.
+ */
+class KeyOrderedExecutorTest {
+    
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor("test-worker", 4, 16);
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdown(1000);
+    }
+    
+    /**
+     * Тест сохранения порядка задач с одинаковым ключом.
+     */
+    @Test
+    void testTasksWithSameKeyRunInOrder() throws Exception {
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            executor.execute("user@example.com", () -> {
+                executed.add(value);
+                done.countDown();
+            });
+        }
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, executed.get(i));
+        }
+    }
+    
+    /**
+     * Тест того, что медленная задача одного ключа не блокирует другие ключи.
+     */
+    @Test
+    void testSlowKeyDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+        
+        // Подбор ключа, который попадает в другую полосу
+        String slowKey = "slow@example.com";
+        String otherKey = null;
+        for (int i = 0; otherKey == null; i++) {
+            String candidate = "user" + i + "@example.com";
+            if (executor.laneIndex(candidate) != executor.laneIndex(slowKey)) {
+                otherKey = candidate;
+            }
+        }
+        
+        executor.execute(slowKey, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(otherKey, otherDone::countDown);
+        
+        assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+}
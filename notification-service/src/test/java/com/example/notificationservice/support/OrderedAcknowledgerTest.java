@@ -0,0 +1,71 @@
+package com.example.notificationservice.support;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit тесты для OrderedAcknowledger.
+ * 
+ * Проверяет подтверждение только непрерывного префикса завершенных записей
+ * и сброс при повторном чтении партиции.
+ */
+class OrderedAcknowledgerTest {
+    
+    private final OrderedAcknowledger acknowledger = new OrderedAcknowledger();
+    private final List<String> acknowledged = new ArrayList<>();
+    
+    /**
+     * Тест: запись, завершенная раньше предыдущей, ждет ее подтверждения.
+     */
+    @Test
+    void testAcknowledgesCompletedPrefixOnly() {
+        Runnable first = track(0, 0);
+        Runnable second = track(0, 1);
+        Runnable third = track(0, 2);
+        Runnable otherPartition = track(1, 0);
+        
+        third.run();
+        otherPartition.run();
+        assertEquals(List.of("1@0"), acknowledged);
+        
+        first.run();
+        assertEquals(List.of("1@0", "0@0"), acknowledged);
+        
+        // Вторая запись закрывает разрыв: подтверждается последняя запись префикса
+        second.run();
+        second.run();
+        assertEquals(List.of("1@0", "0@0", "0@2"), acknowledged);
+        assertEquals(0, acknowledger.getPendingCount());
+    }
+    
+    /**
+     * Тест: после повторного чтения старые завершения записей с этого смещения не действуют.
+     */
+    @Test
+    void testRereadReplacesPendingRecords() {
+        Runnable first = track(0, 0);
+        Runnable staleSecond = track(0, 1);
+        
+        // Ребаланс: партиция читается снова с зафиксированного смещения 1
+        Runnable second = track(0, 1);
+        staleSecond.run();
+        first.run();
+        assertEquals(List.of("0@0"), acknowledged);
+        
+        second.run();
+        assertEquals(List.of("0@0", "0@1"), acknowledged);
+        assertEquals(0, acknowledger.getPendingCount());
+    }
+    
+    private Runnable track(int partition, long offset) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("user-events", partition, offset, null, null);
+        Acknowledgment acknowledgment = () -> acknowledged.add(partition + "@" + offset);
+        return acknowledger.track(record, acknowledgment);
+    }
+}
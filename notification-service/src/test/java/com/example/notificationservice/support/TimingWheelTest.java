@@ -0,0 +1,44 @@
+package com.example.notificationservice.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для TimingWheel.
+ * 
+ * Проверяет срабатывание таймеров по порядку, в том числе дальше одного оборота колеса.
+ */
+class TimingWheelTest {
+    
+    /**
+     * Тест срабатывания таймеров не раньше срока и в порядке сроков.
+     */
+    @Test
+    void testTimersFireInDeadlineOrderAcrossRounds() throws Exception {
+        List<Long> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        long start = System.nanoTime();
+        
+        // Колесо из 4 ячеек по 10 мс: 150 мс - это несколько оборотов
+        try (TimingWheel<Long> wheel = new TimingWheel<>("test-wheel", 10, 4, delay -> {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= delay - 10);
+            fired.add(delay);
+            done.countDown();
+        })) {
+            wheel.schedule(150L, 150);
+            wheel.schedule(20L, 20);
+            wheel.schedule(70L, 70);
+            assertEquals(3, wheel.getPendingCount());
+            
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(20L, 70L, 150L), fired);
+            assertEquals(0, wheel.getPendingCount());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.notificationservice.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для TokenBucket.
+ * 
+ * Проверяет всплеск, пополнение токенов и режим без ограничения.
+ */
+class TokenBucketTest {
+    
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    
+    /**
+     * Тест всплеска до емкости и пополнения со скоростью ведра.
+     */
+    @Test
+    void testBurstThenRefill() {
+        TokenBucket bucket = new TokenBucket(2, 3, 0);
+        
+        assertTrue(bucket.tryTake(0));
+        assertTrue(bucket.tryTake(0));
+        assertTrue(bucket.tryTake(0));
+        assertFalse(bucket.tryTake(0));
+        assertEquals(SECOND / 2, bucket.nanosUntilAvailable(0));
+        
+        // Через полсекунды при 2 токенах в секунду появляется один токен
+        assertEquals(0, bucket.nanosUntilAvailable(SECOND / 2));
+        assertTrue(bucket.tryTake(SECOND / 2));
+        assertFalse(bucket.tryTake(SECOND / 2));
+        
+        // За долгий простой токенов не больше емкости
+        assertTrue(bucket.isFull(10 * SECOND));
+    }
+    
+    /**
+     * Тест возврата токена неиспользованной операции.
+     */
+    @Test
+    void testRefund() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+        
+        assertTrue(bucket.tryTake(0));
+        bucket.refund();
+        assertTrue(bucket.tryTake(0));
+        assertFalse(bucket.tryTake(0));
+    }
+    
+    /**
+     * Тест ведра без ограничения скорости.
+     */
+    @Test
+    void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(0, 1, 0);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bucket.tryTake(0));
+        }
+        assertEquals(0, bucket.nanosUntilAvailable(0));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.notificationservice.support;
+
+import org.junit.jupiter.api.Test;
+import com.example.notificationservice.dto.Operation;
+import com.example.notificationservice.dto.UserEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для Validation и разбора операции события.
+ */
+class ValidationTest {
+    
+    /**
+     * Тест проверки пустых строк.
+     */
+    @Test
+    void testIsBlank() {
+        assertTrue(Validation.isBlank(null));
+        assertTrue(Validation.isBlank(""));
+        assertTrue(Validation.isBlank(" \t\n"));
+        assertFalse(Validation.isBlank(" a "));
+    }
+    
+    /**
+     * Тест синтаксической проверки email-адресов.
+     */
+    @Test
+    void testIsValidEmail() {
+        assertTrue(Validation.isValidEmail("test@example.com"));
+        assertTrue(Validation.isValidEmail("first.last+tag@mail.example.org"));
+        
+        assertFalse(Validation.isValidEmail(null));
+        assertFalse(Validation.isValidEmail("test"));
+        assertFalse(Validation.isValidEmail("@example.com"));
+        assertFalse(Validation.isValidEmail("test@"));
+        assertFalse(Validation.isValidEmail("test@localhost"));
+        assertFalse(Validation.isValidEmail("a@b@example.com"));
+        assertFalse(Validation.isValidEmail("test@example..com"));
+        assertFalse(Validation.isValidEmail("test@.example.com"));
+        assertFalse(Validation.isValidEmail("test@example.com."));
+        assertFalse(Validation.isValidEmail(" test@example.com"));
+    }
+    
+    /**
+     * Тест разбора операции один раз при установке поля.
+     */
+    @Test
+    void testOperationParsedOnce() {
+        assertEquals(Operation.CREATE, new UserEvent("create", "a@example.com").getOperationType());
+        assertEquals(Operation.DELETE, new UserEvent("DELETE", "a@example.com").getOperationType());
+        assertEquals(Operation.UNKNOWN, new UserEvent("UPDATE", "a@example.com").getOperationType());
+        assertEquals(Operation.UNKNOWN, new UserEvent(null, "a@example.com").getOperationType());
+        
+        UserEvent userEvent = new UserEvent();
+        assertEquals(Operation.UNKNOWN, userEvent.getOperationType());
+        userEvent.setOperation("Delete");
+        assertEquals(Operation.DELETE, userEvent.getOperationType());
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.notificationservice.suppression;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.metrics.NotificationMetrics;
+import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.support.BoundedExecutor;
+import com.example.notificationservice.template.EmailTemplateEngine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit тесты для SuppressionList.
+ * 
+ * Проверяет построение индекса с внешней сортировкой, обновления из файла
+ * и Kafka, метрики и проверку адресов в EmailService.
+ */
+class SuppressionListTest {
+    
+    @TempDir
+    Path directory;
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<SuppressionList> lists = new ArrayList<>();
+    private BoundedExecutor executor;
+    
+    @AfterEach
+    void tearDown() {
+        lists.forEach(SuppressionList::close);
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Тест индекса из нескольких порций сортировки: нормализация адреса,
+     * причины, повторы, комментарии и метрики.
+     */
+    @Test
+    void testIndexFromMultipleRuns() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("# выгрузка отказов");
+        lines.add("");
+        lines.add("Bounced@Example.com,bounce");
+        lines.add("  left@example.com , UNSUBSCRIBE ");
+        lines.add("gone@example.com,deleted");
+        lines.add("bounced@example.com,deleted");
+        lines.add("not-an-address");
+        for (int i = 0; i < 1000; i++) {
+            lines.add("user" + i + "@example.com");
+        }
+        Path source = write("suppressed.txt", lines);
+        
+        // Порция из 64 адресов: индекс сливается из 17 временных файлов
+        SuppressionList list = list(source, 64);
+        
+        assertEquals(1003, list.getIndex().size());
+        assertEquals(SuppressionReason.BOUNCE, list.check(" BOUNCED@example.COM "));
+        assertEquals(SuppressionReason.UNSUBSCRIBE, list.check("left@example.com"));
+        assertEquals(SuppressionReason.DELETED, list.check("gone@example.com"));
+        assertEquals(SuppressionReason.OTHER, list.check("user999@example.com"));
+        for (int i = 0; i < 1000; i++) {
+            assertNotNull(list.check("user" + i + "@example.com"));
+            assertNull(list.check("other" + i + "@example.com"));
+        }
+        assertNull(list.check(null));
+        
+        // Временные файлы сортировки удалены
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        assertEquals(1.0, registry.counter("notification.suppression.filtered", "reason", "bounce").count());
+        assertEquals(1001.0, registry.counter("notification.suppression.filtered", "reason", "other").count());
+        assertEquals(1003.0, registry.get("notification.suppression.entries").gauge().value());
+        assertTrue(registry.get("notification.suppression.index.size").gauge().value() > 1003 * 8);
+    }
+    
+    /**
+     * Тест: сохраненный индекс открывается без построения, пока файл не изменился.
+     */
+    @Test
+    void testSavedIndexReused() throws Exception {
+        Path source = write("suppressed.txt", Arrays.asList("a@example.com", "b@example.com"));
+        list(source, 1000);
+        Path index = directory.resolve("suppressed.txt.idx");
+        // Перестроенный индекс - новый файл, переименованный поверх старого
+        Object built = Files.readAttributes(index, BasicFileAttributes.class).fileKey();
+        
+        SuppressionList restarted = list(source, 1000);
+        assertEquals(built, Files.readAttributes(index, BasicFileAttributes.class).fileKey());
+        assertEquals(2, restarted.getIndex().size());
+        
+        // Поврежденный индекс перестраивается
+        Files.write(index, new byte[] {1, 2, 3});
+        SuppressionList rebuilt = list(source, 1000);
+        assertEquals(SuppressionReason.OTHER, rebuilt.check("a@example.com"));
+    }
+    
+    /**
+     * Тест обновления из файла: дописанные строки применяются без
+     * перестроения, замененный файл перестраивается.
+     */
+    @Test
+    void testFileUpdates() throws Exception {
+        Path source = write("suppressed.txt", Collections.singletonList("a@example.com,bounce"));
+        SuppressionList list = list(source, 1000);
+        SuppressionIndex built = list.getIndex();
+        
+        // Последняя строка еще не дописана до конца
+        Files.write(source, "b@example.com,unsubscribe\nc@exam".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+        list.refresh();
+        assertSame(built, list.getIndex());
+        assertEquals(SuppressionReason.UNSUBSCRIBE, list.check("b@example.com"));
+        assertNull(list.check("c@example.com"));
+        
+        Files.write(source, "ple.com,deleted\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        list.refresh();
+        assertEquals(SuppressionReason.DELETED, list.check("c@example.com"));
+        assertEquals(2, list.getUpdateCount());
+        
+        // Замена файла (запись во временный и переименование)
+        Path replacement = write("replacement.txt", Collections.singletonList("d@example.com"));
+        Files.move(replacement, source, StandardCopyOption.REPLACE_EXISTING);
+        list.refresh();
+        assertNotSame(built, list.getIndex());
+        assertEquals(0, list.getUpdateCount());
+        assertNull(list.check("a@example.com"));
+        assertNull(list.check("c@example.com"));
+        assertEquals(SuppressionReason.OTHER, list.check("d@example.com"));
+    }
+    
+    /**
+     * Тест изменений из Kafka: добавление и удаление поверх файла.
+     */
+    @Test
+    void testKafkaUpdates() throws Exception {
+        Path source = write("suppressed.txt", Collections.singletonList("a@example.com,bounce"));
+        SuppressionList list = list(source, 1000);
+        
+        list.apply("New@Example.com", "unsubscribe");
+        list.apply("a@example.com", null);
+        
+        assertEquals(SuppressionReason.UNSUBSCRIBE, list.check("new@example.com"));
+        assertNull(list.check("a@example.com"));
+        
+        // Без файла список ведется только через Kafka
+        SuppressionList kafkaOnly = new SuppressionList(null, null, new SuppressionIndexBuilder(1000, 10),
+            1000, new SimpleMeterRegistry());
+        kafkaOnly.load();
+        kafkaOnly.apply("x@example.com", "deleted");
+        assertEquals(SuppressionReason.DELETED, kafkaOnly.check("x@example.com"));
+        assertEquals(0, kafkaOnly.getIndex().size());
+    }
+    
+    /**
+     * Тест: EmailService не отправляет письма на подавленные адреса.
+     */
+    @Test
+    void testEmailServiceSkipsSuppressed() throws Exception {
+        Path source = write("suppressed.txt", Collections.singletonList("blocked@example.com,bounce"));
+        JavaMailSender mailSender = mock(JavaMailSender.class);
+        executor = new BoundedExecutor("test-mail-send", BoundedExecutor.ThreadType.PLATFORM, 1, 10);
+        EmailService emailService = new EmailService(mailSender, executor,
+            new EmailTemplateEngine(null, new Locale("ru"), 16, 0), NotificationMetrics.noop(),
+            null, null, list(source, 1000));
+        
+        SendResult result = emailService.send(emailService.createMailMessage("blocked@example.com", "Тема", "Текст"));
+        assertTrue(result.isSuppressed());
+        assertFalse(result.isSent());
+        assertTrue(emailService.sendEmailAsync("Blocked@example.com", "Тема", "Текст").get().isSuppressed());
+        verify(mailSender, never()).send(any(SimpleMailMessage.class));
+        
+        List<SimpleMailMessage> messages = Arrays.asList(
+            emailService.createMailMessage("first@example.com", "Тема", "Текст"),
+            emailService.createMailMessage("blocked@example.com", "Тема", "Текст"),
+            emailService.createMailMessage("last@example.com", "Тема", "Текст"));
+        BulkSendResult bulk = emailService.sendEmails(messages);
+        
+        assertEquals(3, bulk.getTotal());
+        assertEquals(2, bulk.getSentCount());
+        assertEquals(Collections.singleton(1), bulk.getSuppressed());
+        assertTrue(bulk.isAllSent());
+        assertTrue(bulk.isSent(2));
+        verify(mailSender).send(messages.get(0), messages.get(2));
+    }
+    
+    private SuppressionList list(Path source, int runEntries) throws IOException {
+        SuppressionList list = new SuppressionList(source, directory.resolve(source.getFileName() + ".idx"),
+            new SuppressionIndexBuilder(runEntries, 10), 1000, registry);
+        lists.add(list);
+        list.load();
+        return list;
+    }
+    
+    private Path write(String name, List<String> lines) throws IOException {
+        return Files.write(directory.resolve(name), lines, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.notificationservice.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для EmailTemplateEngine.
+ * 
+ * Проверяет компиляцию шаблонов, выбор локали и горячую перезагрузку.
+ */
+class EmailTemplateEngineTest {
+    
+    @TempDir
+    Path directory;
+    
+    /**
+     * Тест подстановки переменных в скомпилированный шаблон.
+     */
+    @Test
+    void testCompiledTemplateRendersPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("Здравствуйте, {{ name }}! Ваш адрес: {{email}}.");
+        
+        String result = EmailTemplateEngine.render(template,
+            name -> "name".equals(name) ? "Иван" : "email".equals(name) ? "ivan@example.com" : null);
+        
+        assertEquals(2, template.getPlaceholderCount());
+        assertEquals("Здравствуйте, Иван! Ваш адрес: ivan@example.com.", result);
+        assertEquals("Здравствуйте, ! Ваш адрес: .", EmailTemplateEngine.render(template, TemplateVariables.EMPTY));
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("Текст {{email"));
+    }
+    
+    /**
+     * Тест выбора локали: точная, по языку, по умолчанию, встроенная.
+     */
+    @Test
+    void testLocaleFallbackAndBuiltinTemplates() throws Exception {
+        write("welcome_en.txt", "Welcome\nHello {{email}}");
+        write("welcome_ru.txt", "Добро пожаловать\nЗдравствуйте {{email}}");
+        EmailTemplateEngine engine = new EmailTemplateEngine(directory, new Locale("ru"), 16, 0);
+        
+        assertEquals("welcome_en", engine.find("welcome", Locale.US).getName());
+        assertEquals("welcome_ru", engine.find("welcome", Locale.GERMAN).getName());
+        assertEquals("welcome_ru", engine.find("WELCOME", null).getName());
+        assertNull(engine.find("missing", Locale.US));
+        
+        // Встроенный шаблон из classpath:templates/
+        EmailTemplate builtin = engine.find("create", null);
+        assertEquals("Добро пожаловать!", EmailTemplateEngine.render(builtin.getSubject(), TemplateVariables.EMPTY));
+        assertEquals("Hello! Your account for a@example.com has been created.",
+            EmailTemplateEngine.render(engine.find("create", Locale.UK).getBody(),
+                TemplateVariables.of(Collections.singletonMap("email", "a@example.com"))));
+    }
+    
+    /**
+     * Тест перезагрузки измененного файла и вытеснения из кэша.
+     */
+    @Test
+    void testHotReloadAndBoundedCache() throws Exception {
+        Path file = write("news_ru.txt", "Новости\nВерсия 1");
+        EmailTemplateEngine engine = new EmailTemplateEngine(directory, new Locale("ru"), 2, 0);
+        EmailTemplate first = engine.find("news", null);
+        assertSame(first, engine.find("news", null));
+        
+        write("news_ru.txt", "Новости\nВерсия 2");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        
+        EmailTemplate reloaded = engine.find("news", null);
+        assertNotSame(first, reloaded);
+        assertEquals("Версия 2", EmailTemplateEngine.render(reloaded.getBody(), TemplateVariables.EMPTY));
+        
+        engine.find("create", null);
+        engine.find("delete", null);
+        assertEquals(2, engine.getCachedCount());
+    }
+    
+    /**
+     * Тест отказа в именах шаблонов, выходящих за каталог шаблонов.
+     */
+    @Test
+    void testRejectsTemplateNamesOutsideDirectory() throws Exception {
+        Path templates = Files.createDirectory(directory.resolve("templates"));
+        write("secret.txt", "Секрет\nНе для писем");
+        Files.write(templates.resolve("notice.txt"), "Уведомление\nТекст".getBytes(StandardCharsets.UTF_8));
+        EmailTemplateEngine engine = new EmailTemplateEngine(templates, new Locale("ru"), 16, 0);
+        
+        assertEquals("notice", engine.find("Notice", null).getName());
+        assertNull(engine.find("../secret", null));
+        assertNull(engine.find("notice/../../secret", null));
+        assertNull(engine.find("/etc/passwd", null));
+        assertNull(engine.find("", null));
+    }
+    
+    private Path write(String name, String content) throws Exception {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
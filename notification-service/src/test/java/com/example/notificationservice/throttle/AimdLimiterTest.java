@@ -0,0 +1,95 @@
+package com.example.notificationservice.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для AimdLimiter.
+ * 
+ * Проверяет аддитивный рост, мультипликативное снижение и охлаждение.
+ */
+class AimdLimiterTest {
+    
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    /**
+     * Тест ограничения числа слотов текущим лимитом.
+     */
+    @Test
+    void testSlotsLimited() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 8, 1000, 0.5);
+        
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        
+        limiter.cancel();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+    
+    /**
+     * Тест роста лимита примерно на единицу за окно успешных отправок.
+     */
+    @Test
+    void testAdditiveIncrease() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 8, 1000, 0.5);
+        
+        // 2 -> 2.5 -> 2.9 -> 3.24
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(FAST);
+        }
+        assertEquals(3, limiter.getLimit());
+        
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(FAST);
+        }
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+    
+    /**
+     * Тест снижения лимита после отказа 4xx не чаще раза за период охлаждения.
+     */
+    @Test
+    void testMultiplicativeDecreaseWithCooldown() {
+        AimdLimiter limiter = new AimdLimiter(8, 1, 8, 60_000, 0.5);
+        
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        limiter.onThrottled();
+        assertEquals(4, limiter.getLimit());
+        
+        // Остальные отказы той же волны лимит не снижают
+        limiter.onThrottled();
+        limiter.onSuccess(TimeUnit.MINUTES.toNanos(2));
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+    
+    /**
+     * Тест снижения лимита медленной отправкой и нижней границы.
+     */
+    @Test
+    void testSlowSendDecreasesToMinimum() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 8, 0, 0.5);
+        
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(FAST);
+        }
+        assertEquals(1, limiter.getLimit());
+        
+        limiter.tryAcquire();
+        limiter.onIgnored();
+        assertEquals(1, limiter.getLimit());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.notificationservice.throttle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.support.BoundedExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для SendLanes.
+ * 
+ * Проверяет распределение слотов между полосами по весам, ограничение
+ * очередей и слотов полосы, метрики ожидания и передачу слотов исполнителю.
+ */
+class SendLanesTest {
+    
+    private final BoundedExecutor executor =
+        new BoundedExecutor("test-lanes", BoundedExecutor.ThreadType.PLATFORM, 1, 16);
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * Тест: транзакционные письма получают слот раньше массовых, поставленных до них.
+     */
+    @Test
+    void testTransactionalOvertakesBulk() throws Exception {
+        SendLanes lanes = newLanes(1, 16, 0);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        
+        // Слот занят массовой отправкой, пока ставятся письма обеих полос
+        assertTrue(lanes.acquire(Priority.BULK));
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            results.add(lanes.submit(Priority.BULK, record(order, "B" + i)));
+        }
+        for (int i = 1; i <= 3; i++) {
+            results.add(lanes.submit(Priority.TRANSACTIONAL, record(order, "T" + i)));
+        }
+        assertEquals(3, lanes.getQueued(Priority.BULK));
+        assertEquals(3, lanes.getQueued(Priority.TRANSACTIONAL));
+        lanes.release(Priority.BULK);
+        
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("T1", "T2", "T3", "B1", "B2", "B3"), order);
+        assertEquals(3, meterRegistry.get("notification.lane.wait").tag("lane", "transactional").timer().count());
+    }
+    
+    /**
+     * Тест: при заполнении всех полос слоты делятся пропорционально весам.
+     */
+    @Test
+    void testSlotsSharedByWeight() throws Exception {
+        SendLanes lanes = newLanes(1, 16, 0);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        
+        assertTrue(lanes.acquire(Priority.STANDARD));
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            results.add(lanes.submit(Priority.STANDARD, record(order, "S")));
+            results.add(lanes.submit(Priority.BULK, record(order, "B")));
+        }
+        lanes.release(Priority.STANDARD);
+        
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        // Вес standard 3, bulk 1: из первых 8 отправок 6 - standard
+        assertEquals(6, Collections.frequency(order.subList(0, 8), "S"));
+    }
+    
+    /**
+     * Тест: массовая полоса не занимает слоты сверх своего лимита.
+     */
+    @Test
+    void testMaxInFlightReservesSlots() {
+        SendLanes lanes = newLanes(2, 16, 1);
+        
+        assertTrue(lanes.acquire(Priority.BULK));
+        assertFalse(lanes.acquire(Priority.BULK, 50));
+        assertEquals(0, lanes.getQueued(Priority.BULK));
+        assertTrue(lanes.acquire(Priority.TRANSACTIONAL, 50));
+        assertEquals(1, lanes.getInFlight(Priority.BULK));
+        assertEquals(1, lanes.getInFlight(Priority.TRANSACTIONAL));
+        
+        lanes.release(Priority.BULK);
+        lanes.release(Priority.TRANSACTIONAL);
+        assertTrue(lanes.acquire(Priority.BULK, 50));
+    }
+    
+    /**
+     * Тест отказа при заполненной очереди полосы.
+     */
+    @Test
+    void testRejectsWhenLaneQueueFull() {
+        SendLanes lanes = newLanes(1, 2, 0);
+        
+        assertTrue(lanes.acquire(Priority.BULK));
+        lanes.submit(Priority.BULK, () -> "B1");
+        lanes.submit(Priority.BULK, () -> "B2");
+        assertThrows(RejectedExecutionException.class, () -> lanes.submit(Priority.BULK, () -> "B3"));
+        assertThrows(RejectedExecutionException.class, () -> lanes.submit(Priority.BULK, () -> "B3", 50));
+        // Очереди других полос не затронуты
+        CompletableFuture<String> transactional = lanes.submit(Priority.TRANSACTIONAL, () -> "T1");
+        assertEquals(1, lanes.getQueued(Priority.TRANSACTIONAL));
+        
+        lanes.release(Priority.BULK);
+        assertEquals("T1", transactional.join());
+    }
+    
+    /**
+     * Тест: при слотах, равных емкости исполнителя без очереди, письмо,
+     * получившее освободившийся слот, не получает отказ исполнителя.
+     */
+    @Test
+    void testHandOffWithinExecutorCapacity() throws Exception {
+        BoundedExecutor single = new BoundedExecutor("test-single", BoundedExecutor.ThreadType.PLATFORM, 1, 0);
+        try {
+            SendLanes lanes = new SendLanes(single, 1, limits(16), 1000, meterRegistry);
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(lanes.submit(Priority.BULK, () -> "B"));
+            }
+            
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            assertEquals(0, lanes.getInFlight(Priority.BULK));
+        } finally {
+            single.shutdown();
+        }
+    }
+    
+    /**
+     * Тест: отказ остановленного исполнителя завершает все ожидания без
+     * рекурсии и возвращает слот.
+     */
+    @Test
+    void testRejectedHandOffIsIterative() {
+        BoundedExecutor stopped = new BoundedExecutor("test-stopped", BoundedExecutor.ThreadType.PLATFORM, 1, 0);
+        stopped.shutdown();
+        SendLanes lanes = new SendLanes(stopped, 1, limits(20_000), 1000, meterRegistry);
+        
+        assertTrue(lanes.acquire(Priority.BULK));
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            results.add(lanes.submit(Priority.BULK, () -> "B"));
+        }
+        lanes.release(Priority.BULK);
+        
+        for (CompletableFuture<String> result : results) {
+            CompletionException error = assertThrows(CompletionException.class, result::join);
+            assertTrue(error.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, lanes.getInFlight(Priority.BULK));
+        assertTrue(lanes.tryAcquire(Priority.TRANSACTIONAL));
+    }
+    
+    private static Map<Priority, SendLanes.LaneLimit> limits(int bulkCapacity) {
+        Map<Priority, SendLanes.LaneLimit> limits = new EnumMap<>(Priority.class);
+        limits.put(Priority.TRANSACTIONAL, new SendLanes.LaneLimit(8, 16, 0));
+        limits.put(Priority.STANDARD, new SendLanes.LaneLimit(3, 16, 0));
+        limits.put(Priority.BULK, new SendLanes.LaneLimit(1, bulkCapacity, 0));
+        return limits;
+    }
+    
+    private SendLanes newLanes(int slots, int bulkCapacity, int bulkMaxInFlight) {
+        Map<Priority, SendLanes.LaneLimit> limits = new EnumMap<>(Priority.class);
+        limits.put(Priority.TRANSACTIONAL, new SendLanes.LaneLimit(8, 16, 0));
+        limits.put(Priority.STANDARD, new SendLanes.LaneLimit(3, 16, 0));
+        limits.put(Priority.BULK, new SendLanes.LaneLimit(1, bulkCapacity, bulkMaxInFlight));
+        return new SendLanes(executor, slots, limits, 1000, meterRegistry);
+    }
+    
+    private static Supplier<String> record(List<String> order, String name) {
+        return () -> {
+            order.add(name);
+            return name;
+        };
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.notificationservice.throttle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import com.example.notificationservice.dto.BulkSendResult;
+import com.example.notificationservice.dto.Priority;
+import com.example.notificationservice.dto.SendResult;
+import com.example.notificationservice.support.BoundedExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit тесты для SendThrottle.
+ * 
+ * Проверяет независимость очередей доменов, паузу после отказов 4xx,
+ * ограничение размера очередей, отправку пакета по доменам и ожидание
+ * слота полосы в очереди домена.
+ */
+class SendThrottleTest {
+    
+    private static final Function<SimpleMailMessage, SendResult> SENT =
+        message -> SendResult.sent(message.getTo()[0], 1);
+    
+    private final BoundedExecutor executor =
+        new BoundedExecutor("test-sender", BoundedExecutor.ThreadType.PLATFORM, 4, 16);
+    
+    private SendThrottle throttle;
+    
+    @AfterEach
+    void tearDown() {
+        if (throttle != null) {
+            throttle.close();
+        }
+        executor.shutdown();
+    }
+    
+    /**
+     * Тест: домен, упершийся в лимит скорости, не задерживает письма в другие домены.
+     */
+    @Test
+    void testThrottledDomainDoesNotBlockOthers() throws Exception {
+        throttle = newThrottle(SendThrottle.RateLimit.parseOverrides("slow.example=0.1:1"), 100);
+        
+        List<CompletableFuture<SendResult>> slow = new ArrayList<>();
+        List<CompletableFuture<SendResult>> fast = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            slow.add(throttle.submit(message("user" + i + "@slow.example"), SENT));
+            fast.add(throttle.submit(message("user" + i + "@fast.example"), SENT));
+        }
+        
+        for (CompletableFuture<SendResult> result : fast) {
+            assertTrue(result.get(5, TimeUnit.SECONDS).isSent());
+        }
+        // Первое письмо ушло по всплеску, остальные ждут токенов домена
+        assertTrue(slow.get(0).get(5, TimeUnit.SECONDS).isSent());
+        assertFalse(slow.get(1).isDone());
+    }
+    
+    /**
+     * Тест паузы домена и снижения лимита параллельности после ответа 4xx.
+     */
+    @Test
+    void testTransientFailurePausesDomain() {
+        throttle = newThrottle(Map.of(), 100);
+        int limit = throttle.getLimiter().getLimit();
+        
+        assertTrue(throttle.acquire("greylist.example", 1000));
+        throttle.release("greylist.example", TimeUnit.MILLISECONDS.toNanos(5),
+            SendResult.failed("user@greylist.example", 5, "451 4.7.1 Try again later", 451));
+        
+        assertTrue(throttle.getLimiter().getLimit() < limit);
+        assertFalse(throttle.acquire("greylist.example", 50));
+        assertTrue(throttle.acquire("other.example", 50));
+    }
+    
+    /**
+     * Тест отказа при заполненных очередях доменов.
+     */
+    @Test
+    void testRejectsWhenQueuesFull() throws Exception {
+        throttle = newThrottle(SendThrottle.RateLimit.parseOverrides("slow.example=0.1:1"), 2);
+        
+        // Отправленное письмо освобождает место в очереди
+        assertTrue(throttle.submit(message("a@slow.example"), SENT).get(5, TimeUnit.SECONDS).isSent());
+        throttle.submit(message("b@slow.example"), SENT);
+        throttle.submit(message("c@slow.example"), SENT);
+        
+        assertThrows(RejectedExecutionException.class,
+            () -> throttle.submit(message("d@slow.example"), SENT, 50));
+        assertThrows(RejectedExecutionException.class, () -> throttle.submit(message("d@fast.example"), SENT));
+    }
+    
+    /**
+     * Тест: письма пакета в один домен уходят одним вызовом, индексы результата - позиции в пакете.
+     */
+    @Test
+    void testBatchSentPerDomainInOneCall() throws Exception {
+        throttle = newThrottle(SendThrottle.RateLimit.parseOverrides("a.example=100:10"), 100);
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        List<SimpleMailMessage> batch = List.of(message("1@a.example"), message("2@b.example"),
+            message("bad@a.example"), message("4@b.example"), message("5@a.example"));
+        
+        BulkSendResult result = throttle.submitBatch(batch, null, messages -> {
+            List<String> recipients = new ArrayList<>();
+            Map<Integer, Exception> failures = new LinkedHashMap<>();
+            for (int i = 0; i < messages.size(); i++) {
+                recipients.add(messages.get(i).getTo()[0]);
+                if (recipients.get(i).startsWith("bad")) {
+                    failures.put(i, new IllegalStateException("550 mailbox unavailable"));
+                }
+            }
+            calls.add(recipients);
+            return new BulkSendResult(messages.size(), failures);
+        }, 1000).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(2, calls.size());
+        assertTrue(calls.contains(List.of("1@a.example", "bad@a.example", "5@a.example")));
+        assertTrue(calls.contains(List.of("2@b.example", "4@b.example")));
+        assertEquals(5, result.getTotal());
+        assertEquals(Map.of(2, result.getFailures().get(2)), result.getFailures());
+        assertEquals(0, throttle.getQueuedCount());
+    }
+    
+    /**
+     * Тест: письмо заполненной полосы ждет слота в очереди домена, а не в потоке исполнителя.
+     */
+    @Test
+    void testFullLaneKeepsMessageQueued() throws Exception {
+        Map<Priority, SendLanes.LaneLimit> limits = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            limits.put(priority, new SendLanes.LaneLimit(1, 16, 0));
+        }
+        SendLanes lanes = new SendLanes(executor, 1, limits, 1000, new SimpleMeterRegistry());
+        throttle = new SendThrottle(executor, new AimdLimiter(4, 1, 4, 1000, 0.5), lanes, "smtp.test",
+            SendThrottle.RateLimit.UNLIMITED, SendThrottle.RateLimit.UNLIMITED, Map.of(),
+            10_000, 60_000, 100, 1000, new SimpleMeterRegistry());
+        
+        assertTrue(lanes.acquire(Priority.BULK));
+        CompletableFuture<SendResult> result = throttle.submit(message("a@example.com"), Priority.BULK, SENT);
+        TimeUnit.MILLISECONDS.sleep(100);
+        
+        assertFalse(result.isDone());
+        assertEquals(1, throttle.getQueuedCount());
+        assertEquals(0, executor.getInFlight());
+        
+        lanes.release(Priority.BULK);
+        assertTrue(result.get(5, TimeUnit.SECONDS).isSent());
+        assertEquals(0, lanes.getInFlight(Priority.BULK));
+    }
+    
+    /**
+     * Тест разбора лимитов доменов и определения домена получателя.
+     */
+    @Test
+    void testDomainLimitsParsing() {
+        Map<String, SendThrottle.RateLimit> limits = SendThrottle.RateLimit.parseOverrides(" Gmail.com=20:40, mail.ru=5 ");
+        
+        assertEquals("20.0/s, burst 40", limits.get("gmail.com").toString());
+        assertEquals("5.0/s, burst 5", limits.get("mail.ru").toString());
+        assertEquals("gmail.com", SendThrottle.domainOf("User@GMail.com"));
+        assertEquals("", SendThrottle.domainOf(null));
+        assertThrows(IllegalArgumentException.class, () -> SendThrottle.RateLimit.parseOverrides("gmail.com"));
+    }
+    
+    private SendThrottle newThrottle(Map<String, SendThrottle.RateLimit> domainLimits, int queueCapacity) {
+        return new SendThrottle(executor, new AimdLimiter(4, 1, 4, 1000, 0.5), null, "smtp.test",
+            SendThrottle.RateLimit.UNLIMITED, SendThrottle.RateLimit.UNLIMITED, domainLimits,
+            10_000, 60_000, queueCapacity, 1000, new SimpleMeterRegistry());
+    }
+    
+    private static SimpleMailMessage message(String email) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(email);
+        message.setSubject("Тест");
+        message.setText("Текст");
+        return message;
+    }
+}